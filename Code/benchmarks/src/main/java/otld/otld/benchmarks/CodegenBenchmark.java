@@ -0,0 +1,50 @@
+package otld.otld.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import otld.otld.intermediate.Program;
+import otld.otld.jvm.BytecodeCompiler;
+import otld.otld.parsing.OTLDListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating bytecode for the intermediate representation with {@code BytecodeCompiler.compile()}, including the frame
+ * computation and writing of the class file. Only programs without errors can be compiled, and the company section must
+ * fit in a single method of at most 64 KB of bytecode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodegenBenchmark {
+    /** The program, see {@code Programs}. */
+    @Param({"Enschede", "runtimeErrors", "Enschede*10", "Enschede*100"})
+    public String program;
+
+    /** The intermediate representation of the program. */
+    private Program ir;
+
+    @Setup
+    public void setup() throws IOException {
+        final byte[] source = Programs.load(this.program).getBytes(StandardCharsets.UTF_8);
+        final OTLDListener listener = OTLDListener.parseFile(new ByteArrayInputStream(source));
+
+        if (!listener.getErrors().isEmpty()) {
+            throw new IllegalStateException(this.program + " contains errors");
+        }
+
+        this.ir = listener.getProgram();
+    }
+
+    @Benchmark
+    public byte[] compile() {
+        final BytecodeCompiler compiler = new BytecodeCompiler(this.ir);
+        compiler.compile();
+        return compiler.asByteArray();
+    }
+}
@@ -0,0 +1,59 @@
+package otld.otld.benchmarks;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.openjdk.jmh.annotations.*;
+import otld.otld.grammar.otldLexer;
+import otld.otld.grammar.otldParser;
+import otld.otld.parsing.OTLDListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole front end, from source to intermediate representation.
+ *
+ * {@code OTLDListener.parseFile} builds the intermediate representation while parsing, {@code tree} builds a parse
+ * tree first and walks it afterwards. Run with {@code -prof gc} to compare the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontEndBenchmark {
+    /** The program, see {@code Programs}. */
+    @Param({"Enschede", "Almere", "Amsterdam", "Nijmegen", "Enschede*10", "Enschede*100", "Enschede*1000"})
+    public String program;
+
+    /** The source of the program. */
+    private byte[] source;
+
+    @Setup
+    public void setup() throws IOException {
+        this.source = Programs.load(this.program).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public OTLDListener parseFile() throws IOException {
+        return OTLDListener.parseFile(new ByteArrayInputStream(this.source));
+    }
+
+    @Benchmark
+    public OTLDListener tree() throws IOException {
+        final otldLexer lexer = new otldLexer(new ANTLRInputStream(new ByteArrayInputStream(this.source)));
+        lexer.removeErrorListeners();
+        final otldParser parser = new otldParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        final ParseTree tree = parser.program();
+
+        final OTLDListener listener = new OTLDListener();
+        ParseTreeWalker.DEFAULT.walk(listener, tree);
+        return listener;
+    }
+}
@@ -0,0 +1,64 @@
+package otld.otld.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import otld.otld.intermediate.Program;
+import otld.otld.intermediate.io.IRReader;
+import otld.otld.intermediate.io.IRWriter;
+import otld.otld.parsing.OTLDListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the intermediate representation from the binary format, compared with parsing the source of the same program.
+ *
+ * {@code read} decodes a program that was written before, {@code write} encodes it, and {@code parseFile} is the front
+ * end that reading can replace. The sizes of the source and of the binary form are printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IRFormatBenchmark {
+    /** The program, see {@code Programs}. */
+    @Param({"Enschede", "Enschede*10", "Enschede*100", "Enschede*1000"})
+    public String program;
+
+    /** The source of the program. */
+    private byte[] source;
+
+    /** The intermediate representation of the program. */
+    private Program parsed;
+
+    /** The intermediate representation in the binary format. */
+    private byte[] binary;
+
+    @Setup
+    public void setup() throws IOException {
+        this.source = Programs.load(this.program).getBytes(StandardCharsets.UTF_8);
+        this.parsed = this.parseFile().getProgram();
+        this.binary = IRWriter.write(this.parsed);
+
+        System.out.printf("%n%s: %d bytes of source, %d bytes of binary%n", this.program, this.source.length,
+                this.binary.length);
+    }
+
+    @Benchmark
+    public OTLDListener parseFile() throws IOException {
+        return OTLDListener.parseFile(new ByteArrayInputStream(this.source));
+    }
+
+    @Benchmark
+    public Program read() throws IOException {
+        return IRReader.read(this.binary);
+    }
+
+    @Benchmark
+    public byte[] write() {
+        return IRWriter.write(this.parsed);
+    }
+}
@@ -0,0 +1,55 @@
+package otld.otld.benchmarks;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.Token;
+import org.openjdk.jmh.annotations.*;
+import otld.otld.grammar.otldLexer;
+import otld.otld.parsing.OTLDScanner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenization of a program by the generated {@code otldLexer} and by the hand-written {@code OTLDScanner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+    /** The program, see {@code Programs}. */
+    @Param({"Enschede", "Almere", "Amsterdam", "Maastricht", "Nijmegen", "runtimeErrors", "contextConstraints",
+            "spellingAndContext", "Enschede*10", "Enschede*100", "Enschede*1000"})
+    public String program;
+
+    /** The source of the program. */
+    private String source;
+
+    @Setup
+    public void setup() throws IOException {
+        this.source = Programs.load(this.program);
+    }
+
+    @Benchmark
+    public List<? extends Token> lex() {
+        final otldLexer lexer = new otldLexer(new ANTLRInputStream(this.source));
+        lexer.removeErrorListeners();
+        return lexer.getAllTokens();
+    }
+
+    @Benchmark
+    public List<Token> scan() {
+        final OTLDScanner scanner = new OTLDScanner(null);
+        scanner.setInputStream(this.source.toCharArray(), this.source.length());
+        final List<Token> tokens = new ArrayList<>();
+
+        for (Token token = scanner.nextToken(); token.getType() != Token.EOF; token = scanner.nextToken()) {
+            tokens.add(token);
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,55 @@
+package otld.otld.benchmarks;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.openjdk.jmh.annotations.*;
+import otld.otld.grammar.otldLexer;
+import otld.otld.grammar.otldParser;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the parse tree with {@code otldParser.program()}, from tokens that were produced in advance.
+ *
+ * The parse is done with full LL prediction or with SLL prediction, which {@code OTLDListener.parseFile} tries first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    /** The program, see {@code Programs}. */
+    @Param({"Enschede", "Almere", "Amsterdam", "Maastricht", "Nijmegen", "runtimeErrors", "contextConstraints",
+            "spellingAndContext", "Enschede*10", "Enschede*100", "Enschede*1000"})
+    public String program;
+
+    /** The prediction mode, {@code LL} or {@code SLL}. */
+    @Param({"LL", "SLL"})
+    public String prediction;
+
+    /** The tokens of the program. */
+    private List<? extends Token> tokens;
+
+    @Setup
+    public void setup() throws IOException {
+        final otldLexer lexer = new otldLexer(new ANTLRInputStream(Programs.load(this.program)));
+        lexer.removeErrorListeners();
+        this.tokens = lexer.getAllTokens();
+    }
+
+    @Benchmark
+    public ParseTree parse() {
+        final otldParser parser = new otldParser(new CommonTokenStream(new ListTokenSource(this.tokens)));
+        parser.removeErrorListeners();
+        parser.getInterpreter().setPredictionMode(PredictionMode.valueOf(this.prediction));
+        return parser.program();
+    }
+}
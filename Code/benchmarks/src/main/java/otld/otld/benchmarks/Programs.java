@@ -0,0 +1,103 @@
+package otld.otld.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The input programs of the benchmarks.
+ *
+ * A program is either the name of an example program of the compiler tests, such as {@code Enschede}, or a scaled
+ * program {@code <name>*<n>}, which is the example program with the statements of its company section repeated
+ * {@code n} times.
+ *
+ * The runtime benchmarks use kernels instead: small programs that loop a given number of times, with
+ * {@code ITERATIONS} in their source replaced by that number.
+ */
+final class Programs {
+    /** The resource folder of the example programs. */
+    private static final String FOLDER = "/otld/otld/parsing/";
+
+    /** The resource folder of the kernels. */
+    private static final String KERNELS = "/otld/otld/benchmarks/kernels/";
+
+    private Programs() {
+    }
+
+    /**
+     * Loads the source of a program.
+     *
+     * @param program The name of the program.
+     * @return The source.
+     * @throws IOException The program does not exist.
+     */
+    static String load(final String program) throws IOException {
+        final int star = program.indexOf('*');
+
+        if (star < 0) {
+            return read(FOLDER, program);
+        }
+
+        return scale(read(FOLDER, program.substring(0, star)), Integer.parseInt(program.substring(star + 1)));
+    }
+
+    /**
+     * Loads the source of a kernel.
+     *
+     * @param kernel The name of the kernel.
+     * @param iterations The number of iterations of the loop of the kernel.
+     * @return The source.
+     * @throws IOException The kernel does not exist.
+     */
+    static String kernel(final String kernel, final int iterations) throws IOException {
+        return read(KERNELS, kernel).replace("ITERATIONS", Integer.toString(iterations));
+    }
+
+    /**
+     * Repeats the statements of the company section of a program.
+     *
+     * @param source The source of the program.
+     * @param copies The number of copies of the statements.
+     * @return The scaled source.
+     */
+    static String scale(final String source, final int copies) {
+        final int begin = source.indexOf("Begin company;") + "Begin company;".length();
+        final int end = source.lastIndexOf("End company;");
+        final String body = source.substring(begin, end);
+        final StringBuilder scaled = new StringBuilder(source.length() + body.length() * copies);
+
+        scaled.append(source, 0, begin);
+        for (int i = 0; i < copies; i++) {
+            scaled.append(body);
+        }
+        scaled.append(source, end, source.length());
+
+        return scaled.toString();
+    }
+
+    /**
+     * Reads a program from the resources.
+     *
+     * @param folder The resource folder of the program.
+     * @param name The name of the program.
+     * @return The source.
+     * @throws IOException The program does not exist.
+     */
+    private static String read(final String folder, final String name) throws IOException {
+        try (InputStream in = Programs.class.getResourceAsStream(folder + name + ".tldr")) {
+            if (in == null) {
+                throw new FileNotFoundException(name);
+            }
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package otld.otld.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Runs the benchmarks with the JMH command line options.
+ *
+ * Unless another result format or file is given ({@code -rf}, {@code -rff}), the results are written as JSON to
+ * {@code jmh-result.json}, so runs on different commits can be compared with any JMH result viewer or a script.
+ */
+public class Runner {
+    /** The default result file. */
+    public static final String RESULT = "jmh-result.json";
+
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        final CommandLineOptions options = new CommandLineOptions(args);
+
+        if (options.shouldHelp()) {
+            options.showHelp();
+            return;
+        }
+
+        final ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+
+        if (!options.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!options.getResult().hasValue()) {
+            builder.result(RESULT);
+        }
+
+        new org.openjdk.jmh.runner.Runner(builder.build()).run();
+    }
+}
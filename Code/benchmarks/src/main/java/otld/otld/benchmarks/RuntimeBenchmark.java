@@ -0,0 +1,86 @@
+package otld.otld.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import otld.otld.jvm.BytecodeCompiler;
+import otld.otld.jvm.ProgramClassLoader;
+import otld.otld.parsing.OTLDListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running compiled programs: the steady-state throughput of the bytecode generated by {@code BytecodeCompiler}.
+ *
+ * Every kernel (see {@code Programs}) is compiled once and loaded with a {@code ProgramClassLoader}, after which its
+ * main method is invoked repeatedly. The kernels write their result to the journal, so the loop cannot be optimized
+ * away; the journal is discarded while benchmarking. Compare the results with those of a baseline commit to measure a
+ * change to the code generation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuntimeBenchmark {
+    /** The arguments of the main method. */
+    private static final String[] ARGS = new String[0];
+
+    /** The kernel. */
+    @Param({"circle", "arithmetic", "factory", "conditional"})
+    public String kernel;
+
+    /** The number of iterations of the loop of the kernel. */
+    @Param({"1000", "100000"})
+    public int iterations;
+
+    /** The main method of the compiled kernel. */
+    private MethodHandle main;
+
+    /** The original standard output. */
+    private PrintStream out;
+
+    @Setup
+    public void setup() throws IOException, ReflectiveOperationException {
+        final byte[] source = Programs.kernel(this.kernel, this.iterations).getBytes(StandardCharsets.UTF_8);
+        final OTLDListener listener = OTLDListener.parseFile(new ByteArrayInputStream(source));
+
+        if (!listener.getErrors().isEmpty()) {
+            throw new IllegalStateException(this.kernel + " contains errors");
+        }
+
+        final BytecodeCompiler compiler = new BytecodeCompiler(listener.getProgram());
+        compiler.compile();
+
+        final Class<?> program = new ProgramClassLoader().define(compiler.asByteArray());
+        this.main = MethodHandles.publicLookup().findStatic(program, "main", MethodType.methodType(void.class, String[].class));
+
+        this.out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(final int b) {
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) {
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(this.out);
+    }
+
+    @Benchmark
+    public void run() throws Throwable {
+        this.main.invokeExact(ARGS);
+    }
+}
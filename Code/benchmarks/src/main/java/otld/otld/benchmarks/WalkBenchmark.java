@@ -0,0 +1,52 @@
+package otld.otld.benchmarks;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.openjdk.jmh.annotations.*;
+import otld.otld.grammar.otldLexer;
+import otld.otld.grammar.otldParser;
+import otld.otld.parsing.OTLDListener;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walking a parse tree with the {@code OTLDListener} to build the intermediate representation. Only programs without
+ * syntax errors are walked by the compiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WalkBenchmark {
+    /** The program, see {@code Programs}. */
+    @Param({"Enschede", "Almere", "Amsterdam", "Nijmegen", "runtimeErrors", "Enschede*10", "Enschede*100", "Enschede*1000"})
+    public String program;
+
+    /** The parse tree of the program. */
+    private ParseTree tree;
+
+    @Setup
+    public void setup() throws IOException {
+        final otldLexer lexer = new otldLexer(new ANTLRInputStream(Programs.load(this.program)));
+        lexer.removeErrorListeners();
+        final otldParser parser = new otldParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        this.tree = parser.program();
+
+        if (parser.getNumberOfSyntaxErrors() > 0) {
+            throw new IllegalStateException(this.program + " contains syntax errors");
+        }
+    }
+
+    @Benchmark
+    public OTLDListener walk() {
+        final OTLDListener listener = new OTLDListener();
+        ParseTreeWalker.DEFAULT.walk(listener, this.tree);
+        return listener;
+    }
+}
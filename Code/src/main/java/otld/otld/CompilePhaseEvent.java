@@ -0,0 +1,59 @@
+package otld.otld;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a phase of a compile.
+ *
+ * This class is only loaded when the JVM supports Flight Recorder; {@code CompileTimings} only refers to it through the
+ * static methods and keeps the events as plain objects.
+ */
+@Name("otld.CompilePhase")
+@Label("Compile Phase")
+@Category("OTLD")
+@Description("A phase of compiling an OTLD program")
+class CompilePhaseEvent extends Event {
+    /** The name of the phase. */
+    @Label("Phase")
+    String phase;
+
+    /** The bytes allocated by the compiling thread during the phase, including nested phases. */
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+
+    /**
+     * Starts an event.
+     *
+     * @param phase The name of the phase.
+     * @return The event, or {@code null} if the event is not recorded.
+     */
+    static Object start(final String phase) {
+        final CompilePhaseEvent event = new CompilePhaseEvent();
+
+        if (!event.isEnabled()) {
+            return null;
+        }
+
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends and records an event.
+     *
+     * @param event The event from {@code start}.
+     * @param allocated The bytes allocated during the phase or -1.
+     */
+    static void finish(final Object event, final long allocated) {
+        final CompilePhaseEvent phase = (CompilePhaseEvent) event;
+        phase.allocated = allocated;
+        phase.commit();
+    }
+}
@@ -0,0 +1,271 @@
+package otld.otld;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Wall time and allocated memory of the phases of a compile.
+ *
+ * Phases are started with {@link #begin(Phase)} and ended with {@link #end()}. Phases may be nested; time and memory are
+ * charged to the innermost running phase only, so the phases add up to the total. Allocations are read from the thread
+ * allocation counter of the current thread, so a compile must begin and end its phases on a single thread.
+ *
+ * Every phase is also emitted as a JFR event ({@code otld.CompilePhase}) when the JVM supports Flight Recorder, so phases
+ * can be correlated with garbage collections in a recording.
+ */
+public class CompileTimings {
+    /**
+     * The phases of a compile.
+     */
+    public enum Phase {
+        /** Reading the source into the lexer and producing tokens. */
+        LEX("lex"),
+
+        /** Parsing the tokens and building the intermediate representation. */
+        PARSE("parse"),
+
+        /** Visiting the intermediate representation to generate bytecode. */
+        CODEGEN("codegen"),
+
+        /** Computing stack map frames and writing the class file. */
+        EMIT("emit"),
+
+        /** Reading the source and writing the output. */
+        IO("io");
+
+        /** The name of the phase in reports. */
+        private final String label;
+
+        Phase(final String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return The name of the phase in reports.
+         */
+        public String getLabel() {
+            return this.label;
+        }
+    }
+
+    /** The thread allocation counters, or {@code null} if not supported by the JVM. */
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationCounters();
+
+    /** Whether the JVM supports Flight Recorder events. */
+    private static final boolean EVENTS = isClassPresent("jdk.jfr.Event");
+
+    /** The wall time per phase in nanoseconds. */
+    private final long[] nanos;
+
+    /** The allocated bytes per phase. */
+    private final long[] bytes;
+
+    /** The running phases, innermost first. */
+    private final Deque<Span> running;
+
+    /** The wall clock time when time was last charged to a phase. */
+    private long mark;
+
+    /** The allocated bytes of the thread when memory was last charged to a phase. */
+    private long markBytes;
+
+    public CompileTimings() {
+        this.nanos = new long[Phase.values().length];
+        this.bytes = new long[Phase.values().length];
+        this.running = new ArrayDeque<>();
+    }
+
+    /**
+     * Starts a phase. The phase that was running is paused until this phase ends.
+     *
+     * @param phase The phase.
+     */
+    public void begin(final Phase phase) {
+        final long now = System.nanoTime();
+        final long allocated = allocatedBytes();
+        this.charge(now, allocated);
+        this.running.push(new Span(phase, allocated, EVENTS ? CompilePhaseEvent.start(phase.getLabel()) : null));
+    }
+
+    /**
+     * Ends the innermost running phase. The phase that was paused by it continues.
+     */
+    public void end() {
+        final long now = System.nanoTime();
+        final long allocated = allocatedBytes();
+        this.charge(now, allocated);
+
+        final Span span = this.running.pop();
+        if (span.event != null) {
+            CompilePhaseEvent.finish(span.event, span.bytes < 0 ? -1 : allocated - span.bytes);
+        }
+    }
+
+    /**
+     * @param phase The phase.
+     * @return The wall time of the phase in nanoseconds.
+     */
+    public long getNanos(final Phase phase) {
+        return this.nanos[phase.ordinal()];
+    }
+
+    /**
+     * @param phase The phase.
+     * @return The bytes allocated during the phase, or -1 if the JVM does not count allocations.
+     */
+    public long getAllocatedBytes(final Phase phase) {
+        return ALLOCATIONS == null ? -1 : this.bytes[phase.ordinal()];
+    }
+
+    /**
+     * @return The wall time of all phases in nanoseconds.
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (long value : this.nanos) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * @return The bytes allocated during all phases, or -1 if the JVM does not count allocations.
+     */
+    public long getTotalAllocatedBytes() {
+        if (ALLOCATIONS == null) {
+            return -1;
+        }
+
+        long total = 0;
+        for (long value : this.bytes) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Adds the phases of another compile to this one, for example to get the totals of several compiles.
+     *
+     * @param other The timings of the other compile.
+     */
+    public void add(final CompileTimings other) {
+        for (int i = 0; i < this.nanos.length; i++) {
+            this.nanos[i] += other.nanos[i];
+            this.bytes[i] += other.bytes[i];
+        }
+    }
+
+    /**
+     * @return A report with one line per phase and a line with the total.
+     */
+    public List<String> describe() {
+        final List<String> lines = new ArrayList<>(this.nanos.length + 1);
+
+        for (Phase phase : Phase.values()) {
+            lines.add(line(phase.getLabel(), this.getNanos(phase), this.getAllocatedBytes(phase)));
+        }
+        lines.add(line("total", this.getTotalNanos(), this.getTotalAllocatedBytes()));
+
+        return lines;
+    }
+
+    /**
+     * Charges the time and memory since the last mark to the innermost running phase.
+     *
+     * @param now The current wall clock time.
+     * @param allocated The current allocated bytes of the thread.
+     */
+    private void charge(final long now, final long allocated) {
+        final Span span = this.running.peek();
+
+        if (span != null) {
+            this.nanos[span.phase.ordinal()] += now - this.mark;
+            this.bytes[span.phase.ordinal()] += allocated - this.markBytes;
+        }
+
+        this.mark = now;
+        this.markBytes = allocated;
+    }
+
+    /**
+     * Formats a line of the report.
+     *
+     * @param label The name of the phase.
+     * @param nanos The wall time in nanoseconds.
+     * @param bytes The allocated bytes or -1.
+     * @return The line.
+     */
+    private static String line(final String label, final long nanos, final long bytes) {
+        return String.format("%-8s %10.3f ms %12s", label, nanos / 1e6, bytes < 0 ? "n/a" : String.format("%,d B", bytes));
+    }
+
+    /**
+     * @return The bytes allocated by the current thread, or -1 if the JVM does not count allocations.
+     */
+    private static long allocatedBytes() {
+        return ALLOCATIONS == null ? -1 : ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return The thread allocation counters, or {@code null} if not supported by the JVM.
+     */
+    private static com.sun.management.ThreadMXBean allocationCounters() {
+        if (!isClassPresent("com.sun.management.ThreadMXBean")) {
+            return null;
+        }
+
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean counters = (com.sun.management.ThreadMXBean) bean;
+
+            if (counters.isThreadAllocatedMemorySupported() && counters.isThreadAllocatedMemoryEnabled()) {
+                return counters;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param name The name of a class.
+     * @return Whether the class can be loaded.
+     */
+    private static boolean isClassPresent(final String name) {
+        try {
+            Class.forName(name, false, CompileTimings.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompileTimings %.3f ms", this.getTotalNanos() / 1e6);
+    }
+
+    /**
+     * A running phase.
+     */
+    private static class Span {
+        /** The phase. */
+        private final Phase phase;
+
+        /** The allocated bytes of the thread when the phase started. */
+        private final long bytes;
+
+        /** The Flight Recorder event or {@code null}. */
+        private final Object event;
+
+        private Span(final Phase phase, final long bytes, final Object event) {
+            this.phase = phase;
+            this.bytes = bytes;
+            this.event = event;
+        }
+    }
+}
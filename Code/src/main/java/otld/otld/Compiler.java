@@ -6,10 +6,11 @@ import otld.otld.intermediate.*;
  * Base compiler class for OTLD compiler back ends.
  *
  * Compilers use the visitor pattern. The methods are designed to be called while looking into the Program tree of the
- * intermediate representation. There are visitor methods for abstract classes, these can be implemented directly or
- * call the correct more specialized visitor function.
+ * intermediate representation. Operations are visited through {@code IRVisitor}: {@code visitOperation} lets the
+ * operation call the visitor method for its type. Compilers keep their state in fields, so they do not use the context
+ * and result of the visitor methods.
  */
-public abstract class Compiler {
+public abstract class Compiler implements IRVisitor<Void, Void> {
     /** The program which is being compiled. */
     protected Program program;
 
@@ -67,40 +68,25 @@ public abstract class Compiler {
     //
 
     /**
-     * Visitor method for an operator application operation.
-     * @param application The application instance.
-     */
-    protected abstract void visitApplication(final Application application);
-
-    /**
-     * Visitor method for an assignment operation.
-     * @param assignment The assignment instance.
-     */
-    protected abstract void visitAssignment(final Assignment assignment);
-
-    /**
-     * Visitor method for a block operation.
-     * @param block The block instance.
-     */
-    protected abstract void visitBlock(final Block block);
-
-    /**
-     * Visitor method for a break operation.
-     * @param brake The break instance.
-     */
-    protected abstract void visitBreak(final Break brake);
-
-    /**
-     * Visitor method for a function call operation.
-     * @param call The call instance.
+     * Visitor method for an operation, which calls the visitor method for the specific type of operation.
+     * @param operation The operation instance.
      */
-    protected abstract void visitCall(final Call call);
+    protected void visitOperation(final Operation operation) {
+        operation.accept(this, null);
+    }
 
     /**
-     * Visitor method for a conditional block operation.
-     * @param conditional The conditional instance.
+     * Raises an {@code UnsupportedOperationException} for operations that are not part of the intermediate
+     * representation itself.
+     * @param operation The operation instance.
+     * @param context Unused.
+     * @return Nothing.
      */
-    protected abstract void visitConditional(final Conditional conditional);
+    @Override
+    public Void visitOther(final Operation operation, final Void context) {
+        this.unsupported(operation);
+        return null;
+    }
 
     /**
      * Visitor method for a function definition.
@@ -108,24 +94,6 @@ public abstract class Compiler {
      */
     protected abstract void visitFunction(final Function function);
 
-    /**
-     * Visitor method for an input operation.
-     * @param input The input instance.
-     */
-    protected abstract void visitInput(final Input input);
-
-    /**
-     * Visitor method for a loop block operation.
-     * @param loop The loop instance.
-     */
-    protected abstract void visitLoop(final Loop loop);
-
-    /**
-     * Visitor method for an operation.
-     * @param operation The operation instance.
-     */
-    protected abstract void visitOperation(final Operation operation);
-
     /**
      * Visitor method for an operation sequence.
      * @param sequence The operation sequence instance.
@@ -138,39 +106,16 @@ public abstract class Compiler {
      */
     protected abstract void visitOperator(final Operator operator);
 
-    /**
-     * Visitor method for an output operation.
-     * @param output The output instance.
-     */
-    protected abstract void visitOutput(final Output output);
-
     /**
      * Visitor method for a program.
      * @param program The program instance.
      */
     protected abstract void visitProgram(final Program program);
 
-    /**
-     * Visitor method for a return operation.
-     * @param returm The return instance.
-     */
-    protected abstract void visitReturn(final Return returm);
-
-    /**
-     * Visitor method for a value assignment operation.
-     * @param assignment The value assignment instance.
-     */
-    protected abstract void visitValueAssignment(final ValueAssignment assignment);
-
     /**
      * Visitor method for a variable definition.
      * @param variable The variable instance.
      */
     protected abstract void visitVariable(final Variable variable);
 
-    /**
-     * Visitor method for a variable assignment operation.
-     * @param assignment The variable assignment instance.
-     */
-    protected abstract void visitVariableAssignment(final VariableAssignment assignment);
 }
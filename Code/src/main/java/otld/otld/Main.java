@@ -1,12 +1,27 @@
 package otld.otld;
 
-import otld.otld.intermediate.Program;
+import org.objectweb.asm.ClassReader;
+import otld.otld.driver.BatchCompiler;
+import otld.otld.driver.BuildCache;
+import otld.otld.driver.CompileDaemon;
+import otld.otld.driver.CompileResult;
+import otld.otld.driver.DaemonClient;
+import otld.otld.driver.JarBundler;
+import otld.otld.driver.SourceWatcher;
+import otld.otld.driver.Warmup;
 import otld.otld.jvm.BytecodeCompiler;
+import otld.otld.jvm.ProgramClassLoader;
 import otld.otld.parsing.*;
 import otld.otld.parsing.Error;
 
 import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Main class of the application.
@@ -17,6 +32,12 @@ public class Main {
     public static final String VERSION = "v0.1";
     public static final String EXT = "tldr";
 
+    /** Default maximum size of the build cache in megabytes. */
+    public static final int CACHE_SIZE = (int) (BuildCache.DEFAULT_SIZE / 1024 / 1024);
+
+    /** Size in bytes from which source files are streamed instead of read into memory, see {@code OTLDListener.parseStream}. */
+    public static final long STREAMING_THRESHOLD = 16L * 1024 * 1024;
+
     /**
      * Main method of the compiler suite.
      */
@@ -26,6 +47,18 @@ public class Main {
                 case "compile":
                     handleCompile(args);
                     break;
+                case "run":
+                    handleRun(args);
+                    break;
+                case "daemon":
+                    handleDaemon(args);
+                    break;
+                case "watch":
+                    handleWatch(args);
+                    break;
+                case "warmup":
+                    handleWarmup(args);
+                    break;
                 case "help":
                     printHelp();
                     break;
@@ -40,63 +73,579 @@ public class Main {
     /**
      * Handler for the compile command.
      *
+     * Files are compiled in parallel by a bounded number of workers ({@code -j N}, defaults to the number of
+     * processors). Diagnostics are printed in the order of the arguments. A failing file does not stop the others; the
+     * exit code is non-zero when at least one file failed.
+     *
      * @param args The original arguments of the program.
      */
     public static void handleCompile(final String[] args) {
-        String[] filenames = new String[args.length - 1];
-
-        // Collect all file names
-        if (args.length > 1) {
-            for (int i = 1; i < args.length; i++) {
-                if (!args[i].matches("[a-zA-Z][a-zA-Z0-9]*")) {
-                    System.err.println("Invalid program name: " + args[i]);
-                    System.exit(1);
-                }
-                filenames[i - 1] = args[i];
+        List<File> files = new ArrayList<>();
+        int jobs = Runtime.getRuntime().availableProcessors();
+        boolean daemon = false;
+        int port = CompileDaemon.DEFAULT_PORT;
+        String cacheDir = null;
+        int cacheSize = CACHE_SIZE;
+        String jar = null;
+        boolean timings = false;
+
+        // Collect all options and file names
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-j")) {
+                jobs = parseNumber(args, ++i, "Invalid number of jobs.");
+            } else if (args[i].equals("--timings")) {
+                timings = true;
+            } else if (args[i].equals("--jar")) {
+                jar = parseOption(args, ++i, "Invalid jar file.");
+            } else if (args[i].equals("--cache")) {
+                cacheDir = parseOption(args, ++i, "Invalid cache directory.");
+            } else if (args[i].equals("--cache-size")) {
+                cacheSize = parseNumber(args, ++i, "Invalid cache size.");
+            } else if (args[i].equals("-p")) {
+                port = parseNumber(args, ++i, "Invalid port.");
+            } else if (args[i].equals("--daemon")) {
+                daemon = true;
+            } else if (!args[i].matches("[a-zA-Z][a-zA-Z0-9]*")) {
+                System.err.println("Invalid program name: " + args[i]);
+                System.exit(1);
+            } else {
+                files.add(new File(args[i] + "." + EXT));
             }
         }
 
-        // Compile all file names
-        for (String filename : filenames) {
-            try {
-                File file = new File(filename + "." + EXT);
-                compile(file);
-            } catch (IOException e) {
-                System.err.println(String.format("Error with file: %s (%s)", filename, e.getMessage()));
+        // Let a running daemon compile the files
+        if (daemon) {
+            if (jar != null || timings) {
+                System.err.println("The daemon cannot write a jar or report timings.");
+                System.exit(1);
             }
+            compileWithDaemon(files, port);
+            return;
+        }
+
+        // Compile all files
+        final boolean[] failed = {false};
+        BatchCompiler compiler = new BatchCompiler(Math.max(1, Math.min(jobs, files.size())), openCache(cacheDir, cacheSize));
+
+        final CompileTimings total = new CompileTimings();
+        final Consumer<CompileResult> report = !timings ? result -> { } : result -> {
+            if (result.getTimings() != null) {
+                printTimings(result.getName(), result.getTimings());
+                total.add(result.getTimings());
+            }
+        };
+
+        if (jar == null) {
+            compiler.compile(files, result -> {
+                result.report(System.err);
+                failed[0] |= !result.isSuccess();
+                report.accept(result);
+            });
+        } else {
+            failed[0] = !compileToJar(compiler, files, new File(jar), report);
+        }
+        compiler.shutdown();
+
+        if (timings && files.size() > 1) {
+            printTimings("all programs", total);
+        }
+
+        if (failed[0]) {
+            System.exit(1);
         }
     }
 
     /**
-     * Compiles the given file.
+     * Compiles the files into a single jar and prints the diagnostics. Programs with errors are left out of the jar.
      *
-     * @param file The source file to compile.
-     * @throws IOException There was an error reading the given file or writing the output file.
+     * @param compiler The compiler.
+     * @param files The source files to compile.
+     * @param jar The jar file.
+     * @return Whether all files were compiled and written to the jar.
+     */
+    public static boolean compileToJar(final BatchCompiler compiler, final List<File> files, final File jar) {
+        return compileToJar(compiler, files, jar, result -> { });
+    }
+
+    /**
+     * Compiles the files into a single jar and prints the diagnostics. Programs with errors are left out of the jar.
+     *
+     * @param compiler The compiler.
+     * @param files The source files to compile.
+     * @param jar The jar file.
+     * @param consumer Additional consumer of the results, called after the program was written.
+     * @return Whether all files were compiled and written to the jar.
+     */
+    public static boolean compileToJar(final BatchCompiler compiler, final List<File> files, final File jar,
+                                       final Consumer<CompileResult> consumer) {
+        final boolean[] success = {true};
+
+        try (JarBundler bundler = new JarBundler(jar)) {
+            // Results arrive in order on this thread, so the jar has a single writer
+            compiler.translate(files, result -> {
+                result.report(System.err);
+
+                if (result.isSuccess()) {
+                    try {
+                        bundler.add(result.getBytecode());
+                    } catch (IOException e) {
+                        System.err.println(String.format("Error with file: %s (%s)", result.getName(), e.getMessage()));
+                        success[0] = false;
+                    }
+                } else {
+                    success[0] = false;
+                }
+
+                consumer.accept(result);
+            });
+        } catch (IOException e) {
+            System.err.println(String.format("Error with jar: %s (%s)", jar, e.getMessage()));
+            return false;
+        }
+
+        return success[0];
+    }
+
+    /**
+     * Prints the time and memory spent per phase.
+     *
+     * @param name The name of the program.
+     * @param timings The timings.
      */
-    public static void compile(final File file) throws IOException {
-        FileInputStream in = new FileInputStream(file);
+    public static void printTimings(final String name, final CompileTimings timings) {
+        System.out.println(String.format("Timings for %s:", name));
 
-        OTLDListener parser = OTLDListener.parseFile(in);
+        for (String line : timings.describe()) {
+            System.out.println("  " + line);
+        }
+    }
+
+    /**
+     * Sends the files to a running compile daemon and prints the diagnostics.
+     *
+     * @param files The source files to compile.
+     * @param port The port of the daemon.
+     */
+    public static void compileWithDaemon(final List<File> files, final int port) {
+        boolean failed = false;
+
+        try (DaemonClient client = new DaemonClient(port)) {
+            for (DaemonClient.Response response : client.compile(files)) {
+                for (String line : response.getLines()) {
+                    System.err.println(line);
+                }
+                failed |= !response.isSuccess();
+            }
+        } catch (IOException e) {
+            System.err.println(String.format("Error with daemon on port %d (%s)", port, e.getMessage()));
+            failed = true;
+        }
+
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Handler for the run command.
+     *
+     * Compiles the program and runs it in the current JVM, without writing a class file. Arguments after the program
+     * name are passed to the program.
+     *
+     * @param args The original arguments of the program.
+     */
+    public static void handleRun(final String[] args) {
+        if (args.length < 2 || !args[1].matches("[a-zA-Z][a-zA-Z0-9]*")) {
+            System.err.println("Invalid program name: " + (args.length < 2 ? "" : args[1]));
+            System.exit(1);
+        }
+
+        OTLDListener parser = null;
+
+        try (FileInputStream in = new FileInputStream(args[1] + "." + EXT)) {
+            parser = OTLDListener.parseFile(in);
+        } catch (IOException e) {
+            System.err.println(String.format("Error with file: %s (%s)", args[1], e.getMessage()));
+            System.exit(1);
+        }
 
         if (!parser.getErrors().isEmpty()) {
             handleCompileErrors(parser.getErrors());
             System.exit(1);
         }
 
-        Program program = parser.getProgram();
-
         // Compile program to bytecode
-        Compiler compiler = new BytecodeCompiler(program);
+        Compiler compiler = new BytecodeCompiler(parser.getProgram());
         compiler.compile();
 
-        // Get output path
-        String folderPath = file.getParent();
-        String outPath = (folderPath == null ? program.getId() : folderPath) + ".class";
-        FileOutputStream out = new FileOutputStream(outPath);
+        // Load and run the program
+        try {
+            new ProgramClassLoader().run(compiler.asByteArray(), Arrays.copyOfRange(args, 2, args.length));
+        } catch (InvocationTargetException e) {
+            e.getCause().printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Handler for the daemon command.
+     *
+     * Starts a compile daemon, or sends the {@code stats} or {@code stop} request to a running daemon.
+     *
+     * @param args The original arguments of the program.
+     */
+    public static void handleDaemon(final String[] args) {
+        int jobs = Runtime.getRuntime().availableProcessors();
+        int port = CompileDaemon.DEFAULT_PORT;
+        String cacheDir = null;
+        int cacheSize = CACHE_SIZE;
+        String request = null;
 
-        // Write program bytecode
-        out.write(compiler.asByteArray());
-        out.close();
+        // Collect all options
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-j")) {
+                jobs = parseNumber(args, ++i, "Invalid number of jobs.");
+            } else if (args[i].equals("--cache")) {
+                cacheDir = parseOption(args, ++i, "Invalid cache directory.");
+            } else if (args[i].equals("--cache-size")) {
+                cacheSize = parseNumber(args, ++i, "Invalid cache size.");
+            } else if (args[i].equals("-p")) {
+                port = parseNumber(args, ++i, "Invalid port.");
+            } else if (request == null && (args[i].equals("stats") || args[i].equals("stop"))) {
+                request = args[i];
+            } else {
+                System.err.println("Invalid daemon option: " + args[i]);
+                System.exit(1);
+            }
+        }
+
+        try {
+            if (request == null) {
+                CompileDaemon daemon = new CompileDaemon(port, jobs, openCache(cacheDir, cacheSize));
+                System.out.println(String.format("Compile daemon listening on port %d", daemon.getPort()));
+                daemon.run();
+            } else {
+                try (DaemonClient client = new DaemonClient(port)) {
+                    if (request.equals("stats")) {
+                        for (String line : client.statistics()) {
+                            System.out.println(line);
+                        }
+                    } else {
+                        client.stop();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(String.format("Error with daemon on port %d (%s)", port, e.getMessage()));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Handler for the watch command.
+     *
+     * Compiles all programs in a directory tree and then recompiles programs as their source changes, until the process
+     * is stopped.
+     *
+     * @param args The original arguments of the program.
+     */
+    public static void handleWatch(final String[] args) {
+        int jobs = Runtime.getRuntime().availableProcessors();
+        int debounce = (int) SourceWatcher.DEFAULT_DEBOUNCE;
+        String cacheDir = null;
+        int cacheSize = CACHE_SIZE;
+        File directory = null;
+
+        // Collect all options and the directory
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-j")) {
+                jobs = parseNumber(args, ++i, "Invalid number of jobs.");
+            } else if (args[i].equals("--debounce")) {
+                debounce = parseNumber(args, ++i, "Invalid debounce time.");
+            } else if (args[i].equals("--cache")) {
+                cacheDir = parseOption(args, ++i, "Invalid cache directory.");
+            } else if (args[i].equals("--cache-size")) {
+                cacheSize = parseNumber(args, ++i, "Invalid cache size.");
+            } else if (directory == null) {
+                directory = new File(args[i]);
+            } else {
+                System.err.println("Invalid watch option: " + args[i]);
+                System.exit(1);
+            }
+        }
+
+        if (directory == null || !directory.isDirectory()) {
+            System.err.println("Invalid directory: " + (directory == null ? "" : directory));
+            System.exit(1);
+        }
+
+        BatchCompiler compiler = new BatchCompiler(jobs, openCache(cacheDir, cacheSize));
+
+        try (SourceWatcher watcher = new SourceWatcher(directory, compiler, debounce, result -> {
+            result.report(System.err);
+            System.err.println(String.format("%s %s", result.isSuccess() ? "Compiled" : "Failed", result.getSource()));
+        })) {
+            watcher.compileAll();
+            System.err.println(String.format("Watching %s", directory));
+            watcher.run();
+        } catch (IOException e) {
+            System.err.println(String.format("Error with directory: %s (%s)", directory, e.getMessage()));
+            System.exit(1);
+        } finally {
+            compiler.shutdown();
+        }
+    }
+
+    /**
+     * Handler for the warmup command.
+     *
+     * Writes a class data sharing archive by compiling a corpus of programs in a new JVM. The launcher script uses the
+     * archive when it is next to the jar. With {@code --exercise} the corpus is only compiled in the current JVM.
+     *
+     * @param args The original arguments of the program.
+     */
+    public static void handleWarmup(final String[] args) {
+        File archive = Warmup.defaultArchive();
+        int rounds = Warmup.ROUNDS;
+        boolean exercise = false;
+
+        // Collect all options
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--archive")) {
+                archive = new File(parseOption(args, ++i, "Invalid archive file."));
+            } else if (args[i].equals("--rounds")) {
+                rounds = parseNumber(args, ++i, "Invalid number of rounds.");
+            } else if (args[i].equals("--exercise")) {
+                exercise = true;
+            } else {
+                System.err.println("Invalid warmup option: " + args[i]);
+                System.exit(1);
+            }
+        }
+
+        try {
+            if (exercise) {
+                Warmup.exercise(rounds);
+                return;
+            }
+
+            if (!Warmup.isSupported()) {
+                System.err.println("Class data archives require Java 13 or newer.");
+                System.exit(1);
+            }
+
+            if (archive.exists() && !archive.delete()) {
+                System.err.println(String.format("Error with archive: %s (could not replace)", archive));
+                System.exit(1);
+            }
+
+            if (Warmup.dump(archive, rounds) != 0 || !archive.isFile()) {
+                System.err.println(String.format("Error with archive: %s (not written, the compiler must be run from a jar)", archive));
+                System.exit(1);
+            }
+
+            System.out.println(String.format("Wrote class data archive %s (%d KB)", archive, archive.length() / 1024));
+        } catch (IOException e) {
+            System.err.println(String.format("Error with warmup (%s)", e.getMessage()));
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Opens the build cache in the given directory. Exits if the cache cannot be opened.
+     *
+     * @param directory The cache directory or {@code null} if no cache should be used.
+     * @param size The maximum size of the cache in megabytes.
+     * @return The build cache or {@code null} if no directory is given.
+     */
+    private static BuildCache openCache(final String directory, final int size) {
+        if (directory == null) {
+            return null;
+        }
+
+        try {
+            return new BuildCache(new File(directory), size * 1024L * 1024L, "");
+        } catch (IOException e) {
+            System.err.println(String.format("Error with cache: %s (%s)", directory, e.getMessage()));
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the option value at the given position of the arguments. Exits if there is no value.
+     *
+     * @param args The original arguments of the program.
+     * @param index The position of the value.
+     * @param message The message to print if there is no value.
+     * @return The value.
+     */
+    private static String parseOption(final String[] args, final int index, final String message) {
+        if (index >= args.length) {
+            System.err.println(message);
+            System.exit(1);
+        }
+        return args[index];
+    }
+
+    /**
+     * Parses the positive number at the given position of the arguments. Exits if there is no valid number.
+     *
+     * @param args The original arguments of the program.
+     * @param index The position of the number.
+     * @param message The message to print if the number is invalid.
+     * @return The number.
+     */
+    private static int parseNumber(final String[] args, final int index, final String message) {
+        if (index >= args.length || !args[index].matches("[1-9][0-9]{0,8}")) {
+            System.err.println(message);
+            System.exit(1);
+        }
+        return Integer.parseInt(args[index]);
+    }
+
+    /**
+     * Compiles the given file.
+     *
+     * The class file is only written if the program does not contain errors.
+     *
+     * @param file The source file to compile.
+     * @return The errors in the program, empty if the program was compiled.
+     * @throws IOException There was an error reading the given file or writing the output file.
+     */
+    public static List<Error> compile(final File file) throws IOException {
+        return compile(file, null);
+    }
+
+    /**
+     * Compiles the given file, using a build cache if one is given.
+     *
+     * On a cache hit the stored class file is written without parsing or compiling the program. Only programs without
+     * errors are stored in the cache.
+     *
+     * @param file The source file to compile.
+     * @param cache The build cache or {@code null}.
+     * @return The errors in the program, empty if the program was compiled.
+     * @throws IOException There was an error reading the given file or writing the output file.
+     */
+    public static List<Error> compile(final File file, final BuildCache cache) throws IOException {
+        return compile(file, cache, new CompileTimings());
+    }
+
+    /**
+     * Compiles the given file, using a build cache if one is given, and records the time and memory spent per phase.
+     *
+     * @param file The source file to compile.
+     * @param cache The build cache or {@code null}.
+     * @param timings The timings to record the phases in.
+     * @return The errors in the program, empty if the program was compiled.
+     * @throws IOException There was an error reading the given file or writing the output file.
+     */
+    public static List<Error> compile(final File file, final BuildCache cache, final CompileTimings timings) throws IOException {
+        final CompileResult result = translate(file, cache, timings);
+
+        if (!result.isSuccess()) {
+            return result.getErrors();
+        }
+
+        final byte[] bytecode = result.getBytecode();
+
+        timings.begin(CompileTimings.Phase.IO);
+        try {
+            // Get output path, next to the source file and named after the class
+            File outPath = new File(file.getParentFile(), new ClassReader(bytecode).getClassName() + ".class");
+
+            // Write program bytecode
+            try (FileOutputStream out = new FileOutputStream(outPath)) {
+                out.write(bytecode);
+            }
+        } finally {
+            timings.end();
+        }
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * Compiles the given file to bytecode without writing a class file, using a build cache if one is given.
+     *
+     * On a cache hit the stored bytecode is returned without parsing or compiling the program. Only programs without
+     * errors are stored in the cache.
+     *
+     * @param file The source file to compile.
+     * @param cache The build cache or {@code null}.
+     * @return The result, containing either the errors in the program or the bytecode.
+     * @throws IOException There was an error reading the given file.
+     */
+    public static CompileResult translate(final File file, final BuildCache cache) throws IOException {
+        return translate(file, cache, new CompileTimings());
+    }
+
+    /**
+     * Compiles the given file to bytecode without writing a class file, and records the time and memory spent per phase.
+     * Reading the source and the build cache is recorded as I/O.
+     *
+     * Files of at least {@code STREAMING_THRESHOLD} bytes are streamed through the parser instead of being read into
+     * memory. Those files are not cached, since the cache key is computed from the whole source.
+     *
+     * @param file The source file to compile.
+     * @param cache The build cache or {@code null}.
+     * @param timings The timings to record the phases in.
+     * @return The result, containing either the errors in the program or the bytecode.
+     * @throws IOException There was an error reading the given file.
+     */
+    public static CompileResult translate(final File file, final BuildCache cache, final CompileTimings timings) throws IOException {
+        final byte[] source;
+        final String key;
+        byte[] bytecode;
+
+        if (file.length() >= STREAMING_THRESHOLD) {
+            OTLDListener parser = OTLDListener.parseStream(file.toPath(), timings);
+
+            if (!parser.getErrors().isEmpty()) {
+                return CompileResult.of(file, parser.getErrors());
+            }
+
+            Compiler compiler = new BytecodeCompiler(parser.getProgram(), timings);
+            compiler.compile();
+            return CompileResult.compiled(file, compiler.asByteArray());
+        }
+
+        timings.begin(CompileTimings.Phase.IO);
+        try {
+            source = Files.readAllBytes(file.toPath());
+            key = cache == null ? null : cache.key(source);
+            bytecode = cache == null ? null : cache.get(key);
+        } finally {
+            timings.end();
+        }
+
+        if (bytecode == null) {
+            OTLDListener parser = OTLDListener.parseFile(new ByteArrayInputStream(source), timings);
+
+            if (!parser.getErrors().isEmpty()) {
+                return CompileResult.of(file, parser.getErrors());
+            }
+
+            // Compile program to bytecode
+            Compiler compiler = new BytecodeCompiler(parser.getProgram(), timings);
+            compiler.compile();
+            bytecode = compiler.asByteArray();
+
+            if (cache != null) {
+                timings.begin(CompileTimings.Phase.IO);
+                try {
+                    cache.put(key, bytecode);
+                } finally {
+                    timings.end();
+                }
+            }
+        }
+
+        return CompileResult.compiled(file, bytecode);
     }
 
     /**
@@ -117,16 +666,38 @@ public class Main {
         String sep = System.lineSeparator();
 
         out.append("Open Transport Language Deluxe ").append(VERSION).append(sep);
-        out.append("Usage: java -jar otld.jar <program-name>").append(sep).append(sep);
+        out.append("Usage: java -jar otld.jar compile [-j <jobs>] [--cache <dir>] [--jar <file>] [--timings] <program-name> [<program-name> ...]").append(sep).append(sep);
 
         out.append("Please check the following:").append(sep);
         out.append("- The command should be run from the directory containing the OTLD program file.").append(sep);
         out.append("- The name of the file should be equal to the program name and only contain letters (a-z) and numbers, but not start with a number.").append(sep);
         out.append("- The file name should end with '.tldr', which is the extension for OTLD program files.").append(sep).append(sep);
 
+        out.append("Multiple programs are compiled in parallel, using at most <jobs> workers (default: number of processors).").append(sep);
+        out.append("With --cache <dir> compiled programs are cached in <dir> (at most --cache-size <MB>, default ").append(CACHE_SIZE).append(")").append(sep);
+        out.append("and unchanged programs are not compiled again. The cache may be shared by several compilers.").append(sep);
+        out.append("With --timings the wall time and allocated memory of every compile phase are printed.").append(sep);
+        out.append("With --daemon the programs are compiled by a running compile daemon (see below) on port -p <port>.").append(sep).append(sep);
+
         out.append("After compilation the program is saved to the file <program-name>.class.").append(sep);
         out.append("The program can be run like a normal Java program.").append(sep);
         out.append("Command: java <program-name>").append(sep);
+        out.append("With --jar <file> all programs are written to a single jar instead, with an index of the programs in ").append(JarBundler.INDEX).append(".").append(sep);
+        out.append("Command: java -cp <file> <program-name>").append(sep).append(sep);
+
+        out.append("Compile and run a program without writing a class file: java -jar otld.jar run <program-name>").append(sep).append(sep);
+
+        out.append("Compile daemon: java -jar otld.jar daemon [-p <port>] [-j <jobs>] [--cache <dir>] [stats|stop]").append(sep);
+        out.append("Keeps a warm compiler running on the loopback interface (default port ").append(CompileDaemon.DEFAULT_PORT).append(").").append(sep);
+        out.append("'stats' prints request counts and latency percentiles, 'stop' stops a running daemon.").append(sep).append(sep);
+
+        out.append("Watch mode: java -jar otld.jar watch [-j <jobs>] [--debounce <ms>] [--cache <dir>] <directory>").append(sep);
+        out.append("Compiles all programs in <directory> and its subdirectories, then recompiles programs when they change.").append(sep);
+        out.append("Changes within <ms> milliseconds of each other are compiled together (default ").append(SourceWatcher.DEFAULT_DEBOUNCE).append(").").append(sep).append(sep);
+
+        out.append("Startup archive: java -jar otld.jar warmup [--archive <file>] [--rounds <n>]").append(sep);
+        out.append("Writes a class data sharing archive (Java 13+) next to the jar, which makes the compiler start faster.").append(sep);
+        out.append("The bin/otld launcher uses the archive automatically.").append(sep);
 
         System.out.println(out.toString());
     }
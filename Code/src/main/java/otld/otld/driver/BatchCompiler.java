@@ -0,0 +1,175 @@
+package otld.otld.driver;
+
+import otld.otld.CompileTimings;
+import otld.otld.Main;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Compiles several source files at the same time.
+ *
+ * Files are compiled on a bounded pool of worker threads. Results are always delivered in the order in which the files
+ * were given, so diagnostics are printed in a fixed order regardless of which file finishes first. A failing file does
+ * not stop the other files from being compiled.
+ */
+public class BatchCompiler {
+    /** The worker threads. */
+    private final ExecutorService executor;
+
+    /** The build cache or {@code null}. */
+    private final BuildCache cache;
+
+    /**
+     * @param jobs The maximum number of files that are compiled at the same time.
+     */
+    public BatchCompiler(final int jobs) {
+        this(jobs, null);
+    }
+
+    /**
+     * @param jobs The maximum number of files that are compiled at the same time.
+     * @param cache The build cache or {@code null}.
+     */
+    public BatchCompiler(final int jobs, final BuildCache cache) {
+        this.cache = cache;
+
+        if (jobs < 1) {
+            throw new IllegalArgumentException("The number of jobs must be at least one.");
+        }
+
+        this.executor = Executors.newFixedThreadPool(jobs, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(runnable, String.format("otld-compile-%d", ++this.count));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Compiles the given files.
+     *
+     * @param files The source files to compile.
+     * @return The results, in the same order as the files.
+     */
+    public List<CompileResult> compile(final List<File> files) {
+        final List<CompileResult> results = new ArrayList<>(files.size());
+        this.compile(files, results::add);
+        return results;
+    }
+
+    /**
+     * Compiles the given files and hands every result to the consumer as soon as it and all results before it are
+     * available. The consumer is called on the calling thread, in the same order as the files.
+     *
+     * @param files The source files to compile.
+     * @param consumer The consumer of the results.
+     */
+    public void compile(final List<File> files, final Consumer<CompileResult> consumer) {
+        this.submit(files, true, consumer);
+    }
+
+    /**
+     * Compiles the given files to bytecode without writing class files. Successful results contain the bytecode. The
+     * consumer is called on the calling thread, in the same order as the files.
+     *
+     * @param files The source files to compile.
+     * @param consumer The consumer of the results.
+     */
+    public void translate(final List<File> files, final Consumer<CompileResult> consumer) {
+        this.submit(files, false, consumer);
+    }
+
+    /**
+     * Compiles the given files on the worker threads and hands the results to the consumer in order.
+     *
+     * @param files The source files to compile.
+     * @param write Whether class files should be written.
+     * @param consumer The consumer of the results.
+     */
+    private void submit(final List<File> files, final boolean write, final Consumer<CompileResult> consumer) {
+        final List<Future<CompileResult>> futures = new ArrayList<>(files.size());
+
+        for (final File file : files) {
+            futures.add(this.executor.submit(new Callable<CompileResult>() {
+                @Override
+                public CompileResult call() {
+                    return write ? compileFile(file, cache) : translateFile(file, cache);
+                }
+            }));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            consumer.accept(this.await(files.get(i), futures.get(i)));
+        }
+    }
+
+    /**
+     * Stops the worker threads. Files that are already submitted are still compiled.
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    /**
+     * Compiles a single file on the calling thread and converts any failure into a result.
+     *
+     * @param file The source file to compile.
+     * @param cache The build cache or {@code null}.
+     * @return The result.
+     */
+    public static CompileResult compileFile(final File file, final BuildCache cache) {
+        try {
+            final CompileTimings timings = new CompileTimings();
+            return CompileResult.of(file, Main.compile(file, cache, timings)).withTimings(timings);
+        } catch (IOException e) {
+            return CompileResult.failure(file, e.getMessage());
+        } catch (RuntimeException e) {
+            return CompileResult.failure(file, e.toString());
+        }
+    }
+
+    /**
+     * Compiles a single file to bytecode on the calling thread and converts any failure into a result.
+     *
+     * @param file The source file to compile.
+     * @param cache The build cache or {@code null}.
+     * @return The result.
+     */
+    public static CompileResult translateFile(final File file, final BuildCache cache) {
+        try {
+            final CompileTimings timings = new CompileTimings();
+            return Main.translate(file, cache, timings).withTimings(timings);
+        } catch (IOException e) {
+            return CompileResult.failure(file, e.getMessage());
+        } catch (RuntimeException e) {
+            return CompileResult.failure(file, e.toString());
+        }
+    }
+
+    /**
+     * Waits for the result of a file.
+     *
+     * @param file The source file.
+     * @param future The pending result.
+     * @return The result.
+     */
+    private CompileResult await(final File file, final Future<CompileResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompileResult.failure(file, "interrupted");
+        } catch (ExecutionException e) {
+            return CompileResult.failure(file, e.getCause().toString());
+        }
+    }
+}
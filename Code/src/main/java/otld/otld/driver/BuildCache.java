@@ -0,0 +1,251 @@
+package otld.otld.driver;
+
+import otld.otld.Main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed cache of compiled programs.
+ *
+ * Entries are keyed by a hash of the source bytes, the compiler version and the compiler options, and are stored as
+ * {@code <key>.class} files in the cache directory. The cache can be shared by several compiler processes: entries are
+ * written to a temporary file and atomically renamed into place, so readers never see partial entries and no lock is
+ * needed. When the total size exceeds the limit, the least recently used entries are removed.
+ *
+ * The cache directory is scanned once when the cache is opened. After that the total size is kept up to date as
+ * entries are stored, and the directory is only scanned again when the total exceeds the limit. Entries stored by other
+ * processes are therefore only counted at the next scan.
+ */
+public class BuildCache {
+    /** Extension of cache entries. */
+    public static final String EXT = ".class";
+
+    /** Extension of entries that are being written. */
+    public static final String TMP = ".tmp";
+
+    /** The default maximum size of the cache in bytes. */
+    public static final long DEFAULT_SIZE = 64L * 1024 * 1024;
+
+    /** Temporary files older than this are left over by crashed processes and may be removed. */
+    private static final long STALE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /** The version of the compiler that is part of every key. */
+    private static final String COMPILER_VERSION = getCompilerVersion();
+
+    /** The cache directory. */
+    private final Path directory;
+
+    /** The maximum total size of the entries in bytes. */
+    private final long maxSize;
+
+    /** The compiler options which influence the generated code. */
+    private final String options;
+
+    /** The total size of the entries in bytes as of the last scan, plus the entries stored since. */
+    private final AtomicLong size;
+
+    /**
+     * @param directory The cache directory. Is created if it does not exist.
+     * @param maxSize The maximum total size of the entries in bytes.
+     * @param options The compiler options which influence the generated code.
+     * @throws IOException The cache directory could not be created or read.
+     */
+    public BuildCache(final File directory, final long maxSize, final String options) throws IOException {
+        this.directory = Files.createDirectories(directory.toPath());
+        this.maxSize = maxSize;
+        this.options = options;
+        this.size = new AtomicLong();
+        this.evict();
+    }
+
+    /**
+     * @return The cache directory.
+     */
+    public final File getDirectory() {
+        return this.directory.toFile();
+    }
+
+    /**
+     * Computes the cache key for a source file.
+     *
+     * @param source The bytes of the source file.
+     * @return The key, a hexadecimal SHA-256 hash.
+     */
+    public String key(final byte[] source) {
+        final MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+
+        digest.update(COMPILER_VERSION.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(this.options.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(source);
+
+        final StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Looks up a compiled program and marks it as recently used.
+     *
+     * @param key The cache key.
+     * @return The compiled program or {@code null} if it is not in the cache.
+     * @throws IOException The entry could not be read.
+     */
+    public byte[] get(final String key) throws IOException {
+        final Path entry = this.directory.resolve(key + EXT);
+
+        try {
+            final byte[] bytes = Files.readAllBytes(entry);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return bytes;
+        } catch (NoSuchFileException e) {
+            // Not cached, or evicted by another process
+            return null;
+        }
+    }
+
+    /**
+     * Stores a compiled program and evicts old entries if the cache is too large.
+     *
+     * @param key The cache key.
+     * @param bytes The compiled program.
+     * @throws IOException The entry could not be written.
+     */
+    public void put(final String key, final byte[] bytes) throws IOException {
+        final Path entry = this.directory.resolve(key + EXT);
+        final Path tmp = Files.createTempFile(this.directory, key, TMP);
+        long replaced = 0;
+
+        try {
+            Files.write(tmp, bytes);
+
+            try {
+                replaced = Files.size(entry);
+            } catch (NoSuchFileException e) {
+                // A new entry
+            }
+
+            try {
+                Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        if (this.size.addAndGet(bytes.length - replaced) > this.maxSize) {
+            this.evict();
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the cache is within its size limit. Also removes temporary files
+     * that were left behind by crashed processes.
+     *
+     * This scans the whole cache directory, and corrects the total size for changes made by other processes.
+     *
+     * @throws IOException The cache directory could not be read.
+     */
+    public synchronized void evict() throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        final long now = System.currentTimeMillis();
+        long size = 0;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+            for (Path path : stream) {
+                final String name = path.getFileName().toString();
+                final BasicFileAttributes attributes;
+
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    // Removed by another process
+                    continue;
+                }
+
+                if (name.endsWith(EXT)) {
+                    entries.add(new Entry(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    size += attributes.size();
+                } else if (name.endsWith(TMP) && now - attributes.lastModifiedTime().toMillis() > STALE_MILLIS) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+
+        // Oldest first
+        entries.sort(Comparator.comparingLong(entry -> entry.used));
+
+        for (int i = 0; i < entries.size() && size > this.maxSize; i++) {
+            Files.deleteIfExists(entries.get(i).path);
+            size -= entries.get(i).size;
+        }
+
+        this.size.set(size);
+    }
+
+    /**
+     * @return The version of the compiler, which includes the identity of the compiler jar if there is one.
+     */
+    protected static String getCompilerVersion() {
+        String version = Main.VERSION;
+
+        try {
+            final File location = new File(Main.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (location.isFile()) {
+                version += String.format("-%d-%d", location.length(), location.lastModified());
+            }
+        } catch (Exception e) {
+            // No code source available, the version number has to do
+        }
+
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BuildCache %s", this.directory);
+    }
+
+    /**
+     * A cache entry on disk.
+     */
+    private static class Entry {
+        /** The file of the entry. */
+        private final Path path;
+
+        /** The size of the entry in bytes. */
+        private final long size;
+
+        /** The moment the entry was last used. */
+        private final long used;
+
+        Entry(final Path path, final long size, final long used) {
+            this.path = path;
+            this.size = size;
+            this.used = used;
+        }
+    }
+}
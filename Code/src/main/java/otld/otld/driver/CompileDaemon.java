@@ -0,0 +1,295 @@
+package otld.otld.driver;
+
+import otld.otld.parsing.ParserSession;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Resident compiler process.
+ *
+ * The daemon keeps a single JVM running so the ANTLR runtime, ASM, the parser ATN and the JIT compiled front and back
+ * end stay warm between compiles. Requests are accepted on a socket that is only bound to the loopback interface, and
+ * only from clients that know the token of the daemon, see {@code DaemonToken}.
+ *
+ * The protocol is line based and uses UTF-8. Every request line ends with a space and the token. A connection may send
+ * any number of requests:
+ * - {@code COMPILE}, followed by one absolute source path per line and an empty line;
+ * - {@code STATS}, to get the request statistics;
+ * - {@code STOP}, to stop the daemon.
+ *
+ * Every response is a block that starts with a status line {@code OK <n>} or {@code ERROR <n>} and is followed by
+ * {@code n} lines of text. A compile request gets one block per file, in the order of the request. A request without
+ * the right token gets a single error block, after which the connection is closed.
+ */
+public class CompileDaemon {
+    /** The port on which the daemon listens by default. */
+    public static final int DEFAULT_PORT = 7447;
+
+    /** Request to compile files. */
+    public static final String COMPILE = "COMPILE";
+
+    /** Request for the statistics. */
+    public static final String STATS = "STATS";
+
+    /** Request to stop the daemon. */
+    public static final String STOP = "STOP";
+
+    /** Status of a successful response. */
+    public static final String OK = "OK";
+
+    /** Status of a failed response. */
+    public static final String ERROR = "ERROR";
+
+    /** The socket on which requests are accepted. */
+    private final ServerSocket server;
+
+    /** The threads that handle connections. */
+    private final ExecutorService connections;
+
+    /** The open connections. */
+    private final Set<Socket> sockets;
+
+    /** The threads that compile files. */
+    private final ExecutorService workers;
+
+    /** The request statistics. */
+    private final DaemonStatistics statistics;
+
+    /** The build cache or {@code null}. */
+    private final BuildCache cache;
+
+    /** The token that clients must send with every request. */
+    private final DaemonToken token;
+
+    /**
+     * @param port The port to listen on, or zero for any free port.
+     * @param jobs The maximum number of files that are compiled at the same time.
+     * @throws IOException The socket could not be opened.
+     */
+    public CompileDaemon(final int port, final int jobs) throws IOException {
+        this(port, jobs, null);
+    }
+
+    /**
+     * @param port The port to listen on, or zero for any free port.
+     * @param jobs The maximum number of files that are compiled at the same time.
+     * @param cache The build cache or {@code null}.
+     * @throws IOException The socket could not be opened or the token could not be written.
+     */
+    public CompileDaemon(final int port, final int jobs, final BuildCache cache) throws IOException {
+        this(port, jobs, cache, DaemonToken.getDefaultDirectory());
+    }
+
+    /**
+     * @param port The port to listen on, or zero for any free port.
+     * @param jobs The maximum number of files that are compiled at the same time.
+     * @param cache The build cache or {@code null}.
+     * @param tokens The directory in which the token of the daemon is written.
+     * @throws IOException The socket could not be opened or the token could not be written.
+     */
+    public CompileDaemon(final int port, final int jobs, final BuildCache cache, final File tokens) throws IOException {
+        this.cache = cache;
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        try {
+            this.token = DaemonToken.create(tokens, this.server.getLocalPort());
+        } catch (IOException e) {
+            this.server.close();
+            throw e;
+        }
+
+        this.connections = Executors.newCachedThreadPool();
+        this.sockets = ConcurrentHashMap.newKeySet();
+        this.workers = Executors.newFixedThreadPool(jobs);
+        this.statistics = new DaemonStatistics();
+    }
+
+    /**
+     * @return The port on which the daemon listens.
+     */
+    public final int getPort() {
+        return this.server.getLocalPort();
+    }
+
+    /**
+     * @return The request statistics.
+     */
+    public final DaemonStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Accepts connections until the daemon is stopped. The parser predictions are cleared when memory runs low.
+     */
+    public void run() {
+        ParserSession.clearDFAWhenMemoryLow();
+
+        try {
+            while (!this.server.isClosed()) {
+                final Socket socket = this.server.accept();
+                this.sockets.add(socket);
+
+                try {
+                    this.connections.execute(() -> this.handle(socket));
+                } catch (RejectedExecutionException e) {
+                    // Stopped while accepting
+                    this.sockets.remove(socket);
+                    socket.close();
+                }
+            }
+        } catch (SocketException e) {
+            // The server socket was closed by stop()
+        } catch (IOException e) {
+            System.err.println(String.format("Daemon error (%s)", e.getMessage()));
+        } finally {
+            this.stop();
+        }
+    }
+
+    /**
+     * Stops accepting connections and removes the token. Requests that are being processed are finished and answered,
+     * after which their connections are closed. Connections that wait for a request are closed right away.
+     */
+    public void stop() {
+        this.token.delete();
+
+        try {
+            this.server.close();
+        } catch (IOException e) {
+            // Nothing left to clean up
+        }
+
+        this.connections.shutdown();
+        this.workers.shutdown();
+
+        // Ends the requests of the connections, so their threads finish and the JVM can exit
+        for (Socket socket : this.sockets) {
+            try {
+                socket.shutdownInput();
+            } catch (IOException e) {
+                // Closed by the client already
+            }
+        }
+    }
+
+    /**
+     * Handles all requests of a single connection.
+     *
+     * @param socket The connection.
+     */
+    protected void handle(final Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8)))) {
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                final int separator = line.lastIndexOf(' ');
+                final String request = separator < 0 ? line : line.substring(0, separator);
+
+                if (separator < 0 || !this.token.matches(line.substring(separator + 1))) {
+                    final List<String> message = new ArrayList<>();
+                    message.add("Invalid or missing daemon token.");
+                    respond(out, ERROR, message);
+                    return;
+                }
+
+                switch (request) {
+                    case COMPILE:
+                        List<File> files = new ArrayList<>();
+                        while ((line = in.readLine()) != null && !line.isEmpty()) {
+                            files.add(new File(line));
+                        }
+                        this.compile(files, out);
+                        break;
+                    case STATS:
+                        respond(out, OK, this.statistics.describe());
+                        break;
+                    case STOP:
+                        respond(out, OK, new ArrayList<String>());
+                        out.flush();
+                        this.stop();
+                        return;
+                    default:
+                        List<String> message = new ArrayList<>();
+                        message.add("Unrecognized request: " + request);
+                        respond(out, ERROR, message);
+                }
+
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away, nothing to respond to
+        } finally {
+            this.sockets.remove(socket);
+        }
+    }
+
+    /**
+     * Compiles files in parallel and writes one response per file, in order.
+     *
+     * @param files The source files.
+     * @param out The response stream.
+     */
+    protected void compile(final List<File> files, final PrintWriter out) {
+        final List<Future<CompileResult>> futures = new ArrayList<>(files.size());
+
+        for (final File file : files) {
+            try {
+                futures.add(this.workers.submit(() -> {
+                    final long start = System.nanoTime();
+                    final CompileResult result = BatchCompiler.compileFile(file, this.cache);
+                    this.statistics.record(System.nanoTime() - start, result.isSuccess());
+                    return result;
+                }));
+            } catch (RejectedExecutionException e) {
+                futures.add(CompletableFuture.completedFuture(CompileResult.failure(file, "the daemon is stopping")));
+            }
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            CompileResult result;
+
+            try {
+                result = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result = CompileResult.failure(files.get(i), "interrupted");
+            } catch (ExecutionException e) {
+                result = CompileResult.failure(files.get(i), e.getCause().toString());
+            }
+
+            respond(out, result.isSuccess() ? OK : ERROR, result.getDiagnostics());
+        }
+    }
+
+    /**
+     * Writes a response block.
+     *
+     * @param out The response stream.
+     * @param status The status of the response.
+     * @param lines The lines of the response.
+     */
+    private static void respond(final PrintWriter out, final String status, final List<String> lines) {
+        out.print(String.format("%s %d\n", status, lines.size()));
+
+        for (String line : lines) {
+            out.print(line);
+            out.print('\n');
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompileDaemon %d", this.getPort());
+    }
+}
@@ -0,0 +1,174 @@
+package otld.otld.driver;
+
+import otld.otld.CompileTimings;
+import otld.otld.parsing.Error;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of compiling a single source file.
+ *
+ * A result is either successful, contains the compile errors of the program, or contains the reason why the file could
+ * not be compiled at all (for example an I/O error).
+ */
+public class CompileResult {
+    /** The source file that was compiled. */
+    private final File source;
+
+    /** The compile errors of the program. */
+    private final List<Error> errors;
+
+    /** The reason the file could not be compiled or {@code null}. */
+    private final String failure;
+
+    /** The compiled program or {@code null}. */
+    private final byte[] bytecode;
+
+    /** The timings of the compile or {@code null}. */
+    private CompileTimings timings;
+
+    /**
+     * @param source The source file that was compiled.
+     * @param errors The compile errors of the program.
+     * @param failure The reason the file could not be compiled or {@code null}.
+     * @param bytecode The compiled program or {@code null}.
+     */
+    protected CompileResult(final File source, final List<Error> errors, final String failure, final byte[] bytecode) {
+        this.source = source;
+        this.errors = errors;
+        this.failure = failure;
+        this.bytecode = bytecode;
+    }
+
+    /**
+     * Creates a result for a file that was processed by the compiler.
+     *
+     * @param source The source file that was compiled.
+     * @param errors The compile errors of the program, empty if compilation succeeded.
+     * @return The result.
+     */
+    public static CompileResult of(final File source, final List<Error> errors) {
+        return new CompileResult(source, errors, null, null);
+    }
+
+    /**
+     * Creates a result for a file that was compiled without errors.
+     *
+     * @param source The source file that was compiled.
+     * @param bytecode The compiled program.
+     * @return The result.
+     */
+    public static CompileResult compiled(final File source, final byte[] bytecode) {
+        return new CompileResult(source, Collections.<Error>emptyList(), null, bytecode);
+    }
+
+    /**
+     * Creates a result for a file that could not be compiled.
+     *
+     * @param source The source file that was compiled.
+     * @param failure The reason the file could not be compiled.
+     * @return The result.
+     */
+    public static CompileResult failure(final File source, final String failure) {
+        return new CompileResult(source, Collections.<Error>emptyList(), failure, null);
+    }
+
+    /**
+     * @return The source file that was compiled.
+     */
+    public final File getSource() {
+        return this.source;
+    }
+
+    /**
+     * @return The program name, which is the file name without extension.
+     */
+    public final String getName() {
+        final String name = this.source.getName();
+        final int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    /**
+     * @return The compile errors of the program.
+     */
+    public final List<Error> getErrors() {
+        return this.errors;
+    }
+
+    /**
+     * @return The reason the file could not be compiled or {@code null}.
+     */
+    public final String getFailure() {
+        return this.failure;
+    }
+
+    /**
+     * @return The compiled program, or {@code null} if the program was not compiled or was written to a class file.
+     */
+    public final byte[] getBytecode() {
+        return this.bytecode;
+    }
+
+    /**
+     * @return The timings of the compile, or {@code null} if the file could not be compiled.
+     */
+    public final CompileTimings getTimings() {
+        return this.timings;
+    }
+
+    /**
+     * Sets the timings of the compile.
+     *
+     * @param timings The timings of the compile.
+     * @return This result.
+     */
+    public CompileResult withTimings(final CompileTimings timings) {
+        this.timings = timings;
+        return this;
+    }
+
+    /**
+     * @return Whether the file was compiled without errors.
+     */
+    public final boolean isSuccess() {
+        return this.failure == null && this.errors.isEmpty();
+    }
+
+    /**
+     * @return The diagnostic messages of this result, one per line.
+     */
+    public List<String> getDiagnostics() {
+        final List<String> lines = new ArrayList<>(this.errors.size() + 1);
+
+        if (this.failure != null) {
+            lines.add(String.format("Error with file: %s (%s)", this.getName(), this.failure));
+        }
+
+        for (Error error : this.errors) {
+            lines.add(error.getError());
+        }
+
+        return lines;
+    }
+
+    /**
+     * Prints the diagnostics of this result.
+     *
+     * @param out The stream to print to.
+     */
+    public void report(final PrintStream out) {
+        for (String line : this.getDiagnostics()) {
+            out.println(line);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompileResult %s", this.getName());
+    }
+}
@@ -0,0 +1,180 @@
+package otld.otld.driver;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Client for the compile daemon.
+ *
+ * @see CompileDaemon for the protocol.
+ */
+public class DaemonClient implements Closeable {
+    /** The connection to the daemon. */
+    private final Socket socket;
+
+    /** The response stream. */
+    private final BufferedReader in;
+
+    /** The request stream. */
+    private final PrintWriter out;
+
+    /** The token of the daemon. */
+    private final DaemonToken token;
+
+    /**
+     * Connects to a daemon on the local machine.
+     *
+     * @param port The port on which the daemon listens.
+     * @throws IOException There is no daemon listening on the given port, or its token could not be read.
+     */
+    public DaemonClient(final int port) throws IOException {
+        this(port, DaemonToken.getDefaultDirectory());
+    }
+
+    /**
+     * Connects to a daemon on the local machine.
+     *
+     * @param port The port on which the daemon listens.
+     * @param tokens The directory in which the daemon wrote its token.
+     * @throws IOException There is no daemon listening on the given port, or its token could not be read.
+     */
+    public DaemonClient(final int port, final File tokens) throws IOException {
+        this.token = DaemonToken.read(tokens, port);
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        this.in = new BufferedReader(new InputStreamReader(this.socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(this.socket.getOutputStream(), StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Compiles the given files in the daemon.
+     *
+     * @param files The source files to compile.
+     * @return The responses, one per file in the same order.
+     * @throws IOException The connection failed.
+     */
+    public List<Response> compile(final List<File> files) throws IOException {
+        this.sendRequest(CompileDaemon.COMPILE);
+        for (File file : files) {
+            this.send(file.getAbsolutePath());
+        }
+        this.send("");
+        this.out.flush();
+
+        final List<Response> responses = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            responses.add(this.receive());
+        }
+        return responses;
+    }
+
+    /**
+     * @return The statistics of the daemon, one value per line.
+     * @throws IOException The connection failed.
+     */
+    public List<String> statistics() throws IOException {
+        this.sendRequest(CompileDaemon.STATS);
+        this.out.flush();
+        return this.receive().getLines();
+    }
+
+    /**
+     * Stops the daemon.
+     *
+     * @throws IOException The connection failed.
+     */
+    public void stop() throws IOException {
+        this.sendRequest(CompileDaemon.STOP);
+        this.out.flush();
+        this.receive();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.socket.close();
+    }
+
+    /**
+     * Writes a request line with the token.
+     *
+     * @param request The request.
+     */
+    private void sendRequest(final String request) {
+        this.send(String.format("%s %s", request, this.token.getValue()));
+    }
+
+    /**
+     * Writes a line.
+     *
+     * @param line The line.
+     */
+    private void send(final String line) {
+        this.out.print(line);
+        this.out.print('\n');
+    }
+
+    /**
+     * Reads a response block.
+     *
+     * @return The response.
+     * @throws IOException The connection failed or the response is malformed.
+     */
+    private Response receive() throws IOException {
+        final String status = this.in.readLine();
+
+        if (status == null || !status.matches("(OK|ERROR) [0-9]+")) {
+            throw new IOException("Invalid response from daemon: " + status);
+        }
+
+        final String[] parts = status.split(" ");
+        final int count = Integer.parseInt(parts[1]);
+        final List<String> lines = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            final String line = this.in.readLine();
+            if (line == null) {
+                throw new IOException("Incomplete response from daemon.");
+            }
+            lines.add(line);
+        }
+
+        return new Response(parts[0].equals(CompileDaemon.OK), lines);
+    }
+
+    /**
+     * A response of the daemon.
+     */
+    public static class Response {
+        /** Whether the request succeeded. */
+        private final boolean success;
+
+        /** The lines of the response. */
+        private final List<String> lines;
+
+        /**
+         * @param success Whether the request succeeded.
+         * @param lines The lines of the response.
+         */
+        public Response(final boolean success, final List<String> lines) {
+            this.success = success;
+            this.lines = lines;
+        }
+
+        /**
+         * @return Whether the request succeeded.
+         */
+        public final boolean isSuccess() {
+            return this.success;
+        }
+
+        /**
+         * @return The lines of the response.
+         */
+        public final List<String> getLines() {
+            return this.lines;
+        }
+    }
+}
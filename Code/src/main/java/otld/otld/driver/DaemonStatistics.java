@@ -0,0 +1,114 @@
+package otld.otld.driver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request statistics of the compile daemon.
+ *
+ * Counts all requests and keeps the latencies of the most recent requests, from which percentiles are computed. This
+ * class is thread safe.
+ */
+public class DaemonStatistics {
+    /** The number of latency samples that are kept. */
+    public static final int SAMPLES = 4096;
+
+    /** The most recent latencies in nanoseconds, used as a ring buffer. */
+    private final long[] latencies;
+
+    /** The total number of requests. */
+    private long requests;
+
+    /** The number of requests that did not compile successfully. */
+    private long failures;
+
+    /** The moment at which the statistics were created. */
+    private final long started;
+
+    public DaemonStatistics() {
+        this.latencies = new long[SAMPLES];
+        this.requests = 0;
+        this.failures = 0;
+        this.started = System.nanoTime();
+    }
+
+    /**
+     * Records a finished request.
+     *
+     * @param nanos The latency of the request in nanoseconds.
+     * @param success Whether the request compiled successfully.
+     */
+    public synchronized void record(final long nanos, final boolean success) {
+        this.latencies[(int) (this.requests % SAMPLES)] = nanos;
+        this.requests++;
+
+        if (!success) {
+            this.failures++;
+        }
+    }
+
+    /**
+     * @return The total number of requests.
+     */
+    public synchronized long getRequests() {
+        return this.requests;
+    }
+
+    /**
+     * @return The number of requests that did not compile successfully.
+     */
+    public synchronized long getFailures() {
+        return this.failures;
+    }
+
+    /**
+     * Returns a latency percentile over the most recent requests.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The latency in nanoseconds, or zero if there were no requests.
+     */
+    public long getPercentile(final double percentile) {
+        final long[] samples = this.getSamples();
+
+        if (samples.length == 0) {
+            return 0;
+        }
+
+        Arrays.sort(samples);
+
+        // Nearest-rank method
+        final int rank = (int) Math.ceil(percentile / 100 * samples.length);
+        return samples[Math.max(0, Math.min(samples.length - 1, rank - 1))];
+    }
+
+    /**
+     * @return A copy of the recorded latencies.
+     */
+    private synchronized long[] getSamples() {
+        return Arrays.copyOf(this.latencies, (int) Math.min(this.requests, SAMPLES));
+    }
+
+    /**
+     * @return A human readable description of the statistics, one value per line.
+     */
+    public List<String> describe() {
+        final List<String> lines = new ArrayList<>();
+
+        lines.add(String.format("uptime: %d s", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - this.started)));
+        lines.add(String.format("requests: %d", this.getRequests()));
+        lines.add(String.format("failures: %d", this.getFailures()));
+
+        for (double percentile : new double[]{50, 90, 99, 100}) {
+            lines.add(String.format("p%.0f: %.3f ms", percentile, this.getPercentile(percentile) / 1e6));
+        }
+
+        return lines;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DaemonStatistics < %d >", this.getRequests());
+    }
+}
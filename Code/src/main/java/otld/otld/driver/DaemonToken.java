@@ -0,0 +1,149 @@
+package otld.otld.driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * Secret that clients of the compile daemon must send with every request.
+ *
+ * The daemon creates a new random token when it starts and writes it to a file that only the current user can read, in
+ * the runtime directory of the user ({@code $XDG_RUNTIME_DIR/otld}) or else in {@code ~/.otld}. Other users on the same
+ * machine can connect to the loopback port, but cannot read the token and are rejected.
+ */
+public class DaemonToken {
+    /** The number of random bytes in a token. */
+    private static final int BYTES = 32;
+
+    /** The source of the tokens. */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** The file that holds the token. */
+    private final Path file;
+
+    /** The token. */
+    private final String value;
+
+    /**
+     * @param file The file that holds the token.
+     * @param value The token.
+     */
+    private DaemonToken(final Path file, final String value) {
+        this.file = file;
+        this.value = value;
+    }
+
+    /**
+     * @return The directory for the token files of the current user.
+     */
+    public static File getDefaultDirectory() {
+        final String runtime = System.getenv("XDG_RUNTIME_DIR");
+
+        if (runtime != null && !runtime.isEmpty()) {
+            return new File(runtime, "otld");
+        }
+        return new File(System.getProperty("user.home"), ".otld");
+    }
+
+    /**
+     * Creates a new token for a daemon and writes it to a file that only the current user can access.
+     *
+     * @param directory The directory for the token files.
+     * @param port The port of the daemon.
+     * @return The token.
+     * @throws IOException The token file could not be written.
+     */
+    public static DaemonToken create(final File directory, final int port) throws IOException {
+        final byte[] bytes = new byte[BYTES];
+        RANDOM.nextBytes(bytes);
+
+        final StringBuilder value = new StringBuilder();
+        for (byte b : bytes) {
+            value.append(String.format("%02x", b));
+        }
+
+        final Path file = getFile(directory, port);
+        final boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+        if (posix) {
+            Files.createDirectories(directory.toPath(),
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(directory.toPath());
+        }
+
+        // Create the file with its permissions at once, so the token is never readable by others
+        Files.deleteIfExists(file);
+        if (posix) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(file);
+        }
+        Files.write(file, value.toString().getBytes(StandardCharsets.UTF_8));
+
+        return new DaemonToken(file, value.toString());
+    }
+
+    /**
+     * Reads the token of a running daemon.
+     *
+     * @param directory The directory for the token files.
+     * @param port The port of the daemon.
+     * @return The token.
+     * @throws IOException There is no token for a daemon on the given port, or it could not be read.
+     */
+    public static DaemonToken read(final File directory, final int port) throws IOException {
+        final Path file = getFile(directory, port);
+
+        try {
+            return new DaemonToken(file, new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+        } catch (NoSuchFileException e) {
+            throw new IOException(String.format("No daemon token in %s", file));
+        }
+    }
+
+    /**
+     * @param directory The directory for the token files.
+     * @param port The port of the daemon.
+     * @return The file that holds the token of the daemon on the given port.
+     */
+    private static Path getFile(final File directory, final int port) {
+        return directory.toPath().resolve(String.format("daemon-%d.token", port));
+    }
+
+    /**
+     * @return The token.
+     */
+    public final String getValue() {
+        return this.value;
+    }
+
+    /**
+     * @param value A token sent by a client, which may be {@code null}.
+     * @return Whether the token is this token. The comparison takes the same time for every wrong token.
+     */
+    public boolean matches(final String value) {
+        return value != null && MessageDigest.isEqual(this.value.getBytes(StandardCharsets.UTF_8),
+                value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Removes the token file.
+     */
+    public void delete() {
+        try {
+            Files.deleteIfExists(this.file);
+        } catch (IOException e) {
+            // The token is useless once the daemon has stopped
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DaemonToken %s", this.file);
+    }
+}
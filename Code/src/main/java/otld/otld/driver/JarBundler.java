@@ -0,0 +1,148 @@
+package otld.otld.driver;
+
+import org.objectweb.asm.ClassReader;
+import otld.otld.Main;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Writes compiled programs into a single jar.
+ *
+ * Programs are streamed into the jar as they are added, through one output stream, so no class files are written to
+ * disk. When the bundler is closed an index with the names of all programs is added to the jar. A launcher can read the
+ * index with {@link #programs(JarFile)} instead of scanning all entries.
+ *
+ * A bundler is not thread safe; programs should be added from a single thread.
+ */
+public class JarBundler implements Closeable {
+    /** The name of the index entry. */
+    public static final String INDEX = "META-INF/otld/programs.idx";
+
+    /** The size of the write buffer in bytes. */
+    private static final int BUFFER = 64 * 1024;
+
+    /** The jar file. */
+    private final File file;
+
+    /** The jar stream. */
+    private final JarOutputStream out;
+
+    /** The names of the programs in the jar, in the order in which they were added. */
+    private final Set<String> programs;
+
+    /**
+     * @param file The jar file, which is replaced if it exists.
+     * @throws IOException The jar could not be created.
+     */
+    public JarBundler(final File file) throws IOException {
+        this.file = file;
+        this.programs = new LinkedHashSet<>();
+
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(new Attributes.Name("Created-By"), "OTLD " + Main.VERSION);
+
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.out = new JarOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER), manifest);
+    }
+
+    /**
+     * @return The jar file.
+     */
+    public final File getFile() {
+        return this.file;
+    }
+
+    /**
+     * @return The names of the programs in the jar, in the order in which they were added.
+     */
+    public final List<String> getPrograms() {
+        return new ArrayList<>(this.programs);
+    }
+
+    /**
+     * Adds a compiled program to the jar.
+     *
+     * @param bytecode The compiled program.
+     * @throws IOException The program could not be written, or a program with the same name was already added.
+     */
+    public void add(final byte[] bytecode) throws IOException {
+        final String name = new ClassReader(bytecode).getClassName();
+
+        if (!this.programs.add(name)) {
+            throw new IOException(String.format("Duplicate program: %s", name));
+        }
+
+        this.out.putNextEntry(new JarEntry(name + ".class"));
+        this.out.write(bytecode);
+        this.out.closeEntry();
+    }
+
+    /**
+     * Writes the index and closes the jar.
+     *
+     * @throws IOException The jar could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            final StringBuilder index = new StringBuilder();
+            for (String program : this.programs) {
+                index.append(program).append('\n');
+            }
+
+            this.out.putNextEntry(new JarEntry(INDEX));
+            this.out.write(index.toString().getBytes(StandardCharsets.UTF_8));
+            this.out.closeEntry();
+        } finally {
+            this.out.close();
+        }
+    }
+
+    /**
+     * Reads the program index of a jar. The class of program {@code name} is the entry {@code name + ".class"}.
+     *
+     * @param jar The jar.
+     * @return The names of the programs in the jar, in the order in which they were added.
+     * @throws IOException The jar does not contain an index or the index could not be read.
+     */
+    public static List<String> programs(final JarFile jar) throws IOException {
+        final JarEntry entry = jar.getJarEntry(INDEX);
+
+        if (entry == null) {
+            throw new FileNotFoundException(String.format("%s has no program index", jar.getName()));
+        }
+
+        final List<String> programs = new ArrayList<>();
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(jar.getInputStream(entry), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    programs.add(line);
+                }
+            }
+        }
+
+        return programs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("JarBundler %s", this.file);
+    }
+}
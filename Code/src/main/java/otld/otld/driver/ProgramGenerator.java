@@ -0,0 +1,489 @@
+package otld.otld.driver;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates valid OTLD programs of any size, for scale and stress testing.
+ *
+ * A generated program declares the configured number of wagons, signals, waypoints and factories and has a company
+ * section with the configured number of statements. Statements are chosen pseudo-randomly from a seed, so the same
+ * configuration always generates the same program. Loops and conditionals are nested up to the configured depth.
+ *
+ * Generated programs compile without errors and terminate: every loop is driven by its own waypoint, which counts down a
+ * counter wagon that is reset before the loop. Nested loops use different waypoints, so loops are only nested as deep
+ * as there are waypoints, and the single statement of a conditional case is never a loop. Statements in the company
+ * section are compiled into a single method, so large programs should put most of their statements in factories to
+ * stay within the class file limit of 64 KB per method.
+ *
+ * The program is written to a {@code Writer} as it is generated, so programs with millions of lines do not have to fit
+ * in memory.
+ */
+public class ProgramGenerator {
+    /** The integer operators that do not fail at runtime. */
+    private static final String[] ARITHMETIC = {"add", "subtract", "multiply"};
+
+    /** The integer comparisons. */
+    private static final String[] COMPARISONS = {"complt", "complte", "compgt", "compgte", "compeq", "compne"};
+
+    /** The number of iterations of every loop. */
+    private static final int ITERATIONS = 3;
+
+    /** The name of the program. */
+    private final String name;
+
+    /** The seed for choosing statements. */
+    private final long seed;
+
+    /** The number of wagons. */
+    private int wagons;
+
+    /** The number of signals. */
+    private int signals;
+
+    /** The number of waypoints. */
+    private int waypoints;
+
+    /** The number of factories. */
+    private int factories;
+
+    /** The number of statements per factory. */
+    private int factoryStatements;
+
+    /** The number of statements in the company section. */
+    private int statements;
+
+    /** The maximum nesting depth of loops and conditionals. */
+    private int depth;
+
+    /** Whether the values of the wagons are written to the journal at the end of the program. */
+    private boolean output;
+
+    /** The random source while generating. */
+    private Random random;
+
+    /** The integer wagons while generating. */
+    private List<String> integers;
+
+    /** The number of statements written while generating. */
+    private long written;
+
+    /** The number of lines written while generating. */
+    private long lines;
+
+    /**
+     * Creates a generator for a small program.
+     *
+     * @param name The name of the program.
+     * @param seed The seed for choosing statements.
+     */
+    public ProgramGenerator(final String name, final long seed) {
+        this.name = name;
+        this.seed = seed;
+        this.wagons = 8;
+        this.signals = 4;
+        this.waypoints = 2;
+        this.factories = 4;
+        this.factoryStatements = 5;
+        this.statements = 50;
+        this.depth = 2;
+        this.output = true;
+    }
+
+    /**
+     * @param wagons The number of wagons, at least one. Every fourth wagon holds a boolean or a character, the others
+     *               hold integers.
+     */
+    public void setWagons(final int wagons) {
+        if (wagons < 1) {
+            throw new IllegalArgumentException("A program needs at least one wagon.");
+        }
+        this.wagons = wagons;
+    }
+
+    /**
+     * @param signals The number of signals.
+     */
+    public void setSignals(final int signals) {
+        this.signals = signals;
+    }
+
+    /**
+     * @param waypoints The number of waypoints, which is also the maximum nesting depth of loops.
+     */
+    public void setWaypoints(final int waypoints) {
+        this.waypoints = waypoints;
+    }
+
+    /**
+     * @param factories The number of factories.
+     */
+    public void setFactories(final int factories) {
+        this.factories = factories;
+    }
+
+    /**
+     * @param factoryStatements The number of statements per factory, at least one.
+     */
+    public void setFactoryStatements(final int factoryStatements) {
+        if (factoryStatements < 1) {
+            throw new IllegalArgumentException("A factory needs at least one statement.");
+        }
+        this.factoryStatements = factoryStatements;
+    }
+
+    /**
+     * @param statements The number of statements in the company section, including nested statements.
+     */
+    public void setStatements(final int statements) {
+        this.statements = statements;
+    }
+
+    /**
+     * @param depth The maximum nesting depth of loops and conditionals.
+     */
+    public void setDepth(final int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * @param output Whether the values of the wagons are written to the journal at the end of the program.
+     */
+    public void setOutput(final boolean output) {
+        this.output = output;
+    }
+
+    /**
+     * @return The name of the program.
+     */
+    public final String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return The number of lines of the last generated program.
+     */
+    public final long getLines() {
+        return this.lines;
+    }
+
+    /**
+     * Generates the program.
+     *
+     * @return The source of the program.
+     */
+    public String generate() {
+        final StringWriter out = new StringWriter();
+
+        try {
+            this.write(out);
+        } catch (IOException e) {
+            // A StringWriter does not throw
+            throw new IllegalStateException(e);
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Generates the program and writes it.
+     *
+     * @param out The writer for the source of the program. The writer is not closed.
+     * @throws IOException The program could not be written.
+     */
+    public void write(final Writer out) throws IOException {
+        this.random = new Random(this.seed);
+        this.integers = new ArrayList<>();
+        this.written = 0;
+        this.lines = 0;
+
+        this.line(out, 0, "City " + this.name + ";");
+        this.line(out, 0, "");
+        this.writeDepot(out);
+        this.writeTrack(out);
+        this.writeIndustry(out);
+        this.writeCompany(out);
+    }
+
+    /**
+     * Writes the wagons, including the constants and the loop counters.
+     */
+    private void writeDepot(final Writer out) throws IOException {
+        this.line(out, 0, "Begin depot;");
+        this.line(out, 1, "Wagon zero accepts int;");
+        this.line(out, 1, "Wagon one accepts int;");
+
+        for (int i = 1; i <= this.waypoints; i++) {
+            this.line(out, 1, String.format("Wagon counter%d accepts int;", i));
+        }
+
+        for (int i = 1; i <= this.wagons; i++) {
+            this.line(out, 1, String.format("Wagon %s accepts %s;", wagon(i), wagonType(i)));
+
+            if (wagonType(i).equals("int")) {
+                this.integers.add(wagon(i));
+            }
+        }
+
+        this.line(out, 0, "End depot;");
+        this.line(out, 0, "");
+    }
+
+    /**
+     * Writes the signals and the waypoints. Every waypoint counts down its own counter.
+     */
+    private void writeTrack(final Writer out) throws IOException {
+        this.line(out, 0, "Begin track;");
+
+        for (int i = 1; i <= this.signals; i++) {
+            this.line(out, 1, String.format("Signal signal%d is %s;", i, i % 2 == 0 ? "green" : "red"));
+        }
+
+        for (int i = 1; i <= this.waypoints; i++) {
+            this.line(out, 1, String.format("Waypoint waypoint%d;", i));
+            this.line(out, 1, "Begin waypoint;");
+            this.line(out, 2, String.format("Transport counter%d, one to factory subtract and fully load counter%d;", i, i));
+            this.line(out, 2, String.format("Transport counter%d, zero to factory compgt and set signal waypoint%d;", i, i));
+            this.line(out, 1, "End waypoint;");
+        }
+
+        this.line(out, 0, "End track;");
+        this.line(out, 0, "");
+    }
+
+    /**
+     * Writes the factories. Factory {@code n} takes one to three integers and may call earlier factories.
+     */
+    private void writeIndustry(final Writer out) throws IOException {
+        this.line(out, 0, "Begin industry;");
+
+        for (int i = 1; i <= this.factories; i++) {
+            final int arity = factoryArity(i);
+            final StringBuilder accepts = new StringBuilder();
+            for (int j = 0; j < arity; j++) {
+                accepts.append(j == 0 ? "int" : ", int");
+            }
+
+            this.line(out, 1, String.format("Factory factory%d accepts %s produces int;", i, accepts));
+            this.line(out, 1, "Begin production;");
+
+            // The product is not initialized, so it is assigned from the arguments first
+            this.line(out, 2, String.format("Transport %s, %s to factory %s and fully load %s;",
+                    platform(1 + this.random.nextInt(arity)), platform(1 + this.random.nextInt(arity)),
+                    this.pick(ARITHMETIC), platform(arity + 1)));
+
+            for (int j = 1; j < this.factoryStatements; j++) {
+                final String target = platform(1 + this.random.nextInt(arity + 1));
+
+                if (i > 1 && this.random.nextInt(4) == 0) {
+                    // Call an earlier factory
+                    final int callee = 1 + this.random.nextInt(i - 1);
+                    final StringBuilder args = new StringBuilder();
+                    for (int k = 0; k < factoryArity(callee); k++) {
+                        args.append(k == 0 ? "" : ", ").append(platform(1 + this.random.nextInt(arity)));
+                    }
+                    this.line(out, 2, String.format("Transport %s to factory factory%d and fully load %s;", args, callee, target));
+                } else {
+                    this.line(out, 2, String.format("Transport %s, %s to factory %s and fully load %s;",
+                            platform(1 + this.random.nextInt(arity + 1)), platform(1 + this.random.nextInt(arity + 1)),
+                            this.pick(ARITHMETIC), target));
+                }
+            }
+
+            this.line(out, 2, String.format("Final product %s;", platform(arity + 1)));
+            this.line(out, 1, "End production;");
+        }
+
+        this.line(out, 0, "End industry;");
+        this.line(out, 0, "");
+    }
+
+    /**
+     * Writes the company section.
+     */
+    private void writeCompany(final Writer out) throws IOException {
+        this.line(out, 0, "Begin company;");
+        this.line(out, 1, "Load 0 into wagon zero;");
+        this.line(out, 1, "Load 1 into wagon one;");
+
+        this.written = 0;
+        while (this.written < this.statements) {
+            this.writeStatement(out, 1, 0, false);
+        }
+
+        if (this.output) {
+            for (int i = 1; i <= this.wagons; i++) {
+                this.line(out, 1, String.format("Write \"%s=\" %s to journal;", wagon(i), wagon(i)));
+            }
+        }
+
+        this.line(out, 0, "End company;");
+    }
+
+    /**
+     * Writes a statement, which may be a loop or conditional with nested statements.
+     *
+     * @param out The writer.
+     * @param indent The indentation level.
+     * @param nesting The number of enclosing loops and conditionals.
+     * @param single Whether a single statement is required, which rules out loops because they need their counter to be
+     *               reset first.
+     */
+    private void writeStatement(final Writer out, final int indent, final int nesting, final boolean single) throws IOException {
+        this.written++;
+
+        final boolean nest = nesting < this.depth && this.written < this.statements;
+        final int choice = this.random.nextInt(nest ? 10 : 8);
+
+        switch (choice) {
+            case 0:
+                this.line(out, indent, String.format("Load %d into wagon %s;", this.random.nextInt(100) - 50, this.integer()));
+                break;
+            case 1:
+                this.line(out, indent, String.format("Transfer wagon %s to wagon %s;", this.integer(), this.integer()));
+                break;
+            case 2:
+                final String counter = this.integer();
+                this.line(out, indent, String.format("Transport %s, one to factory add and fully load %s;", counter, counter));
+                break;
+            case 3:
+            case 4:
+                this.line(out, indent, String.format("Transport %s, %s to factory %s and fully load %s;",
+                        this.integer(), this.integer(), this.pick(ARITHMETIC), this.integer()));
+                break;
+            case 5:
+                if (this.factories > 0) {
+                    final int factory = 1 + this.random.nextInt(this.factories);
+                    final StringBuilder args = new StringBuilder();
+                    for (int i = 0; i < factoryArity(factory); i++) {
+                        args.append(i == 0 ? "" : ", ").append(this.integer());
+                    }
+                    this.line(out, indent, String.format("Transport %s to factory factory%d and fully load %s;", args, factory, this.integer()));
+                    break;
+                }
+                // Fall through without factories
+            case 6:
+                if (this.signals > 0) {
+                    this.line(out, indent, String.format("Transport %s, %s to factory %s and set signal %s;",
+                            this.integer(), this.integer(), this.pick(COMPARISONS), this.signal()));
+                    break;
+                }
+                // Fall through without signals
+            case 7:
+                if (this.signals > 0) {
+                    this.line(out, indent, String.format("Switch signal %s;", this.signal()));
+                } else {
+                    this.line(out, indent, String.format("Load %d into wagon %s;", this.random.nextInt(100), this.integer()));
+                }
+                break;
+            case 8:
+                if (!single && nesting < this.waypoints) {
+                    // Loops at the same depth share a waypoint, nested loops never do
+                    final int waypoint = nesting + 1;
+                    this.line(out, indent, String.format("Load %d into wagon counter%d;", ITERATIONS, waypoint));
+                    this.line(out, indent, String.format("Begin circle waypoint%d;", waypoint));
+
+                    final int body = 1 + this.random.nextInt(4);
+                    for (int i = 0; i < body; i++) {
+                        this.writeStatement(out, indent + 1, nesting + 1, false);
+                    }
+
+                    this.line(out, indent, "End circle;");
+                    break;
+                }
+                // Fall through without a free waypoint
+            default:
+                if (this.signals > 0) {
+                    this.line(out, indent, String.format("Approach signal %s;", this.signal()));
+                    this.line(out, indent + 1, "Case green:");
+                    this.writeStatement(out, indent + 2, nesting + 1, true);
+                    this.line(out, indent + 1, "Case red:");
+                    this.writeStatement(out, indent + 2, nesting + 1, true);
+                    this.line(out, indent, "Pass signal;");
+                } else {
+                    this.line(out, indent, String.format("Load %d into wagon %s;", this.random.nextInt(100), this.integer()));
+                }
+        }
+    }
+
+    /**
+     * Writes a line.
+     */
+    private void line(final Writer out, final int indent, final String text) throws IOException {
+        for (int i = 0; i < indent; i++) {
+            out.write("    ");
+        }
+        out.write(text);
+        out.write('\n');
+        this.lines++;
+    }
+
+    /**
+     * @return A random integer wagon.
+     */
+    private String integer() {
+        return this.integers.get(this.random.nextInt(this.integers.size()));
+    }
+
+    /**
+     * @return A random signal.
+     */
+    private String signal() {
+        return "signal" + (1 + this.random.nextInt(this.signals));
+    }
+
+    /**
+     * @return A random element of the array.
+     */
+    private String pick(final String[] values) {
+        return values[this.random.nextInt(values.length)];
+    }
+
+    /**
+     * @param index The index of a wagon, starting at one.
+     * @return The name of the wagon.
+     */
+    private static String wagon(final int index) {
+        return "wagon" + index;
+    }
+
+    /**
+     * @param index The index of a wagon, starting at one.
+     * @return The type of the wagon.
+     */
+    private static String wagonType(final int index) {
+        switch (index % 4) {
+            case 3:
+                return "boolean";
+            case 0:
+                return "char";
+            default:
+                return "int";
+        }
+    }
+
+    /**
+     * @param index The index of a factory, starting at one.
+     * @return The number of arguments of the factory.
+     */
+    private static int factoryArity(final int index) {
+        return 1 + (index - 1) % 3;
+    }
+
+    /**
+     * @param index The index of a platform, starting at one.
+     * @return The name of the platform.
+     */
+    private static String platform(final int index) {
+        return "platform" + index;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ProgramGenerator %s", this.name);
+    }
+}
@@ -0,0 +1,197 @@
+package otld.otld.driver;
+
+import otld.otld.Main;
+import otld.otld.parsing.ParserSession;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches a directory tree and recompiles programs when their source changes.
+ *
+ * Changes are detected with a {@code WatchService}. Changes that arrive close together (for example when an editor saves
+ * several files, or writes a single file in several steps) are collected until no new changes arrive for the debounce
+ * period, and are then compiled together. Only the changed files are compiled, in the same JVM.
+ */
+public class SourceWatcher implements Closeable {
+    /** The default debounce period in milliseconds. */
+    public static final long DEFAULT_DEBOUNCE = 200;
+
+    /** The root of the watched tree. */
+    private final Path root;
+
+    /** The compiler for changed files. */
+    private final BatchCompiler compiler;
+
+    /** The time to wait for more changes in milliseconds. */
+    private final long debounce;
+
+    /** The consumer of the compile results. */
+    private final Consumer<CompileResult> consumer;
+
+    /** The watch service. */
+    private final WatchService service;
+
+    /**
+     * @param root The root of the tree to watch.
+     * @param compiler The compiler for changed files.
+     * @param debounce The time to wait for more changes in milliseconds.
+     * @param consumer The consumer of the compile results.
+     * @throws IOException The tree could not be watched.
+     */
+    public SourceWatcher(final File root, final BatchCompiler compiler, final long debounce, final Consumer<CompileResult> consumer) throws IOException {
+        this.root = root.toPath();
+        this.compiler = compiler;
+        this.debounce = debounce;
+        this.consumer = consumer;
+        this.service = this.root.getFileSystem().newWatchService();
+        this.register(this.root);
+    }
+
+    /**
+     * Compiles all programs in the tree.
+     *
+     * @throws IOException The tree could not be read.
+     */
+    public void compileAll() throws IOException {
+        final List<File> files = new ArrayList<>();
+
+        Files.walkFileTree(this.root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+                if (isSource(file)) {
+                    files.add(file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        this.compiler.compile(files, this.consumer);
+    }
+
+    /**
+     * Compiles changed programs until the watcher is closed or the thread is interrupted. The parser predictions are
+     * cleared when memory runs low.
+     *
+     * @throws IOException A new directory could not be watched.
+     */
+    public void run() throws IOException {
+        ParserSession.clearDFAWhenMemoryLow();
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                this.compiler.compile(new ArrayList<>(this.awaitChanges()), this.consumer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Closed by another thread
+        }
+    }
+
+    /**
+     * Waits for changes and returns the changed programs once no new changes arrive for the debounce period.
+     *
+     * @return The changed programs that still exist, in the order in which they changed.
+     * @throws InterruptedException The thread was interrupted.
+     * @throws IOException A new directory could not be watched.
+     */
+    public Set<File> awaitChanges() throws InterruptedException, IOException {
+        final Set<File> changed = new LinkedHashSet<>();
+        WatchKey key = this.service.take();
+
+        do {
+            final Path directory = (Path) key.watchable();
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Events were lost, consider everything changed
+                    this.collect(this.root, changed);
+                    continue;
+                }
+
+                final Path path = directory.resolve((Path) event.context());
+
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                        this.register(path);
+                        this.collect(path, changed);
+                    }
+                } else if (isSource(path)) {
+                    changed.add(path.toFile());
+                }
+            }
+
+            key.reset();
+            key = this.service.poll(this.debounce, TimeUnit.MILLISECONDS);
+        } while (key != null || changed.isEmpty() && (key = this.service.take()) != null);
+
+        // Deleted files cannot be compiled
+        changed.removeIf(file -> !file.isFile());
+
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.service.close();
+    }
+
+    /**
+     * Watches a directory and all of its subdirectories.
+     *
+     * @param directory The directory.
+     * @throws IOException The directory could not be watched.
+     */
+    private void register(final Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attributes) throws IOException {
+                dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Adds all programs in a directory. Used for new directories, whose programs may have been created before the
+     * directory was watched, and when events were lost.
+     *
+     * @param directory The directory.
+     * @param changed The changed programs.
+     * @throws IOException The directory could not be read.
+     */
+    private void collect(final Path directory, final Set<File> changed) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+                if (isSource(file)) {
+                    changed.add(file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * @param path A file.
+     * @return Whether the file is an OTLD program.
+     */
+    private static boolean isSource(final Path path) {
+        return path.getFileName().toString().endsWith("." + Main.EXT);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SourceWatcher %s", this.root);
+    }
+}
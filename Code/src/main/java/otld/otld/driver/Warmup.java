@@ -0,0 +1,157 @@
+package otld.otld.driver;
+
+import org.objectweb.asm.ClassReader;
+import otld.otld.Compiler;
+import otld.otld.Main;
+import otld.otld.jvm.BytecodeCompiler;
+import otld.otld.parsing.OTLDListener;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates a class data sharing (AppCDS) archive for the compiler.
+ *
+ * Small compiles are dominated by JVM startup: loading and verifying the ANTLR, ASM and compiler classes. The warmup
+ * compiles a representative corpus of programs in a new JVM that writes every class it loaded to an archive when it
+ * exits ({@code -XX:ArchiveClassesAtExit}, available since Java 13). A JVM started with
+ * {@code -XX:SharedArchiveFile=<archive>} maps those classes from the archive instead of loading them from the jar.
+ *
+ * The archive is only valid for the exact jar and JVM it was created with; the JVM ignores an archive that does not
+ * match. Classes can only be archived when they are loaded from a jar, and class files older than Java 6 (such as those
+ * of ASM 5) are skipped.
+ */
+public class Warmup {
+    /** The resource with the names of the corpus programs. */
+    public static final String CORPUS = "/otld/otld/warmup/corpus.txt";
+
+    /** The name of the archive file, next to the jar. */
+    public static final String ARCHIVE = "otld.jsa";
+
+    /** The default number of times the corpus is compiled. */
+    public static final int ROUNDS = 10;
+
+    /**
+     * Reads the names of the corpus programs.
+     *
+     * @return The resource names of the programs, relative to the corpus.
+     * @throws IOException The corpus could not be read.
+     */
+    public static List<String> corpus() throws IOException {
+        final List<String> programs = new ArrayList<>();
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(open(CORPUS), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    programs.add(line);
+                }
+            }
+        }
+
+        return programs;
+    }
+
+    /**
+     * Compiles the corpus in the current JVM, without writing any files.
+     *
+     * @param rounds The number of times the corpus is compiled.
+     * @return The number of programs that were compiled without errors in the last round.
+     * @throws IOException The corpus could not be read.
+     */
+    public static int exercise(final int rounds) throws IOException {
+        final List<String> programs = corpus();
+        final String base = CORPUS.substring(0, CORPUS.lastIndexOf('/') + 1);
+        int compiled = 0;
+
+        for (int i = 0; i < rounds; i++) {
+            compiled = 0;
+
+            for (String program : programs) {
+                OTLDListener parser;
+                try (InputStream in = open(base + program)) {
+                    parser = OTLDListener.parseFile(in);
+                }
+
+                if (parser.getErrors().isEmpty()) {
+                    Compiler compiler = new BytecodeCompiler(parser.getProgram());
+                    compiler.compile();
+                    new ClassReader(compiler.asByteArray()).getClassName();
+                    compiled++;
+                }
+            }
+        }
+
+        return compiled;
+    }
+
+    /**
+     * Starts a JVM that compiles the corpus and writes the loaded classes to an archive on exit.
+     *
+     * @param archive The archive file.
+     * @param rounds The number of times the corpus is compiled.
+     * @return The exit code of the JVM.
+     * @throws IOException The JVM could not be started.
+     * @throws InterruptedException The thread was interrupted while waiting for the JVM.
+     */
+    public static int dump(final File archive, final int rounds) throws IOException, InterruptedException {
+        final File java = new File(new File(System.getProperty("java.home"), "bin"), "java");
+
+        final ProcessBuilder builder = new ProcessBuilder(java.getPath(),
+                "-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath(),
+                // Do not warn about the classes that cannot be archived
+                "-Xlog:cds=off",
+                "-cp", System.getProperty("java.class.path"),
+                Main.class.getName(), "warmup", "--exercise", "--rounds", Integer.toString(rounds));
+        builder.inheritIO();
+
+        return builder.start().waitFor();
+    }
+
+    /**
+     * @return Whether this JVM can write an archive of the application classes.
+     */
+    public static boolean isSupported() {
+        final String version = System.getProperty("java.specification.version");
+        return !version.startsWith("1.") && Integer.parseInt(version.split("\\.")[0]) >= 13;
+    }
+
+    /**
+     * @return The default archive file, next to the jar of the compiler, or in the working directory if the compiler
+     * is not run from a jar.
+     */
+    public static File defaultArchive() {
+        try {
+            final File location = new File(Main.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+            if (location.isFile()) {
+                return new File(location.getParentFile(), ARCHIVE);
+            }
+        } catch (URISyntaxException | SecurityException e) {
+            // Fall back to the working directory
+        }
+
+        return new File(ARCHIVE);
+    }
+
+    /**
+     * Opens a resource.
+     *
+     * @param name The absolute name of the resource.
+     * @return The resource stream.
+     * @throws FileNotFoundException The resource does not exist.
+     */
+    private static InputStream open(final String name) throws FileNotFoundException {
+        final InputStream in = Warmup.class.getResourceAsStream(name);
+
+        if (in == null) {
+            throw new FileNotFoundException(name);
+        }
+
+        return in;
+    }
+}
@@ -53,6 +53,11 @@ public class Application extends Operation {
         return this.args[this.args.length - 1];
     }
 
+    @Override
+    public final <R, C> R accept(final IRVisitor<R, C> visitor, final C context) {
+        return visitor.visitApplication(this, context);
+    }
+
     @Override
     public final String toString() {
         return String.format("Apply %s ( %s ) -> %s", this.getOperator(), Joiner.on(", ").join(this.getArgs()), this.getTarget());
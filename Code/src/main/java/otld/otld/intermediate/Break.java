@@ -8,6 +8,11 @@ package otld.otld.intermediate;
 public class Break extends Operation {
     public Break() {}
 
+    @Override
+    public final <R, C> R accept(final IRVisitor<R, C> visitor, final C context) {
+        return visitor.visitBreak(this, context);
+    }
+
     @Override
     public final String toString() {
         return "Break";
@@ -32,6 +32,17 @@ public class Call extends Operation {
         }
     }
 
+    /**
+     * Creates a copy of a call that calls another version of the function, see {@code Program.snapshot()}.
+     *
+     * @param call The call.
+     * @param function The version of the function.
+     */
+    Call(final Call call, final Function function) {
+        this.function = function;
+        this.args = call.args;
+    }
+
     /**
      * @return The function that is called.
      */
@@ -53,6 +64,11 @@ public class Call extends Operation {
         return this.args[this.args.length - 1];
     }
 
+    @Override
+    public final <R, C> R accept(final IRVisitor<R, C> visitor, final C context) {
+        return visitor.visitCall(this, context);
+    }
+
     @Override
     public final String toString() {
         return String.format("Call %s ( %s ) -> %s", this.getFunction(), Joiner.on(", ").join(this.getArgs()), this.getTarget());
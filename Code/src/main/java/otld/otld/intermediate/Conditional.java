@@ -25,6 +25,17 @@ public class Conditional extends Block {
         this.bodyFalse = new OperationSequence();
     }
 
+    /**
+     * @param condition The variable which determines which body to execute.
+     * @param bodyTrue The body for when the condition is true.
+     * @param bodyFalse The body for when the condition is false.
+     */
+    Conditional(final Variable<Boolean> condition, final OperationSequence bodyTrue, final OperationSequence bodyFalse) {
+        this.condition = condition;
+        this.bodyTrue = bodyTrue;
+        this.bodyFalse = bodyFalse;
+    }
+
     /**
      * @return The variable which determines which body to execute.
      */
@@ -46,6 +57,11 @@ public class Conditional extends Block {
         return this.bodyFalse;
     }
 
+    @Override
+    public final <R, C> R accept(final IRVisitor<R, C> visitor, final C context) {
+        return visitor.visitConditional(this, context);
+    }
+
     @Override
     public final String toString() {
         return String.format("Conditional ( %s )", this.getCondition());
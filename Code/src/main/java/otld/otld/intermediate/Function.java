@@ -40,6 +40,29 @@ public class Function extends Element implements TypedElement {
         }
     }
 
+    /**
+     * Creates a version of a function with another body, which has the same identifier, arguments and variables.
+     *
+     * @param function The function.
+     * @param body The body of the version.
+     */
+    Function(final Function function, final OperationSequence body) {
+        this.id = function.id;
+        this.args = function.args;
+        this.variables = function.variables;
+        this.body = body;
+    }
+
+    /**
+     * Sets the body of a version while the snapshot it belongs to is created, since the calls in the body refer to the
+     * version.
+     *
+     * @param body The frozen body of the version.
+     */
+    final void setBody(final OperationSequence body) {
+        this.body = body;
+    }
+
     /**
      * @return The unique identifier of this function.
      */
@@ -0,0 +1,97 @@
+package otld.otld.intermediate;
+
+/**
+ * Visitor of the operations of the intermediate representation.
+ *
+ * Calling {@code Operation.accept} calls the method of the visitor for the specific type of operation, so a pass or back
+ * end handles an operation with a single virtual call instead of a chain of type checks. Every method gets a context
+ * from the caller and returns a result, so passes can pass state down and results up without keeping them in fields.
+ * Visitors that need neither use {@code Void} and {@code null}.
+ *
+ * @param <R> The type of the result.
+ * @param <C> The type of the context.
+ */
+public interface IRVisitor<R, C> {
+    /**
+     * @param application The operator application.
+     * @param context The context.
+     * @return The result.
+     */
+    R visitApplication(Application application, C context);
+
+    /**
+     * @param assignment The assignment of a constant value.
+     * @param context The context.
+     * @return The result.
+     */
+    R visitValueAssignment(ValueAssignment assignment, C context);
+
+    /**
+     * @param assignment The assignment of a variable.
+     * @param context The context.
+     * @return The result.
+     */
+    R visitVariableAssignment(VariableAssignment assignment, C context);
+
+    /**
+     * @param brake The break.
+     * @param context The context.
+     * @return The result.
+     */
+    R visitBreak(Break brake, C context);
+
+    /**
+     * @param call The function call.
+     * @param context The context.
+     * @return The result.
+     */
+    R visitCall(Call call, C context);
+
+    /**
+     * @param conditional The conditional block.
+     * @param context The context.
+     * @return The result.
+     */
+    R visitConditional(Conditional conditional, C context);
+
+    /**
+     * @param input The input operation.
+     * @param context The context.
+     * @return The result.
+     */
+    R visitInput(Input input, C context);
+
+    /**
+     * @param loop The loop block.
+     * @param context The context.
+     * @return The result.
+     */
+    R visitLoop(Loop loop, C context);
+
+    /**
+     * @param output The output operation.
+     * @param context The context.
+     * @return The result.
+     */
+    R visitOutput(Output output, C context);
+
+    /**
+     * @param returm The return.
+     * @param context The context.
+     * @return The result.
+     */
+    R visitReturn(Return returm, C context);
+
+    /**
+     * Handles operations that are not part of the intermediate representation itself, such as the phi operations of the
+     * SSA form. Visitors that support them can check their type here.
+     *
+     * @param operation The operation.
+     * @param context The context.
+     * @return The result.
+     * @throws UnsupportedOperationException The operation is not supported by this visitor, which is the default.
+     */
+    default R visitOther(final Operation operation, final C context) {
+        throw new UnsupportedOperationException(String.format("<%s> is not supported by this visitor.", operation));
+    }
+}
@@ -35,6 +35,11 @@ public class Input extends Operation {
         return this.destination;
     }
 
+    @Override
+    public final <R, C> R accept(final IRVisitor<R, C> visitor, final C context) {
+        return visitor.visitInput(this, context);
+    }
+
     @Override
     public final String toString() {
         return String.format("Input \"%s\" -> %s", this.getQuery(), this.getTarget());
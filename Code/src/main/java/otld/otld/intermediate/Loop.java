@@ -27,6 +27,17 @@ public class Loop extends Block {
         this.body = new OperationSequence();
     }
 
+    /**
+     * @param condition The variable which determines whether to execute the body or continue.
+     * @param conditionBody The operations which determine the value of the condition.
+     * @param body The body of the loop.
+     */
+    Loop(final Variable<Boolean> condition, final OperationSequence conditionBody, final OperationSequence body) {
+        this.condition = condition;
+        this.conditionBody = conditionBody;
+        this.body = body;
+    }
+
     /**
      * @return The variable which determines whether to execute the body or continue.
      */
@@ -48,6 +59,11 @@ public class Loop extends Block {
         return this.body;
     }
 
+    @Override
+    public final <R, C> R accept(final IRVisitor<R, C> visitor, final C context) {
+        return visitor.visitLoop(this, context);
+    }
+
     @Override
     public final String toString() {
         return String.format("Loop ( %s )", this.getCondition());
@@ -4,4 +4,12 @@ package otld.otld.intermediate;
  * Base class for operations.
  */
 public abstract class Operation extends Element {
+    /**
+     * Calls the method of a visitor for the type of this operation.
+     *
+     * @param visitor The visitor.
+     * @param context The context to pass to the visitor.
+     * @return The result of the visitor.
+     */
+    public abstract <R, C> R accept(IRVisitor<R, C> visitor, C context);
 }
@@ -1,15 +1,391 @@
 package otld.otld.intermediate;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
 
 /**
  * List of operations.
  *
  * An in-order sequence of elements that form a program or method body.
+ *
+ * The operations are kept in an array that grows when needed, so a sequence costs no object per operation and can be
+ * iterated and indexed without following references. Most sequences, such as the bodies of loops and conditionals,
+ * are small or empty, so the array is only allocated for the first operation and starts small.
+ *
+ * A sequence in a snapshot of a program is frozen: it cannot be changed, and neither can the blocks in it. Frozen
+ * sequences are shared between the versions of a snapshot, see {@code Program.snapshot()}.
  */
-public class OperationSequence extends LinkedList<Operation> {
+public class OperationSequence extends AbstractList<Operation> implements RandomAccess {
+    /** The array of a sequence without operations. */
+    private static final Operation[] EMPTY = new Operation[0];
+
+    /** The capacity of the array for the first operation. */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /** The operations, followed by unused elements. */
+    private Operation[] operations;
+
+    /** The number of operations. */
+    private int size;
+
+    /** Whether this sequence and the blocks in it can no longer be changed. */
+    private boolean frozen;
+
+    public OperationSequence() {
+        this.operations = EMPTY;
+    }
+
+    /**
+     * @param operations The operations to start with.
+     */
+    public OperationSequence(final Collection<? extends Operation> operations) {
+        this.operations = operations.isEmpty() ? EMPTY : operations.toArray(new Operation[operations.size()]);
+        this.size = this.operations.length;
+    }
+
+    /**
+     * Returns a frozen copy of a sequence. Blocks in the sequence are copied as well, unless their bodies are frozen
+     * already, in which case they are shared. Other operations are shared.
+     *
+     * @param sequence The sequence.
+     * @return The sequence itself if it is frozen already, otherwise the copy.
+     */
+    static OperationSequence freeze(final OperationSequence sequence) {
+        return freeze(sequence, null);
+    }
+
+    /**
+     * Returns a frozen copy of a sequence in which every call refers to the version of its function in a snapshot.
+     * Blocks in the sequence are copied as well, unless their bodies are frozen already and need no changes, in which
+     * case they are shared. Other operations are shared.
+     *
+     * @param sequence The sequence.
+     * @param program The snapshot with the versions of the functions, or {@code null} to keep the calls as they are.
+     * @return The sequence itself if it is frozen already and needs no changes, otherwise the copy.
+     */
+    static OperationSequence freeze(final OperationSequence sequence, final Program program) {
+        if (sequence.frozen && !rebinds(sequence, program)) {
+            return sequence;
+        }
+
+        final OperationSequence frozen = new OperationSequence();
+        frozen.operations = sequence.size == 0 ? EMPTY : new Operation[sequence.size];
+        frozen.size = sequence.size;
+        frozen.frozen = true;
+
+        for (int i = 0; i < sequence.size; i++) {
+            frozen.operations[i] = freeze(sequence.operations[i], program);
+        }
+
+        return frozen;
+    }
+
+    /**
+     * @param operation An operation.
+     * @param program The snapshot with the versions of the functions, or {@code null}.
+     * @return The operation itself if it cannot be changed and needs no changes, otherwise a copy.
+     */
+    private static Operation freeze(final Operation operation, final Program program) {
+        if (operation instanceof Conditional) {
+            final Conditional conditional = (Conditional) operation;
+            final OperationSequence bodyTrue = freeze(conditional.getBodyTrue(), program);
+            final OperationSequence bodyFalse = freeze(conditional.getBodyFalse(), program);
+
+            if (bodyTrue != conditional.getBodyTrue() || bodyFalse != conditional.getBodyFalse()) {
+                return new Conditional(conditional.getCondition(), bodyTrue, bodyFalse);
+            }
+        } else if (operation instanceof Loop) {
+            final Loop loop = (Loop) operation;
+            final OperationSequence conditionBody = freeze(loop.getConditionBody(), program);
+            final OperationSequence body = freeze(loop.getBody(), program);
+
+            if (conditionBody != loop.getConditionBody() || body != loop.getBody()) {
+                return new Loop(loop.getCondition(), conditionBody, body);
+            }
+        } else if (operation instanceof Call) {
+            final Call call = (Call) operation;
+            final Function version = version(call, program);
+
+            if (version != call.getFunction()) {
+                return new Call(call, version);
+            }
+        }
+
+        return operation;
+    }
+
+    /**
+     * @param call A call.
+     * @param program The snapshot with the versions of the functions, or {@code null}.
+     * @return The version of the called function in the snapshot, or the called function if there is none.
+     */
+    private static Function version(final Call call, final Program program) {
+        final Function version = program == null ? null : program.getFunction(call.getFunction().getId());
+        return version == null ? call.getFunction() : version;
+    }
+
+    /**
+     * @param sequence A sequence.
+     * @param program The snapshot with the versions of the functions, or {@code null}.
+     * @return Whether a call in the sequence or its blocks refers to another version of its function than the snapshot.
+     */
+    private static boolean rebinds(final OperationSequence sequence, final Program program) {
+        if (program == null) {
+            return false;
+        }
+
+        for (int i = 0; i < sequence.size; i++) {
+            final Operation operation = sequence.operations[i];
+
+            if (operation instanceof Call && version((Call) operation, program) != ((Call) operation).getFunction()) {
+                return true;
+            } else if (operation instanceof Conditional && (rebinds(((Conditional) operation).getBodyTrue(), program)
+                    || rebinds(((Conditional) operation).getBodyFalse(), program))) {
+                return true;
+            } else if (operation instanceof Loop && (rebinds(((Loop) operation).getConditionBody(), program)
+                    || rebinds(((Loop) operation).getBody(), program))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param sequence A sequence.
+     * @param functions Functions.
+     * @return Whether the sequence or its blocks call one of the functions.
+     */
+    static boolean calls(final OperationSequence sequence, final Set<Function> functions) {
+        for (int i = 0; i < sequence.size; i++) {
+            final Operation operation = sequence.operations[i];
+
+            if (operation instanceof Call && functions.contains(((Call) operation).getFunction())) {
+                return true;
+            } else if (operation instanceof Conditional && (calls(((Conditional) operation).getBodyTrue(), functions)
+                    || calls(((Conditional) operation).getBodyFalse(), functions))) {
+                return true;
+            } else if (operation instanceof Loop && (calls(((Loop) operation).getConditionBody(), functions)
+                    || calls(((Loop) operation).getBody(), functions))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @throws UnsupportedOperationException The sequence is frozen.
+     */
+    private void checkMutable() {
+        if (this.frozen) {
+            throw new UnsupportedOperationException("A sequence of a snapshot cannot be changed");
+        }
+    }
+
+    /**
+     * Makes sure the array has room for more operations.
+     *
+     * @param capacity The number of operations the array should be able to hold.
+     */
+    private void ensureCapacity(final int capacity) {
+        if (capacity > this.operations.length) {
+            final int grown = Math.max(INITIAL_CAPACITY, this.operations.length + (this.operations.length >> 1));
+            this.operations = Arrays.copyOf(this.operations, Math.max(capacity, grown));
+        }
+    }
+
+    /**
+     * @param index An index of an operation.
+     * @throws IndexOutOfBoundsException The index is not the index of an operation.
+     */
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException(String.format("Index %d in a sequence of %d", index, this.size));
+        }
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Operation get(final int index) {
+        this.checkIndex(index);
+        return this.operations[index];
+    }
+
+    @Override
+    public final Operation set(final int index, final Operation operation) {
+        this.checkMutable();
+        this.checkIndex(index);
+        final Operation previous = this.operations[index];
+        this.operations[index] = operation;
+        return previous;
+    }
+
+    @Override
+    public final boolean add(final Operation operation) {
+        this.checkMutable();
+        this.modCount++;
+        this.ensureCapacity(this.size + 1);
+        this.operations[this.size++] = operation;
+        return true;
+    }
+
+    @Override
+    public final void add(final int index, final Operation operation) {
+        this.splice(index, index, Collections.singletonList(operation));
+    }
+
+    @Override
+    public final boolean addAll(final Collection<? extends Operation> operations) {
+        return this.addAll(this.size, operations);
+    }
+
+    @Override
+    public final boolean addAll(final int index, final Collection<? extends Operation> operations) {
+        this.splice(index, index, operations);
+        return !operations.isEmpty();
+    }
+
+    @Override
+    public final Operation remove(final int index) {
+        this.checkIndex(index);
+        final Operation operation = this.operations[index];
+        this.removeRange(index, index + 1);
+        return operation;
+    }
+
+    @Override
+    protected final void removeRange(final int from, final int to) {
+        this.splice(from, to, Collections.<Operation>emptyList());
+    }
+
+    @Override
+    public final void clear() {
+        this.checkMutable();
+        this.modCount++;
+        Arrays.fill(this.operations, 0, this.size, null);
+        this.size = 0;
+    }
+
+    /**
+     * Replaces a range of operations with other operations, moving the operations after the range only once.
+     *
+     * @param from The index of the first operation to replace.
+     * @param to The index after the last operation to replace.
+     * @param replacement The operations to put in place of the range.
+     * @throws IndexOutOfBoundsException The range is not within the sequence.
+     * @throws UnsupportedOperationException The sequence is frozen.
+     */
+    public final void splice(final int from, final int to, final Collection<? extends Operation> replacement) {
+        this.checkMutable();
+        if (from < 0 || to > this.size || from > to) {
+            throw new IndexOutOfBoundsException(String.format("Range %d-%d in a sequence of %d", from, to, this.size));
+        }
+
+        // Copies first, as the replacement may be a view of this sequence
+        final Object[] inserted = replacement.toArray();
+        final int size = this.size - (to - from) + inserted.length;
+
+        this.modCount++;
+        this.ensureCapacity(size);
+        System.arraycopy(this.operations, to, this.operations, from + inserted.length, this.size - to);
+        System.arraycopy(inserted, 0, this.operations, from, inserted.length);
+
+        if (size < this.size) {
+            Arrays.fill(this.operations, size, this.size, null);
+        }
+        this.size = size;
+    }
+
+    /**
+     * @return The first operation.
+     * @throws NoSuchElementException The sequence is empty.
+     */
+    public final Operation getFirst() {
+        if (this.size == 0) {
+            throw new NoSuchElementException();
+        }
+        return this.operations[0];
+    }
+
+    /**
+     * @return The last operation.
+     * @throws NoSuchElementException The sequence is empty.
+     */
+    public final Operation getLast() {
+        if (this.size == 0) {
+            throw new NoSuchElementException();
+        }
+        return this.operations[this.size - 1];
+    }
+
+    /**
+     * Shrinks the array to the number of operations, for sequences that will not grow any more.
+     */
+    public final void trimToSize() {
+        this.checkMutable();
+        if (this.size < this.operations.length) {
+            this.operations = this.size == 0 ? EMPTY : Arrays.copyOf(this.operations, this.size);
+        }
+    }
+
+    /**
+     * @return Whether this sequence belongs to a snapshot and can no longer be changed.
+     */
+    public final boolean isFrozen() {
+        return this.frozen;
+    }
+
+    @Override
+    public final Iterator<Operation> iterator() {
+        return new Iterator<Operation>() {
+            /** The index of the next operation. */
+            private int next;
+
+            /** The index of the last operation returned, or {@code -1}. */
+            private int last = -1;
+
+            /** The number of modifications that this iterator knows of. */
+            private int expectedModCount = OperationSequence.this.modCount;
+
+            @Override
+            public boolean hasNext() {
+                return this.next < OperationSequence.this.size;
+            }
+
+            @Override
+            public Operation next() {
+                if (OperationSequence.this.modCount != this.expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (this.next >= OperationSequence.this.size) {
+                    throw new NoSuchElementException();
+                }
+
+                this.last = this.next++;
+                return OperationSequence.this.operations[this.last];
+            }
+
+            @Override
+            public void remove() {
+                if (this.last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (OperationSequence.this.modCount != this.expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+
+                OperationSequence.this.remove(this.last);
+                this.next = this.last;
+                this.last = -1;
+                this.expectedModCount = OperationSequence.this.modCount;
+            }
+        };
+    }
+
     @Override
     public final String toString() {
         return String.format("OperationSequence < %d >", this.size());
@@ -36,6 +36,11 @@ public class Output extends Operation {
         return this.source;
     }
 
+    @Override
+    public final <R, C> R accept(final IRVisitor<R, C> visitor, final C context) {
+        return visitor.visitOutput(this, context);
+    }
+
     @Override
     public final String toString() {
         return String.format("Output \"%s\", %s", this.getDescription(), this.getSource());
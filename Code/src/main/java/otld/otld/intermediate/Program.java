@@ -11,30 +11,63 @@ import java.util.*;
  * A program is responsible for keeping administration on all variables, functions, etc. which are globally defined.
  * (Currently, all variables and functions are global except for function arguments.) The program body will be executed
  * at the start of the program. In Java terms, this is the static main method of the program.
+ *
+ * A snapshot of a program is an immutable copy that shares the variables and operations, but not the bodies, with the
+ * program. It can be read, analyzed and compiled on several threads at once while the program changes. A pass that
+ * rewrites a snapshot creates a new version with {@code withBody} or {@code withFunctionBody}, in which everything that
+ * was not rewritten is shared with the previous version instead of copied.
  */
 public class Program {
     /** The identifier of the program. */
     private String id;
 
-    /** The variables in this program indexed by identifier. */
-    private Map<String, Variable> variables;
+    /** The identifiers of the variables and functions in this program. */
+    private SymbolTable symbols;
+
+    /** The variables in this program indexed by symbol. Symbols that are not a variable are {@code null}. */
+    private Variable[] variables;
+
+    /** The functions in this program indexed by symbol. Symbols that are not a function are {@code null}. */
+    private Function[] functions;
 
-    /** The functions in this program indexed by identifier. */
-    private Map<String, Function> functions;
+    /** The number of variables in this program, including the arguments of its functions. */
+    private int variableCount;
 
     /** The operations that form the program. */
     private OperationSequence body;
 
+    /** Whether this program is a snapshot, which can no longer be changed. */
+    private boolean frozen;
+
     /**
      * @param id The unique identifier of the program.
      */
     public Program(final String id) {
         this.id = id;
-        this.variables = new HashMap<String, Variable>();
-        this.functions = new HashMap<String, Function>();
+        this.symbols = new SymbolTable();
+        this.variables = new Variable[16];
+        this.functions = new Function[16];
+        this.variableCount = 0;
         this.body = new OperationSequence();
     }
 
+    /**
+     * Creates a version of a snapshot.
+     *
+     * @param program The snapshot.
+     * @param functions The functions of the version indexed by symbol, all with frozen bodies.
+     * @param body The frozen body of the version.
+     */
+    private Program(final Program program, final Function[] functions, final OperationSequence body) {
+        this.id = program.id;
+        this.symbols = program.symbols;
+        this.variables = program.variables;
+        this.functions = functions;
+        this.variableCount = program.variableCount;
+        this.body = body;
+        this.frozen = true;
+    }
+
     /**
      * @return The unique identifier of the program.
      */
@@ -42,23 +75,53 @@ public class Program {
         return this.id;
     }
 
+    /**
+     * @return The identifiers of the variables and functions in this program.
+     */
+    public final SymbolTable getSymbols() {
+        return this.symbols;
+    }
+
     /**
      * @param id The identifier of the variable.
      * @return The variable or {@code null} if there is no variable with the given identifier.
      */
     public final Variable getVariable(final String id) {
-        return this.variables.get(id);
+        return this.getVariable(this.symbols.lookup(id));
+    }
+
+    /**
+     * @param symbol The symbol of the identifier of the variable, see {@code getSymbols()}.
+     * @return The variable or {@code null} if there is no variable with the given symbol.
+     */
+    public final Variable getVariable(final int symbol) {
+        return symbol >= 0 && symbol < this.variables.length ? this.variables[symbol] : null;
     }
 
     /**
+     * Adds a variable and gives it the next index, see {@code Variable.getIndex()}.
+     *
      * @param var The variable to add.
-     * @throws VariableAlreadyDeclared There already exists a variable with the given name.
+     * @throws VariableAlreadyDeclared There already exists a variable with the given name, or the variable has already
+     *                                 been added to a program.
+     * @throws UnsupportedOperationException The program is a snapshot.
      */
     public final void addVariable(final Variable var) throws VariableAlreadyDeclared {
-        if (this.variables.containsKey(var.getId())) {
+        this.checkMutable();
+
+        // The index identifies the variable in its program, so a variable can only belong to one program
+        if (var.getIndex() >= 0) {
+            throw new VariableAlreadyDeclared();
+        }
+
+        final int symbol = this.symbols.intern(var.getId());
+        this.variables = this.ensureCapacity(this.variables, symbol);
+
+        if (this.variables[symbol] != null) {
             throw new VariableAlreadyDeclared();
         }
-        this.variables.put(var.getId(), var);
+        this.variables[symbol] = var;
+        var.setIndex(this.variableCount++);
     }
 
     /**
@@ -66,18 +129,58 @@ public class Program {
      * @return The function or {@code null} if there is no function with the given identifier.
      */
     public final Function getFunction(final String id) {
-        return this.functions.get(id);
+        final int symbol = this.symbols.lookup(id);
+        return symbol >= 0 && symbol < this.functions.length ? this.functions[symbol] : null;
     }
 
     /**
+     * Adds a function and gives the variables for its arguments the next indices, see {@code Variable.getIndex()}.
+     *
      * @param function The function to add.
-     * @throws FunctionAlreadyDeclared There already exists a function with the given name.
+     * @throws FunctionAlreadyDeclared There already exists a function with the given name, or the function has already
+     *                                 been added to a program.
+     * @throws UnsupportedOperationException The program is a snapshot.
      */
     public final void addFunction(final Function function) throws FunctionAlreadyDeclared {
-        if (this.functions.containsKey(function.getId())) {
+        this.checkMutable();
+
+        if (function.getVariables()[0].getIndex() >= 0) {
+            throw new FunctionAlreadyDeclared();
+        }
+
+        final int symbol = this.symbols.intern(function.getId());
+        this.functions = this.ensureCapacity(this.functions, symbol);
+
+        if (this.functions[symbol] != null) {
             throw new FunctionAlreadyDeclared();
         }
-        this.functions.put(function.getId(), function);
+        this.functions[symbol] = function;
+
+        for (Variable variable : function.getVariables()) {
+            variable.setIndex(this.variableCount++);
+        }
+    }
+
+    /**
+     * @return The number of variables in this program, including the arguments of its functions. The indices of the
+     *         variables are below this number.
+     */
+    public final int getVariableCount() {
+        return this.variableCount;
+    }
+
+    /**
+     * Grows an array indexed by symbol so it has room for the given symbol.
+     *
+     * @param array The array.
+     * @param symbol The symbol.
+     * @return The array, or a larger copy of it.
+     */
+    private <T> T[] ensureCapacity(final T[] array, final int symbol) {
+        if (symbol < array.length) {
+            return array;
+        }
+        return Arrays.copyOf(array, Math.max(symbol + 1, array.length * 2));
     }
 
     /**
@@ -88,14 +191,158 @@ public class Program {
     }
 
     /**
-     * @return The variables in this program.
+     * @return The variables in this program in the order in which they were added, which is the order of their indices.
      */
     public Set<Variable> getVariables() {
-        return new HashSet<Variable>(this.variables.values());
+        final Variable[] declared = new Variable[this.variableCount];
+        for (Variable variable : this.variables) {
+            if (variable != null) {
+                declared[variable.getIndex()] = variable;
+            }
+        }
+
+        final Set<Variable> variables = new LinkedHashSet<Variable>();
+        for (Variable variable : declared) {
+            if (variable != null) {
+                variables.add(variable);
+            }
+        }
+        return variables;
     }
 
+    /**
+     * @return The functions in this program in the order in which they were added.
+     */
     public Set<Function> getFunctions() {
-        return new HashSet<Function>(this.functions.values());
+        // The arguments of a function get the next indices when it is added, so the first one gives the order
+        final Function[] declared = new Function[this.variableCount];
+        for (Function function : this.functions) {
+            if (function != null) {
+                declared[function.getVariables()[0].getIndex()] = function;
+            }
+        }
+
+        final Set<Function> functions = new LinkedHashSet<Function>();
+        for (Function function : declared) {
+            if (function != null) {
+                functions.add(function);
+            }
+        }
+        return functions;
+    }
+
+    /**
+     * Creates an immutable snapshot of this program.
+     *
+     * The snapshot has its own versions of the functions and its own copy of the bodies, and shares the variables and
+     * the operations other than blocks and calls. Calls in the snapshot refer to the versions of the functions in the
+     * snapshot, so an analysis that follows calls never sees the bodies of this program.
+     *
+     * @return This program if it is a snapshot already, otherwise the snapshot.
+     */
+    public final Program snapshot() {
+        if (this.frozen) {
+            return this;
+        }
+
+        final Function[] functions = new Function[this.functions.length];
+        for (int i = 0; i < functions.length; i++) {
+            if (this.functions[i] != null) {
+                functions[i] = new Function(this.functions[i], null);
+            }
+        }
+
+        // The bodies are frozen once the versions exist, so the calls in them can refer to the versions
+        final Program snapshot = new Program(this, functions, null);
+        snapshot.symbols = new SymbolTable(this.symbols);
+        snapshot.variables = Arrays.copyOf(this.variables, this.variables.length);
+        for (int i = 0; i < functions.length; i++) {
+            if (functions[i] != null) {
+                functions[i].setBody(OperationSequence.freeze(this.functions[i].getBody(), snapshot));
+            }
+        }
+        snapshot.body = OperationSequence.freeze(this.body, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Creates a version of the snapshot of this program with another body. The functions and the blocks of the body that
+     * are already frozen are shared with the snapshot. Calls in the body are changed to call the versions of the
+     * functions in the snapshot.
+     *
+     * @param body The body of the version, which is copied if it is not frozen.
+     * @return The version.
+     */
+    public final Program withBody(final OperationSequence body) {
+        final Program snapshot = this.snapshot();
+        return new Program(snapshot, snapshot.functions, OperationSequence.freeze(body, snapshot));
+    }
+
+    /**
+     * Creates a version of the snapshot of this program in which a function has another body. The blocks of the new
+     * body that are already frozen are shared with the snapshot, and so is everything that does not call the function.
+     * The functions that call the function, directly or through other functions, get a new version as well, in which
+     * only the blocks with such calls are copied. Every call in the version calls the versions of the version.
+     *
+     * @param id The identifier of the function.
+     * @param body The body of the function in the version, which is copied if it is not frozen.
+     * @return The version.
+     * @throws IllegalArgumentException There is no function with the given identifier.
+     */
+    public final Program withFunctionBody(final String id, final OperationSequence body) {
+        final Program snapshot = this.snapshot();
+        final Function function = snapshot.getFunction(id);
+
+        if (function == null) {
+            throw new IllegalArgumentException(String.format("Function %s does not exist", id));
+        }
+
+        // The function and the functions that call a changed function get a new version
+        final Set<Function> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+        changed.add(function);
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (Function other : snapshot.functions) {
+                if (other != null && !changed.contains(other) && OperationSequence.calls(other.getBody(), changed)) {
+                    changed.add(other);
+                    grown = true;
+                }
+            }
+        }
+
+        final Function[] functions = Arrays.copyOf(snapshot.functions, snapshot.functions.length);
+        for (int i = 0; i < functions.length; i++) {
+            if (changed.contains(functions[i])) {
+                functions[i] = new Function(functions[i], null);
+            }
+        }
+
+        final Program version = new Program(snapshot, functions, null);
+        for (int i = 0; i < functions.length; i++) {
+            if (changed.contains(snapshot.functions[i])) {
+                final Function previous = snapshot.functions[i];
+                functions[i].setBody(OperationSequence.freeze(previous == function ? body : previous.getBody(), version));
+            }
+        }
+        version.body = OperationSequence.freeze(snapshot.body, version);
+        return version;
+    }
+
+    /**
+     * @return Whether this program is a snapshot, which can no longer be changed.
+     */
+    public final boolean isFrozen() {
+        return this.frozen;
+    }
+
+    /**
+     * @throws UnsupportedOperationException The program is a snapshot.
+     */
+    private void checkMutable() {
+        if (this.frozen) {
+            throw new UnsupportedOperationException("A snapshot cannot be changed");
+        }
     }
 
     @Override
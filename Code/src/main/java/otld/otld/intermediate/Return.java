@@ -23,6 +23,11 @@ public class Return extends Operation {
         return this.source;
     }
 
+    @Override
+    public final <R, C> R accept(final IRVisitor<R, C> visitor, final C context) {
+        return visitor.visitReturn(this, context);
+    }
+
     @Override
     public final String toString() {
         return String.format("Return %s", this.getSource());
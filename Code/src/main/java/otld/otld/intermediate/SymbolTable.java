@@ -0,0 +1,89 @@
+package otld.otld.intermediate;
+
+import java.util.*;
+
+/**
+ * The identifiers used in a program.
+ *
+ * Every identifier is interned once and gets a dense integer symbol, starting at zero in the order in which the
+ * identifiers are interned. Anything that is looked up by identifier can then be kept in an array indexed by symbol
+ * instead of in a map keyed by string.
+ */
+public class SymbolTable {
+    /** The symbols indexed by identifier. */
+    private Map<String, Integer> symbols;
+
+    /** The identifiers indexed by symbol. */
+    private List<String> names;
+
+    /** Whether new identifiers can no longer be added. */
+    private boolean frozen;
+
+    public SymbolTable() {
+        this.symbols = new HashMap<String, Integer>();
+        this.names = new ArrayList<String>();
+    }
+
+    /**
+     * Creates a copy to which no identifiers can be added, for a snapshot of a program.
+     *
+     * @param table The table to copy.
+     */
+    SymbolTable(final SymbolTable table) {
+        this.symbols = new HashMap<String, Integer>(table.symbols);
+        this.names = new ArrayList<String>(table.names);
+        this.frozen = true;
+    }
+
+    /**
+     * Returns the symbol of an identifier, adding the identifier if it is new.
+     *
+     * @param name The identifier.
+     * @return The symbol of the identifier.
+     * @throws UnsupportedOperationException The identifier is new and the table belongs to a snapshot.
+     */
+    public final int intern(final String name) {
+        Integer symbol = this.symbols.get(name);
+
+        if (symbol == null) {
+            if (this.frozen) {
+                throw new UnsupportedOperationException("Identifiers cannot be added to a snapshot");
+            }
+
+            symbol = this.names.size();
+            this.symbols.put(name, symbol);
+            this.names.add(name);
+        }
+
+        return symbol;
+    }
+
+    /**
+     * @param name The identifier.
+     * @return The symbol of the identifier or {@code -1} if the identifier has not been interned.
+     */
+    public final int lookup(final String name) {
+        final Integer symbol = this.symbols.get(name);
+        return symbol == null ? -1 : symbol;
+    }
+
+    /**
+     * @param symbol The symbol.
+     * @return The interned identifier of the symbol.
+     */
+    public final String getName(final int symbol) {
+        return this.names.get(symbol);
+    }
+
+    /**
+     * @return The number of symbols, which is one more than the highest symbol.
+     */
+    public final int size() {
+        return this.names.size();
+    }
+
+    @Override
+    public final String toString() {
+        return String.format("SymbolTable (%d symbols)", this.size());
+    }
+}
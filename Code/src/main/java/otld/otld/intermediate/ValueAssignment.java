@@ -28,6 +28,11 @@ public class ValueAssignment<T> extends Assignment {
         return this.value;
     }
 
+    @Override
+    public final <R, C> R accept(final IRVisitor<R, C> visitor, final C context) {
+        return visitor.visitValueAssignment(this, context);
+    }
+
     @Override
     public final String toString() {
         return String.format("Assign ( %s ) -> %s", this.getValue(), this.getTarget());
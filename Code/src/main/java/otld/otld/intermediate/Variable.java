@@ -26,6 +26,9 @@ public class Variable<T> extends Element implements TypedElement {
     /** The optional initial value of this variable. */
     private Optional<T> initialValue;
 
+    /** The index of this variable in its program, or {@code -1} if it has not been added to a program. */
+    private int index;
+
     /**
      * @param type The type of this variable.
      * @param id The unique identifier of this variable.
@@ -35,6 +38,7 @@ public class Variable<T> extends Element implements TypedElement {
         this.type = type;
         this.id = id;
         this.initialValue = Optional.fromNullable(initialValue);
+        this.index = -1;
     }
 
     /**
@@ -59,6 +63,24 @@ public class Variable<T> extends Element implements TypedElement {
         return this.type;
     }
 
+    /**
+     * Returns the index of this variable in its program. The variables of a program, including the arguments of its
+     * functions, are numbered from zero in the order in which they were added, so the index can be used for array
+     * lookups instead of hashing the variable.
+     *
+     * @return The index of this variable, or {@code -1} if it has not been added to a program.
+     */
+    public final int getIndex() {
+        return this.index;
+    }
+
+    /**
+     * @param index The index of this variable in its program.
+     */
+    final void setIndex(final int index) {
+        this.index = index;
+    }
+
     /**
      * @return The initial value of this variable. Can be {@code null}.
      */
@@ -34,6 +34,11 @@ public class VariableAssignment extends Assignment {
         return this.source;
     }
 
+    @Override
+    public final <R, C> R accept(final IRVisitor<R, C> visitor, final C context) {
+        return visitor.visitVariableAssignment(this, context);
+    }
+
     @Override
     public final String toString() {
         return String.format("Assign ( %s ) -> %s", this.getSource(), this.getTarget());
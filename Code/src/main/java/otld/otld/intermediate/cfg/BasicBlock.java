@@ -0,0 +1,112 @@
+package otld.otld.intermediate.cfg;
+
+import otld.otld.intermediate.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Basic block of a control-flow graph.
+ *
+ * A basic block is a sequence of operations without blocks, breaks or returns, which is always executed from the first
+ * to the last operation. The block may end with a terminator. If the terminator is a conditional or a loop, the block
+ * ends by testing its condition and the first successor is taken if the condition is true and the second one if it is
+ * false. If the terminator is a break or a return, the block jumps to its only successor. Without a terminator the block
+ * falls through to its only successor, except for the exit block, which has no successors.
+ */
+public class BasicBlock {
+    /** The index of this block in its control-flow graph. */
+    private final int index;
+
+    /** The operations of this block. */
+    private final OperationSequence operations;
+
+    /** The operation that ends this block. */
+    private Operation terminator;
+
+    /** The blocks that may be executed directly after this block. */
+    private final List<BasicBlock> successors;
+
+    /** The blocks that may be executed directly before this block. */
+    private final List<BasicBlock> predecessors;
+
+    /**
+     * @param index The index of this block in its control-flow graph.
+     */
+    BasicBlock(final int index) {
+        this.index = index;
+        this.operations = new OperationSequence();
+        this.successors = new ArrayList<>(2);
+        this.predecessors = new ArrayList<>(2);
+    }
+
+    /**
+     * @return The index of this block in its control-flow graph.
+     */
+    public final int getIndex() {
+        return this.index;
+    }
+
+    /**
+     * @return The operations of this block, without the terminator.
+     */
+    public final OperationSequence getOperations() {
+        return this.operations;
+    }
+
+    /**
+     * @return The conditional, loop, break or return that ends this block, or {@code null} if it falls through.
+     */
+    public final Operation getTerminator() {
+        return this.terminator;
+    }
+
+    /**
+     * @return The variable that is tested at the end of this block, or {@code null} if it does not branch.
+     */
+    public final Variable getCondition() {
+        if (this.terminator instanceof Conditional) {
+            return ((Conditional) this.terminator).getCondition();
+        } else if (this.terminator instanceof Loop) {
+            return ((Loop) this.terminator).getCondition();
+        }
+        return null;
+    }
+
+    /**
+     * @return The blocks that may be executed directly after this block.
+     */
+    public final List<BasicBlock> getSuccessors() {
+        return Collections.unmodifiableList(this.successors);
+    }
+
+    /**
+     * @return The blocks that may be executed directly before this block.
+     */
+    public final List<BasicBlock> getPredecessors() {
+        return Collections.unmodifiableList(this.predecessors);
+    }
+
+    /**
+     * @param terminator The operation that ends this block.
+     */
+    void setTerminator(final Operation terminator) {
+        this.terminator = terminator;
+    }
+
+    /**
+     * Adds an edge from this block to another block.
+     *
+     * @param successor The other block.
+     */
+    void addSuccessor(final BasicBlock successor) {
+        this.successors.add(successor);
+        successor.predecessors.add(this);
+    }
+
+    @Override
+    public final String toString() {
+        return String.format("BasicBlock %d < %d >", this.getIndex(), this.operations.size());
+    }
+}
@@ -0,0 +1,161 @@
+package otld.otld.intermediate.cfg;
+
+import otld.otld.intermediate.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Builds a control-flow graph in a single pass over a body.
+ *
+ * The blocks follow the compiled code: a conditional ends the block before it and starts a block for each branch and a
+ * block after it, and a loop starts a block for its condition body, for its body and for the operations after it. The
+ * last block of the condition body branches to the body or out of the loop, and the last block of the body jumps back
+ * to the header. A break jumps out of the innermost loop, or to the exit outside of a loop.
+ */
+class CFGBuilder {
+    /** The graph that is built. */
+    private final ControlFlowGraph graph;
+
+    /** The blocks that end with a break out of each loop that is being built, the innermost on top. */
+    private final Deque<List<BasicBlock>> breaks;
+
+    /** The block to which operations are added, or {@code null} if it cannot be reached. */
+    private BasicBlock current;
+
+    /**
+     * @param graph The graph that is built.
+     */
+    CFGBuilder(final ControlFlowGraph graph) {
+        this.graph = graph;
+        this.breaks = new ArrayDeque<>();
+    }
+
+    /**
+     * Builds the graph of a body.
+     *
+     * @param body The body.
+     */
+    void build(final OperationSequence body) {
+        this.current = this.graph.getEntry();
+        this.visit(body);
+
+        if (this.current != null) {
+            this.current.addSuccessor(this.graph.getExit());
+        }
+    }
+
+    /**
+     * Adds the operations of a sequence to the current block.
+     */
+    private void visit(final OperationSequence sequence) {
+        for (Operation operation : sequence) {
+            if (this.current == null) {
+                // Operations after a break or a return start a block that cannot be reached
+                this.current = this.graph.createBlock();
+            }
+
+            if (operation instanceof Conditional) {
+                this.visitConditional((Conditional) operation);
+            } else if (operation instanceof Loop) {
+                this.visitLoop((Loop) operation);
+            } else if (operation instanceof Break) {
+                this.end(operation);
+                if (this.breaks.isEmpty()) {
+                    this.current.addSuccessor(this.graph.getExit());
+                } else {
+                    this.breaks.peek().add(this.current);
+                }
+                this.current = null;
+            } else if (operation instanceof Return) {
+                this.end(operation);
+                this.current.addSuccessor(this.graph.getExit());
+                this.current = null;
+            } else if (operation instanceof Block) {
+                throw new UnsupportedOperationException(String.format("Unknown block %s", operation));
+            } else {
+                this.current.getOperations().add(operation);
+                this.graph.setBlock(operation, this.current);
+            }
+        }
+    }
+
+    /**
+     * Ends the current block with a block operation or a jump.
+     */
+    private void end(final Operation operation) {
+        this.current.setTerminator(operation);
+        this.graph.setBlock(operation, this.current);
+    }
+
+    /**
+     * Adds a conditional, after which the current block is the block where the branches join.
+     */
+    private void visitConditional(final Conditional conditional) {
+        final BasicBlock branch = this.current;
+        this.end(conditional);
+
+        this.current = this.graph.createBlock();
+        branch.addSuccessor(this.current);
+        this.visit(conditional.getBodyTrue());
+        final BasicBlock endTrue = this.current;
+
+        this.current = this.graph.createBlock();
+        branch.addSuccessor(this.current);
+        this.visit(conditional.getBodyFalse());
+        final BasicBlock endFalse = this.current;
+
+        if (endTrue == null && endFalse == null) {
+            this.current = null;
+        } else {
+            this.current = this.graph.createBlock();
+            if (endTrue != null) {
+                endTrue.addSuccessor(this.current);
+            }
+            if (endFalse != null) {
+                endFalse.addSuccessor(this.current);
+            }
+        }
+    }
+
+    /**
+     * Adds a loop, after which the current block is the block after the loop.
+     */
+    private void visitLoop(final Loop loop) {
+        final BasicBlock header = this.graph.createBlock();
+        this.current.addSuccessor(header);
+        this.graph.setHeader(loop, header);
+        this.breaks.push(new ArrayList<BasicBlock>());
+
+        // The condition body runs before every check of the condition
+        this.current = header;
+        this.visit(loop.getConditionBody());
+        final BasicBlock branch = this.current;
+
+        if (branch != null) {
+            this.end(loop);
+            this.current = this.graph.createBlock();
+            branch.addSuccessor(this.current);
+            this.visit(loop.getBody());
+            if (this.current != null) {
+                this.current.addSuccessor(header);
+            }
+        }
+
+        // The loop is left when the condition is false or at a break
+        final List<BasicBlock> exits = this.breaks.pop();
+        if (branch == null && exits.isEmpty()) {
+            this.current = null;
+        } else {
+            this.current = this.graph.createBlock();
+            if (branch != null) {
+                branch.addSuccessor(this.current);
+            }
+            for (BasicBlock exit : exits) {
+                exit.addSuccessor(this.current);
+            }
+        }
+    }
+}
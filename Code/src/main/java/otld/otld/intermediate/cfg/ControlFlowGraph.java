@@ -0,0 +1,222 @@
+package otld.otld.intermediate.cfg;
+
+import otld.otld.intermediate.*;
+
+import java.util.*;
+
+/**
+ * Control-flow graph of the body of a function or a program.
+ *
+ * The entry block holds the operations at the start of the body, up to the first conditional, loop, break or return.
+ * The exit block is empty. Returns, breaks outside of a loop and the end of the body lead to the exit block. Operations
+ * after a break or a return end up in blocks that cannot be reached from the entry.
+ *
+ * The graph is a snapshot: changing the body afterwards does not change the graph, apart from the operations in the
+ * blocks which are shared with the body. The dominator trees and the loop nesting are computed when they are first
+ * requested.
+ */
+public class ControlFlowGraph {
+    /** The blocks of the graph, by index. */
+    private final List<BasicBlock> blocks;
+
+    /** The block in which every operation is, or which it ends. */
+    private final Map<Operation, BasicBlock> operationBlocks;
+
+    /** The block at the start of the condition body of every loop. */
+    private final Map<Loop, BasicBlock> headers;
+
+    /** The block at which the graph starts. */
+    private final BasicBlock entry;
+
+    /** The block at which the graph ends. */
+    private final BasicBlock exit;
+
+    /** The blocks that can be reached from the entry, in reverse postorder. */
+    private List<BasicBlock> reversePostorder;
+
+    /** The dominator tree. */
+    private DominatorTree dominators;
+
+    /** The post-dominator tree. */
+    private DominatorTree postDominators;
+
+    /** The loop nesting. */
+    private LoopNest loops;
+
+    ControlFlowGraph() {
+        this.blocks = new ArrayList<>();
+        this.operationBlocks = new IdentityHashMap<>();
+        this.headers = new IdentityHashMap<>();
+        this.entry = this.createBlock();
+        this.exit = this.createBlock();
+    }
+
+    /**
+     * Builds the control-flow graph of a sequence of operations.
+     *
+     * @param body The sequence, which is the body of a function or a program.
+     * @return The control-flow graph.
+     */
+    public static ControlFlowGraph build(final OperationSequence body) {
+        final ControlFlowGraph graph = new ControlFlowGraph();
+        new CFGBuilder(graph).build(body);
+        return graph;
+    }
+
+    /**
+     * @param function A function.
+     * @return The control-flow graph of the body of the function.
+     */
+    public static ControlFlowGraph build(final Function function) {
+        return build(function.getBody());
+    }
+
+    /**
+     * @param program A program.
+     * @return The control-flow graph of the body of the program.
+     */
+    public static ControlFlowGraph build(final Program program) {
+        return build(program.getBody());
+    }
+
+    /**
+     * @return The blocks of the graph, by index.
+     */
+    public final List<BasicBlock> getBlocks() {
+        return Collections.unmodifiableList(this.blocks);
+    }
+
+    /**
+     * @return The block at which the graph starts.
+     */
+    public final BasicBlock getEntry() {
+        return this.entry;
+    }
+
+    /**
+     * @return The block at which the graph ends.
+     */
+    public final BasicBlock getExit() {
+        return this.exit;
+    }
+
+    /**
+     * @param operation An operation of the body.
+     * @return The block that contains the operation or that the operation ends, or {@code null} if it is not in the
+     *         graph.
+     */
+    public final BasicBlock getBlock(final Operation operation) {
+        return this.operationBlocks.get(operation);
+    }
+
+    /**
+     * @param loop A loop of the body.
+     * @return The block at which the condition body of the loop starts, or {@code null} if it is not in the graph.
+     */
+    public final BasicBlock getHeader(final Loop loop) {
+        return this.headers.get(loop);
+    }
+
+    /**
+     * @return The blocks that can be reached from the entry, in reverse postorder.
+     */
+    public final List<BasicBlock> getReversePostorder() {
+        if (this.reversePostorder == null) {
+            this.reversePostorder = Collections.unmodifiableList(this.order(this.entry, false));
+        }
+        return this.reversePostorder;
+    }
+
+    /**
+     * @return The dominator tree, rooted at the entry.
+     */
+    public final DominatorTree getDominators() {
+        if (this.dominators == null) {
+            this.dominators = new DominatorTree(this, this.getReversePostorder(), false);
+        }
+        return this.dominators;
+    }
+
+    /**
+     * @return The post-dominator tree, rooted at the exit.
+     */
+    public final DominatorTree getPostDominators() {
+        if (this.postDominators == null) {
+            this.postDominators = new DominatorTree(this, this.order(this.exit, true), true);
+        }
+        return this.postDominators;
+    }
+
+    /**
+     * @return The natural loops of the graph and how they are nested.
+     */
+    public final LoopNest getLoops() {
+        if (this.loops == null) {
+            this.loops = new LoopNest(this);
+        }
+        return this.loops;
+    }
+
+    /**
+     * Orders the blocks that can be reached from a block in reverse postorder, without recursion.
+     *
+     * @param root The block to start at.
+     * @param reverse Whether to follow the edges backwards.
+     * @return The blocks in reverse postorder.
+     */
+    private List<BasicBlock> order(final BasicBlock root, final boolean reverse) {
+        final List<BasicBlock> postorder = new ArrayList<>();
+        final boolean[] visited = new boolean[this.blocks.size()];
+        final Deque<BasicBlock> blocks = new ArrayDeque<>();
+        final Deque<Iterator<BasicBlock>> edges = new ArrayDeque<>();
+
+        visited[root.getIndex()] = true;
+        blocks.push(root);
+        edges.push((reverse ? root.getPredecessors() : root.getSuccessors()).iterator());
+
+        while (!blocks.isEmpty()) {
+            if (edges.peek().hasNext()) {
+                final BasicBlock next = edges.peek().next();
+                if (!visited[next.getIndex()]) {
+                    visited[next.getIndex()] = true;
+                    blocks.push(next);
+                    edges.push((reverse ? next.getPredecessors() : next.getSuccessors()).iterator());
+                }
+            } else {
+                postorder.add(blocks.pop());
+                edges.pop();
+            }
+        }
+
+        Collections.reverse(postorder);
+        return postorder;
+    }
+
+    /**
+     * @return A new block.
+     */
+    BasicBlock createBlock() {
+        final BasicBlock block = new BasicBlock(this.blocks.size());
+        this.blocks.add(block);
+        return block;
+    }
+
+    /**
+     * Records the block of an operation.
+     */
+    void setBlock(final Operation operation, final BasicBlock block) {
+        this.operationBlocks.put(operation, block);
+    }
+
+    /**
+     * Records the header of a loop.
+     */
+    void setHeader(final Loop loop, final BasicBlock header) {
+        this.headers.put(loop, header);
+    }
+
+    @Override
+    public final String toString() {
+        return String.format("ControlFlowGraph < %d blocks >", this.blocks.size());
+    }
+}
@@ -0,0 +1,227 @@
+package otld.otld.intermediate.cfg;
+
+import java.util.*;
+
+/**
+ * Dominator or post-dominator tree of a control-flow graph.
+ *
+ * A block dominates another block if every path from the entry to the other block passes through it, and post-dominates
+ * it if every path from the other block to the exit does. The immediate dominators are found with the iterative
+ * algorithm of Cooper, Harvey and Kennedy over the blocks in reverse postorder. Graphs built from the intermediate
+ * representation are reducible, for which the algorithm settles after two passes, so building the tree takes linear
+ * time in practice.
+ *
+ * Blocks that cannot be reached from the root, or for a post-dominator tree cannot reach the exit, are not in the tree.
+ */
+public class DominatorTree {
+    /** The control-flow graph. */
+    private final ControlFlowGraph graph;
+
+    /** Whether this is a post-dominator tree. */
+    private final boolean post;
+
+    /** The root of the tree. */
+    private final BasicBlock root;
+
+    /** The immediate dominator of every block by index, the root for the root and {@code null} outside the tree. */
+    private final BasicBlock[] parents;
+
+    /** The children of every block by index. */
+    private final List<List<BasicBlock>> children;
+
+    /** The number at which every block by index is entered in a walk of the tree, or -1 outside the tree. */
+    private final int[] preorder;
+
+    /** The number at which every block by index is left in a walk of the tree. */
+    private final int[] postorder;
+
+    /**
+     * @param graph The control-flow graph.
+     * @param order The blocks of the tree in reverse postorder, following the edges backwards for a post-dominator tree.
+     * @param post Whether this is a post-dominator tree.
+     */
+    DominatorTree(final ControlFlowGraph graph, final List<BasicBlock> order, final boolean post) {
+        final int size = graph.getBlocks().size();
+
+        this.graph = graph;
+        this.post = post;
+        this.root = order.get(0);
+        this.parents = new BasicBlock[size];
+        this.children = new ArrayList<>(size);
+        this.preorder = new int[size];
+        this.postorder = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            this.children.add(new ArrayList<BasicBlock>(0));
+        }
+
+        this.build(order);
+        this.number();
+    }
+
+    /**
+     * Finds the immediate dominators.
+     *
+     * @param order The blocks of the tree in reverse postorder.
+     */
+    private void build(final List<BasicBlock> order) {
+        final int[] numbers = new int[this.parents.length];
+        final int[] dominators = new int[order.size()];
+
+        Arrays.fill(numbers, -1);
+        for (int i = 0; i < order.size(); i++) {
+            numbers[order.get(i).getIndex()] = i;
+        }
+
+        Arrays.fill(dominators, -1);
+        dominators[0] = 0;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (int i = 1; i < order.size(); i++) {
+                final BasicBlock block = order.get(i);
+                int dominator = -1;
+
+                for (BasicBlock predecessor : this.post ? block.getSuccessors() : block.getPredecessors()) {
+                    final int number = numbers[predecessor.getIndex()];
+
+                    // Skip blocks outside of the tree and blocks that have not been processed yet
+                    if (number >= 0 && dominators[number] >= 0) {
+                        dominator = dominator < 0 ? number : intersect(dominators, dominator, number);
+                    }
+                }
+
+                if (dominators[i] != dominator) {
+                    dominators[i] = dominator;
+                    changed = true;
+                }
+            }
+        }
+
+        for (int i = 0; i < order.size(); i++) {
+            final BasicBlock block = order.get(i);
+            final BasicBlock parent = order.get(dominators[i]);
+
+            this.parents[block.getIndex()] = parent;
+            if (i > 0) {
+                this.children.get(parent.getIndex()).add(block);
+            }
+        }
+    }
+
+    /**
+     * @param dominators The immediate dominators found so far, by number in reverse postorder.
+     * @param first The number of a block.
+     * @param second The number of another block.
+     * @return The number of the nearest common dominator of both blocks.
+     */
+    private static int intersect(final int[] dominators, int first, int second) {
+        while (first != second) {
+            while (first > second) {
+                first = dominators[first];
+            }
+            while (second > first) {
+                second = dominators[second];
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Numbers the blocks in a walk of the tree, so dominance can be checked in constant time.
+     */
+    private void number() {
+        final Deque<BasicBlock> blocks = new ArrayDeque<>();
+        final Deque<Iterator<BasicBlock>> edges = new ArrayDeque<>();
+        int counter = 0;
+
+        Arrays.fill(this.preorder, -1);
+        this.preorder[this.root.getIndex()] = counter++;
+        blocks.push(this.root);
+        edges.push(this.children.get(this.root.getIndex()).iterator());
+
+        while (!blocks.isEmpty()) {
+            if (edges.peek().hasNext()) {
+                final BasicBlock child = edges.peek().next();
+                this.preorder[child.getIndex()] = counter++;
+                blocks.push(child);
+                edges.push(this.children.get(child.getIndex()).iterator());
+            } else {
+                this.postorder[blocks.pop().getIndex()] = counter++;
+                edges.pop();
+            }
+        }
+    }
+
+    /**
+     * @return The control-flow graph.
+     */
+    public final ControlFlowGraph getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * @return Whether this is a post-dominator tree.
+     */
+    public final boolean isPostDominatorTree() {
+        return this.post;
+    }
+
+    /**
+     * @return The root of the tree, which is the entry or for a post-dominator tree the exit.
+     */
+    public final BasicBlock getRoot() {
+        return this.root;
+    }
+
+    /**
+     * @param block A block.
+     * @return Whether the block is in the tree.
+     */
+    public final boolean contains(final BasicBlock block) {
+        return this.preorder[block.getIndex()] >= 0;
+    }
+
+    /**
+     * @param block A block.
+     * @return The immediate dominator of the block, or {@code null} for the root and blocks outside the tree.
+     */
+    public final BasicBlock getImmediateDominator(final BasicBlock block) {
+        return block == this.root ? null : this.parents[block.getIndex()];
+    }
+
+    /**
+     * @param block A block.
+     * @return The blocks of which the block is the immediate dominator.
+     */
+    public final List<BasicBlock> getChildren(final BasicBlock block) {
+        return Collections.unmodifiableList(this.children.get(block.getIndex()));
+    }
+
+    /**
+     * @param dominator A block.
+     * @param block Another block.
+     * @return Whether the first block dominates the second, which is true if they are the same block in the tree.
+     */
+    public final boolean dominates(final BasicBlock dominator, final BasicBlock block) {
+        return this.contains(dominator) && this.contains(block)
+                && this.preorder[dominator.getIndex()] <= this.preorder[block.getIndex()]
+                && this.postorder[block.getIndex()] <= this.postorder[dominator.getIndex()];
+    }
+
+    /**
+     * @param dominator A block.
+     * @param block Another block.
+     * @return Whether the first block dominates the second and is not the same block.
+     */
+    public final boolean strictlyDominates(final BasicBlock dominator, final BasicBlock block) {
+        return dominator != block && this.dominates(dominator, block);
+    }
+
+    @Override
+    public final String toString() {
+        return String.format("DominatorTree < %s, %s >", this.post ? "post" : "pre", this.root);
+    }
+}
@@ -0,0 +1,151 @@
+package otld.otld.intermediate.cfg;
+
+import otld.otld.intermediate.Loop;
+
+import java.util.*;
+
+/**
+ * The natural loops of a control-flow graph and how they are nested.
+ *
+ * The loops are found from the inside out: the headers are visited in postorder, and the blocks of a loop are collected
+ * by walking backwards from its latches. A block that already belongs to a loop stands for the outermost loop found so
+ * far around it, which becomes nested in the loop that is being collected. Every block is therefore collected once and
+ * every edge followed once.
+ */
+public class LoopNest {
+    /** The loops, outer loops before the loops nested in them. */
+    private final List<NaturalLoop> loops;
+
+    /** The innermost loop of every block by index. */
+    private final NaturalLoop[] innermost;
+
+    /**
+     * @param graph The control-flow graph.
+     */
+    LoopNest(final ControlFlowGraph graph) {
+        this.loops = new ArrayList<>();
+        this.innermost = new NaturalLoop[graph.getBlocks().size()];
+
+        final DominatorTree dominators = graph.getDominators();
+        final List<BasicBlock> order = graph.getReversePostorder();
+        final Map<BasicBlock, Loop> headers = new IdentityHashMap<>();
+
+        for (BasicBlock block : graph.getBlocks()) {
+            if (block.getTerminator() instanceof Loop) {
+                final Loop loop = (Loop) block.getTerminator();
+                headers.put(graph.getHeader(loop), loop);
+            }
+        }
+
+        // Nested headers come later in reverse postorder, so visiting it backwards finds inner loops first
+        for (int i = order.size() - 1; i >= 0; i--) {
+            final BasicBlock header = order.get(i);
+            NaturalLoop loop = null;
+
+            for (BasicBlock predecessor : header.getPredecessors()) {
+                if (dominators.dominates(header, predecessor)) {
+                    if (loop == null) {
+                        loop = new NaturalLoop(header, headers.get(header));
+                    }
+                    loop.addLatch(predecessor);
+                }
+            }
+
+            if (loop != null) {
+                this.collect(loop, dominators);
+                this.loops.add(loop);
+            }
+        }
+
+        Collections.reverse(this.loops);
+        for (NaturalLoop loop : this.loops) {
+            loop.updateDepth();
+        }
+    }
+
+    /**
+     * Collects the blocks of a loop and nests the loops found in it.
+     *
+     * @param loop The loop with its latches.
+     * @param dominators The dominator tree, used to skip blocks that cannot be reached.
+     */
+    private void collect(final NaturalLoop loop, final DominatorTree dominators) {
+        final Deque<BasicBlock> blocks = new ArrayDeque<>(loop.getLatches());
+        this.innermost[loop.getHeader().getIndex()] = loop;
+
+        while (!blocks.isEmpty()) {
+            final BasicBlock block = blocks.pop();
+            final NaturalLoop inner = this.innermost[block.getIndex()];
+
+            if (inner == null) {
+                this.innermost[block.getIndex()] = loop;
+                loop.addBlock(block);
+                this.push(blocks, block, dominators);
+            } else {
+                NaturalLoop outer = inner;
+                while (outer.getParent() != null) {
+                    outer = outer.getParent();
+                }
+
+                // Continue from the header of a nested loop, since its own blocks have been collected already
+                if (outer != loop) {
+                    outer.setParent(loop);
+                    this.push(blocks, outer.getHeader(), dominators);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the predecessors of a block that can be reached to the blocks to visit.
+     */
+    private static void push(final Deque<BasicBlock> blocks, final BasicBlock block, final DominatorTree dominators) {
+        for (BasicBlock predecessor : block.getPredecessors()) {
+            if (dominators.contains(predecessor)) {
+                blocks.push(predecessor);
+            }
+        }
+    }
+
+    /**
+     * @return The loops, outer loops before the loops nested in them.
+     */
+    public final List<NaturalLoop> getLoops() {
+        return Collections.unmodifiableList(this.loops);
+    }
+
+    /**
+     * @return The loops that are not nested in another loop.
+     */
+    public final List<NaturalLoop> getOutermostLoops() {
+        final List<NaturalLoop> outermost = new ArrayList<>();
+        for (NaturalLoop loop : this.loops) {
+            if (loop.getParent() == null) {
+                outermost.add(loop);
+            }
+        }
+        return outermost;
+    }
+
+    /**
+     * @param block A block.
+     * @return The innermost loop that contains the block, or {@code null} if it is not in a loop.
+     */
+    public final NaturalLoop getLoop(final BasicBlock block) {
+        return this.innermost[block.getIndex()];
+    }
+
+    /**
+     * @param block A block.
+     * @return The number of loops that contain the block.
+     */
+    public final int getDepth(final BasicBlock block) {
+        final NaturalLoop loop = this.getLoop(block);
+        return loop == null ? 0 : loop.getDepth();
+    }
+
+    @Override
+    public final String toString() {
+        return String.format("LoopNest < %d loops >", this.loops.size());
+    }
+}
@@ -0,0 +1,156 @@
+package otld.otld.intermediate.cfg;
+
+import otld.otld.intermediate.Loop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Natural loop of a control-flow graph.
+ *
+ * A natural loop consists of a header, which dominates all blocks of the loop, and the blocks from which one of its back
+ * edges can be reached without passing through the header. Loops of the intermediate representation give natural loops,
+ * but a loop of which the condition body always breaks or returns has no back edge and no natural loop.
+ */
+public class NaturalLoop {
+    /** The header of the loop. */
+    private final BasicBlock header;
+
+    /** The loop of the intermediate representation, if any. */
+    private final Loop loop;
+
+    /** The blocks with a back edge to the header. */
+    private final List<BasicBlock> latches;
+
+    /** The blocks of the loop that are not in a nested loop, starting with the header. */
+    private final List<BasicBlock> blocks;
+
+    /** The loops directly nested in this loop. */
+    private final List<NaturalLoop> children;
+
+    /** The loop in which this loop is directly nested. */
+    private NaturalLoop parent;
+
+    /** The nesting depth, one for outermost loops. */
+    private int depth;
+
+    /**
+     * @param header The header of the loop.
+     * @param loop The loop of the intermediate representation, if any.
+     */
+    NaturalLoop(final BasicBlock header, final Loop loop) {
+        this.header = header;
+        this.loop = loop;
+        this.latches = new ArrayList<>(1);
+        this.blocks = new ArrayList<>();
+        this.children = new ArrayList<>(0);
+        this.blocks.add(header);
+    }
+
+    /**
+     * @return The header of the loop.
+     */
+    public final BasicBlock getHeader() {
+        return this.header;
+    }
+
+    /**
+     * @return The loop of the intermediate representation with this header, or {@code null} if there is none.
+     */
+    public final Loop getLoop() {
+        return this.loop;
+    }
+
+    /**
+     * @return The blocks with a back edge to the header.
+     */
+    public final List<BasicBlock> getLatches() {
+        return Collections.unmodifiableList(this.latches);
+    }
+
+    /**
+     * @return The blocks of the loop that are not in a nested loop, starting with the header.
+     */
+    public final List<BasicBlock> getOwnBlocks() {
+        return Collections.unmodifiableList(this.blocks);
+    }
+
+    /**
+     * @return All blocks of the loop, including those of nested loops.
+     */
+    public final List<BasicBlock> getBlocks() {
+        final List<BasicBlock> blocks = new ArrayList<>(this.blocks);
+        for (NaturalLoop child : this.children) {
+            blocks.addAll(child.getBlocks());
+        }
+        return blocks;
+    }
+
+    /**
+     * @return The loops directly nested in this loop.
+     */
+    public final List<NaturalLoop> getChildren() {
+        return Collections.unmodifiableList(this.children);
+    }
+
+    /**
+     * @return The loop in which this loop is directly nested, or {@code null} for an outermost loop.
+     */
+    public final NaturalLoop getParent() {
+        return this.parent;
+    }
+
+    /**
+     * @return The nesting depth, one for outermost loops.
+     */
+    public final int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * @param other Another loop.
+     * @return Whether the other loop is this loop or nested in it.
+     */
+    public final boolean contains(final NaturalLoop other) {
+        NaturalLoop loop = other;
+        while (loop != null && loop.depth > this.depth) {
+            loop = loop.parent;
+        }
+        return loop == this;
+    }
+
+    /**
+     * Adds a back edge.
+     */
+    void addLatch(final BasicBlock latch) {
+        this.latches.add(latch);
+    }
+
+    /**
+     * Adds a block that is not in a nested loop.
+     */
+    void addBlock(final BasicBlock block) {
+        this.blocks.add(block);
+    }
+
+    /**
+     * Nests this loop in another loop.
+     */
+    void setParent(final NaturalLoop parent) {
+        this.parent = parent;
+        parent.children.add(this);
+    }
+
+    /**
+     * Sets the depth from the parent, which must have its depth already.
+     */
+    void updateDepth() {
+        this.depth = this.parent == null ? 1 : this.parent.depth + 1;
+    }
+
+    @Override
+    public final String toString() {
+        return String.format("NaturalLoop < %s, depth %d >", this.header, this.depth);
+    }
+}
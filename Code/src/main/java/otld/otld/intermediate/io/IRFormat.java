@@ -0,0 +1,68 @@
+package otld.otld.intermediate.io;
+
+/**
+ * Constants of the binary format of the intermediate representation.
+ *
+ * A file starts with a header: the magic number, the version of the format, the number of strings and the length in
+ * bytes of the string table and of the program, as big-endian integers. The string table follows, with every string as
+ * its length in bytes and its UTF-8 bytes. The program comes last and refers to strings by their index in the table.
+ *
+ * The program is its identifier, followed by the declarations of the variables and functions in the order in which they
+ * were added, the bodies of the functions in the same order and the body of the program. A declared variable is
+ * referred to by its index in the program, which counts the parameters of the functions as well. A variable that was
+ * not added to the program is declared where it is first referred to, and gets the next index after all variables
+ * declared so far. Numbers are written as variable-length integers of seven bits per byte, the lowest bits first, and
+ * integer constants are zigzag-encoded first so small negative numbers stay small.
+ */
+final class IRFormat {
+    /** The magic number at the start of every file, {@code OTIR} in ASCII. */
+    static final int MAGIC = 0x4F544952;
+
+    /** The version of the format. Files of other versions are rejected. */
+    static final int VERSION = 1;
+
+    /** The length of the header in bytes. */
+    static final int HEADER = 20;
+
+    /** Declaration of a variable. */
+    static final byte VARIABLE = 1;
+
+    /** Declaration of a function. */
+    static final byte FUNCTION = 2;
+
+    /** Reference to a variable that has not been declared yet. */
+    static final int NEW_VARIABLE = 0;
+
+    /** Assignment of a constant value. */
+    static final byte VALUE_ASSIGNMENT = 1;
+
+    /** Assignment of a variable. */
+    static final byte VARIABLE_ASSIGNMENT = 2;
+
+    /** Application of an operator. */
+    static final byte APPLICATION = 3;
+
+    /** Call of a function. */
+    static final byte CALL = 4;
+
+    /** Input from the user. */
+    static final byte INPUT = 5;
+
+    /** Output to the user. */
+    static final byte OUTPUT = 6;
+
+    /** Return from a function. */
+    static final byte RETURN = 7;
+
+    /** Break out of a loop. */
+    static final byte BREAK = 8;
+
+    /** Conditional block. */
+    static final byte CONDITIONAL = 9;
+
+    /** Loop block. */
+    static final byte LOOP = 10;
+
+    private IRFormat() {
+    }
+}
@@ -0,0 +1,344 @@
+package otld.otld.intermediate.io;
+
+import otld.otld.intermediate.*;
+import otld.otld.intermediate.exceptions.ElementException;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the intermediate representation of a program from the binary format, see {@code IRFormat}.
+ *
+ * Files are mapped into memory and decoded in a single pass, without going through the source text. The program is
+ * rebuilt through the same methods as the parser uses, so variables get the same indices and identifiers the same
+ * symbols as in the program that was written.
+ */
+public class IRReader {
+    /** The bytes that are read. */
+    private final ByteBuffer buffer;
+
+    /** The strings by index. */
+    private String[] strings;
+
+    /** The variables by index. */
+    private final List<Variable> variables;
+
+    /** The functions in the order of declaration. */
+    private final List<Function> functions;
+
+    /**
+     * @param buffer The bytes that are read.
+     */
+    private IRReader(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.variables = new ArrayList<>();
+        this.functions = new ArrayList<>();
+    }
+
+    /**
+     * @param bytes A program in the binary format.
+     * @return The program.
+     * @throws IOException The bytes are not a program in this version of the format.
+     */
+    public static Program read(final byte[] bytes) throws IOException {
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Reads a program from a file, which is mapped into memory.
+     *
+     * @param path The file.
+     * @return The program.
+     * @throws IOException The file could not be read, or is not a program in this version of the format.
+     */
+    public static Program read(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(String.format("%s is too large", path));
+            }
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @param buffer A program in the binary format, from the position of the buffer.
+     * @return The program.
+     * @throws IOException The bytes are not a program in this version of the format.
+     */
+    public static Program read(final ByteBuffer buffer) throws IOException {
+        try {
+            return new IRReader(buffer.slice()).readProgram();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated or corrupt intermediate representation", e);
+        } catch (ElementException e) {
+            throw new IOException("Invalid intermediate representation", e);
+        }
+    }
+
+    /**
+     * Reads the header, the string table and the program.
+     */
+    private Program readProgram() throws IOException, ElementException {
+        if (this.buffer.remaining() < IRFormat.HEADER || this.buffer.getInt() != IRFormat.MAGIC) {
+            throw new IOException("Not an intermediate representation");
+        }
+
+        final int version = this.buffer.getInt();
+        if (version != IRFormat.VERSION) {
+            throw new IOException(String.format("Unsupported version %d of the intermediate representation", version));
+        }
+
+        final int stringCount = this.buffer.getInt();
+        final int tableLength = this.buffer.getInt();
+        final int bodyLength = this.buffer.getInt();
+        if (stringCount < 0 || tableLength < 0 || bodyLength < 0) {
+            throw new IOException("Corrupt header of the intermediate representation");
+        }
+        if (this.buffer.remaining() < (long) tableLength + bodyLength) {
+            throw new IOException("Truncated intermediate representation");
+        }
+
+        // Every string takes at least the byte of its length
+        if (stringCount > tableLength) {
+            throw new IOException("Corrupt header of the intermediate representation");
+        }
+        this.strings = new String[stringCount];
+
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < this.strings.length; i++) {
+            final int length = this.readCount();
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            this.buffer.get(bytes, 0, length);
+            this.strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        final Program program = new Program(this.readString());
+
+        final int declarations = this.readNumber();
+        for (int i = 0; i < declarations; i++) {
+            final byte kind = this.buffer.get();
+
+            if (kind == IRFormat.VARIABLE) {
+                final Variable variable = this.readDeclaration();
+                program.addVariable(variable);
+                this.variables.add(variable);
+            } else if (kind == IRFormat.FUNCTION) {
+                final String id = this.readString();
+                final Type[] types = new Type[this.readCount()];
+                for (int j = 0; j < types.length; j++) {
+                    types[j] = this.readType();
+                }
+
+                final Function function = new Function(id, types);
+                program.addFunction(function);
+                this.functions.add(function);
+                for (Variable variable : function.getVariables()) {
+                    this.variables.add(variable);
+                }
+            } else {
+                throw new IOException(String.format("Unknown declaration %d", kind));
+            }
+        }
+
+        for (Function function : this.functions) {
+            this.readSequence(function.getBody());
+        }
+        this.readSequence(program.getBody());
+
+        return program;
+    }
+
+    /**
+     * Reads a sequence of operations.
+     *
+     * @param sequence The sequence to add the operations to.
+     */
+    private void readSequence(final OperationSequence sequence) throws IOException, ElementException {
+        final int size = this.readNumber();
+
+        for (int i = 0; i < size; i++) {
+            final byte kind = this.buffer.get();
+
+            switch (kind) {
+                case IRFormat.VALUE_ASSIGNMENT: {
+                    final Variable target = this.readVariable();
+                    sequence.add(new ValueAssignment<Object>(target, this.readValue(target.getType())));
+                    break;
+                }
+                case IRFormat.VARIABLE_ASSIGNMENT: {
+                    final Variable source = this.readVariable();
+                    sequence.add(new VariableAssignment(this.readVariable(), source));
+                    break;
+                }
+                case IRFormat.APPLICATION: {
+                    final Operator operator = this.readEnum(Operator.values());
+                    sequence.add(new Application(operator, this.readArguments()));
+                    break;
+                }
+                case IRFormat.CALL: {
+                    final Function function = this.functions.get(this.readNumber());
+                    sequence.add(new Call(function, this.readArguments()));
+                    break;
+                }
+                case IRFormat.INPUT: {
+                    final String query = this.readString();
+                    sequence.add(new Input(query, this.readVariable()));
+                    break;
+                }
+                case IRFormat.OUTPUT: {
+                    final String description = this.readString();
+                    sequence.add(new Output(description, this.readVariable()));
+                    break;
+                }
+                case IRFormat.RETURN:
+                    sequence.add(new Return(this.readVariable()));
+                    break;
+                case IRFormat.BREAK:
+                    sequence.add(new Break());
+                    break;
+                case IRFormat.CONDITIONAL: {
+                    final Conditional conditional = new Conditional(this.readVariable());
+                    this.readSequence(conditional.getBodyTrue());
+                    this.readSequence(conditional.getBodyFalse());
+                    sequence.add(conditional);
+                    break;
+                }
+                case IRFormat.LOOP: {
+                    final Loop loop = new Loop(this.readVariable());
+                    this.readSequence(loop.getConditionBody());
+                    this.readSequence(loop.getBody());
+                    sequence.add(loop);
+                    break;
+                }
+                default:
+                    throw new IOException(String.format("Unknown operation %d", kind));
+            }
+        }
+    }
+
+    /**
+     * Reads a variable declaration.
+     */
+    private Variable readDeclaration() throws IOException {
+        final Type type = this.readType();
+        final String id = this.readString();
+        final Object value = this.readValue(type);
+
+        return value == null ? new Variable(type, id) : Variable.create(type, id, value.toString());
+    }
+
+    /**
+     * Reads the arguments of an application or a call, followed by its target.
+     */
+    private Variable[] readArguments() throws IOException {
+        final Variable[] args = new Variable[this.readCount() + 1];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = this.readVariable();
+        }
+        return args;
+    }
+
+    /**
+     * Reads a reference to a variable, which may declare a variable that was not added to the program.
+     */
+    private Variable readVariable() throws IOException {
+        final int reference = this.readNumber();
+
+        if (reference == IRFormat.NEW_VARIABLE) {
+            final Variable variable = this.readDeclaration();
+            this.variables.add(variable);
+            return variable;
+        }
+        return this.variables.get(reference - 1);
+    }
+
+    /**
+     * Reads whether there is a value, followed by the value.
+     *
+     * @param type The type of the value.
+     * @return The value, or {@code null}.
+     */
+    private Object readValue(final Type type) throws IOException {
+        if (this.buffer.get() == 0) {
+            return null;
+        }
+
+        switch (type) {
+            case BOOL:
+                return this.buffer.get() != 0;
+            case INT:
+                final int integer = this.readNumber();
+                return (integer >>> 1) ^ -(integer & 1);
+            case CHAR:
+                return (char) this.readNumber();
+            default:
+                throw new IOException(String.format("Constant of %s", type));
+        }
+    }
+
+    /**
+     * Reads a type.
+     */
+    private Type readType() throws IOException {
+        return this.readEnum(Type.values());
+    }
+
+    /**
+     * Reads a constant of an enumeration by its ordinal.
+     */
+    private <E> E readEnum(final E[] values) throws IOException {
+        final int ordinal = this.buffer.get();
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IOException(String.format("Unknown constant %d", ordinal));
+        }
+        return values[ordinal];
+    }
+
+    /**
+     * Reads a reference to a string.
+     */
+    private String readString() {
+        return this.strings[this.readNumber()];
+    }
+
+    /**
+     * Reads a variable-length integer.
+     */
+    private int readNumber() {
+        int value = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = this.buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+
+        return value;
+    }
+
+    /**
+     * Reads the number of elements that follow, each of which takes at least one byte.
+     *
+     * @throws IOException The number is negative or larger than the number of bytes that are left.
+     */
+    private int readCount() throws IOException {
+        final int count = this.readNumber();
+
+        if (count < 0 || count > this.buffer.remaining()) {
+            throw new IOException(String.format("Corrupt intermediate representation: %d elements in %d bytes", count,
+                    this.buffer.remaining()));
+        }
+        return count;
+    }
+}
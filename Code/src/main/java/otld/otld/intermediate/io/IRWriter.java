@@ -0,0 +1,349 @@
+package otld.otld.intermediate.io;
+
+import otld.otld.intermediate.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Writes the intermediate representation of a program in the binary format, see {@code IRFormat}.
+ *
+ * The output only depends on the program, so the same program always gives the same bytes.
+ */
+public class IRWriter {
+    /** The program that is written. */
+    private final Program program;
+
+    /** The index of every string in the string table. */
+    private final Map<String, Integer> strings;
+
+    /** The index of every function in the order of declaration. */
+    private final Map<Function, Integer> functions;
+
+    /** The index of every variable that was not added to the program. */
+    private final Map<Variable, Integer> detached;
+
+    /** The string table. */
+    private final Buffer table;
+
+    /** The program. */
+    private final Buffer body;
+
+    /**
+     * @param program The program that is written.
+     */
+    private IRWriter(final Program program) {
+        this.program = program;
+        this.strings = new HashMap<>();
+        this.functions = new IdentityHashMap<>();
+        this.detached = new IdentityHashMap<>();
+        this.table = new Buffer();
+        this.body = new Buffer();
+    }
+
+    /**
+     * @param program A program.
+     * @return The program in the binary format.
+     */
+    public static byte[] write(final Program program) {
+        final IRWriter writer = new IRWriter(program);
+        writer.writeProgram();
+
+        final ByteBuffer buffer = ByteBuffer.allocate(IRFormat.HEADER + writer.table.size + writer.body.size);
+        writer.writeHeader(buffer);
+        buffer.put(writer.table.bytes, 0, writer.table.size);
+        buffer.put(writer.body.bytes, 0, writer.body.size);
+        return buffer.array();
+    }
+
+    /**
+     * Writes a program to a file, replacing the file if it exists.
+     *
+     * @param program A program.
+     * @param path The file.
+     * @throws IOException The file could not be written.
+     */
+    public static void write(final Program program, final Path path) throws IOException {
+        final IRWriter writer = new IRWriter(program);
+        writer.writeProgram();
+
+        final ByteBuffer header = ByteBuffer.allocate(IRFormat.HEADER);
+        writer.writeHeader(header);
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer[] buffers = {
+                    header,
+                    ByteBuffer.wrap(writer.table.bytes, 0, writer.table.size),
+                    ByteBuffer.wrap(writer.body.bytes, 0, writer.body.size)
+            };
+
+            while (buffers[2].hasRemaining()) {
+                channel.write(buffers);
+            }
+        }
+    }
+
+    /**
+     * Writes the header.
+     */
+    private void writeHeader(final ByteBuffer buffer) {
+        buffer.putInt(IRFormat.MAGIC);
+        buffer.putInt(IRFormat.VERSION);
+        buffer.putInt(this.strings.size());
+        buffer.putInt(this.table.size);
+        buffer.putInt(this.body.size);
+    }
+
+    /**
+     * Writes the declarations and the bodies.
+     */
+    private void writeProgram() {
+        // Replaying the declarations in the order of the indices gives every variable the same index again
+        final List<Variable> variables = new ArrayList<Variable>(this.program.getVariables());
+        final List<Function> functions = new ArrayList<>(this.program.getFunctions());
+
+        this.writeString(this.program.getId());
+        this.body.writeNumber(variables.size() + functions.size());
+
+        int v = 0;
+        int f = 0;
+        while (v < variables.size() || f < functions.size()) {
+            if (f == functions.size()
+                    || v < variables.size() && variables.get(v).getIndex() < index(functions.get(f))) {
+                this.body.write(IRFormat.VARIABLE);
+                this.writeDeclaration(variables.get(v++));
+            } else {
+                final Function function = functions.get(f++);
+                final Type[] types = function.getArgTypes();
+
+                // The return type comes last, as in the constructor of the function
+                this.body.write(IRFormat.FUNCTION);
+                this.writeString(function.getId());
+                this.body.writeNumber(types.length + 1);
+                for (Type type : types) {
+                    this.body.write(type.ordinal());
+                }
+                this.body.write(function.getType().ordinal());
+                this.functions.put(function, this.functions.size());
+            }
+        }
+
+        for (Function function : functions) {
+            this.writeSequence(function.getBody());
+        }
+        this.writeSequence(this.program.getBody());
+    }
+
+    /**
+     * @return The index of the first parameter of a function, which comes right after the variables declared before it.
+     */
+    private static int index(final Function function) {
+        return function.getVariables()[0].getIndex();
+    }
+
+    /**
+     * Writes a sequence of operations.
+     */
+    private void writeSequence(final OperationSequence sequence) {
+        this.body.writeNumber(sequence.size());
+
+        for (Operation operation : sequence) {
+            if (operation instanceof ValueAssignment) {
+                final ValueAssignment assignment = (ValueAssignment) operation;
+                this.body.write(IRFormat.VALUE_ASSIGNMENT);
+                this.writeVariable(assignment.getTarget());
+                this.writeValue(assignment.getTarget().getType(), assignment.getValue());
+            } else if (operation instanceof VariableAssignment) {
+                final VariableAssignment assignment = (VariableAssignment) operation;
+                this.body.write(IRFormat.VARIABLE_ASSIGNMENT);
+                this.writeVariable(assignment.getSource());
+                this.writeVariable(assignment.getTarget());
+            } else if (operation instanceof Application) {
+                final Application application = (Application) operation;
+                this.body.write(IRFormat.APPLICATION);
+                this.body.write(application.getOperator().ordinal());
+                this.writeVariables(application.getArgs());
+                this.writeVariable(application.getTarget());
+            } else if (operation instanceof Call) {
+                final Call call = (Call) operation;
+                final Integer function = this.functions.get(call.getFunction());
+                if (function == null) {
+                    throw new IllegalArgumentException(
+                            String.format("%s is not declared in the program", call.getFunction()));
+                }
+
+                this.body.write(IRFormat.CALL);
+                this.body.writeNumber(function);
+                this.writeVariables(call.getArgs());
+                this.writeVariable(call.getTarget());
+            } else if (operation instanceof Input) {
+                this.body.write(IRFormat.INPUT);
+                this.writeString(((Input) operation).getQuery());
+                this.writeVariable(((Input) operation).getTarget());
+            } else if (operation instanceof Output) {
+                this.body.write(IRFormat.OUTPUT);
+                this.writeString(((Output) operation).getDescription());
+                this.writeVariable(((Output) operation).getSource());
+            } else if (operation instanceof Return) {
+                this.body.write(IRFormat.RETURN);
+                this.writeVariable(((Return) operation).getSource());
+            } else if (operation instanceof Break) {
+                this.body.write(IRFormat.BREAK);
+            } else if (operation instanceof Conditional) {
+                final Conditional conditional = (Conditional) operation;
+                this.body.write(IRFormat.CONDITIONAL);
+                this.writeVariable(conditional.getCondition());
+                this.writeSequence(conditional.getBodyTrue());
+                this.writeSequence(conditional.getBodyFalse());
+            } else if (operation instanceof Loop) {
+                final Loop loop = (Loop) operation;
+                this.body.write(IRFormat.LOOP);
+                this.writeVariable(loop.getCondition());
+                this.writeSequence(loop.getConditionBody());
+                this.writeSequence(loop.getBody());
+            } else {
+                throw new UnsupportedOperationException(String.format("Cannot write %s", operation));
+            }
+        }
+    }
+
+    /**
+     * Writes the type, identifier and initial value of a variable.
+     */
+    private void writeDeclaration(final Variable variable) {
+        this.body.write(variable.getType().ordinal());
+        this.writeString(variable.getId());
+        this.writeValue(variable.getType(), variable.getInitialValue());
+    }
+
+    /**
+     * Writes the number of variables followed by references to them.
+     */
+    private void writeVariables(final Variable[] variables) {
+        this.body.writeNumber(variables.length);
+        for (Variable variable : variables) {
+            this.writeVariable(variable);
+        }
+    }
+
+    /**
+     * Writes a reference to a variable, declaring it if it was not added to the program and is referred to first.
+     */
+    private void writeVariable(final Variable variable) {
+        if (variable.getIndex() >= 0) {
+            this.body.writeNumber(variable.getIndex() + 1);
+            return;
+        }
+
+        final Integer index = this.detached.get(variable);
+        if (index != null) {
+            this.body.writeNumber(index + 1);
+        } else {
+            this.detached.put(variable, this.program.getVariableCount() + this.detached.size());
+            this.body.writeNumber(IRFormat.NEW_VARIABLE);
+            this.writeDeclaration(variable);
+        }
+    }
+
+    /**
+     * Writes whether there is a value, followed by the value.
+     *
+     * @param type The type of the value.
+     * @param value The value, which may be {@code null}.
+     */
+    private void writeValue(final Type type, final Object value) {
+        if (value == null) {
+            this.body.write(0);
+            return;
+        }
+
+        this.body.write(1);
+        switch (type) {
+            case BOOL:
+                this.body.write((Boolean) value ? 1 : 0);
+                break;
+            case INT:
+                final int integer = (Integer) value;
+                this.body.writeNumber((integer << 1) ^ (integer >> 31));
+                break;
+            case CHAR:
+                this.body.writeNumber((Character) value);
+                break;
+            default:
+                throw new UnsupportedOperationException(String.format("Cannot write a constant of %s", type));
+        }
+    }
+
+    /**
+     * Writes a reference to a string, adding it to the string table if it is new.
+     */
+    private void writeString(final String string) {
+        Integer index = this.strings.get(string);
+
+        if (index == null) {
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            index = this.strings.size();
+            this.strings.put(string, index);
+            this.table.writeNumber(bytes.length);
+            this.table.write(bytes);
+        }
+
+        this.body.writeNumber(index);
+    }
+
+    /**
+     * Growable array of bytes.
+     */
+    private static class Buffer {
+        /** The bytes. */
+        private byte[] bytes = new byte[4096];
+
+        /** The number of bytes written. */
+        private int size;
+
+        /**
+         * Makes room for a number of bytes.
+         */
+        private void reserve(final int length) {
+            if (this.size + length > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.size + length, this.bytes.length * 2));
+            }
+        }
+
+        /**
+         * Writes a single byte.
+         */
+        private void write(final int value) {
+            this.reserve(1);
+            this.bytes[this.size++] = (byte) value;
+        }
+
+        /**
+         * Writes bytes.
+         */
+        private void write(final byte[] values) {
+            this.reserve(values.length);
+            System.arraycopy(values, 0, this.bytes, this.size, values.length);
+            this.size += values.length;
+        }
+
+        /**
+         * Writes a non-negative number as a variable-length integer.
+         */
+        private void writeNumber(int value) {
+            this.reserve(5);
+            while ((value & ~0x7F) != 0) {
+                this.bytes[this.size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.bytes[this.size++] = (byte) value;
+        }
+    }
+}
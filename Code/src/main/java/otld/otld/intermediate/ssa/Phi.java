@@ -0,0 +1,76 @@
+package otld.otld.intermediate.ssa;
+
+import com.google.common.base.Joiner;
+import otld.otld.intermediate.IRVisitor;
+import otld.otld.intermediate.Operation;
+import otld.otld.intermediate.Variable;
+
+import java.util.Arrays;
+
+/**
+ * Phi function of the SSA form.
+ *
+ * Chooses the version of a variable that belongs to the path along which a join point was reached. A phi function
+ * directly after a conditional has the version of the true branch and of the false branch as sources. A phi function at
+ * the start of the condition body of a loop has the version before the loop and the version at the end of the body as
+ * sources. A phi function directly after a loop has the version at the end of the condition body, if the condition
+ * body can end, followed by the versions at the breaks of the loop in the order in which they appear.
+ */
+public class Phi extends Operation {
+    /** The version that is defined. */
+    private Variable target;
+
+    /** The versions to choose from. */
+    private Variable[] sources;
+
+    /**
+     * @param target The version that is defined.
+     * @param sources The versions to choose from.
+     */
+    public Phi(final Variable target, final Variable... sources) {
+        this.target = target;
+        this.sources = sources;
+    }
+
+    /**
+     * @return The version that is defined.
+     */
+    public final Variable getTarget() {
+        return this.target;
+    }
+
+    /**
+     * @return The versions to choose from.
+     */
+    public final Variable[] getSources() {
+        return Arrays.copyOf(this.sources, this.sources.length);
+    }
+
+    /**
+     * @param index The index of a source.
+     * @return The version at that index.
+     */
+    public final Variable getSource(final int index) {
+        return this.sources[index];
+    }
+
+    /**
+     * Replaces a source, for instance when an optimization replaces a version by another.
+     *
+     * @param index The index of the source.
+     * @param source The new version.
+     */
+    public final void setSource(final int index, final Variable source) {
+        this.sources[index] = source;
+    }
+
+    @Override
+    public final <R, C> R accept(final IRVisitor<R, C> visitor, final C context) {
+        return visitor.visitOther(this, context);
+    }
+
+    @Override
+    public final String toString() {
+        return String.format("Phi ( %s ) -> %s", Joiner.on(", ").join(this.sources), this.getTarget());
+    }
+}
@@ -0,0 +1,397 @@
+package otld.otld.intermediate.ssa;
+
+import otld.otld.intermediate.*;
+import otld.otld.intermediate.exceptions.TypeMismatch;
+
+import java.util.*;
+
+/**
+ * Rewrites the bodies of a program into SSA form.
+ *
+ * The bodies are walked in order while keeping the current version of every renamed variable. Conditionals and loops
+ * are the only join points, so the phi operations can be placed without a control flow graph: after a conditional for
+ * the variables that differ between the branches, at the start of a loop for the variables that the loop assigns, and
+ * after a loop for the variables that differ between its exits. Operations after a break or a return are never
+ * executed and are left out.
+ */
+class SSABuilder {
+    /** The SSA form that is constructed. */
+    private final SSAForm form;
+
+    /** The variables that are renamed in the current body, in a fixed order. */
+    private List<Variable> renamed;
+
+    /** The variables that are renamed in the current body. */
+    private Set<Variable> renamedSet;
+
+    /** The current versions at the breaks of every loop that is being renamed, the innermost on top. */
+    private final Deque<List<Map<Variable, Variable>>> breaks;
+
+    /**
+     * @param form The SSA form to construct.
+     */
+    SSABuilder(final SSAForm form) {
+        this.form = form;
+        this.breaks = new ArrayDeque<>();
+    }
+
+    /**
+     * Rewrites the bodies of the functions and of the program.
+     */
+    void build() {
+        final Program program = this.form.getProgram();
+        final Set<Variable> shared = new HashSet<>();
+
+        for (Function function : program.getFunctions()) {
+            collect(function.getBody(), shared);
+        }
+
+        for (Function function : program.getFunctions()) {
+            this.build(function.getBody(), Arrays.asList(function.getVariables()));
+        }
+
+        final List<Variable> variables = new ArrayList<>();
+        for (Variable variable : program.getVariables()) {
+            if (!shared.contains(variable)) {
+                variables.add(variable);
+            }
+        }
+        this.build(program.getBody(), variables);
+    }
+
+    /**
+     * Rewrites a body.
+     *
+     * @param body The body.
+     * @param renamed The variables to rename.
+     */
+    private void build(final OperationSequence body, final List<Variable> renamed) {
+        this.renamed = renamed;
+        this.renamedSet = new HashSet<>(renamed);
+
+        final Map<Variable, Variable> versions = new HashMap<>();
+        for (Variable variable : renamed) {
+            versions.put(variable, variable);
+        }
+
+        final OperationSequence result = new OperationSequence();
+        this.rename(body, versions, result);
+        body.clear();
+        body.addAll(result);
+    }
+
+    /**
+     * Collects the variables that a sequence uses or assigns.
+     */
+    private static void collect(final OperationSequence sequence, final Set<Variable> variables) {
+        for (Operation operation : sequence) {
+            if (operation instanceof Assignment) {
+                variables.add(((Assignment) operation).getTarget());
+                if (operation instanceof VariableAssignment) {
+                    variables.add(((VariableAssignment) operation).getSource());
+                }
+            } else if (operation instanceof Application) {
+                variables.addAll(Arrays.asList(((Application) operation).getArgs()));
+                variables.add(((Application) operation).getTarget());
+            } else if (operation instanceof Call) {
+                variables.addAll(Arrays.asList(((Call) operation).getArgs()));
+                variables.add(((Call) operation).getTarget());
+            } else if (operation instanceof Input) {
+                variables.add(((Input) operation).getTarget());
+            } else if (operation instanceof Output) {
+                variables.add(((Output) operation).getSource());
+            } else if (operation instanceof Return) {
+                variables.add(((Return) operation).getSource());
+            } else if (operation instanceof Conditional) {
+                variables.add(((Conditional) operation).getCondition());
+                collect(((Conditional) operation).getBodyTrue(), variables);
+                collect(((Conditional) operation).getBodyFalse(), variables);
+            } else if (operation instanceof Loop) {
+                variables.add(((Loop) operation).getCondition());
+                collect(((Loop) operation).getConditionBody(), variables);
+                collect(((Loop) operation).getBody(), variables);
+            }
+        }
+    }
+
+    /**
+     * Collects the renamed variables that a sequence assigns.
+     */
+    private void assigned(final OperationSequence sequence, final Set<Variable> variables) {
+        for (Operation operation : sequence) {
+            Variable target = null;
+
+            if (operation instanceof Assignment) {
+                target = ((Assignment) operation).getTarget();
+            } else if (operation instanceof Application) {
+                target = ((Application) operation).getTarget();
+            } else if (operation instanceof Call) {
+                target = ((Call) operation).getTarget();
+            } else if (operation instanceof Input) {
+                target = ((Input) operation).getTarget();
+            } else if (operation instanceof Conditional) {
+                this.assigned(((Conditional) operation).getBodyTrue(), variables);
+                this.assigned(((Conditional) operation).getBodyFalse(), variables);
+            } else if (operation instanceof Loop) {
+                this.assigned(((Loop) operation).getConditionBody(), variables);
+                this.assigned(((Loop) operation).getBody(), variables);
+            }
+
+            if (target != null && this.renamedSet.contains(target)) {
+                variables.add(target);
+            }
+        }
+    }
+
+    /**
+     * @param versions The current versions.
+     * @param variable A variable that is used.
+     * @return The current version of the variable.
+     */
+    private static Variable lookup(final Map<Variable, Variable> versions, final Variable variable) {
+        final Variable version = versions.get(variable);
+        return version == null ? variable : version;
+    }
+
+    /**
+     * @param versions The current versions, which are updated.
+     * @param variable A variable that is assigned.
+     * @return The new version of the variable.
+     */
+    private Variable define(final Map<Variable, Variable> versions, final Variable variable) {
+        if (!this.renamedSet.contains(variable)) {
+            return variable;
+        }
+
+        final Variable version = this.form.createVersion(variable);
+        versions.put(variable, version);
+        return version;
+    }
+
+    /**
+     * @param versions The current versions.
+     * @param variables The variables that are used.
+     * @return The current versions of the variables.
+     */
+    private static Variable[] lookup(final Map<Variable, Variable> versions, final Variable[] variables) {
+        final Variable[] result = new Variable[variables.length];
+        for (int i = 0; i < variables.length; i++) {
+            result[i] = lookup(versions, variables[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Records the uses of an operation.
+     */
+    private void use(final Operation operation, final Variable... versions) {
+        for (Variable version : versions) {
+            this.form.use(version, operation);
+        }
+    }
+
+    /**
+     * Renames a sequence of operations.
+     *
+     * @param sequence The sequence.
+     * @param versions The current versions, which are updated.
+     * @param result The sequence to add the renamed operations to.
+     * @return The current versions after the sequence, or {@code null} if the end of the sequence cannot be reached.
+     */
+    private Map<Variable, Variable> rename(final OperationSequence sequence, Map<Variable, Variable> versions,
+                                           final OperationSequence result) {
+        for (Operation operation : sequence) {
+            versions = this.rename(operation, versions, result);
+
+            if (versions == null) {
+                return null;
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Renames an operation.
+     *
+     * @param operation The operation.
+     * @param versions The current versions, which are updated.
+     * @param result The sequence to add the renamed operation to.
+     * @return The current versions after the operation, or {@code null} if the operation does not end.
+     */
+    private Map<Variable, Variable> rename(final Operation operation, final Map<Variable, Variable> versions,
+                                           final OperationSequence result) {
+        final Operation renamed;
+
+        try {
+            if (operation instanceof ValueAssignment) {
+                renamed = new ValueAssignment(this.define(versions, ((ValueAssignment) operation).getTarget()),
+                        ((ValueAssignment) operation).getValue());
+            } else if (operation instanceof VariableAssignment) {
+                final Variable source = lookup(versions, ((VariableAssignment) operation).getSource());
+                renamed = new VariableAssignment(this.define(versions, ((VariableAssignment) operation).getTarget()),
+                        source);
+                this.use(renamed, source);
+            } else if (operation instanceof Application) {
+                final Variable[] args = lookup(versions, ((Application) operation).getArgs());
+                final Variable[] all = Arrays.copyOf(args, args.length + 1);
+                all[args.length] = this.define(versions, ((Application) operation).getTarget());
+                renamed = new Application(((Application) operation).getOperator(), all);
+                this.use(renamed, args);
+            } else if (operation instanceof Call) {
+                final Variable[] args = lookup(versions, ((Call) operation).getArgs());
+                final Variable[] all = Arrays.copyOf(args, args.length + 1);
+                all[args.length] = this.define(versions, ((Call) operation).getTarget());
+                renamed = new Call(((Call) operation).getFunction(), all);
+                this.use(renamed, args);
+            } else if (operation instanceof Input) {
+                renamed = new Input(((Input) operation).getQuery(),
+                        this.define(versions, ((Input) operation).getTarget()));
+            } else if (operation instanceof Output) {
+                final Variable source = lookup(versions, ((Output) operation).getSource());
+                renamed = new Output(((Output) operation).getDescription(), source);
+                this.use(renamed, source);
+            } else if (operation instanceof Return) {
+                final Variable source = lookup(versions, ((Return) operation).getSource());
+                renamed = new Return(source);
+                this.use(renamed, source);
+                result.add(renamed);
+                return null;
+            } else if (operation instanceof Break) {
+                result.add(new Break());
+                if (!this.breaks.isEmpty()) {
+                    this.breaks.peek().add(new HashMap<>(versions));
+                }
+                return null;
+            } else if (operation instanceof Conditional) {
+                return this.rename((Conditional) operation, versions, result);
+            } else if (operation instanceof Loop) {
+                return this.rename((Loop) operation, versions, result);
+            } else {
+                throw new UnsupportedOperationException(String.format("<%s> cannot be put in SSA form.", operation));
+            }
+        } catch (TypeMismatch e) {
+            // Versions have the type of their variable
+            throw new IllegalStateException(e);
+        }
+
+        this.define(renamed);
+        result.add(renamed);
+        return versions;
+    }
+
+    /**
+     * Records the definition of an operation that has just been renamed.
+     */
+    private void define(final Operation operation) {
+        if (operation instanceof Assignment) {
+            this.form.define(((Assignment) operation).getTarget(), operation);
+        } else if (operation instanceof Application) {
+            this.form.define(((Application) operation).getTarget(), operation);
+        } else if (operation instanceof Call) {
+            this.form.define(((Call) operation).getTarget(), operation);
+        } else if (operation instanceof Input) {
+            this.form.define(((Input) operation).getTarget(), operation);
+        } else if (operation instanceof Phi) {
+            this.form.define(((Phi) operation).getTarget(), operation);
+            this.use(operation, ((Phi) operation).getSources());
+        }
+    }
+
+    /**
+     * Renames a conditional and adds a phi operation for every variable that differs between its branches.
+     */
+    private Map<Variable, Variable> rename(final Conditional conditional, final Map<Variable, Variable> versions,
+                                           final OperationSequence result) {
+        final Conditional renamed = new Conditional(lookup(versions, conditional.getCondition()));
+        this.use(renamed, renamed.getCondition());
+
+        final Map<Variable, Variable> bodyTrue = this.rename(conditional.getBodyTrue(), new HashMap<>(versions),
+                renamed.getBodyTrue());
+        final Map<Variable, Variable> bodyFalse = this.rename(conditional.getBodyFalse(), new HashMap<>(versions),
+                renamed.getBodyFalse());
+        result.add(renamed);
+
+        if (bodyTrue == null || bodyFalse == null) {
+            return bodyTrue == null ? bodyFalse : bodyTrue;
+        }
+
+        for (Variable variable : this.renamed) {
+            final Variable versionTrue = bodyTrue.get(variable);
+            final Variable versionFalse = bodyFalse.get(variable);
+
+            if (versionTrue != versionFalse) {
+                final Phi phi = new Phi(this.define(bodyTrue, variable), versionTrue, versionFalse);
+                this.define(phi);
+                result.add(phi);
+            }
+        }
+        return bodyTrue;
+    }
+
+    /**
+     * Renames a loop, with a phi operation at the start for every variable that the loop assigns and a phi operation
+     * after it for every variable that differs between its exits.
+     */
+    private Map<Variable, Variable> rename(final Loop loop, final Map<Variable, Variable> versions,
+                                           final OperationSequence result) {
+        final Set<Variable> assigned = new HashSet<>();
+        this.assigned(loop.getConditionBody(), assigned);
+        this.assigned(loop.getBody(), assigned);
+
+        final List<Phi> header = new ArrayList<>();
+        for (Variable variable : this.renamed) {
+            if (assigned.contains(variable)) {
+                final Variable entry = versions.get(variable);
+                final Variable version = this.define(versions, variable);
+                header.add(new Phi(version, entry, version));
+            }
+        }
+
+        final OperationSequence conditionBody = new OperationSequence(header);
+        final OperationSequence body = new OperationSequence();
+        this.breaks.push(new ArrayList<>());
+
+        final Map<Variable, Variable> condition = this.rename(loop.getConditionBody(), versions, conditionBody);
+        final Map<Variable, Variable> end = condition == null ? null
+                : this.rename(loop.getBody(), new HashMap<>(condition), body);
+        final List<Map<Variable, Variable>> exits = this.breaks.pop();
+
+        final Loop renamed = new Loop(lookup(versions, loop.getCondition()));
+        renamed.getConditionBody().addAll(conditionBody);
+        renamed.getBody().addAll(body);
+        this.use(renamed, renamed.getCondition());
+        result.add(renamed);
+
+        for (Phi phi : header) {
+            if (end != null) {
+                phi.setSource(1, end.get(this.form.getOriginal(phi.getTarget())));
+            }
+            this.define(phi);
+        }
+
+        if (condition != null) {
+            exits.add(0, condition);
+        }
+        if (exits.isEmpty()) {
+            return null;
+        }
+
+        final Map<Variable, Variable> after = new HashMap<>(exits.get(0));
+        for (Variable variable : this.renamed) {
+            final Variable[] sources = new Variable[exits.size()];
+            boolean same = true;
+
+            for (int i = 0; i < sources.length; i++) {
+                sources[i] = exits.get(i).get(variable);
+                same &= sources[i] == sources[0];
+            }
+
+            if (!same) {
+                final Phi phi = new Phi(this.define(after, variable), sources);
+                this.define(phi);
+                result.add(phi);
+            }
+        }
+        return after;
+    }
+}
@@ -0,0 +1,353 @@
+package otld.otld.intermediate.ssa;
+
+import otld.otld.intermediate.*;
+import otld.otld.intermediate.exceptions.TypeMismatch;
+
+import java.util.*;
+
+/**
+ * Rewrites the bodies of a program out of SSA form and gives every version a JVM local variable.
+ *
+ * Every phi operation is replaced by assignments at the end of the paths that lead to it. The assignments for one join
+ * point happen at the same time, so they are ordered such that no version is overwritten before it is read, using an
+ * extra version to break cycles.
+ *
+ * Versions share local variables when they are not live at the same time. Since the bodies are structured, a version
+ * is live between its first and its last occurrence in the order of the operations, and in all of a loop that it is
+ * used in but defined before. The local variables are assigned with a linear scan over these intervals.
+ */
+class SSADestructor {
+    /**
+     * The phi operations after a loop that is being rewritten.
+     */
+    private static class Exit {
+        /** The phi operations. */
+        private final List<Phi> phis;
+
+        /** The index of the source for the next break. */
+        private int next;
+
+        /**
+         * @param phis The phi operations.
+         * @param next The index of the source for the first break.
+         */
+        private Exit(final List<Phi> phis, final int next) {
+            this.phis = phis;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A loop of which the operations are being numbered.
+     */
+    private static class Frame {
+        /** The number of the first operation in the loop. */
+        private final int start;
+
+        /** The versions that are live in all of the loop. */
+        private final List<Variable> live;
+
+        /**
+         * @param start The number of the first operation in the loop.
+         */
+        private Frame(final int start) {
+            this.start = start;
+            this.live = new ArrayList<>();
+        }
+    }
+
+    /** The SSA form. */
+    private final SSAForm form;
+
+    /** The loops that are being rewritten, the innermost on top. */
+    private final Deque<Exit> exits;
+
+    /** The local variable slot of every version. */
+    private final Map<Variable, Integer> locals;
+
+    /** The first and the last number of the operations in which each version occurs, in order of the first. */
+    private Map<Variable, int[]> intervals;
+
+    /** The loops that are being numbered, the outermost first. */
+    private List<Frame> frames;
+
+    /** The number of the next operation. */
+    private int position;
+
+    /**
+     * @param form The SSA form.
+     */
+    SSADestructor(final SSAForm form) {
+        this.form = form;
+        this.exits = new ArrayDeque<>();
+        this.locals = new HashMap<>();
+    }
+
+    /**
+     * Rewrites the bodies of the functions and of the program.
+     *
+     * @return The local variable slot of every version.
+     */
+    Map<Variable, Integer> destruct() {
+        final Program program = this.form.getProgram();
+
+        // Slot zero is this, followed by the parameters
+        for (Function function : program.getFunctions()) {
+            this.destruct(function.getBody(), function.getVariables().length + 1);
+        }
+
+        // Slot zero is the arguments of main and slot one the instance of the program
+        this.destruct(program.getBody(), 2);
+
+        return this.locals;
+    }
+
+    /**
+     * Rewrites a body and assigns the local variables of its versions.
+     *
+     * @param body The body.
+     * @param first The first free local variable slot.
+     */
+    private void destruct(final OperationSequence body, final int first) {
+        final OperationSequence result = this.destruct(body);
+        body.clear();
+        body.addAll(result);
+
+        this.intervals = new LinkedHashMap<>();
+        this.frames = new ArrayList<>();
+        this.position = 0;
+        this.number(body);
+        this.allocate(first);
+    }
+
+    /**
+     * Rewrites a sequence of operations.
+     *
+     * @param sequence The sequence.
+     * @return The sequence without phi operations.
+     */
+    private OperationSequence destruct(final List<Operation> sequence) {
+        final OperationSequence result = new OperationSequence();
+
+        for (int i = 0; i < sequence.size(); i++) {
+            final Operation operation = sequence.get(i);
+
+            if (operation instanceof Conditional) {
+                final Conditional conditional = (Conditional) operation;
+                final List<Phi> phis = phis(sequence, i + 1);
+                final Conditional rewritten = new Conditional(conditional.getCondition());
+
+                rewritten.getBodyTrue().addAll(this.destruct(conditional.getBodyTrue()));
+                this.copy(phis, 0, rewritten.getBodyTrue());
+                rewritten.getBodyFalse().addAll(this.destruct(conditional.getBodyFalse()));
+                this.copy(phis, 1, rewritten.getBodyFalse());
+
+                result.add(rewritten);
+                i += phis.size();
+            } else if (operation instanceof Loop) {
+                final Loop loop = (Loop) operation;
+                final List<Phi> header = phis(loop.getConditionBody(), 0);
+                final List<Phi> phis = phis(sequence, i + 1);
+                final boolean condition = !SSAForm.terminates(loop.getConditionBody());
+                final Loop rewritten = new Loop(loop.getCondition());
+
+                this.copy(header, 0, result);
+                this.exits.push(new Exit(phis, condition ? 1 : 0));
+
+                rewritten.getConditionBody().addAll(this.destruct(
+                        loop.getConditionBody().subList(header.size(), loop.getConditionBody().size())));
+                if (condition) {
+                    this.copy(phis, 0, rewritten.getConditionBody());
+                }
+                rewritten.getBody().addAll(this.destruct(loop.getBody()));
+                if (!SSAForm.terminates(loop.getBody())) {
+                    this.copy(header, 1, rewritten.getBody());
+                }
+
+                this.exits.pop();
+                result.add(rewritten);
+                i += phis.size();
+            } else if (operation instanceof Break) {
+                if (!this.exits.isEmpty()) {
+                    final Exit exit = this.exits.peek();
+                    this.copy(exit.phis, exit.next++, result);
+                }
+                result.add(operation);
+            } else if (operation instanceof Phi) {
+                throw new IllegalStateException(String.format("%s is not at a join point", operation));
+            } else {
+                result.add(operation);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param sequence A sequence of operations.
+     * @param index The index to start at.
+     * @return The phi operations from the index up to the first other operation.
+     */
+    private static List<Phi> phis(final List<Operation> sequence, final int index) {
+        final List<Phi> phis = new ArrayList<>();
+        for (int i = index; i < sequence.size() && sequence.get(i) instanceof Phi; i++) {
+            phis.add((Phi) sequence.get(i));
+        }
+        return phis;
+    }
+
+    /**
+     * Adds the assignments for one path to a join point.
+     *
+     * @param phis The phi operations at the join point.
+     * @param index The index of the source of the path.
+     * @param result The sequence to add the assignments to.
+     */
+    private void copy(final List<Phi> phis, final int index, final OperationSequence result) {
+        final List<Variable> targets = new ArrayList<>(phis.size());
+        final List<Variable> sources = new ArrayList<>(phis.size());
+
+        for (Phi phi : phis) {
+            if (phi.getSource(index) != phi.getTarget()) {
+                targets.add(phi.getTarget());
+                sources.add(phi.getSource(index));
+            }
+        }
+
+        while (!targets.isEmpty()) {
+            int ready = -1;
+            for (int i = 0; i < targets.size() && ready < 0; i++) {
+                if (!sources.contains(targets.get(i))) {
+                    ready = i;
+                }
+            }
+
+            if (ready >= 0) {
+                result.add(assignment(targets.remove(ready), sources.remove(ready)));
+            } else {
+                // Only cycles are left, so one of the targets is saved before it is overwritten
+                final Variable target = targets.get(0);
+                final Variable saved = this.form.createVersion(target);
+                result.add(assignment(saved, target));
+                Collections.replaceAll(sources, target, saved);
+            }
+        }
+    }
+
+    /**
+     * @return An assignment of one version to another.
+     */
+    private static VariableAssignment assignment(final Variable target, final Variable source) {
+        try {
+            return new VariableAssignment(target, source);
+        } catch (TypeMismatch e) {
+            // Versions have the type of their variable
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Numbers the operations of a sequence and records the intervals of the versions in it.
+     */
+    private void number(final OperationSequence sequence) {
+        for (Operation operation : sequence) {
+            final int position = this.position++;
+
+            if (operation instanceof VariableAssignment) {
+                this.occurs(((VariableAssignment) operation).getSource(), position);
+                this.occurs(((VariableAssignment) operation).getTarget(), position);
+            } else if (operation instanceof Assignment) {
+                this.occurs(((Assignment) operation).getTarget(), position);
+            } else if (operation instanceof Application) {
+                this.occurs(((Application) operation).getArgs(), position);
+                this.occurs(((Application) operation).getTarget(), position);
+            } else if (operation instanceof Call) {
+                this.occurs(((Call) operation).getArgs(), position);
+                this.occurs(((Call) operation).getTarget(), position);
+            } else if (operation instanceof Input) {
+                this.occurs(((Input) operation).getTarget(), position);
+            } else if (operation instanceof Output) {
+                this.occurs(((Output) operation).getSource(), position);
+            } else if (operation instanceof Return) {
+                this.occurs(((Return) operation).getSource(), position);
+            } else if (operation instanceof Conditional) {
+                this.occurs(((Conditional) operation).getCondition(), position);
+                this.number(((Conditional) operation).getBodyTrue());
+                this.number(((Conditional) operation).getBodyFalse());
+            } else if (operation instanceof Loop) {
+                final Frame frame = new Frame(position);
+                this.frames.add(frame);
+
+                // The condition is read after the condition body, on every iteration
+                this.number(((Loop) operation).getConditionBody());
+                this.occurs(((Loop) operation).getCondition(), this.position++);
+                this.number(((Loop) operation).getBody());
+
+                this.frames.remove(this.frames.size() - 1);
+                for (Variable version : frame.live) {
+                    final int[] interval = this.intervals.get(version);
+                    interval[1] = Math.max(interval[1], this.position);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records versions that occur in an operation.
+     */
+    private void occurs(final Variable[] variables, final int position) {
+        for (Variable variable : variables) {
+            this.occurs(variable, position);
+        }
+    }
+
+    /**
+     * Records a version that occurs in an operation.
+     *
+     * @param variable The variable, which is ignored if it is not a version.
+     * @param position The number of the operation.
+     */
+    private void occurs(final Variable variable, final int position) {
+        if (!this.form.isVersion(variable)) {
+            return;
+        }
+
+        int[] interval = this.intervals.get(variable);
+        if (interval == null) {
+            interval = new int[] {position, position};
+            this.intervals.put(variable, interval);
+        }
+        interval[1] = Math.max(interval[1], position);
+
+        // A version that occurs in a loop but starts before it may be needed in the next iteration
+        for (Frame frame : this.frames) {
+            if (frame.start > interval[0]) {
+                frame.live.add(variable);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Assigns local variable slots to the versions of a body with a linear scan.
+     *
+     * @param first The first free slot.
+     */
+    private void allocate(final int first) {
+        final PriorityQueue<int[]> active = new PriorityQueue<>((a, b) -> Integer.compare(a[0], b[0]));
+        final PriorityQueue<Integer> free = new PriorityQueue<>();
+        int next = first;
+
+        for (Map.Entry<Variable, int[]> entry : this.intervals.entrySet()) {
+            final int[] interval = entry.getValue();
+
+            while (!active.isEmpty() && active.peek()[0] < interval[0]) {
+                free.add(active.poll()[1]);
+            }
+
+            final int slot = free.isEmpty() ? next++ : free.poll();
+            this.locals.put(entry.getKey(), slot);
+            active.add(new int[] {interval[1], slot});
+        }
+    }
+}
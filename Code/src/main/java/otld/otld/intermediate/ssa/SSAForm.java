@@ -0,0 +1,199 @@
+package otld.otld.intermediate.ssa;
+
+import otld.otld.intermediate.*;
+
+import java.util.*;
+
+/**
+ * Static single assignment form of a program.
+ *
+ * Constructing the SSA form rewrites the bodies of the program and its functions so that every variable that can be
+ * kept in a JVM local variable is assigned at most once: every assignment defines a new version of the variable, and
+ * {@code Phi} operations are inserted where conditionals and loops join. These variables are the parameters of the
+ * functions and the variables that only the company uses, since functions cannot see the local variables of the
+ * company. Other variables are left as they are. The variable itself is the version it has when the body starts.
+ *
+ * The definition and uses of every version are recorded while constructing the form. An optimization that changes the
+ * bodies is responsible for keeping them up to date. Destructing the SSA form replaces the phi operations by
+ * assignments and gives every version a JVM local variable, after which the program can be compiled.
+ */
+public class SSAForm {
+    /** The program. */
+    private final Program program;
+
+    /** The original variable of every version. */
+    private final Map<Variable, Variable> originals;
+
+    /** The number of versions of every variable. */
+    private final Map<Variable, Integer> versionCounts;
+
+    /** The operation that defines every version. */
+    private final Map<Variable, Operation> definitions;
+
+    /** The operations that use every version. */
+    private final Map<Variable, List<Operation>> uses;
+
+    /** Whether the program has been taken out of SSA form. */
+    private boolean destructed;
+
+    /**
+     * @param program The program.
+     */
+    SSAForm(final Program program) {
+        this.program = program;
+        this.originals = new HashMap<>();
+        this.versionCounts = new HashMap<>();
+        this.definitions = new HashMap<>();
+        this.uses = new HashMap<>();
+    }
+
+    /**
+     * Rewrites a program into SSA form.
+     *
+     * @param program The program, which is changed.
+     * @return The SSA form of the program.
+     */
+    public static SSAForm construct(final Program program) {
+        final SSAForm form = new SSAForm(program);
+        new SSABuilder(form).build();
+        return form;
+    }
+
+    /**
+     * Rewrites the program out of SSA form, so it can be compiled. The variables of the program stay fields and the
+     * parameters of the functions stay parameters, the other versions are stored in JVM local variables, see
+     * {@code BytecodeCompiler.setLocals}.
+     *
+     * @return The local variable slot of every version that is still used.
+     * @throws IllegalStateException The program has already been taken out of SSA form.
+     */
+    public Map<Variable, Integer> destruct() {
+        if (this.destructed) {
+            throw new IllegalStateException("The program is not in SSA form anymore");
+        }
+
+        this.destructed = true;
+        return new SSADestructor(this).destruct();
+    }
+
+    /**
+     * @return The program.
+     */
+    public final Program getProgram() {
+        return this.program;
+    }
+
+    /**
+     * @param variable A variable.
+     * @return Whether the variable is a version created by the SSA form.
+     */
+    public final boolean isVersion(final Variable variable) {
+        return this.originals.containsKey(variable);
+    }
+
+    /**
+     * @param version A version of a variable.
+     * @return The variable of which it is a version, which is the variable itself if it is not a created version.
+     */
+    public final Variable getOriginal(final Variable version) {
+        final Variable original = this.originals.get(version);
+        return original == null ? version : original;
+    }
+
+    /**
+     * @param version A version of a variable.
+     * @return The operation that defines the version, or {@code null} for the version at the start of a body.
+     */
+    public final Operation getDefinition(final Variable version) {
+        return this.definitions.get(version);
+    }
+
+    /**
+     * @param version A version of a variable.
+     * @return The operations that use the version.
+     */
+    public final List<Operation> getUses(final Variable version) {
+        final List<Operation> uses = this.uses.get(version);
+        return uses == null ? Collections.<Operation>emptyList() : Collections.unmodifiableList(uses);
+    }
+
+    /**
+     * Creates a new version of a variable.
+     *
+     * @param variable The variable.
+     * @return The version.
+     */
+    Variable createVersion(final Variable variable) {
+        final Variable original = this.getOriginal(variable);
+        final int count = this.versionCounts.getOrDefault(original, 0) + 1;
+        this.versionCounts.put(original, count);
+
+        final Variable version = new Variable(original.getType(), String.format("%s$%d", original.getId(), count));
+        this.originals.put(version, original);
+        return version;
+    }
+
+    /**
+     * Records the definition of a version.
+     */
+    void define(final Variable version, final Operation operation) {
+        if (this.isVersion(version)) {
+            this.definitions.put(version, operation);
+        }
+    }
+
+    /**
+     * Records a use of a version.
+     */
+    void use(final Variable version, final Operation operation) {
+        List<Operation> uses = this.uses.get(version);
+        if (uses == null) {
+            uses = new ArrayList<>(2);
+            this.uses.put(version, uses);
+        }
+        uses.add(operation);
+    }
+
+    /**
+     * @param sequence A sequence of operations in SSA form.
+     * @return Whether the end of the sequence cannot be reached.
+     */
+    static boolean terminates(final List<Operation> sequence) {
+        if (sequence.isEmpty()) {
+            return false;
+        }
+
+        final Operation last = sequence.get(sequence.size() - 1);
+        if (last instanceof Break || last instanceof Return) {
+            return true;
+        } else if (last instanceof Conditional) {
+            return terminates(((Conditional) last).getBodyTrue()) && terminates(((Conditional) last).getBodyFalse());
+        } else if (last instanceof Loop) {
+            // A loop ends when its condition is false or at one of its breaks
+            final Loop loop = (Loop) last;
+            return terminates(loop.getConditionBody()) && !breaks(loop.getConditionBody()) && !breaks(loop.getBody());
+        }
+        return false;
+    }
+
+    /**
+     * @param sequence A sequence of operations.
+     * @return Whether the sequence contains a break out of the loop it is in.
+     */
+    private static boolean breaks(final List<Operation> sequence) {
+        for (Operation operation : sequence) {
+            if (operation instanceof Break) {
+                return true;
+            } else if (operation instanceof Conditional && (breaks(((Conditional) operation).getBodyTrue())
+                    || breaks(((Conditional) operation).getBodyFalse()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public final String toString() {
+        return String.format("SSAForm < %s, %d versions >", this.program.getId(), this.originals.size());
+    }
+}
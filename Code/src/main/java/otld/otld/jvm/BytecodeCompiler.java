@@ -7,6 +7,7 @@ import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.util.CheckClassAdapter;
+import otld.otld.CompileTimings;
 import otld.otld.Compiler;
 import otld.otld.intermediate.*;
 
@@ -33,8 +34,14 @@ public class BytecodeCompiler extends Compiler {
     /** Visitor for the current method. Can be {@code null}. */
     private MethodVisitor methodVisitor;
 
-    /** The storage location of variables. A negative value indicates that the variable is a field. */
-    private Map<Variable, Integer> localStorage;
+    /**
+     * The storage location of variables indexed by {@code Variable.getIndex()}. A negative value indicates that the
+     * variable is a field.
+     */
+    private int[] localStorage;
+
+    /** The storage location of variables that have not been added to the program, and therefore have no index. */
+    private Map<Variable, Integer> detachedStorage;
 
     /** The local variable containing the class instance. */
     private int objectLocation;
@@ -42,29 +49,56 @@ public class BytecodeCompiler extends Compiler {
     /** The targets for the break operation. */
     private Stack<Label> breakTargets;
 
-    /** Variables with an initial value. */
+    /** Variables with an initial value, in the order in which they are declared. */
     private Set<Variable> initialVariables;
 
+    /** The timings of the codegen and emit phases. */
+    private final CompileTimings timings;
+
     /**
      * Creates a new compiler for Java bytecode.
      * @param program The program to compile.
      */
     public BytecodeCompiler(final Program program) {
+        this(program, new CompileTimings());
+    }
+
+    /**
+     * Creates a new compiler for Java bytecode that records the codegen and emit phases.
+     * @param program The program to compile.
+     * @param timings The timings to record the phases in.
+     */
+    public BytecodeCompiler(final Program program, final CompileTimings timings) {
         super(program);
+        this.timings = timings;
         this.result = new byte[0];
         this.writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
         this.visitor = this.writer;
         this.methodVisitor = null;
-        this.localStorage = new HashMap<>();
+        this.localStorage = new int[program.getVariableCount()];
+        Arrays.fill(this.localStorage, -1);
+        this.detachedStorage = new HashMap<>();
         this.objectLocation = 0;
         this.breakTargets = new Stack<>();
-        this.initialVariables = new HashSet<>();
+        this.initialVariables = new LinkedHashSet<>();
     }
 
     @Override
     public void compile() {
-        this.visitProgram(this.program);
-        this.result = this.writer.toByteArray();
+        this.timings.begin(CompileTimings.Phase.CODEGEN);
+        try {
+            this.visitProgram(this.program);
+        } finally {
+            this.timings.end();
+        }
+
+        this.timings.begin(CompileTimings.Phase.EMIT);
+        try {
+            this.result = this.writer.toByteArray();
+        } finally {
+            this.timings.end();
+        }
+
         this.compiled = true;
     }
 
@@ -85,6 +119,20 @@ public class BytecodeCompiler extends Compiler {
         return this.result;
     }
 
+    /**
+     * Ends the current method. ASM computes the stack map frames and maximum stack size of the method here, which is
+     * recorded as part of the emit phase.
+     */
+    private void visitMethodEnd() {
+        this.timings.begin(CompileTimings.Phase.EMIT);
+        try {
+            this.methodVisitor.visitMaxs(0, 0);
+            this.methodVisitor.visitEnd();
+        } finally {
+            this.timings.end();
+        }
+    }
+
     /**
      * Returns the location of the variable.
      *
@@ -97,7 +145,12 @@ public class BytecodeCompiler extends Compiler {
      */
     protected int getVariableLocation(final Variable variable) {
         // Defaults to -1, which indicates the variable is a field, as most variables are fields.
-        return this.localStorage.getOrDefault(variable, -1);
+        final int index = variable.getIndex();
+
+        if (index < 0) {
+            return this.detachedStorage.getOrDefault(variable, -1);
+        }
+        return index < this.localStorage.length ? this.localStorage[index] : -1;
     }
 
     /**
@@ -111,7 +164,30 @@ public class BytecodeCompiler extends Compiler {
      * @param location The location of the variable.
      */
     protected void setVariableLocation(final Variable variable, final int location) {
-        this.localStorage.put(variable, location);
+        final int index = variable.getIndex();
+
+        if (index < 0) {
+            this.detachedStorage.put(variable, location);
+            return;
+        }
+        if (index >= this.localStorage.length) {
+            final int length = this.localStorage.length;
+            this.localStorage = Arrays.copyOf(this.localStorage, Math.max(index + 1, length * 2));
+            Arrays.fill(this.localStorage, length, this.localStorage.length, -1);
+        }
+        this.localStorage[index] = location;
+    }
+
+    /**
+     * Stores variables that are not part of the program in local variables instead of fields, such as the versions of
+     * variables that remain after {@code SSAForm.destruct}.
+     *
+     * @param locals The local storage slot of every variable.
+     */
+    public void setLocals(final Map<Variable, Integer> locals) {
+        for (Map.Entry<Variable, Integer> local : locals.entrySet()) {
+            this.setVariableLocation(local.getKey(), local.getValue());
+        }
     }
 
     /**
@@ -180,9 +256,11 @@ public class BytecodeCompiler extends Compiler {
      * variable. Calls the operator visitor method to write the code for the actual operation.
      *
      * @param application The application instance.
+     * @param context Unused.
+     * @return {@code null}.
      */
     @Override
-    protected void visitApplication(final Application application) {
+    public Void visitApplication(final Application application, final Void context) {
         // Load argument values onto stack
         for (Variable arg : application.getArgs()) {
             this.visitLoadVariable(arg);
@@ -193,48 +271,8 @@ public class BytecodeCompiler extends Compiler {
 
         // Store result
         this.visitStoreVariable(application.getTarget());
-    }
-
-    /**
-     * Handles assignments.
-     *
-     * Calls the correct visitor for the specific type of assignment or raises an exception in case the type of
-     * assignment is not supported by this compiler.
-     *
-     * @param assignment The assignment instance.
-     * @throws UnsupportedOperationException The specific assignment is not supported.
-     */
-    @Override
-    protected void visitAssignment(final Assignment assignment) {
-        // Forward call to specialized visitor
-        if (assignment instanceof ValueAssignment) {
-            this.visitValueAssignment((ValueAssignment) assignment);
-        } else if (assignment instanceof VariableAssignment) {
-            this.visitVariableAssignment((VariableAssignment) assignment);
-        } else {
-            this.unsupported(assignment);
-        }
-    }
 
-    /**
-     * Handles blocks.
-     *
-     * Calls the correct visitor for the specific type of block or raises an exception in case the type of block is not
-     * supported by this compiler.
-     *
-     * @param block The block instance.
-     * @throws UnsupportedOperationException The specific block is not supported.
-     */
-    @Override
-    protected void visitBlock(final Block block) {
-        // Forward call to specialized visitor
-        if (block instanceof Conditional) {
-            this.visitConditional((Conditional) block);
-        } else if (block instanceof Loop) {
-            this.visitLoop((Loop) block);
-        } else {
-            this.unsupported(block);
-        }
+        return null;
     }
 
     /**
@@ -244,9 +282,11 @@ public class BytecodeCompiler extends Compiler {
      * Writes a void return in case there is no current block to end a method.
      *
      * @param brake The break instance.
+     * @param context Unused.
+     * @return {@code null}.
      */
     @Override
-    protected void visitBreak(Break brake) {
+    public Void visitBreak(final Break brake, final Void context) {
         // Check if there is a block to break out of
         if (this.breakTargets.empty()) {
             // If not, "break" out of the program with a void return
@@ -255,6 +295,8 @@ public class BytecodeCompiler extends Compiler {
             // Jump to the break target of the block
             this.methodVisitor.visitJumpInsn(Opcodes.GOTO, this.breakTargets.peek());
         }
+
+        return null;
     }
 
     /**
@@ -264,9 +306,11 @@ public class BytecodeCompiler extends Compiler {
      * result in a variable.
      *
      * @param call The call instance.
+     * @param context Unused.
+     * @return {@code null}.
      */
     @Override
-    protected void visitCall(Call call) {
+    public Void visitCall(final Call call, final Void context) {
         // Put object reference for field on stack
         this.methodVisitor.visitVarInsn(Opcodes.ALOAD, this.objectLocation);
 
@@ -280,6 +324,8 @@ public class BytecodeCompiler extends Compiler {
 
         // Store result in variable
         this.visitStoreVariable(call.getTarget());
+
+        return null;
     }
 
     /**
@@ -292,9 +338,11 @@ public class BytecodeCompiler extends Compiler {
      * two bodies, and writes the labels and jumps on the correct places.
      *
      * @param conditional The conditional instance.
+     * @param context Unused.
+     * @return {@code null}.
      */
     @Override
-    protected void visitConditional(Conditional conditional) {
+    public Void visitConditional(final Conditional conditional, final Void context) {
         // Create labels for jumps
         final Label labelFalse = new Label();
         final Label labelEnd = new Label();
@@ -325,6 +373,8 @@ public class BytecodeCompiler extends Compiler {
 
         // Unset break target
 //        this.breakTargets.pop();
+
+        return null;
     }
 
     /**
@@ -353,8 +403,7 @@ public class BytecodeCompiler extends Compiler {
         this.visitOperationSequence(function.getBody());
 
         // End method body
-        this.methodVisitor.visitMaxs(0, 0);
-        this.methodVisitor.visitEnd();
+        this.visitMethodEnd();
     }
 
     /**
@@ -364,9 +413,11 @@ public class BytecodeCompiler extends Compiler {
      * Does not write bytecode for handling invalid input, but instead relies on the exceptions raised by the Scanner.
      *
      * @param input The input instance.
+     * @param context Unused.
+     * @return {@code null}.
      */
     @Override
-    protected void visitInput(Input input) {
+    public Void visitInput(final Input input, final Void context) {
         // Create new scanner
         this.methodVisitor.visitTypeInsn(Opcodes.NEW, "java/util/Scanner");
         this.methodVisitor.visitInsn(Opcodes.DUP);
@@ -405,6 +456,8 @@ public class BytecodeCompiler extends Compiler {
 
         // Store input in variable
         this.visitStoreVariable(input.getTarget());
+
+        return null;
     }
 
     /**
@@ -417,9 +470,11 @@ public class BytecodeCompiler extends Compiler {
      * end of the loop body. Calls the visitor method for the loop body.
      *
      * @param loop The loop instance.
+     * @param context Unused.
+     * @return {@code null}.
      */
     @Override
-    protected void visitLoop(Loop loop) {
+    public Void visitLoop(final Loop loop, final Void context) {
         // Create labels for jumps
         final Label labelCond = new Label();
         final Label labelEnd = new Label();
@@ -450,45 +505,14 @@ public class BytecodeCompiler extends Compiler {
 
         // Unset break target
         this.breakTargets.pop();
-    }
 
-    /**
-     * Handles an operation.
-     *
-     * Calls the appropriate visitor method for each type of operation. Throws an exception in case a specific operation
-     * is not supported.
-     *
-     * @param operation The operation instance.
-     * @throws UnsupportedOperationException The specific operation is not supported.
-     */
-    @Override
-    protected void visitOperation(Operation operation) {
-        // Forward call to specialized visitor
-        if (operation instanceof Application) {
-            this.visitApplication((Application) operation);
-        } else if (operation instanceof Assignment) {
-            this.visitAssignment((Assignment) operation);
-        } else if (operation instanceof Break) {
-            this.visitBreak((Break) operation);
-        } else if (operation instanceof Block) {
-            this.visitBlock((Block) operation);
-        } else if (operation instanceof Call) {
-            this.visitCall((Call) operation);
-        } else if (operation instanceof Input) {
-            this.visitInput((Input) operation);
-        } else if (operation instanceof Output) {
-            this.visitOutput((Output) operation);
-        } else if (operation instanceof Return) {
-            this.visitReturn((Return) operation);
-        } else {
-            this.unsupported(operation);
-        }
+        return null;
     }
 
     /**
      * Handles a sequence of operations.
      *
-     * Calls the operation visitor method for every operation in the sequence.
+     * Lets every operation in the sequence call the visitor method for its type.
      *
      * @param sequence The operation sequence instance.
      */
@@ -496,7 +520,7 @@ public class BytecodeCompiler extends Compiler {
     protected void visitOperationSequence(OperationSequence sequence) {
         // Visit all operations in the sequence.
         for (Operation operation : sequence) {
-            this.visitOperation(operation);
+            operation.accept(this, null);
         }
     }
 
@@ -604,9 +628,11 @@ public class BytecodeCompiler extends Compiler {
      * Writes bytecode for printing a string and the value of a variable.
      *
      * @param output The output instance.
+     * @param context Unused.
+     * @return {@code null}.
      */
     @Override
-    protected void visitOutput(Output output) {
+    public Void visitOutput(final Output output, final Void context) {
         // Put references to System.out on stack
         this.methodVisitor.visitFieldInsn(Opcodes.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
         this.methodVisitor.visitInsn(Opcodes.DUP);
@@ -622,6 +648,8 @@ public class BytecodeCompiler extends Compiler {
 
         // Call println
         this.methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/io/PrintStream", "println", Type.getMethodDescriptor(Type.VOID_TYPE, ASM.getASMType(output.getSource().getType())), false);
+
+        return null;
     }
 
     /**
@@ -672,14 +700,13 @@ public class BytecodeCompiler extends Compiler {
 
         // Set initial values for variables
         for (Variable variable : this.initialVariables) {
-            this.visitValueAssignment(variable.createValueAssignment(variable.getInitialValue()));
+            this.visitValueAssignment(variable.createValueAssignment(variable.getInitialValue()), null);
         }
 
         // Void return
         this.methodVisitor.visitInsn(Opcodes.RETURN);
 
-        this.methodVisitor.visitMaxs(0, 0);
-        this.methodVisitor.visitEnd();
+        this.visitMethodEnd();
     }
 
     /**
@@ -715,8 +742,7 @@ public class BytecodeCompiler extends Compiler {
         this.methodVisitor.visitInsn(Opcodes.RETURN);
 
         // End main method code
-        this.methodVisitor.visitMaxs(0, 0);
-        this.methodVisitor.visitEnd();
+        this.visitMethodEnd();
 
         // Restore object location
         this.objectLocation = oldObjectLocation;
@@ -729,10 +755,12 @@ public class BytecodeCompiler extends Compiler {
      * for a specific type is not supported.
      *
      * @param returm The return instance.
+     * @param context Unused.
+     * @return {@code null}.
      * @throws UnsupportedOperationException The specific return type is not supported.
      */
     @Override
-    protected void visitReturn(Return returm) {
+    public Void visitReturn(final Return returm, final Void context) {
         // Load value onto stack
         this.visitLoadVariable(returm.getSource());
 
@@ -746,6 +774,8 @@ public class BytecodeCompiler extends Compiler {
             default:
                 this.unsupported(returm);
         }
+
+        return null;
     }
 
     /**
@@ -754,9 +784,11 @@ public class BytecodeCompiler extends Compiler {
      * Writes bytecode to put the value on the stack and to write the value to a variable.
      *
      * @param assignment The value assignment instance.
+     * @param context Unused.
+     * @return {@code null}.
      */
     @Override
-    protected void visitValueAssignment(ValueAssignment assignment) {
+    public Void visitValueAssignment(final ValueAssignment assignment, final Void context) {
         // Put value on stack for different types
         switch (assignment.getTarget().getType()) {
             case BOOL:
@@ -774,6 +806,8 @@ public class BytecodeCompiler extends Compiler {
 
         // Store value to variable
         this.visitStoreVariable(assignment.getTarget());
+
+        return null;
     }
 
     /**
@@ -801,14 +835,18 @@ public class BytecodeCompiler extends Compiler {
      * variable.
      *
      * @param assignment The variable assignment instance.
+     * @param context Unused.
+     * @return {@code null}.
      */
     @Override
-    protected void visitVariableAssignment(VariableAssignment assignment) {
+    public Void visitVariableAssignment(final VariableAssignment assignment, final Void context) {
         // Load value of source variable
         this.visitLoadVariable(assignment.getSource());
 
         // Store value to destination variable
         this.visitStoreVariable(assignment.getTarget());
+
+        return null;
     }
 
     /**
@@ -0,0 +1,47 @@
+package otld.otld.jvm;
+
+import org.objectweb.asm.ClassReader;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Class loader for compiled programs.
+ *
+ * Defines the classes produced by the {@code BytecodeCompiler} directly from memory, so a program can be run in the
+ * current JVM without writing a class file or starting a new JVM. Every loader has its own namespace, so programs with
+ * the same name can be loaded by different loaders.
+ */
+public class ProgramClassLoader extends ClassLoader {
+    public ProgramClassLoader() {
+        super(ProgramClassLoader.class.getClassLoader());
+    }
+
+    /**
+     * Defines the class of a compiled program.
+     *
+     * @param bytecode The compiled program.
+     * @return The class of the program.
+     */
+    public Class<?> define(final byte[] bytecode) {
+        final String name = new ClassReader(bytecode).getClassName().replace('/', '.');
+        return this.defineClass(name, bytecode, 0, bytecode.length);
+    }
+
+    /**
+     * Defines the class of a compiled program and invokes its main method.
+     *
+     * @param bytecode The compiled program.
+     * @param args The arguments for the main method.
+     * @throws InvocationTargetException The program threw an exception.
+     */
+    public void run(final byte[] bytecode, final String... args) throws InvocationTargetException {
+        try {
+            final Method main = this.define(bytecode).getMethod("main", String[].class);
+            main.invoke(null, (Object) args);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            // Every compiled program has a public static main method
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package otld.otld.parsing;
+
+import org.antlr.v4.runtime.UnbufferedCharStream;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Unbuffered character stream that reads its input in blocks.
+ *
+ * {@code UnbufferedCharStream} reads a single character at a time, which costs a synchronized call per character for
+ * every reader in the JDK.
+ */
+class BlockCharStream extends UnbufferedCharStream {
+    /** The size of a block. */
+    private static final int BLOCK = 8192;
+
+    // Not initialized in their declaration, since the superclass constructor already reads the first character
+
+    /** The characters that have been read but not yet returned. */
+    private char[] block;
+
+    /** The index of the next character in the block. */
+    private int position;
+
+    /** The number of characters in the block. */
+    private int length;
+
+    /**
+     * @param reader The input.
+     */
+    BlockCharStream(final Reader reader) {
+        super(reader);
+    }
+
+    @Override
+    protected int nextChar() throws IOException {
+        if (this.position == this.length) {
+            if (this.block == null) {
+                this.block = new char[BLOCK];
+            }
+
+            this.position = 0;
+            this.length = Math.max(0, this.input.read(this.block, 0, BLOCK));
+
+            if (this.length == 0) {
+                return -1;
+            }
+        }
+
+        return this.block[this.position++];
+    }
+}
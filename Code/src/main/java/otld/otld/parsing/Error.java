@@ -39,6 +39,29 @@ public class Error {
         this.symbol = symbol;
     }
 
+    /**
+     * Returns the line number of this error.
+     */
+    int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the position of the character in the line of this error.
+     */
+    int getCharpos() {
+        return charpos;
+    }
+
+    /**
+     * Returns a copy of this error at another position, for when the text before it has changed.
+     * @param line
+     * @param charpos
+     */
+    Error moveTo(int line, int charpos) {
+        return new Error(line, charpos, message, symbol);
+    }
+
     /**
      * Returns a formatted error message for this class
      */
@@ -0,0 +1,595 @@
+package otld.otld.parsing;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import otld.otld.grammar.otldParser;
+import otld.otld.intermediate.*;
+
+import java.nio.CharBuffer;
+import java.util.*;
+
+/**
+ * Front end for a program that is edited, such as the file of a watch tool or an editor, that only parses the part of
+ * the program that was edited again.
+ *
+ * A program is split into sections: the declarations before the factories, the header and the body of every factory,
+ * the end of the industry and the company. After an edit inside the body of a factory or inside the company only that
+ * section is lexed and parsed again, into the existing program, so the variables and the other factories are kept. An
+ * edit to the whitespace or comments between sections, or one that does not change the tokens of a declaration, only
+ * moves the positions of the errors after it. Any other edit parses the whole program again, since the rest of the
+ * program depends on the declarations, as does an edit that leads to syntax errors or an edit to a program with syntax
+ * errors.
+ *
+ * The program and the errors are always the same as those of parsing the whole program. The program of a result is
+ * updated by later edits, so only the latest result should be used.
+ */
+public class IncrementalParser {
+    /** The kinds of sections of a program. */
+    private enum Kind {
+        /** Declarations, of which the tokens should not change. */
+        DECLARATIONS,
+        /** The body of a factory. */
+        FACTORY,
+        /** The company. */
+        COMPANY
+    }
+
+    /**
+     * A part of the program that can be parsed on its own.
+     */
+    private static class Section {
+        /** The kind of section. */
+        private final Kind kind;
+
+        /** The factory of which this section is the body, or {@code null}. */
+        private final Function function;
+
+        /** The index of the first character. */
+        private int start;
+
+        /** The index after the last character. */
+        private int end;
+
+        /** The position of the first character. */
+        private long position;
+
+        /** The position after the last character. */
+        private long endPosition;
+
+        /** The errors in this section. */
+        private List<Error> errors;
+
+        /**
+         * @param kind The kind of section.
+         * @param function The factory of which the section is the body, or {@code null}.
+         * @param first The first token.
+         * @param last The last token.
+         */
+        private Section(final Kind kind, final Function function, final Token first, final Token last) {
+            this.kind = kind;
+            this.function = function;
+            this.start = first.getStartIndex();
+            this.end = last.getStopIndex() + 1;
+            this.position = position(first.getLine(), first.getCharPositionInLine());
+            this.endPosition = position(last.getLine(), last.getCharPositionInLine() + last.getText().length());
+            this.errors = new ArrayList<>();
+        }
+
+        /**
+         * @param position A position in the program.
+         * @return Whether the position is in this section.
+         */
+        private boolean contains(final long position) {
+            return this.position <= position && position < this.endPosition;
+        }
+    }
+
+    /** The text of the program. */
+    private char[] chars;
+
+    /** The number of characters of the program. */
+    private int size;
+
+    /** The sections of the program, or {@code null} if the program has syntax errors. */
+    private List<Section> sections;
+
+    /** The result of the latest parse. */
+    private OTLDListener result;
+
+    /** The number of times the whole program was parsed. */
+    private int fullParses;
+
+    /** The number of edits for which only a part of the program was lexed or parsed. */
+    private int partialParses;
+
+    /** The line of the end of the latest edit, before the edit. */
+    private int editLine;
+
+    /** The number of lines the latest edit added. */
+    private int lineDelta;
+
+    /** The number of characters the latest edit added to the line of its end. */
+    private int columnDelta;
+
+    /**
+     * Parses a program.
+     *
+     * @param source The text of the program.
+     */
+    public IncrementalParser(final String source) {
+        this.chars = source.toCharArray();
+        this.size = this.chars.length;
+        this.parseAll();
+    }
+
+    /**
+     * @param line A line number, starting at one.
+     * @param column A position in the line, starting at zero.
+     * @return The position, ordered by line and then by column.
+     */
+    private static long position(final int line, final int column) {
+        return ((long) line << 32) | column;
+    }
+
+    /**
+     * @param position A position.
+     * @return The line of the position.
+     */
+    private static int line(final long position) {
+        return (int) (position >>> 32);
+    }
+
+    /**
+     * @param position A position.
+     * @return The position in the line.
+     */
+    private static int column(final long position) {
+        return (int) position;
+    }
+
+    /**
+     * @param position A position.
+     * @param text The text that follows the position.
+     * @param from The index of the first character of the text.
+     * @param to The index after the last character of the text.
+     * @return The position after the text.
+     */
+    private static long advance(final long position, final CharSequence text, final int from, final int to) {
+        int line = line(position);
+        int column = column(position);
+
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == '\n') {
+                line++;
+                column = 0;
+            } else {
+                column++;
+            }
+        }
+
+        return position(line, column);
+    }
+
+    /**
+     * Replaces a part of the program and parses what is needed.
+     *
+     * @param offset The index of the first character to replace.
+     * @param length The number of characters to replace.
+     * @param text The text to replace them with.
+     * @return The OTLDListener with the program, or with the errors in it.
+     */
+    public OTLDListener edit(final int offset, final int length, final String text) {
+        if (offset < 0 || length < 0 || offset + length > this.size) {
+            throw new IndexOutOfBoundsException(String.format("Edit of %d characters at %d in a program of %d",
+                    length, offset, this.size));
+        }
+
+        final String removed = new String(this.chars, offset, length);
+        this.replace(offset, length, text);
+
+        if (this.sections != null && this.parsePart(offset, removed, text)) {
+            this.partialParses++;
+            this.result = this.combine();
+        } else {
+            this.parseAll();
+        }
+
+        return this.result;
+    }
+
+    /**
+     * Replaces the program with a new version, as a single edit of the text between the common start and end.
+     *
+     * @param source The new text of the program.
+     * @return The OTLDListener with the program, or with the errors in it.
+     */
+    public OTLDListener update(final String source) {
+        final int max = Math.min(this.size, source.length());
+        int prefix = 0;
+        while (prefix < max && this.chars[prefix] == source.charAt(prefix)) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        while (suffix < max - prefix
+                && this.chars[this.size - suffix - 1] == source.charAt(source.length() - suffix - 1)) {
+            suffix++;
+        }
+
+        return this.edit(prefix, this.size - prefix - suffix, source.substring(prefix, source.length() - suffix));
+    }
+
+    /**
+     * @return The OTLDListener with the program, or with the errors in it.
+     */
+    public OTLDListener getResult() {
+        return this.result;
+    }
+
+    /**
+     * @return The text of the program.
+     */
+    public String getSource() {
+        return new String(this.chars, 0, this.size);
+    }
+
+    /**
+     * @return The number of times the whole program was parsed.
+     */
+    public int getFullParses() {
+        return this.fullParses;
+    }
+
+    /**
+     * @return The number of edits for which only a part of the program was lexed or parsed.
+     */
+    public int getPartialParses() {
+        return this.partialParses;
+    }
+
+    /**
+     * Replaces a part of the text.
+     */
+    private void replace(final int offset, final int length, final String text) {
+        final int size = this.size - length + text.length();
+        if (size > this.chars.length) {
+            this.chars = Arrays.copyOf(this.chars, Math.max(size, this.chars.length * 2));
+        }
+
+        System.arraycopy(this.chars, offset + length, this.chars, offset + text.length(), this.size - offset - length);
+        text.getChars(0, text.length(), this.chars, offset);
+        this.size = size;
+    }
+
+    /**
+     * @param start The index of the first character.
+     * @param end The index after the last character.
+     * @param position The position of the first character.
+     * @param errors The listener for the lexer errors.
+     * @return A lexer for a part of the text.
+     */
+    private OTLDScanner scan(final int start, final int end, final long position, final OTLDErrorListener errors) {
+        final OTLDScanner scanner = new OTLDScanner(null);
+        scanner.setInputStream(this.chars, end);
+        scanner.seek(start, line(position), column(position));
+        scanner.addErrorListener(errors);
+        return scanner;
+    }
+
+    /**
+     * Parses the whole program and splits it into sections.
+     */
+    private void parseAll() {
+        this.fullParses++;
+
+        final OTLDErrorListener errorListener = new OTLDErrorListener();
+        final CommonTokenStream tokens = new CommonTokenStream(this.scan(0, this.size, position(1, 0), errorListener));
+        tokens.fill();
+
+        this.result = OTLDListener.parse(new otldParser(tokens), errorListener);
+        this.sections = errorListener.getErrors().isEmpty() ? this.split(tokens.getTokens()) : null;
+    }
+
+    /**
+     * Splits a program without syntax errors into sections and assigns the errors to them.
+     *
+     * @param tokens The tokens of the program.
+     * @return The sections, or {@code null} if an error is not in any section.
+     */
+    private List<Section> split(final List<Token> tokens) {
+        final List<Section> sections = new ArrayList<>();
+        final Set<String> factories = new HashSet<>();
+        final Program program = this.result.getProgram();
+        int first = 0;
+        int i = 0;
+
+        // The city, depot, track and the start of the industry
+        while (!isToken(tokens, i, "Factory") && !isToken(tokens, i, "End", "industry")
+                && !isToken(tokens, i, "Begin", "company")) {
+            i++;
+        }
+
+        while (isToken(tokens, i, "Factory")) {
+            final String name = tokens.get(i + 1).getText();
+            final int body = find(tokens, i, "Begin", "production");
+            sections.add(new Section(Kind.DECLARATIONS, null, tokens.get(first), tokens.get(body - 1)));
+
+            // Only the first factory with a name is declared
+            final int end = find(tokens, body, "End", "production") + 2;
+            final Function function = factories.add(name) ? program.getFunction(name) : null;
+            sections.add(new Section(Kind.FACTORY, function, tokens.get(body), tokens.get(end)));
+            first = end + 1;
+            i = first;
+        }
+
+        if (isToken(tokens, i, "End", "industry")) {
+            i += 3;
+        }
+        if (i > first) {
+            sections.add(new Section(Kind.DECLARATIONS, null, tokens.get(first), tokens.get(i - 1)));
+        }
+        sections.add(new Section(Kind.COMPANY, null, tokens.get(i), tokens.get(tokens.size() - 2)));
+
+        for (Error error : this.result.getErrors()) {
+            final long position = position(error.getLine(), error.getCharpos());
+            Section section = null;
+
+            for (Section candidate : sections) {
+                if (candidate.contains(position)) {
+                    section = candidate;
+                    break;
+                }
+            }
+
+            if (section == null) {
+                return null;
+            }
+            section.errors.add(error);
+        }
+
+        return sections;
+    }
+
+    /**
+     * @return Whether the token at an index, and the tokens after it, have the given texts.
+     */
+    private static boolean isToken(final List<Token> tokens, final int index, final String... texts) {
+        for (int i = 0; i < texts.length; i++) {
+            if (index + i >= tokens.size() || !tokens.get(index + i).getText().equals(texts[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The index of the first token from an index on that, with the tokens after it, has the given texts.
+     */
+    private static int find(final List<Token> tokens, final int from, final String... texts) {
+        int index = from;
+        while (!isToken(tokens, index, texts)) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Lexes or parses the part of the program that contains an edit.
+     *
+     * @param offset The index of the edit.
+     * @param removed The text the edit removed.
+     * @param text The text the edit inserted.
+     * @return Whether the edit was handled, or the whole program has to be parsed.
+     */
+    private boolean parsePart(final int offset, final String removed, final String text) {
+        // The first section that ends after the edit. An edit at the start of a section may change the token before it,
+        // so that is handled as an edit of the whitespace before the section.
+        int index = 0;
+        while (index < this.sections.size() && this.sections.get(index).end < offset + removed.length()) {
+            index++;
+        }
+
+        final Section section;
+        final int start;
+        final long position;
+        if (index < this.sections.size() && this.sections.get(index).start < offset) {
+            section = this.sections.get(index);
+            start = section.start;
+            position = section.position;
+        } else {
+            section = null;
+            start = index == 0 ? 0 : this.sections.get(index - 1).end;
+            position = index == 0 ? position(1, 0) : this.sections.get(index - 1).endPosition;
+
+            if (offset < start
+                    || index < this.sections.size() && offset + removed.length() > this.sections.get(index).start) {
+                return false;
+            }
+        }
+
+        final long editStart = advance(position, CharBuffer.wrap(this.chars), start, offset);
+        final long oldEnd = advance(editStart, removed, 0, removed.length());
+        final long newEnd = advance(editStart, text, 0, text.length());
+        this.editLine = line(oldEnd);
+        this.lineDelta = line(newEnd) - line(oldEnd);
+        this.columnDelta = column(newEnd) - column(oldEnd);
+        final int delta = text.length() - removed.length();
+
+        final boolean handled;
+        if (section == null) {
+            final int end = index < this.sections.size() ? this.sections.get(index).start + delta : this.size;
+            handled = this.isBlank(start, end, position);
+        } else if (section.kind == Kind.DECLARATIONS) {
+            handled = section.errors.isEmpty() && this.isSameTokens(section, offset, removed, text);
+        } else if (section.kind == Kind.FACTORY && section.function == null) {
+            handled = false;
+        } else {
+            handled = this.parseSection(index, section.end + delta);
+        }
+
+        if (handled) {
+            if (section != null) {
+                section.end += delta;
+                section.endPosition = this.move(section.endPosition);
+            }
+            for (int i = section == null ? index : index + 1; i < this.sections.size(); i++) {
+                this.move(this.sections.get(i), delta);
+            }
+        }
+
+        return handled;
+    }
+
+    /**
+     * @return Whether a part of the text has no tokens and no lexer errors.
+     */
+    private boolean isBlank(final int start, final int end, final long position) {
+        final OTLDErrorListener errors = new OTLDErrorListener();
+        final OTLDScanner scanner = this.scan(start, end, position, errors);
+        return scanner.nextToken().getType() == Token.EOF && errors.getErrors().isEmpty();
+    }
+
+    /**
+     * @return Whether a section of declarations has the same tokens, and no lexer errors, after an edit.
+     */
+    private boolean isSameTokens(final Section section, final int offset, final String removed, final String text) {
+        final int end = section.end + text.length() - removed.length();
+        final OTLDErrorListener errors = new OTLDErrorListener();
+        final OTLDScanner scanner = this.scan(section.start, end, section.position, errors);
+
+        final String before = new String(this.chars, section.start, offset - section.start) + removed
+                + new String(this.chars, offset + text.length(), end - offset - text.length());
+        final OTLDScanner previous = new OTLDScanner(null);
+        previous.setInputStream(before.toCharArray(), before.length());
+        previous.addErrorListener(errors);
+
+        Token token;
+        do {
+            token = scanner.nextToken();
+            final Token expected = previous.nextToken();
+            if (token.getType() != expected.getType() || !token.getText().equals(expected.getText())) {
+                return false;
+            }
+        } while (token.getType() != Token.EOF);
+
+        return errors.getErrors().isEmpty();
+    }
+
+    /**
+     * Parses the body of a factory or the company again, into the existing program.
+     *
+     * @param index The index of the section.
+     * @param end The index after the last character of the section, after the edit.
+     * @return Whether the section has no syntax errors and does not use a factory that is declared after it.
+     */
+    private boolean parseSection(final int index, final int end) {
+        final Section section = this.sections.get(index);
+        final OTLDErrorListener errorListener = new OTLDErrorListener();
+        final otldParser parser = new otldParser(new CommonTokenStream(this.scan(section.start, end, section.position,
+                errorListener)));
+        final OperationSequence body = section.function != null ? section.function.getBody()
+                : this.result.getProgram().getBody();
+        final OTLDListener listener = new OTLDListener(this.result.getProgram(), this.result.waypoints,
+                section.function);
+
+        body.clear();
+        parser.setBuildParseTree(false);
+        parser.removeErrorListeners();
+        parser.addParseListener(new StreamingWalker(listener, errorListener));
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+
+        try {
+            if (section.kind == Kind.FACTORY) {
+                parser.deffactory();
+            } else {
+                parser.company();
+            }
+        } catch (ParseCancellationException e) {
+            return false;
+        }
+
+        if (parser.getCurrentToken().getType() != Token.EOF || !errorListener.getErrors().isEmpty()) {
+            return false;
+        }
+
+        // The whole program does not know the factories after this one yet
+        final Set<Function> later = new HashSet<>();
+        for (int i = index + 1; i < this.sections.size(); i++) {
+            if (this.sections.get(i).function != null) {
+                later.add(this.sections.get(i).function);
+            }
+        }
+        if (calls(body, later)) {
+            return false;
+        }
+
+        section.errors = listener.getErrors();
+        return true;
+    }
+
+    /**
+     * @return Whether a sequence of operations calls one of the functions.
+     */
+    private static boolean calls(final OperationSequence sequence, final Set<Function> functions) {
+        for (Operation operation : sequence) {
+            if (operation instanceof Call && functions.contains(((Call) operation).getFunction())) {
+                return true;
+            } else if (operation instanceof Loop
+                    && (calls(((Loop) operation).getConditionBody(), functions)
+                    || calls(((Loop) operation).getBody(), functions))) {
+                return true;
+            } else if (operation instanceof Conditional
+                    && (calls(((Conditional) operation).getBodyTrue(), functions)
+                    || calls(((Conditional) operation).getBodyFalse(), functions))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param position A position after the end of the latest edit, before the edit.
+     * @return The position after the edit.
+     */
+    private long move(final long position) {
+        final int line = line(position);
+        return position(line + this.lineDelta, line == this.editLine ? column(position) + this.columnDelta
+                : column(position));
+    }
+
+    /**
+     * Moves a section after the latest edit.
+     *
+     * @param section The section.
+     * @param delta The number of characters the edit added.
+     */
+    private void move(final Section section, final int delta) {
+        section.start += delta;
+        section.end += delta;
+        section.position = this.move(section.position);
+        section.endPosition = this.move(section.endPosition);
+
+        if (this.lineDelta != 0 || this.columnDelta != 0) {
+            for (ListIterator<Error> errors = section.errors.listIterator(); errors.hasNext(); ) {
+                final Error error = errors.next();
+                final long position = this.move(position(error.getLine(), error.getCharpos()));
+                errors.set(error.moveTo(line(position), column(position)));
+            }
+        }
+    }
+
+    /**
+     * @return A result with the program and the errors of all sections.
+     */
+    private OTLDListener combine() {
+        final OTLDListener result = new OTLDListener(this.result.getProgram(), this.result.waypoints, null);
+        for (Section section : this.sections) {
+            result.errors.addAll(section.errors);
+        }
+        return result;
+    }
+}
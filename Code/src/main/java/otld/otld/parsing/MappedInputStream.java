@@ -0,0 +1,91 @@
+package otld.otld.parsing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input stream over a memory-mapped file.
+ *
+ * The file is mapped one window at a time, so files of any size can be read without copying them onto the heap. A
+ * window is released as soon as the stream has moved past it.
+ */
+class MappedInputStream extends InputStream {
+    /** The size of a window. */
+    static final long WINDOW = 64L * 1024 * 1024;
+
+    /** The mapped file. */
+    private final FileChannel channel;
+
+    /** The size of the file. */
+    private final long size;
+
+    /** The position in the file where the next window starts. */
+    private long position;
+
+    /** The current window. */
+    private MappedByteBuffer buffer;
+
+    /**
+     * @param channel The file to read, which is closed with the stream.
+     * @throws IOException The size of the file could not be read.
+     */
+    MappedInputStream(final FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    /**
+     * Maps the next window if the current window has been read.
+     *
+     * @return Whether there are bytes left to read.
+     * @throws IOException The window could not be mapped.
+     */
+    private boolean fill() throws IOException {
+        if (this.buffer != null && this.buffer.hasRemaining()) {
+            return true;
+        }
+
+        if (this.position >= this.size) {
+            return false;
+        }
+
+        final long length = Math.min(WINDOW, this.size - this.position);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, length);
+        this.position += length;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return this.fill() ? this.buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        if (!this.fill()) {
+            return -1;
+        }
+
+        final int read = Math.min(length, this.buffer.remaining());
+        this.buffer.get(bytes, offset, read);
+        return read;
+    }
+
+    @Override
+    public int available() {
+        final long available = (this.buffer == null ? 0 : this.buffer.remaining()) + this.size - this.position;
+        return (int) Math.min(Integer.MAX_VALUE, available);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.buffer = null;
+        this.channel.close();
+    }
+}
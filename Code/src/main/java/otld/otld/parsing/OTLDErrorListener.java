@@ -30,6 +30,11 @@ public class OTLDErrorListener extends BaseErrorListener {
         );
     }
 
+    /** Removes the errors, so the listener can be used for another parse. */
+    public void clear() {
+        this.errors.clear();
+    }
+
     /** Returns the list of syntax errors that were encountered during parsing. */
     public List<Error> getErrors() {
         return this.errors;
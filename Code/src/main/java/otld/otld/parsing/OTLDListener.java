@@ -1,15 +1,15 @@
 package otld.otld.parsing;
 
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.Lexer;
-import org.antlr.v4.runtime.TokenStream;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.ParseTreeProperty;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.UnbufferedTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.TerminalNode;
+import otld.otld.CompileTimings;
 import otld.otld.grammar.otldBaseListener;
-import otld.otld.grammar.otldLexer;
 import otld.otld.grammar.otldParser;
 import otld.otld.intermediate.*;
 import otld.otld.intermediate.exceptions.FunctionAlreadyDeclared;
@@ -18,17 +18,30 @@ import otld.otld.intermediate.exceptions.VariableAlreadyDeclared;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
-/** Base visitor for the OTLD intermediate representation. */
+/**
+ * Base visitor for the OTLD intermediate representation.
+ *
+ * The listener builds the intermediate representation while the parser runs (see {@code StreamingWalker}), so no parse
+ * tree is built. An enter event only uses the tokens of its own rule that come before its first child rule, and no
+ * event looks at child rules, so the listener can also walk a complete parse tree.
+ */
 public class OTLDListener extends otldBaseListener {
+    /** The character set of source files, on every platform and whether a file is parsed or streamed. */
+    public static final Charset CHARSET = StandardCharsets.UTF_8;
 
     /** The program that is being parsed by this visitor. */
     private Program city;
-    /** All of the functions encountered during parsing. */
-    ParseTreeProperty<Function> functions;
-    /** All of the conditionals encountered during parsing. */
-    ParseTreeProperty<Conditional> conditionals;
+    /** The conditionals that are being parsed, the innermost on top. */
+    Stack<Conditional> conditionals;
     /** The stack of operation sequences generated by parsing. */
     Stack<OperationSequence> stack;
     /** A sorted list of errors encountered during parsing. */
@@ -39,8 +52,7 @@ public class OTLDListener extends otldBaseListener {
     Function lastFunction;
 
     public OTLDListener() {
-        this.functions = new ParseTreeProperty<>();
-        this.conditionals = new ParseTreeProperty<>();
+        this.conditionals = new Stack<>();
         this.stack = new Stack<>();
         this.errors = new ArrayList<>();
         this.waypoints = new HashMap<>();
@@ -48,35 +60,129 @@ public class OTLDListener extends otldBaseListener {
     }
 
     /**
-     * Parses the supplied input using the OTLDListener and returns it after walking it
+     * Creates a listener that adds to an existing program, for parsing a part of it again (see
+     * {@code IncrementalParser})
+     * @param city the program to add to
+     * @param waypoints the operation sequences of the waypoints of the program
+     * @param function the factory of which the body is parsed, or {@code null}
+     */
+    OTLDListener(Program city, Map<Variable, OperationSequence> waypoints, Function function) {
+        this();
+        this.city = city;
+        this.waypoints = waypoints;
+        this.lastFunction = function;
+    }
+
+    /**
+     * Parses the supplied input using the OTLDListener and returns it
      * @param reader input to parse
-     * @return walked OTLDListener
+     * @return the OTLDListener with the program, or with the errors in it
      * @throws IOException
      */
     public static OTLDListener parseFile(InputStream reader) throws IOException {
+        return parseFile(reader, new CompileTimings());
+    }
+
+    /**
+     * Parses the supplied input using the OTLDListener and returns it, reusing the lexer and parser of the current
+     * thread (see {@code ParserSession})
+     * @param reader input to parse
+     * @param timings the timings to record the lex and parse phases in
+     * @return the OTLDListener with the program, or with the errors in it
+     * @throws IOException
+     */
+    public static OTLDListener parseFile(InputStream reader, CompileTimings timings) throws IOException {
+        return ParserSession.get().parse(reader, timings);
+    }
+
+    /**
+     * Parses a file without keeping the file or its tokens in memory, and returns the OTLDListener that built the
+     * program while parsing.
+     *
+     * The file is memory-mapped and read through unbuffered character and token streams. This keeps the memory used
+     * for parsing bounded by the nesting depth of the program instead of its size, which is meant for very large
+     * generated programs. Parsing is done in a single pass with full LL prediction, so lexing is recorded as parsing.
+     * @param path file to parse
+     * @param timings the timings to record the parse phase in
+     * @return the OTLDListener with the program, or with the errors in it
+     * @throws IOException
+     */
+    public static OTLDListener parseStream(Path path, CompileTimings timings) throws IOException {
         OTLDErrorListener errorListener = new OTLDErrorListener();
-        ANTLRInputStream stream = new ANTLRInputStream(reader);
+        OTLDListener railroad = new OTLDListener();
 
-        Lexer lexer = new otldLexer(stream);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(errorListener);
-        TokenStream tokens = new CommonTokenStream(lexer);
+        timings.begin(CompileTimings.Phase.PARSE);
+        try (Reader reader = new InputStreamReader(new MappedInputStream(FileChannel.open(path, StandardOpenOption.READ)), CHARSET)) {
+            OTLDScanner lexer = new OTLDScanner(new BlockCharStream(reader));
+            // The characters are released after every token, so tokens need their own copy of the text
+            lexer.setTokenFactory(new CommonTokenFactory(true));
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(errorListener);
+
+            otldParser parser = new otldParser(new UnbufferedTokenStream<Token>(lexer));
+            parser.removeErrorListeners();
+            parser.addErrorListener(errorListener);
+            parser.setBuildParseTree(false);
+            parser.addParseListener(new StreamingWalker(railroad, errorListener));
+            parser.program();
+        } finally {
+            timings.end();
+        }
 
-        otldParser parser = new otldParser(tokens);
-        parser.removeErrorListeners();
-        parser.addErrorListener(errorListener);
-        ParseTree tree = parser.program();
+        return railroad.withSyntaxErrors(errorListener);
+    }
 
+    /**
+     * Parses the tokens in two stages and builds the intermediate representation while parsing.
+     *
+     * The tokens are first parsed with the faster SLL prediction, which gives up at the first syntax error or at input
+     * that SLL cannot predict. Only then the tokens are parsed again with full LL prediction and error recovery, so
+     * the program and the reported errors are the same as with a single LL parse.
+     *
+     * @param parser the parser, with the tokens to parse as input
+     * @param errorListener the listener for the syntax errors
+     * @return the OTLDListener with the program, or with the syntax errors if there are any
+     */
+    static OTLDListener parse(otldParser parser, OTLDErrorListener errorListener) {
         OTLDListener railroad = new OTLDListener();
+        parser.setBuildParseTree(false);
+        parser.removeErrorListeners();
+        parser.removeParseListeners();
+        parser.addParseListener(new StreamingWalker(railroad, errorListener));
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
 
-        if (errorListener.getErrors().isEmpty()) {
-            ParseTreeWalker walker = new ParseTreeWalker();
-            walker.walk(railroad, tree);
-        } else {
-            railroad.errors.addAll(errorListener.getErrors());
+        try {
+            parser.program();
+        } catch (ParseCancellationException e) {
+            // Rewinds the tokens as well
+            parser.reset();
+            railroad = new OTLDListener();
+            parser.removeParseListeners();
+            parser.addParseListener(new StreamingWalker(railroad, errorListener));
+            parser.addErrorListener(errorListener);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.program();
+        } finally {
+            parser.removeParseListeners();
         }
 
-        return railroad;
+        return railroad.withSyntaxErrors(errorListener);
+    }
+
+    /**
+     * Replaces the errors with the syntax errors, if there are any. The program may be incomplete after a syntax error,
+     * so no other errors are reported then.
+     * @param errorListener the listener for the syntax errors
+     * @return this OTLDListener
+     */
+    OTLDListener withSyntaxErrors(OTLDErrorListener errorListener) {
+        if (!errorListener.getErrors().isEmpty()) {
+            errors.clear();
+            errors.addAll(errorListener.getErrors());
+        }
+        return this;
     }
 
     /** Returns all of the errors encountered during parsing. */
@@ -225,7 +331,6 @@ public class OTLDListener extends otldBaseListener {
             Type[] typeArr = new Type[types.size()];
             Function function = new Function(ctx.ID().getText(), types.toArray(typeArr));
             city.addFunction(function);
-            functions.put(ctx.deffactory(), function);
             //Set the lastFunction to this so code that is part of the factory body can access it's platforms
             lastFunction = function;
         } catch (FunctionAlreadyDeclared functionAlreadyDeclared) {
@@ -237,9 +342,8 @@ public class OTLDListener extends otldBaseListener {
 
     @Override
     public void enterDeffactory(otldParser.DeffactoryContext ctx) {
-        Function function = functions.get(ctx);
-        if (function != null) {
-            stack.push(function.getBody());
+        if (lastFunction != null) {
+            stack.push(lastFunction.getBody());
         } else {
             stack.push(new OperationSequence());
         }
@@ -248,9 +352,10 @@ public class OTLDListener extends otldBaseListener {
     @Override
     public void exitDeffactory(otldParser.DeffactoryContext ctx) {
         Return ret;
-        if (getVariable(ctx.ID().getText()) != null) {
-            ret = new Return(getVariable(ctx.ID().getText()));
-            if (functions.get(ctx).getType().equals(ret.getSource().getType())) {
+        Variable variable = getVariable(ctx.ID().getText());
+        if (variable != null) {
+            ret = new Return(variable);
+            if (lastFunction == null || lastFunction.getType().equals(ret.getSource().getType())) {
                 stack.peek().add(ret);
             } else {
                 errors.add(new Error(ctx.ID().getSymbol().getLine(),
@@ -343,15 +448,24 @@ public class OTLDListener extends otldBaseListener {
         if (variable != null) {
             Conditional cond = new Conditional(variable);
             stack.peek().add(cond);
-            for (otldParser.IfcondcaseContext c : ctx.ifcondcase()) {
-                conditionals.put(c, cond);
-            }
+            conditionals.push(cond);
+        } else {
+            errors.add(new Error(ctx.ID().getSymbol().getLine(),
+                    ctx.ID().getSymbol().getCharPositionInLine(),
+                    ErrorMsg.VARNOTDEFINED.getMessage()));
+            //The cases are still parsed, but not added to the program
+            conditionals.push(new Conditional(variable));
         }
     }
 
+    @Override
+    public void exitIfcond(otldParser.IfcondContext ctx) {
+        conditionals.pop();
+    }
+
     @Override
     public void enterIfcondcase(otldParser.IfcondcaseContext ctx) {
-        Conditional conditional = conditionals.get(ctx);
+        Conditional conditional = conditionals.peek();
         switch (ctx.BOOLEAN().getText()) {
             case "red":
                 stack.push(conditional.getBodyFalse());
@@ -441,22 +555,26 @@ public class OTLDListener extends otldBaseListener {
     public void enterTransport(otldParser.TransportContext ctx) {
         ArrayList<Variable> vars = new ArrayList<>();
 
+        //Second to last variable is the name of the called function
+        List<TerminalNode> ids = ctx.ID();
+        TerminalNode functionNode = ids.get(ids.size() - 2);
+
         //Check if all of the provided arguments exist
-        for (TerminalNode node : ctx.ID()) {
+        for (TerminalNode node : ids) {
 
-            if (!node.equals(ctx.ID().get(ctx.ID().size() - 2))) {
-                if (getVariable(node.getText()) != null) {
-                    vars.add(getVariable(node.getText()));
+            if (node != functionNode) {
+                Variable variable = getVariable(node.getText());
+                if (variable != null) {
+                    vars.add(variable);
                 } else {
-                    errors.add(new Error(ctx.ID().get(ctx.ID().indexOf(node)).getSymbol().getLine(),
-                            ctx.ID().get(ctx.ID().indexOf(node)).getSymbol().getCharPositionInLine(),
+                    errors.add(new Error(node.getSymbol().getLine(),
+                            node.getSymbol().getCharPositionInLine(),
                             ErrorMsg.VARNOTDEFINED.getMessage()));
                 }
             }
         }
 
-        //Second to last variable is the name of the called function
-        String functionID = ctx.ID().get(ctx.ID().size() - 2).getText();
+        String functionID = functionNode.getText();
         Application appl;
         Variable[] varArr = new Variable[vars.size()];
 
@@ -0,0 +1,656 @@
+package otld.otld.parsing;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+import otld.otld.grammar.otldLexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hand-written lexer that produces the same tokens as {@code otldLexer}.
+ *
+ * Instead of simulating the lexer ATN, every token is matched by looking ahead in the input following the lexer rules
+ * of the grammar. As in the generated lexer the longest match wins, and of matches of the same length the keyword wins
+ * over an identifier. The input is only consumed once a token has been matched, and no objects are created apart from
+ * the tokens themselves. Words are looked up in a perfect hash table of the keywords, which are taken from the
+ * vocabulary of the generated lexer.
+ *
+ * Input that does not match any token is reported to the error listeners and skipped in the same way as by the
+ * generated lexer.
+ */
+public class OTLDScanner implements TokenSource {
+    /** Token type of a match that is not passed to the parser, such as whitespace and comments. */
+    private static final int SKIP = -3;
+
+    /** The size of the keyword table, a power of two. */
+    private static final int TABLE_SIZE = 256;
+
+    /** The keywords indexed by {@code hash}. */
+    private static final Keyword[] KEYWORDS = new Keyword[TABLE_SIZE];
+
+    /** The multiplier of {@code hash} for which no keywords collide. */
+    private static final int MULTIPLIER;
+
+    /** The length of the longest keyword. */
+    private static final int MAX_KEYWORD;
+
+    /** The token types of the tokens of a single character indexed by character, zero for other characters. */
+    private static final int[] PUNCTUATION = new int[128];
+
+    /** The keywords that start with a space, such as {@code ' Stop'}. */
+    private static final List<Keyword> SPACED = new ArrayList<>();
+
+    /** Whether a character is the second character of a keyword that starts with a space, indexed by character. */
+    private static final boolean[] AFTER_SPACE = new boolean[128];
+
+    /**
+     * A keyword, or the first word of a keyword that consists of several words.
+     */
+    private static class Keyword {
+        /** The word. */
+        private final String word;
+
+        /** The token type of the word on its own, which is {@code ID} if the word is only the start of a keyword. */
+        private int type;
+
+        /** The rest of the keyword that starts with this word, including the leading space. Can be {@code null}. */
+        private String rest;
+
+        /** The token type of the keyword that starts with this word. */
+        private int restType;
+
+        /**
+         * @param word The word.
+         */
+        private Keyword(final String word) {
+            this.word = word;
+            this.type = otldLexer.ID;
+        }
+    }
+
+    static {
+        final List<Keyword> words = new ArrayList<>();
+
+        // COMMENT is the last token type of the grammar
+        for (int type = 1; type <= otldLexer.COMMENT; type++) {
+            final String literal = otldLexer.VOCABULARY.getLiteralName(type);
+
+            if (literal == null) {
+                continue;
+            }
+
+            final String text = literal.substring(1, literal.length() - 1);
+            final int space = text.indexOf(' ');
+
+            if (text.length() == 1 && !isLetter(text.charAt(0))) {
+                PUNCTUATION[text.charAt(0)] = type;
+            } else if (space == 0) {
+                final Keyword keyword = new Keyword(text);
+                keyword.type = type;
+                SPACED.add(keyword);
+                AFTER_SPACE[text.charAt(1)] = true;
+            } else if (space > 0) {
+                final Keyword keyword = word(words, text.substring(0, space));
+                if (keyword.rest != null) {
+                    throw new IllegalStateException("Several keywords start with " + keyword.word);
+                }
+                keyword.rest = text.substring(space);
+                keyword.restType = type;
+            } else {
+                word(words, text).type = type;
+            }
+        }
+
+        // The values of the BOOLEAN and CARGO rules have the same precedence over identifiers as keywords
+        word(words, "red").type = otldLexer.BOOLEAN;
+        word(words, "green").type = otldLexer.BOOLEAN;
+        word(words, "int").type = otldLexer.CARGO;
+        word(words, "boolean").type = otldLexer.CARGO;
+        word(words, "char").type = otldLexer.CARGO;
+
+        int multiplier = 1;
+        while (!fill(words, multiplier)) {
+            if (++multiplier > TABLE_SIZE * TABLE_SIZE) {
+                throw new IllegalStateException("No perfect hash for the keywords");
+            }
+        }
+        MULTIPLIER = multiplier;
+
+        int max = 0;
+        for (Keyword keyword : words) {
+            max = Math.max(max, keyword.word.length());
+        }
+        MAX_KEYWORD = max;
+    }
+
+    /** The input. */
+    private CharStream input;
+
+    /** The characters of the input, or {@code null} if the input is read through the character stream. */
+    private char[] data;
+
+    /** The number of characters in {@code data}. */
+    private int size;
+
+    /** The position in {@code data}. */
+    private int position;
+
+    /** The source of the tokens, passed to the token factory. */
+    private Pair<TokenSource, CharStream> source;
+
+    /** The factory for tokens. */
+    private TokenFactory<?> factory;
+
+    /** The listeners for syntax errors. */
+    private final List<ANTLRErrorListener> listeners;
+
+    /** The current line, starting at 1. */
+    private int line;
+
+    /** The current position in the line, starting at 0. */
+    private int column;
+
+    /** The token type of the last match. */
+    private int matchType;
+
+    /** The number of characters of the last match. */
+    private int matchLength;
+
+    /**
+     * @param input The input, can be {@code null} if it is set later.
+     */
+    public OTLDScanner(final CharStream input) {
+        this.factory = CommonTokenFactory.DEFAULT;
+        this.listeners = new ArrayList<>();
+        this.setInputStream(input);
+    }
+
+    /**
+     * Starts reading from another input.
+     *
+     * @param input The input, can be {@code null} to release the previous input.
+     */
+    public void setInputStream(final CharStream input) {
+        this.input = input;
+        this.source = new Pair<TokenSource, CharStream>(this, input);
+        this.data = null;
+        this.line = 1;
+        this.column = 0;
+    }
+
+    /**
+     * Starts reading from an array of characters, which is faster than reading through a character stream. The array
+     * is not copied. The character stream of the tokens is only used for their text and stays at the start.
+     *
+     * @param data The characters.
+     * @param size The number of characters in the array.
+     */
+    public void setInputStream(final char[] data, final int size) {
+        this.setInputStream(new ANTLRInputStream(data, size));
+        this.data = data;
+        this.size = size;
+        this.position = 0;
+    }
+
+    /**
+     * Continues reading from another position in the array of characters.
+     *
+     * @param index The index of the next character.
+     * @param line The line of that character.
+     * @param column The position of that character in its line.
+     * @throws IllegalStateException The input is not an array of characters.
+     */
+    public void seek(final int index, final int line, final int column) {
+        if (this.data == null) {
+            throw new IllegalStateException("Only an array of characters can be read from another position");
+        }
+
+        this.position = index;
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * @param listener The listener to report syntax errors to.
+     */
+    public void addErrorListener(final ANTLRErrorListener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeErrorListeners() {
+        this.listeners.clear();
+    }
+
+    @Override
+    public Token nextToken() {
+        final int mark = this.data == null ? this.input.mark() : 0;
+
+        try {
+            while (true) {
+                this.skipWhitespace();
+
+                final int start = this.index();
+                final int line = this.line;
+                final int column = this.column;
+
+                if (this.la(1) == IntStream.EOF) {
+                    return this.factory.create(this.source, Token.EOF, null, Token.DEFAULT_CHANNEL, start, start - 1,
+                            line, column);
+                }
+
+                this.match();
+
+                if (this.matchType == Token.INVALID_TYPE) {
+                    this.report(start, line, column);
+                    this.consume(this.matchLength);
+                } else {
+                    this.consume(this.matchLength);
+
+                    if (this.matchType != SKIP) {
+                        return this.factory.create(this.source, this.matchType, null, Token.DEFAULT_CHANNEL, start,
+                                start + this.matchLength - 1, line, column);
+                    }
+                }
+            }
+        } finally {
+            if (this.data == null) {
+                this.input.release(mark);
+            }
+        }
+    }
+
+    /**
+     * Skips whitespace, up to a space that may start a keyword.
+     */
+    private void skipWhitespace() {
+        int length = 0;
+
+        while (true) {
+            final int c = this.la(length + 1);
+
+            if (c == '\t' || c == '\n' || c == '\r') {
+                length++;
+            } else if (c == ' ') {
+                final int next = this.la(length + 2);
+                if (next >= 0 && next < AFTER_SPACE.length && AFTER_SPACE[next]) {
+                    break;
+                }
+                length++;
+            } else {
+                break;
+            }
+        }
+
+        this.consume(length);
+    }
+
+    /**
+     * Matches the next token, setting {@code matchType} and {@code matchLength}.
+     */
+    private void match() {
+        final int c = this.la(1);
+
+        if (isLetter(c)) {
+            this.matchWord();
+        } else if (c == '-' || isDigit(c)) {
+            this.matchInteger();
+        } else if (c == ' ') {
+            this.matchSpace();
+        } else if (c == '\t' || c == '\n' || c == '\r') {
+            this.accept(SKIP, 1);
+        } else if (c == '"') {
+            this.matchString();
+        } else if (c == '\'') {
+            this.matchCharacter();
+        } else if (c == '/') {
+            this.matchComment();
+        } else if (c < PUNCTUATION.length && PUNCTUATION[c] != 0) {
+            this.accept(PUNCTUATION[c], 1);
+        } else {
+            this.fail(0);
+        }
+    }
+
+    /**
+     * Matches a keyword or identifier.
+     */
+    private void matchWord() {
+        int length = 1;
+        while (isLetterOrDigit(this.la(length + 1))) {
+            length++;
+        }
+
+        final Keyword keyword = this.keyword(length);
+
+        if (keyword == null) {
+            this.accept(otldLexer.ID, length);
+        } else if (keyword.rest != null && this.matches(length, keyword.rest)) {
+            this.accept(keyword.restType, length + keyword.rest.length());
+        } else {
+            this.accept(keyword.type, length);
+        }
+    }
+
+    /**
+     * @param length The length of the word at the start of the input.
+     * @return The keyword that is the word, or {@code null} if the word is not a keyword.
+     */
+    private Keyword keyword(final int length) {
+        if (length > MAX_KEYWORD) {
+            return null;
+        }
+
+        final Keyword keyword = KEYWORDS[hash(this.la(1), this.la(length), length, MULTIPLIER)];
+
+        if (keyword == null || keyword.word.length() != length || !this.matches(0, keyword.word)) {
+            return null;
+        }
+        return keyword;
+    }
+
+    /**
+     * Matches an integer, with an optional minus sign.
+     */
+    private void matchInteger() {
+        final int first = this.la(1) == '-' ? 2 : 1;
+        final int c = this.la(first);
+
+        if (c == '0') {
+            this.accept(otldLexer.INTEGER, first);
+        } else if (c >= '1' && c <= '9') {
+            int length = first;
+            while (isDigit(this.la(length + 1))) {
+                length++;
+            }
+            this.accept(otldLexer.INTEGER, length);
+        } else {
+            this.fail(first - 1);
+        }
+    }
+
+    /**
+     * Matches a keyword that starts with a space, or otherwise skips the space.
+     */
+    private void matchSpace() {
+        this.accept(SKIP, 1);
+
+        for (Keyword keyword : SPACED) {
+            if (keyword.word.length() > this.matchLength && this.matches(0, keyword.word)) {
+                this.accept(keyword.type, keyword.word.length());
+            }
+        }
+    }
+
+    /**
+     * Matches a string. A quote in a string is written as two quotes.
+     */
+    private void matchString() {
+        int accepted = 0;
+        int i = 2;
+
+        while (true) {
+            final int c = this.la(i);
+
+            if (c == IntStream.EOF) {
+                break;
+            } else if (c == '"') {
+                accepted = i;
+                if (this.la(i + 1) != '"') {
+                    break;
+                }
+                i += 2;
+            } else {
+                i++;
+            }
+        }
+
+        if (accepted > 0) {
+            this.accept(otldLexer.STRING, accepted);
+        } else {
+            this.fail(i - 1);
+        }
+    }
+
+    /**
+     * Matches a character, which is a letter or digit between single quotes.
+     */
+    private void matchCharacter() {
+        if (!isLetterOrDigit(this.la(2))) {
+            this.fail(1);
+        } else if (this.la(3) != '\'') {
+            this.fail(2);
+        } else {
+            this.accept(otldLexer.CHARACTER, 3);
+        }
+    }
+
+    /**
+     * Matches a comment, which ends at the first {@code *}{@code /}.
+     */
+    private void matchComment() {
+        if (this.la(2) != '*') {
+            this.fail(1);
+            return;
+        }
+
+        int i = 3;
+        while (true) {
+            final int c = this.la(i);
+
+            if (c == IntStream.EOF) {
+                this.fail(i - 1);
+                return;
+            } else if (c == '*' && this.la(i + 1) == '/') {
+                this.accept(SKIP, i + 1);
+                return;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * @return The index of the next character in the input.
+     */
+    private int index() {
+        return this.data == null ? this.input.index() : this.position;
+    }
+
+    /**
+     * @param i The position of the character after the current one, starting at 1.
+     * @return The character, or {@code EOF} if the input has ended before it.
+     */
+    private int la(final int i) {
+        if (this.data == null) {
+            return this.input.LA(i);
+        }
+
+        final int index = this.position + i - 1;
+        return index < this.size ? this.data[index] : IntStream.EOF;
+    }
+
+    /**
+     * @param type The token type of the match.
+     * @param length The number of characters of the match.
+     */
+    private void accept(final int type, final int length) {
+        this.matchType = type;
+        this.matchLength = length;
+    }
+
+    /**
+     * Fails to match a token. As in the generated lexer, the characters that were matched and the character that could
+     * not be matched are skipped.
+     *
+     * @param matched The number of characters that could be matched.
+     */
+    private void fail(final int matched) {
+        this.matchType = Token.INVALID_TYPE;
+        this.matchLength = this.la(matched + 1) == IntStream.EOF ? matched : matched + 1;
+    }
+
+    /**
+     * @param offset The number of characters to skip in the input.
+     * @param text The text to compare.
+     * @return Whether the input after the offset starts with the text.
+     */
+    private boolean matches(final int offset, final String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (this.la(offset + i + 1) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Consumes characters of the input and keeps track of the line and position in the line.
+     *
+     * @param length The number of characters to consume.
+     */
+    private void consume(final int length) {
+        if (this.data != null) {
+            for (int i = this.position; i < this.position + length; i++) {
+                if (this.data[i] == '\n') {
+                    this.line++;
+                    this.column = 0;
+                } else {
+                    this.column++;
+                }
+            }
+            this.position += length;
+            return;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (this.input.LA(1) == '\n') {
+                this.line++;
+                this.column = 0;
+            } else {
+                this.column++;
+            }
+            this.input.consume();
+        }
+    }
+
+    /**
+     * Reports the characters of a failed match to the error listeners, with the same message as the generated lexer.
+     */
+    private void report(final int start, final int line, final int column) {
+        final String text = this.input.getText(Interval.of(start, start + this.matchLength - 1));
+        final StringBuilder message = new StringBuilder("token recognition error at: '");
+
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+
+            if (c == '\n') {
+                message.append("\\n");
+            } else if (c == '\t') {
+                message.append("\\t");
+            } else if (c == '\r') {
+                message.append("\\r");
+            } else {
+                message.append(c);
+            }
+        }
+        message.append('\'');
+
+        for (ANTLRErrorListener listener : this.listeners) {
+            listener.syntaxError(null, null, line, column, message.toString(), null);
+        }
+    }
+
+    @Override
+    public int getLine() {
+        return this.line;
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+        return this.column;
+    }
+
+    @Override
+    public CharStream getInputStream() {
+        return this.input;
+    }
+
+    @Override
+    public String getSourceName() {
+        return this.input.getSourceName();
+    }
+
+    @Override
+    public void setTokenFactory(final TokenFactory<?> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public TokenFactory<?> getTokenFactory() {
+        return this.factory;
+    }
+
+    /**
+     * @return The keyword for the word in the list, which is added if it is new.
+     */
+    private static Keyword word(final List<Keyword> words, final String word) {
+        for (Keyword keyword : words) {
+            if (keyword.word.equals(word)) {
+                return keyword;
+            }
+        }
+
+        final Keyword keyword = new Keyword(word);
+        words.add(keyword);
+        return keyword;
+    }
+
+    /**
+     * Fills the keyword table.
+     *
+     * @return Whether the keywords could be added without collisions.
+     */
+    private static boolean fill(final List<Keyword> words, final int multiplier) {
+        Arrays.fill(KEYWORDS, null);
+
+        for (Keyword keyword : words) {
+            final String word = keyword.word;
+            final int hash = hash(word.charAt(0), word.charAt(word.length() - 1), word.length(), multiplier);
+
+            if (KEYWORDS[hash] != null) {
+                return false;
+            }
+            KEYWORDS[hash] = keyword;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return The position in the keyword table of a word with the given first and last character and length.
+     */
+    private static int hash(final int first, final int last, final int length, final int multiplier) {
+        return ((first * multiplier + last) * multiplier + length) & (TABLE_SIZE - 1);
+    }
+
+    private static boolean isLetter(final int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(final int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetterOrDigit(final int c) {
+        return isLetter(c) || isDigit(c);
+    }
+}
@@ -0,0 +1,239 @@
+package otld.otld.parsing;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.dfa.DFA;
+import otld.otld.CompileTimings;
+import otld.otld.grammar.otldParser;
+
+import javax.management.NotificationEmitter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reusable lexer and parser.
+ *
+ * A session keeps a lexer, token stream, parser and error listener, and resets them for every parse instead of creating
+ * new ones. A session must only be used by one thread at a time; {@code get()} returns the session of the current
+ * thread, which is what {@code OTLDListener.parseFile} uses. The lexer is the hand-written {@code OTLDScanner}.
+ *
+ * The prediction DFAs of the parser are shared by all sessions, so the predictions that are learned while parsing on
+ * one thread speed up parsing on all threads. The DFAs only grow, so a long running process can clear them with
+ * {@code clearDFA()} or have them cleared automatically when memory runs low with {@code clearDFAWhenMemoryLow()}.
+ */
+public class ParserSession {
+    /** The fraction of the heap that is in use after a garbage collection from which memory is low. */
+    public static final double LOW_MEMORY = 0.85;
+
+    /** The number of tokens above which the token buffer is not kept for the next parse. */
+    private static final int MAX_RETAINED_TOKENS = 64 * 1024;
+
+    /** The number of characters above which the character buffer is not kept for the next parse. */
+    private static final int MAX_RETAINED_CHARS = 1024 * 1024;
+
+    /** The session of every thread. */
+    private static final ThreadLocal<ParserSession> SESSIONS = ThreadLocal.withInitial(ParserSession::new);
+
+    /** Whether the DFAs are cleared when memory runs low. */
+    private static final AtomicBoolean CLEAR_WHEN_LOW = new AtomicBoolean();
+
+    /**
+     * The prediction DFAs that all parsers share. The generated parser keeps them in a protected field, so they are
+     * taken once from a parser without input instead of from the session of the calling thread.
+     */
+    private static final DFA[] DECISION_TO_DFA = new otldParser(null).getInterpreter().decisionToDFA;
+
+    /** The listener for syntax errors. */
+    private final OTLDErrorListener errorListener;
+
+    /** The lexer. */
+    private final OTLDScanner lexer;
+
+    /** The parser. */
+    private final otldParser parser;
+
+    /** The token stream. */
+    private ReusableTokenStream tokens;
+
+    /** The characters of the input. */
+    private char[] chars;
+
+    /** The number of programs parsed. */
+    private long parses;
+
+    public ParserSession() {
+        this.errorListener = new OTLDErrorListener();
+
+        this.lexer = new OTLDScanner(null);
+        this.lexer.removeErrorListeners();
+        this.lexer.addErrorListener(this.errorListener);
+
+        this.tokens = new ReusableTokenStream(this.lexer);
+        this.parser = new otldParser(null);
+        this.chars = new char[4096];
+    }
+
+    /**
+     * @return The session of the current thread.
+     */
+    public static ParserSession get() {
+        return SESSIONS.get();
+    }
+
+    /**
+     * Parses the supplied input and returns the OTLDListener that built the program while parsing.
+     *
+     * @param reader input to parse
+     * @param timings the timings to record the lex and parse phases in
+     * @return the OTLDListener with the program, or with the errors in it
+     * @throws IOException The input could not be read.
+     */
+    public OTLDListener parse(final InputStream reader, final CompileTimings timings) throws IOException {
+        this.errorListener.clear();
+        this.parses++;
+
+        try {
+            // Tokenize everything up front so lexing and parsing can be measured separately
+            timings.begin(CompileTimings.Phase.LEX);
+            try {
+                final int size = this.read(reader);
+                this.lexer.setInputStream(this.chars, size);
+                this.tokens.reset(this.lexer);
+                this.tokens.fill();
+            } finally {
+                timings.end();
+            }
+
+            timings.begin(CompileTimings.Phase.PARSE);
+            try {
+                this.parser.setInputStream(this.tokens);
+                return OTLDListener.parse(this.parser, this.errorListener);
+            } finally {
+                timings.end();
+            }
+        } finally {
+            this.release();
+        }
+    }
+
+    /**
+     * Reads the input into the character buffer, in the character set of source files, see {@code OTLDListener.CHARSET}.
+     *
+     * @param reader input to read
+     * @return The number of characters read.
+     * @throws IOException The input could not be read.
+     */
+    private int read(final InputStream reader) throws IOException {
+        final Reader in = new InputStreamReader(reader, OTLDListener.CHARSET);
+        int size = 0;
+        int read;
+
+        while ((read = in.read(this.chars, size, this.chars.length - size)) >= 0) {
+            size += read;
+            if (size == this.chars.length) {
+                this.chars = Arrays.copyOf(this.chars, this.chars.length * 2);
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Releases the input and tokens of the last parse, so they can be collected.
+     */
+    private void release() {
+        if (this.tokens.size() > MAX_RETAINED_TOKENS) {
+            this.tokens = new ReusableTokenStream(this.lexer);
+        }
+        if (this.chars.length > MAX_RETAINED_CHARS) {
+            this.chars = new char[4096];
+        }
+
+        this.tokens.reset(this.lexer);
+        this.lexer.setInputStream(null);
+        this.parser.setInputStream(null);
+        this.errorListener.clear();
+    }
+
+    /**
+     * @return The number of programs parsed with this session.
+     */
+    public long getParses() {
+        return this.parses;
+    }
+
+    /**
+     * @return The number of states in the shared prediction DFAs of the parser.
+     */
+    public static int getDFAStates() {
+        int states = 0;
+
+        for (DFA dfa : DECISION_TO_DFA) {
+            states += dfa.states.size();
+        }
+
+        return states;
+    }
+
+    /**
+     * Clears the shared prediction DFAs of the parser. Parsing becomes slower until the predictions have been learned
+     * again. Does not create a session, since this is called when memory is low.
+     */
+    public static void clearDFA() {
+        for (int i = 0; i < DECISION_TO_DFA.length; i++) {
+            DECISION_TO_DFA[i] = new DFA(otldParser._ATN.getDecisionState(i), i);
+        }
+    }
+
+    /**
+     * Clears the shared prediction DFAs whenever more than {@code LOW_MEMORY} of a heap pool is still in use after a
+     * garbage collection. Calling this more than once has no further effect.
+     */
+    public static void clearDFAWhenMemoryLow() {
+        if (!CLEAR_WHEN_LOW.compareAndSet(false, true)) {
+            return;
+        }
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            final long max = pool.getUsage().getMax();
+
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported() && max > 0) {
+                pool.setCollectionUsageThreshold((long) (max * LOW_MEMORY));
+            }
+        }
+
+        ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener((notification, handback) -> {
+            if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                clearDFA();
+            }
+        }, null, null);
+    }
+
+    /**
+     * Token stream that can be reused for another token source.
+     */
+    private static class ReusableTokenStream extends CommonTokenStream {
+        ReusableTokenStream(final TokenSource source) {
+            super(source);
+        }
+
+        /**
+         * Removes all tokens and starts reading from the token source again.
+         *
+         * @param source The token source.
+         */
+        void reset(final TokenSource source) {
+            this.setTokenSource(source);
+            // Not reset by setTokenSource
+            this.fetchedEOF = false;
+        }
+    }
+}
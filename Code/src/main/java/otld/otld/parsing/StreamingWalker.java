@@ -0,0 +1,93 @@
+package otld.otld.parsing;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+/**
+ * Parse listener that passes the events of the parser to a listener in the same order as a {@code ParseTreeWalker},
+ * without building a parse tree.
+ *
+ * A parser only calls its parse listeners when a rule starts, before any of its tokens have been read. The enter event
+ * is therefore delayed until the first child rule starts or the rule ends, so the tokens before that child (such as the
+ * name of a factory or the waypoint of a circle) are available. The parser keeps the tokens of every running rule, but
+ * does not add rules to their parent when it does not build a parse tree, so every rule can be collected after it
+ * ends and only the running rules are kept in memory. Terminal events are not passed, since {@code OTLDListener} does
+ * not use them.
+ *
+ * After the first syntax error no more events are passed to the listener, since rules may be incomplete. This includes
+ * the exit events of the rules that are still running when the parser gives up.
+ */
+class StreamingWalker implements ParseTreeListener {
+    /** The listener to pass the events to. */
+    private final ParseTreeListener listener;
+
+    /** The syntax errors of the parser. */
+    private final OTLDErrorListener errors;
+
+    /** Whether a rule has ended with a syntax error. */
+    private boolean failed;
+
+    /** The rule that has started but of which the enter event has not been passed yet. */
+    private ParserRuleContext pending;
+
+    /**
+     * @param listener The listener to pass the events to.
+     * @param errors The syntax errors of the parser.
+     */
+    StreamingWalker(final ParseTreeListener listener, final OTLDErrorListener errors) {
+        this.listener = listener;
+        this.errors = errors;
+    }
+
+    /**
+     * @return Whether events should be passed to the listener.
+     */
+    private boolean isActive() {
+        return !this.failed && this.errors.getErrors().isEmpty();
+    }
+
+    /**
+     * Passes the delayed enter event, if any.
+     */
+    private void enterPending() {
+        if (this.pending != null) {
+            if (this.isActive()) {
+                this.listener.enterEveryRule(this.pending);
+                this.pending.enterRule(this.listener);
+            }
+            this.pending = null;
+        }
+    }
+
+    @Override
+    public void enterEveryRule(final ParserRuleContext ctx) {
+        this.enterPending();
+        this.pending = ctx;
+    }
+
+    @Override
+    public void exitEveryRule(final ParserRuleContext ctx) {
+        if (ctx.exception != null) {
+            this.failed = true;
+        }
+
+        if (ctx == this.pending) {
+            this.enterPending();
+        }
+
+        if (this.isActive()) {
+            ctx.exitRule(this.listener);
+            this.listener.exitEveryRule(ctx);
+        }
+    }
+
+    @Override
+    public void visitTerminal(final TerminalNode node) {
+    }
+
+    @Override
+    public void visitErrorNode(final ErrorNode node) {
+    }
+}
@@ -0,0 +1,99 @@
+package otld.otld;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import otld.otld.driver.CompileResult;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CompileTimingsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Copies a test program into the temporary folder.
+     */
+    private File copy(final String name) throws Exception {
+        File file = new File(this.folder.getRoot(), name + ".tldr");
+        try (InputStream in = CompileTimingsTest.class.getResourceAsStream("/otld/otld/parsing/" + name + ".tldr")) {
+            Files.copy(in, file.toPath());
+        }
+        return file;
+    }
+
+    @Test
+    public void testNesting() throws Exception {
+        CompileTimings timings = new CompileTimings();
+
+        timings.begin(CompileTimings.Phase.CODEGEN);
+        Thread.sleep(20);
+        timings.begin(CompileTimings.Phase.EMIT);
+        Thread.sleep(20);
+        timings.end();
+        timings.end();
+
+        // Nested time is only charged to the innermost phase
+        assertTrue(timings.getNanos(CompileTimings.Phase.CODEGEN) >= 20000000L);
+        assertTrue(timings.getNanos(CompileTimings.Phase.CODEGEN) < timings.getTotalNanos());
+        assertTrue(timings.getNanos(CompileTimings.Phase.EMIT) >= 20000000L);
+        assertEquals(0, timings.getNanos(CompileTimings.Phase.LEX));
+        assertEquals(timings.getTotalNanos(), timings.getNanos(CompileTimings.Phase.CODEGEN) + timings.getNanos(CompileTimings.Phase.EMIT));
+    }
+
+    @Test
+    public void testCompile() throws Exception {
+        CompileTimings timings = new CompileTimings();
+        assertTrue(Main.compile(this.copy("Enschede"), null, timings).isEmpty());
+
+        for (CompileTimings.Phase phase : CompileTimings.Phase.values()) {
+            assertTrue(phase.getLabel(), timings.getNanos(phase) > 0);
+        }
+
+        assertTrue(timings.getAllocatedBytes(CompileTimings.Phase.PARSE) > 0);
+        assertEquals(CompileTimings.Phase.values().length + 1, timings.describe().size());
+
+        // Programs with errors are not compiled
+        CompileTimings errors = new CompileTimings();
+        CompileResult result = Main.translate(this.copy("Maastricht"), null, errors);
+        assertFalse(result.isSuccess());
+        assertTrue(errors.getNanos(CompileTimings.Phase.PARSE) > 0);
+        assertEquals(0, errors.getNanos(CompileTimings.Phase.CODEGEN));
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        File source = this.copy("Enschede");
+        File output = this.folder.newFile("recording.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("otld.CompilePhase");
+            recording.start();
+            Main.translate(source, null, new CompileTimings());
+            recording.stop();
+            recording.dump(output.toPath());
+        }
+
+        Set<String> phases = new HashSet<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(output.toPath())) {
+            if (event.getEventType().getName().equals("otld.CompilePhase")) {
+                phases.add(event.getString("phase"));
+            }
+        }
+
+        assertTrue(phases.contains("lex"));
+        assertTrue(phases.contains("parse"));
+        assertTrue(phases.contains("codegen"));
+        assertTrue(phases.contains("emit"));
+        assertTrue(phases.contains("io"));
+    }
+}
@@ -0,0 +1,68 @@
+package otld.otld.driver;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchCompilerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Copies a test program into the temporary folder.
+     */
+    private File copy(final String name) throws Exception {
+        File file = new File(this.folder.getRoot(), name);
+        try (InputStream in = BatchCompilerTest.class.getResourceAsStream("/otld/otld/parsing/" + name)) {
+            Files.copy(in, file.toPath());
+        }
+        return file;
+    }
+
+    @Test
+    public void testCompile() throws Exception {
+        List<File> files = Arrays.asList(
+                this.copy("Enschede.tldr"),
+                this.copy("Amsterdam.tldr"),
+                new File(this.folder.getRoot(), "Missing.tldr"),
+                this.copy("Almere.tldr")
+        );
+
+        BatchCompiler compiler = new BatchCompiler(3);
+        List<CompileResult> results = compiler.compile(files);
+        compiler.shutdown();
+
+        // Results are in the order of the files
+        assertEquals(4, results.size());
+        for (int i = 0; i < files.size(); i++) {
+            assertEquals(files.get(i), results.get(i).getSource());
+        }
+
+        // Failing files do not stop the others
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(new File(this.folder.getRoot(), "Enschede.class").isFile());
+
+        assertFalse(results.get(1).isSuccess());
+        assertEquals(2, results.get(1).getErrors().size());
+        assertFalse(new File(this.folder.getRoot(), "Amsterdam.class").exists());
+
+        assertFalse(results.get(2).isSuccess());
+        assertNotNull(results.get(2).getFailure());
+
+        assertFalse(results.get(3).isSuccess());
+        assertEquals(7, results.get(3).getErrors().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJobs() {
+        new BatchCompiler(0);
+    }
+}
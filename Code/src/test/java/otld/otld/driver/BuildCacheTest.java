@@ -0,0 +1,139 @@
+package otld.otld.driver;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import otld.otld.Main;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BuildCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testKey() throws Exception {
+        BuildCache cache = new BuildCache(this.folder.newFolder(), BuildCache.DEFAULT_SIZE, "");
+        BuildCache other = new BuildCache(this.folder.newFolder(), BuildCache.DEFAULT_SIZE, "debug");
+
+        assertEquals(64, cache.key(new byte[]{1, 2, 3}).length());
+        assertEquals(cache.key(new byte[]{1, 2, 3}), cache.key(new byte[]{1, 2, 3}));
+        assertNotEquals(cache.key(new byte[]{1, 2, 3}), cache.key(new byte[]{1, 2, 4}));
+        assertNotEquals(cache.key(new byte[]{1, 2, 3}), other.key(new byte[]{1, 2, 3}));
+    }
+
+    @Test
+    public void testGetPut() throws Exception {
+        BuildCache cache = new BuildCache(this.folder.newFolder(), BuildCache.DEFAULT_SIZE, "");
+
+        assertNull(cache.get("missing"));
+
+        cache.put("entry", new byte[]{4, 5, 6});
+        assertArrayEquals(new byte[]{4, 5, 6}, cache.get("entry"));
+
+        // Overwrite by another writer
+        cache.put("entry", new byte[]{4, 5, 6});
+        assertArrayEquals(new byte[]{4, 5, 6}, cache.get("entry"));
+
+        // No temporary files are left behind
+        assertEquals(1, cache.getDirectory().list().length);
+    }
+
+    @Test
+    public void testEvict() throws Exception {
+        BuildCache cache = new BuildCache(this.folder.newFolder(), 250, "");
+        File directory = cache.getDirectory();
+
+        cache.put("a", new byte[100]);
+        cache.put("b", new byte[100]);
+        Files.setLastModifiedTime(new File(directory, "a" + BuildCache.EXT).toPath(), FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(new File(directory, "b" + BuildCache.EXT).toPath(), FileTime.fromMillis(2000));
+
+        // Using an entry makes it the most recently used
+        assertNotNull(cache.get("a"));
+
+        cache.put("c", new byte[100]);
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void testScan() throws Exception {
+        File directory = this.folder.newFolder();
+        Files.write(new File(directory, "old" + BuildCache.EXT).toPath(), new byte[200]);
+        Files.setLastModifiedTime(new File(directory, "old" + BuildCache.EXT).toPath(), FileTime.fromMillis(1000));
+
+        // Entries that are already there are counted when the cache is opened
+        BuildCache cache = new BuildCache(directory, 250, "");
+        cache.put("a", new byte[100]);
+        assertNull(cache.get("old"));
+        assertNotNull(cache.get("a"));
+
+        // An entry of another process is not seen until the total of this cache exceeds the limit
+        Files.write(new File(directory, "other" + BuildCache.EXT).toPath(), new byte[100]);
+        Files.setLastModifiedTime(new File(directory, "other" + BuildCache.EXT).toPath(), FileTime.fromMillis(1000));
+        cache.put("b", new byte[100]);
+        assertTrue(new File(directory, "other" + BuildCache.EXT).exists());
+
+        cache.put("c", new byte[100]);
+        assertFalse(new File(directory, "other" + BuildCache.EXT).exists());
+        assertEquals(2, directory.list().length);
+    }
+
+    @Test
+    public void testConcurrentPut() throws Exception {
+        final BuildCache cache = new BuildCache(this.folder.newFolder(), BuildCache.DEFAULT_SIZE, "");
+        final byte[] bytes = new byte[64 * 1024];
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 20; j++) {
+                        cache.put("shared", bytes);
+                        byte[] read = cache.get("shared");
+                        assertTrue(read == null || read.length == bytes.length);
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertArrayEquals(bytes, cache.get("shared"));
+    }
+
+    @Test
+    public void testCompile() throws Exception {
+        File source = new File(this.folder.getRoot(), "Enschede.tldr");
+        try (InputStream in = BuildCacheTest.class.getResourceAsStream("/otld/otld/parsing/Enschede.tldr")) {
+            Files.copy(in, source.toPath());
+        }
+        File output = new File(this.folder.getRoot(), "Enschede.class");
+        BuildCache cache = new BuildCache(this.folder.newFolder(), BuildCache.DEFAULT_SIZE, "");
+
+        assertTrue(Main.compile(source, cache).isEmpty());
+        byte[] compiled = Files.readAllBytes(output.toPath());
+        assertArrayEquals(compiled, cache.get(cache.key(Files.readAllBytes(source.toPath()))));
+
+        // A cache hit writes the stored class file
+        assertTrue(output.delete());
+        assertTrue(Main.compile(source, cache).isEmpty());
+        assertArrayEquals(compiled, Files.readAllBytes(output.toPath()));
+    }
+}
@@ -0,0 +1,149 @@
+package otld.otld.driver;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompileDaemonTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testDaemon() throws Exception {
+        File enschede = new File(this.folder.getRoot(), "Enschede.tldr");
+        File amsterdam = new File(this.folder.getRoot(), "Amsterdam.tldr");
+        for (File file : new File[]{enschede, amsterdam}) {
+            try (InputStream in = CompileDaemonTest.class.getResourceAsStream("/otld/otld/parsing/" + file.getName())) {
+                Files.copy(in, file.toPath());
+            }
+        }
+
+        File tokens = this.folder.newFolder();
+        final CompileDaemon daemon = new CompileDaemon(0, 2, null, tokens);
+        Thread thread = new Thread(daemon::run);
+        thread.start();
+
+        try (DaemonClient client = new DaemonClient(daemon.getPort(), tokens)) {
+            List<DaemonClient.Response> responses = client.compile(Arrays.asList(enschede, amsterdam));
+
+            assertEquals(2, responses.size());
+            assertTrue(responses.get(0).isSuccess());
+            assertTrue(responses.get(0).getLines().isEmpty());
+            assertTrue(new File(this.folder.getRoot(), "Enschede.class").isFile());
+
+            assertFalse(responses.get(1).isSuccess());
+            assertEquals("Error at line:6:10: This variable has already been defined!", responses.get(1).getLines().get(0));
+
+            // A second request on the same connection
+            assertTrue(client.compile(Arrays.asList(enschede)).get(0).isSuccess());
+
+            assertEquals(3, daemon.getStatistics().getRequests());
+            assertEquals(1, daemon.getStatistics().getFailures());
+            assertTrue(client.statistics().contains("requests: 3"));
+
+            client.stop();
+        }
+
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertEquals(0, tokens.list().length);
+    }
+
+    @Test
+    public void testToken() throws Exception {
+        File tokens = this.folder.newFolder();
+        final CompileDaemon daemon = new CompileDaemon(0, 1, null, tokens);
+        Thread thread = new Thread(daemon::run);
+        thread.start();
+
+        try {
+            Path file = tokens.toPath().resolve(String.format("daemon-%d.token", daemon.getPort()));
+            if (Files.getFileStore(file).supportsFileAttributeView("posix")) {
+                assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+            }
+
+            // Requests without the token or with another token are refused
+            String token = DaemonToken.read(tokens, daemon.getPort()).getValue();
+            assertEquals("ERROR 1", request(daemon.getPort(), CompileDaemon.STOP));
+            assertEquals("ERROR 1", request(daemon.getPort(), CompileDaemon.STOP + " " + token.substring(1)));
+            assertTrue(thread.isAlive());
+
+            assertEquals("OK 0", request(daemon.getPort(), CompileDaemon.STOP + " " + token));
+        } finally {
+            daemon.stop();
+        }
+
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+    }
+
+    @Test
+    public void testStopWithOpenConnection() throws Exception {
+        File tokens = this.folder.newFolder();
+        final CompileDaemon daemon = new CompileDaemon(0, 1, null, tokens);
+        Thread thread = new Thread(daemon::run);
+        thread.start();
+
+        // An idle connection does not keep the daemon alive
+        try (Socket idle = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort());
+             DaemonClient client = new DaemonClient(daemon.getPort(), tokens)) {
+            assertFalse(client.statistics().isEmpty());
+            client.stop();
+
+            idle.setSoTimeout(5000);
+            assertEquals(-1, idle.getInputStream().read());
+        }
+
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+
+        // Files sent after the daemon stopped are answered with an error
+        StringWriter response = new StringWriter();
+        daemon.compile(Arrays.asList(new File("Missing.tldr")), new PrintWriter(response));
+        assertTrue(response.toString().startsWith(CompileDaemon.ERROR + " "));
+    }
+
+    /**
+     * Sends a single request line to the daemon and returns the status line of the response.
+     */
+    private static String request(final int port, final String line) throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.getOutputStream().write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            socket.getOutputStream().flush();
+            return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)).readLine();
+        }
+    }
+
+    @Test
+    public void testStatistics() {
+        DaemonStatistics statistics = new DaemonStatistics();
+        assertEquals(0, statistics.getPercentile(50));
+
+        for (int i = 1; i <= 100; i++) {
+            statistics.record(i, i % 10 != 0);
+        }
+
+        assertEquals(100, statistics.getRequests());
+        assertEquals(10, statistics.getFailures());
+        assertEquals(50, statistics.getPercentile(50));
+        assertEquals(99, statistics.getPercentile(99));
+        assertEquals(100, statistics.getPercentile(100));
+    }
+}
@@ -0,0 +1,85 @@
+package otld.otld.driver;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import otld.otld.Main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarFile;
+
+import static org.junit.Assert.*;
+
+public class JarBundlerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Copies a test program into the temporary folder.
+     */
+    private File copy(final String name) throws Exception {
+        File file = new File(this.folder.getRoot(), name + ".tldr");
+        try (InputStream in = JarBundlerTest.class.getResourceAsStream("/otld/otld/parsing/" + name + ".tldr")) {
+            Files.copy(in, file.toPath());
+        }
+        return file;
+    }
+
+    @Test
+    public void testBundle() throws Exception {
+        File jar = this.folder.newFile("programs.jar");
+        List<File> files = Arrays.asList(this.copy("Enschede"), this.copy("Amsterdam"), this.copy("runtimeErrors"));
+        BatchCompiler compiler = new BatchCompiler(2);
+
+        // Programs with errors are left out
+        try {
+            assertFalse(Main.compileToJar(compiler, files, jar));
+        } finally {
+            compiler.shutdown();
+        }
+
+        // No loose class files are written
+        assertFalse(new File(this.folder.getRoot(), "Enschede.class").exists());
+
+        try (JarFile in = new JarFile(jar)) {
+            assertEquals(Arrays.asList("Enschede", "runtimeErrors"), JarBundler.programs(in));
+            assertNotNull(in.getManifest());
+
+            List<String> entries = new ArrayList<>();
+            in.stream().forEach(entry -> entries.add(entry.getName()));
+            assertTrue(entries.contains("Enschede.class"));
+            assertTrue(entries.contains("runtimeErrors.class"));
+        }
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null)) {
+            assertNotNull(loader.loadClass("Enschede").getMethod("main", String[].class));
+        }
+    }
+
+    @Test
+    public void testDuplicate() throws Exception {
+        File jar = this.folder.newFile("programs.jar");
+        byte[] bytecode = Main.translate(this.copy("Enschede"), null).getBytecode();
+
+        try (JarBundler bundler = new JarBundler(jar)) {
+            bundler.add(bytecode);
+
+            try {
+                bundler.add(bytecode);
+                fail("Duplicate program was added");
+            } catch (IOException e) {
+                assertEquals("Duplicate program: Enschede", e.getMessage());
+            }
+
+            assertEquals(Arrays.asList("Enschede"), bundler.getPrograms());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package otld.otld.driver;
+
+import org.junit.Test;
+import otld.otld.jvm.BytecodeCompiler;
+import otld.otld.jvm.ProgramClassLoader;
+import otld.otld.parsing.OTLDListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ProgramGeneratorTest {
+    /**
+     * Parses, compiles and runs a generated program and returns its output.
+     */
+    private String run(final ProgramGenerator generator) throws Exception {
+        OTLDListener parser = OTLDListener.parseFile(new ByteArrayInputStream(generator.generate().getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0, parser.getErrors().size());
+
+        BytecodeCompiler compiler = new BytecodeCompiler(parser.getProgram());
+        compiler.compile();
+
+        PrintStream original = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try {
+            System.setOut(new PrintStream(out, true));
+            new ProgramClassLoader().run(compiler.asByteArray());
+        } finally {
+            System.setOut(original);
+        }
+
+        return out.toString();
+    }
+
+    @Test
+    public void testDefault() throws Exception {
+        ProgramGenerator generator = new ProgramGenerator("Generated", 1);
+        String output = this.run(generator);
+
+        assertTrue(output.contains("wagon1="));
+        assertTrue(output.contains("wagon8="));
+        assertTrue(generator.getLines() > 50);
+    }
+
+    @Test
+    public void testConfigurations() throws Exception {
+        for (long seed = 0; seed < 20; seed++) {
+            ProgramGenerator generator = new ProgramGenerator("Generated", seed);
+            generator.setWagons(1 + (int) seed);
+            generator.setSignals((int) seed % 3);
+            generator.setWaypoints((int) seed % 4);
+            generator.setFactories((int) seed % 5);
+            generator.setDepth((int) seed % 5);
+            generator.setStatements(200);
+            generator.setOutput(false);
+
+            assertEquals("Seed " + seed, "", this.run(generator));
+        }
+    }
+
+    @Test
+    public void testDeterministic() {
+        ProgramGenerator generator = new ProgramGenerator("Generated", 42);
+        String source = generator.generate();
+
+        assertEquals(source, generator.generate());
+        assertEquals(source, new ProgramGenerator("Generated", 42).generate());
+        assertNotEquals(source, new ProgramGenerator("Generated", 43).generate());
+        assertEquals(source.split("\n").length, generator.getLines());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoWagons() {
+        new ProgramGenerator("Generated", 0).setWagons(0);
+    }
+}
@@ -0,0 +1,283 @@
+package otld.otld.driver;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import otld.otld.CompileTimings;
+import otld.otld.jvm.BytecodeCompiler;
+import otld.otld.parsing.OTLDListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that compile time, allocations and peak heap grow roughly linearly with the size of the program.
+ *
+ * Every check compiles generated programs of increasing size and compares the cost per line of the largest program with
+ * that of the smallest. These tests take a while and are only run with {@code mvn test -Pscaling}.
+ */
+public class ScalingTest {
+    /** The maximum growth of the time per line between the smallest and largest program. */
+    private static final double TIME_GROWTH = 3.0;
+
+    /** The maximum growth of the allocated bytes and peak heap per line between the smallest and largest program. */
+    private static final double MEMORY_GROWTH = 2.0;
+
+    /** The maximum heap for parsing a large file by streaming it. */
+    private static final String SMALL_HEAP = "64m";
+
+    /** The number of measurements per program, of which the fastest is used. */
+    private static final int REPEAT = 3;
+
+    /**
+     * The cost of compiling a program.
+     */
+    private static class Sample {
+        private long lines;
+        private long nanos = Long.MAX_VALUE;
+        private long bytes = Long.MAX_VALUE;
+        private long peak = Long.MAX_VALUE;
+
+        @Override
+        public String toString() {
+            return String.format("%8d lines %10.1f ms %8.1f ns/line %8.0f B/line %8.0f peak B/line",
+                    this.lines, this.nanos / 1e6, (double) this.nanos / this.lines, (double) this.bytes / this.lines,
+                    (double) this.peak / this.lines);
+        }
+    }
+
+    @BeforeClass
+    public static void warmup() throws Exception {
+        ProgramGenerator generator = new ProgramGenerator("Warmup", 0);
+        generator.setStatements(2000);
+
+        for (int i = 0; i < 10; i++) {
+            measure(generator, true);
+        }
+    }
+
+    /**
+     * Compiles a generated program and measures the cost.
+     *
+     * @param generator The generator of the program.
+     * @param codegen Whether the program should be compiled to bytecode, or only parsed.
+     * @return The cheapest of several compiles.
+     */
+    private static Sample measure(final ProgramGenerator generator, final boolean codegen) throws Exception {
+        final byte[] source = generator.generate().getBytes(StandardCharsets.UTF_8);
+        final Sample sample = new Sample();
+        sample.lines = generator.getLines();
+
+        for (int i = 0; i < REPEAT; i++) {
+            System.gc();
+            final long baseline = resetPeak();
+            final CompileTimings timings = new CompileTimings();
+            final long start = System.nanoTime();
+
+            OTLDListener parser = OTLDListener.parseFile(new ByteArrayInputStream(source), timings);
+            assertTrue(parser.getErrors().isEmpty());
+
+            if (codegen) {
+                BytecodeCompiler compiler = new BytecodeCompiler(parser.getProgram(), timings);
+                compiler.compile();
+                assertTrue(compiler.asByteArray().length > 0);
+            }
+
+            sample.nanos = Math.min(sample.nanos, System.nanoTime() - start);
+            sample.bytes = Math.min(sample.bytes, timings.getTotalAllocatedBytes());
+            sample.peak = Math.min(sample.peak, Math.max(1, peak() - baseline));
+        }
+
+        return sample;
+    }
+
+    /**
+     * Resets the peak usage of the heap pools.
+     *
+     * @return The current heap usage.
+     */
+    private static long resetPeak() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * @return The sum of the peak usage of the heap pools since the last reset.
+     */
+    private static long peak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Asserts that the cost per line of the largest program is not much higher than that of the smallest.
+     */
+    private static void assertLinear(final String name, final Sample small, final Sample large) {
+        System.out.println(String.format("%s%n  %s%n  %s", name, small, large));
+
+        final double time = ((double) large.nanos / large.lines) / ((double) small.nanos / small.lines);
+        final double bytes = ((double) large.bytes / large.lines) / ((double) small.bytes / small.lines);
+        final double peak = ((double) large.peak / large.lines) / ((double) small.peak / small.lines);
+
+        assertTrue(String.format("%s: time per line grew %.1fx", name, time), time < TIME_GROWTH);
+        assertTrue(String.format("%s: allocations per line grew %.1fx", name, bytes), bytes < MEMORY_GROWTH);
+        assertTrue(String.format("%s: peak heap per line grew %.1fx", name, peak), peak < MEMORY_GROWTH);
+    }
+
+    @Test
+    public void testFrontEnd() throws Exception {
+        ProgramGenerator small = new ProgramGenerator("Small", 1);
+        small.setStatements(5000);
+        ProgramGenerator large = new ProgramGenerator("Large", 1);
+        large.setStatements(80000);
+
+        assertLinear("Parse of the company section", measure(small, false), measure(large, false));
+    }
+
+    @Test
+    public void testDeclarations() throws Exception {
+        ProgramGenerator small = new ProgramGenerator("Small", 2);
+        small.setWagons(200);
+        small.setSignals(200);
+        small.setWaypoints(20);
+        small.setOutput(false);
+        ProgramGenerator large = new ProgramGenerator("Large", 2);
+        large.setWagons(3200);
+        large.setSignals(3200);
+        large.setWaypoints(320);
+        large.setOutput(false);
+
+        assertLinear("Compile of declarations", measure(small, true), measure(large, true));
+    }
+
+    @Test
+    public void testFactories() throws Exception {
+        ProgramGenerator small = new ProgramGenerator("Small", 3);
+        small.setFactories(100);
+        small.setFactoryStatements(50);
+        ProgramGenerator large = new ProgramGenerator("Large", 3);
+        large.setFactories(1600);
+        large.setFactoryStatements(50);
+
+        assertLinear("Compile of factories", measure(small, true), measure(large, true));
+    }
+
+    @Test
+    public void testCompany() throws Exception {
+        // The company section is a single method, which must stay below 64 KB of bytecode
+        ProgramGenerator small = new ProgramGenerator("Small", 4);
+        small.setStatements(200);
+        ProgramGenerator large = new ProgramGenerator("Large", 4);
+        large.setStatements(1600);
+
+        assertLinear("Compile of the company section", measure(small, true), measure(large, true));
+    }
+
+    /**
+     * Parses a file in a new JVM with a small heap.
+     *
+     * @param file The file to parse.
+     * @param stream Whether the file should be streamed or read.
+     * @return Whether the file could be parsed.
+     */
+    private static boolean parseWithSmallHeap(final File file, final boolean stream) throws Exception {
+        final Process process = new ProcessBuilder(
+                new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-Xmx" + SMALL_HEAP,
+                "-cp", System.getProperty("java.class.path"),
+                ScalingTest.class.getName(),
+                file.getPath(),
+                Boolean.toString(stream)
+        ).inheritIO().start();
+
+        return process.waitFor() == 0;
+    }
+
+    /**
+     * Parses a file and exits with status 1 if it contains errors, see {@code parseWithSmallHeap}.
+     */
+    public static void main(final String[] args) throws Exception {
+        final File file = new File(args[0]);
+        final OTLDListener parser;
+
+        if (Boolean.parseBoolean(args[1])) {
+            parser = OTLDListener.parseStream(file.toPath(), new CompileTimings());
+        } else {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                parser = OTLDListener.parseFile(in);
+            }
+        }
+
+        System.exit(parser.getErrors().isEmpty() ? 0 : 1);
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        File file = File.createTempFile("Streaming", ".tldr");
+
+        try {
+            ProgramGenerator generator = new ProgramGenerator("Streaming", 6);
+            generator.setStatements(200000);
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                generator.write(writer);
+            }
+
+            // The program itself takes about 20 MB, the parse tree and tokens many times more
+            assertTrue(parseWithSmallHeap(file, true));
+            assertFalse(parseWithSmallHeap(file, false));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testGenerateMillionLines() throws Exception {
+        final long[] characters = {0};
+        final Writer sink = new Writer() {
+            @Override
+            public void write(final char[] buffer, final int offset, final int length) {
+                characters[0] += length;
+            }
+
+            @Override
+            public void write(final String text) {
+                characters[0] += text.length();
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        ProgramGenerator generator = new ProgramGenerator("Huge", 5);
+        generator.setFactories(10000);
+        generator.setFactoryStatements(100);
+        generator.write(sink);
+
+        assertTrue(generator.getLines() > 1000000);
+        assertTrue(characters[0] > generator.getLines());
+    }
+}
@@ -0,0 +1,77 @@
+package otld.otld.driver;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SourceWatcherTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Copies a test program into the given directory.
+     */
+    private File copy(final String name, final File directory) throws Exception {
+        File file = new File(directory, name + ".tldr");
+        try (InputStream in = SourceWatcherTest.class.getResourceAsStream("/otld/otld/parsing/" + name + ".tldr")) {
+            Files.copy(in, file.toPath());
+        }
+        return file;
+    }
+
+    @Test
+    public void testCompileAll() throws Exception {
+        File root = this.folder.getRoot();
+        this.copy("Enschede", root);
+        this.copy("Amsterdam", this.folder.newFolder("nested"));
+
+        final List<CompileResult> results = Collections.synchronizedList(new ArrayList<CompileResult>());
+        BatchCompiler compiler = new BatchCompiler(2);
+
+        try (SourceWatcher watcher = new SourceWatcher(root, compiler, 50, results::add)) {
+            watcher.compileAll();
+        } finally {
+            compiler.shutdown();
+        }
+
+        assertEquals(2, results.size());
+        assertTrue(new File(root, "Enschede.class").isFile());
+    }
+
+    @Test(timeout = 30000)
+    public void testAwaitChanges() throws Exception {
+        File root = this.folder.getRoot();
+        File nested = this.folder.newFolder("nested");
+        BatchCompiler compiler = new BatchCompiler(1);
+
+        try (SourceWatcher watcher = new SourceWatcher(root, compiler, 500, result -> { })) {
+            // Changes close together are reported at once, other files are ignored
+            File enschede = this.copy("Enschede", root);
+            File amsterdam = this.copy("Amsterdam", nested);
+            assertTrue(new File(root, "notes.txt").createNewFile());
+
+            Set<File> changed = watcher.awaitChanges();
+            assertEquals(2, changed.size());
+            assertTrue(changed.contains(enschede));
+            assertTrue(changed.contains(amsterdam));
+
+            // Programs in new directories are found
+            File almere = this.copy("Almere", this.folder.newFolder("new"));
+
+            changed = watcher.awaitChanges();
+            assertTrue(changed.contains(almere));
+        } finally {
+            compiler.shutdown();
+        }
+    }
+}
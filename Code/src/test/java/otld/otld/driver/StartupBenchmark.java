@@ -0,0 +1,110 @@
+package otld.otld.driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures the startup gain of the class data sharing archive.
+ *
+ * Writes an archive for the given jar with the warmup command, then compiles a small program repeatedly in new JVMs with
+ * and without the archive and compares the median wall clock times. Exits with a non-zero code if the archive is not
+ * faster. Run with {@code mvn verify -Pstartup}.
+ */
+public class StartupBenchmark {
+    /** The default number of measured runs per configuration. */
+    private static final int RUNS = 15;
+
+    /** The number of runs per configuration that are not measured. */
+    private static final int WARMUP = 3;
+
+    /**
+     * @param args The compiler jar and optionally the number of measured runs.
+     */
+    public static void main(final String[] args) throws Exception {
+        final File jar = new File(args[0]).getAbsoluteFile();
+        final int runs = args.length > 1 ? Integer.parseInt(args[1]) : RUNS;
+        final File work = Files.createTempDirectory("otld-startup").toFile();
+        final File archive = new File(work, Warmup.ARCHIVE);
+
+        try (InputStream in = StartupBenchmark.class.getResourceAsStream("/otld/otld/parsing/Enschede.tldr")) {
+            Files.copy(in, new File(work, "Enschede.tldr").toPath());
+        }
+
+        if (run(work, java(), "-jar", jar.getPath(), "warmup", "--archive", archive.getPath()) != 0) {
+            throw new IllegalStateException("Warmup failed");
+        }
+
+        final List<String> plain = Arrays.asList(java(), "-jar", jar.getPath(), "compile", "Enschede");
+        final List<String> shared = new ArrayList<>(plain);
+        shared.addAll(1, Arrays.asList("-XX:SharedArchiveFile=" + archive.getPath(), "-Xshare:auto"));
+
+        final List<Long> plainTimes = new ArrayList<>();
+        final List<Long> sharedTimes = new ArrayList<>();
+
+        // Alternate the configurations so both see the same machine state
+        for (int i = 0; i < WARMUP + runs; i++) {
+            final long plainTime = time(work, plain);
+            final long sharedTime = time(work, shared);
+
+            if (i >= WARMUP) {
+                plainTimes.add(plainTime);
+                sharedTimes.add(sharedTime);
+            }
+        }
+
+        final double plainMedian = median(plainTimes) / 1e6;
+        final double sharedMedian = median(sharedTimes) / 1e6;
+
+        System.out.println(String.format("Startup of 'compile Enschede' over %d runs (median)", runs));
+        System.out.println(String.format("  without archive: %8.1f ms", plainMedian));
+        System.out.println(String.format("  with archive:    %8.1f ms (%.0f%% faster, archive %d KB)", sharedMedian,
+                (1 - sharedMedian / plainMedian) * 100, archive.length() / 1024));
+
+        if (sharedMedian >= plainMedian) {
+            System.err.println("The archive did not improve startup.");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs a command to completion and returns the wall clock time in nanoseconds.
+     */
+    private static long time(final File directory, final List<String> command) throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+
+        if (run(directory, command.toArray(new String[command.size()])) != 0) {
+            throw new IllegalStateException("Command failed: " + command);
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Runs a command to completion and returns the exit code.
+     */
+    private static int run(final File directory, final String... command) throws IOException, InterruptedException {
+        return new ProcessBuilder(command).directory(directory).inheritIO().start().waitFor();
+    }
+
+    /**
+     * @return The java executable of the current JVM.
+     */
+    private static String java() {
+        return new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+    }
+
+    /**
+     * @return The median of the values.
+     */
+    private static long median(final List<Long> values) {
+        final List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+}
@@ -0,0 +1,25 @@
+package otld.otld.driver;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WarmupTest {
+    @Test
+    public void testCorpus() throws Exception {
+        List<String> corpus = Warmup.corpus();
+
+        assertTrue(corpus.contains("Enschede.tldr"));
+        for (String program : corpus) {
+            assertFalse(program.startsWith("#"));
+        }
+    }
+
+    @Test
+    public void testExercise() throws Exception {
+        // Enschede and runtimeErrors are valid programs
+        assertEquals(2, Warmup.exercise(2));
+    }
+}
@@ -0,0 +1,90 @@
+package otld.otld.intermediate;
+
+import org.junit.Test;
+import otld.otld.intermediate.ssa.Phi;
+
+import static org.junit.Assert.*;
+
+public class IRVisitorTest {
+
+    /**
+     * Visitor that returns the name of the visited type, prefixed with the context.
+     */
+    private static class NameVisitor implements IRVisitor<String, String> {
+        @Override
+        public String visitApplication(final Application application, final String context) {
+            return context + "application";
+        }
+
+        @Override
+        public String visitValueAssignment(final ValueAssignment assignment, final String context) {
+            return context + "value";
+        }
+
+        @Override
+        public String visitVariableAssignment(final VariableAssignment assignment, final String context) {
+            return context + "variable";
+        }
+
+        @Override
+        public String visitBreak(final Break brake, final String context) {
+            return context + "break";
+        }
+
+        @Override
+        public String visitCall(final Call call, final String context) {
+            return context + "call";
+        }
+
+        @Override
+        public String visitConditional(final Conditional conditional, final String context) {
+            return context + "conditional";
+        }
+
+        @Override
+        public String visitInput(final Input input, final String context) {
+            return context + "input";
+        }
+
+        @Override
+        public String visitLoop(final Loop loop, final String context) {
+            return context + "loop";
+        }
+
+        @Override
+        public String visitOutput(final Output output, final String context) {
+            return context + "output";
+        }
+
+        @Override
+        public String visitReturn(final Return returm, final String context) {
+            return context + "return";
+        }
+    }
+
+    @Test
+    public void testAccept() throws Exception {
+        Variable<Integer> i = Variable.create(Type.INT, "i", "1");
+        Variable<Integer> j = Variable.create(Type.INT, "j", null);
+        Variable<Boolean> b = Variable.create(Type.BOOL, "b", "true");
+        Function f = new Function("f", Type.INT, Type.INT);
+        IRVisitor<String, String> visitor = new NameVisitor();
+
+        assertEquals("-application", new Application(Operator.ADDITION, i, i, j).accept(visitor, "-"));
+        assertEquals("-value", i.createValueAssignment(2).accept(visitor, "-"));
+        assertEquals("-variable", new VariableAssignment(i, j).accept(visitor, "-"));
+        assertEquals("-break", new Break().accept(visitor, "-"));
+        assertEquals("-call", new Call(f, i, j).accept(visitor, "-"));
+        assertEquals("-conditional", new Conditional(b).accept(visitor, "-"));
+        assertEquals("-input", new Input("i?", i).accept(visitor, "-"));
+        assertEquals("-loop", new Loop(b).accept(visitor, "-"));
+        assertEquals("-output", new Output("i=", i).accept(visitor, "-"));
+        assertEquals("-return", new Return(i).accept(visitor, "-"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testOther() throws Exception {
+        Variable<Integer> i = Variable.create(Type.INT, "i", "1");
+        new Phi(i, i, i).accept(new NameVisitor(), "-");
+    }
+}
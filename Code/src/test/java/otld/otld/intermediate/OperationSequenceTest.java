@@ -3,6 +3,8 @@ package otld.otld.intermediate;
 import org.junit.Test;
 import otld.otld.intermediate.exceptions.TypeMismatch;
 
+import java.util.*;
+
 import static org.junit.Assert.*;
 
 public class OperationSequenceTest {
@@ -36,4 +38,131 @@ public class OperationSequenceTest {
         assertEquals(op5, sequence.get(4));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testSplice() throws TypeMismatch {
+        OperationSequence sequence = new OperationSequence();
+        ValueAssignment op1 = x.createValueAssignment(10);
+        ValueAssignment op2 = x.createValueAssignment(20);
+        ValueAssignment op3 = x.createValueAssignment(30);
+        Call op4 = new Call(add, x, y, y);
+
+        sequence.addAll(Arrays.asList(op1, op2, op3));
+        sequence.splice(1, 2, Arrays.asList(op4, op4));
+        assertEquals(Arrays.asList(op1, op4, op4, op3), sequence);
+
+        sequence.splice(0, 3, Collections.<Operation>emptyList());
+        assertEquals(Collections.singletonList(op3), sequence);
+
+        sequence.add(0, op2);
+        sequence.addAll(0, sequence);
+        assertEquals(Arrays.asList(op2, op3, op2, op3), sequence);
+        assertEquals(op2, sequence.getFirst());
+        assertEquals(op3, sequence.getLast());
+
+        sequence.subList(1, 3).clear();
+        assertEquals(Arrays.asList(op2, op3), sequence);
+        assertEquals(op2, sequence.remove(0));
+        assertEquals(op3, sequence.set(0, op1));
+        assertEquals(Collections.singletonList(op1), sequence);
+    }
+
+    @Test
+    public void testIterator() throws TypeMismatch {
+        OperationSequence sequence = new OperationSequence();
+        for (int i = 0; i < 100; i++) {
+            sequence.add(x.createValueAssignment(i));
+        }
+
+        // Removes the assignments of odd values
+        Iterator<Operation> iterator = sequence.iterator();
+        while (iterator.hasNext()) {
+            if ((Integer) ((ValueAssignment) iterator.next()).getValue() % 2 == 1) {
+                iterator.remove();
+            }
+        }
+
+        assertEquals(50, sequence.size());
+        for (int i = 0; i < sequence.size(); i++) {
+            assertEquals(2 * i, ((ValueAssignment) sequence.get(i)).getValue());
+        }
+
+        sequence.clear();
+        assertTrue(sequence.isEmpty());
+        assertFalse(sequence.iterator().hasNext());
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testModification() throws TypeMismatch {
+        OperationSequence sequence = new OperationSequence();
+        sequence.add(x.createValueAssignment(10));
+        sequence.add(x.createValueAssignment(20));
+
+        for (Operation operation : sequence) {
+            sequence.add(operation);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() throws Exception {
+        OperationSequence sequence = new OperationSequence();
+        sequence.trimToSize();
+        sequence.get(0);
+    }
+
+    @Test
+    public void testFreeze() throws Exception {
+        Variable c = Variable.create(Type.BOOL, "c", "true");
+        OperationSequence sequence = new OperationSequence();
+        Loop loop = new Loop(c);
+        loop.getBody().add(new Break());
+        sequence.add(loop);
+        sequence.add(new Break());
+
+        OperationSequence frozen = OperationSequence.freeze(sequence);
+        assertTrue(frozen.isFrozen());
+        assertFalse(sequence.isFrozen());
+        assertSame(frozen, OperationSequence.freeze(frozen));
+        assertSame(sequence.get(1), frozen.get(1));
+
+        // Blocks with frozen bodies are shared, other blocks are copied
+        Loop copy = (Loop) frozen.get(0);
+        assertNotSame(loop, copy);
+        assertTrue(copy.getBody().isFrozen());
+        assertTrue(copy.getConditionBody().isFrozen());
+        assertEquals(c, copy.getCondition());
+
+        OperationSequence changed = new OperationSequence(frozen);
+        changed.add(new Break());
+        assertSame(copy, OperationSequence.freeze(changed).get(0));
+    }
+
+    @Test
+    public void testFrozenModification() throws Exception {
+        OperationSequence sequence = new OperationSequence();
+        sequence.add(new Break());
+        OperationSequence frozen = OperationSequence.freeze(sequence);
+
+        List<Runnable> modifications = Arrays.<Runnable>asList(
+                () -> frozen.add(new Break()),
+                () -> frozen.add(0, new Break()),
+                () -> frozen.set(0, new Break()),
+                () -> frozen.remove(0),
+                () -> frozen.clear(),
+                () -> frozen.trimToSize(),
+                () -> frozen.splice(0, 1, Collections.<Operation>emptyList()),
+                () -> {
+                    Iterator<Operation> iterator = frozen.iterator();
+                    iterator.next();
+                    iterator.remove();
+                });
+
+        for (Runnable modification : modifications) {
+            try {
+                modification.run();
+                fail();
+            } catch (UnsupportedOperationException e) {
+                assertEquals(1, frozen.size());
+            }
+        }
+    }
+}
@@ -4,6 +4,10 @@ import org.junit.Test;
 import otld.otld.intermediate.exceptions.FunctionAlreadyDeclared;
 import otld.otld.intermediate.exceptions.VariableAlreadyDeclared;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 public class ProgramTest {
@@ -45,4 +49,274 @@ public class ProgramTest {
         program.addFunction(f);
         program.addFunction(new Function("f", Type.BOOL));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSymbols() throws Exception {
+        Program program = new Program("test");
+        Variable v = Variable.create(Type.INT, "v", "10");
+        Function f = new Function("f", Type.INT, Type.INT);
+        program.addVariable(v);
+        program.addFunction(f);
+
+        // Variables and functions with the same identifier share a symbol
+        Variable w = Variable.create(Type.BOOL, "f", "false");
+        program.addVariable(w);
+
+        assertEquals(2, program.getSymbols().size());
+        assertEquals(v, program.getVariable(program.getSymbols().lookup("v")));
+        assertEquals(w, program.getVariable(program.getSymbols().lookup("f")));
+        assertEquals(f, program.getFunction("f"));
+        assertNull(program.getVariable("g"));
+        assertNull(program.getFunction("v"));
+    }
+
+    @Test
+    public void testVariableIndex() throws Exception {
+        Program program = new Program("test");
+        Variable v = Variable.create(Type.INT, "v", "10");
+        Function f = new Function("f", Type.INT, Type.INT);
+        Variable w = Variable.create(Type.INT, "w", null);
+        assertEquals(-1, v.getIndex());
+
+        program.addVariable(v);
+        program.addFunction(f);
+        program.addVariable(w);
+
+        assertEquals(0, v.getIndex());
+        assertEquals(1, f.getVariables()[0].getIndex());
+        assertEquals(2, f.getVariables()[1].getIndex());
+        assertEquals(3, w.getIndex());
+        assertEquals(4, program.getVariableCount());
+    }
+
+    @Test
+    public void testDeclarationOrder() throws Exception {
+        Program program = new Program("test");
+        Variable z = Variable.create(Type.INT, "z", null);
+        Variable a = Variable.create(Type.INT, "a", null);
+        Function g = new Function("g", Type.INT);
+        Function f = new Function("f", Type.INT);
+
+        // The symbols are in another order than the declarations
+        program.getSymbols().intern("f");
+        program.getSymbols().intern("a");
+        program.addVariable(z);
+        program.addFunction(g);
+        program.addVariable(a);
+        program.addFunction(f);
+
+        assertArrayEquals(new Variable[] {z, a}, program.getVariables().toArray());
+        assertArrayEquals(new Function[] {g, f}, program.getFunctions().toArray());
+        assertArrayEquals(new Variable[] {z, a}, program.snapshot().getVariables().toArray());
+
+        // The functions of a snapshot are copies
+        List<String> ids = new ArrayList<>();
+        for (Function function : program.snapshot().getFunctions()) {
+            ids.add(function.getId());
+        }
+        assertEquals(Arrays.asList("g", "f"), ids);
+    }
+
+    @Test
+    public void testAddToTwoPrograms() throws Exception {
+        Program program = new Program("test");
+        Program other = new Program("other");
+        Variable v = Variable.create(Type.INT, "v", "10");
+        Function f = new Function("f", Type.INT, Type.INT);
+        program.addVariable(v);
+        program.addFunction(f);
+        other.addVariable(Variable.create(Type.INT, "a", null));
+        other.addVariable(Variable.create(Type.INT, "b", null));
+
+        try {
+            other.addVariable(v);
+            fail();
+        } catch (VariableAlreadyDeclared e) {
+            // A variable belongs to one program
+        }
+        try {
+            other.addFunction(f);
+            fail();
+        } catch (FunctionAlreadyDeclared e) {
+            // A function belongs to one program
+        }
+
+        assertEquals(0, v.getIndex());
+        assertEquals(1, f.getVariables()[0].getIndex());
+        assertArrayEquals(new Variable[] {v}, program.getVariables().toArray());
+        assertArrayEquals(new Function[] {f}, program.getFunctions().toArray());
+        assertNull(other.getVariable("v"));
+        assertNull(other.getFunction("f"));
+        assertEquals(2, other.getVariableCount());
+    }
+
+    @Test
+    public void testManyVariables() throws Exception {
+        Program program = new Program("test");
+        for (int i = 0; i < 10000; i++) {
+            program.addVariable(Variable.create(Type.INT, "v" + i, null));
+        }
+
+        assertEquals(10000, program.getVariables().size());
+        assertEquals(9999, program.getVariable("v9999").getIndex());
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        Program program = new Program("test");
+        Variable c = Variable.create(Type.BOOL, "c", "true");
+        Variable v = Variable.create(Type.INT, "v", "10");
+        Function f = new Function("f", Type.INT, Type.INT);
+        program.addVariable(c);
+        program.addVariable(v);
+        program.addFunction(f);
+        f.getBody().add(new Return(f.getVariables()[0]));
+
+        Conditional conditional = new Conditional(c);
+        conditional.getBodyTrue().add(v.createValueAssignment(1));
+        program.getBody().add(conditional);
+
+        Program snapshot = program.snapshot();
+        assertTrue(snapshot.isFrozen());
+        assertFalse(program.isFrozen());
+        assertSame(snapshot, snapshot.snapshot());
+
+        // The snapshot shares the variables and operations, but has its own bodies
+        assertEquals(program.getId(), snapshot.getId());
+        assertSame(v, snapshot.getVariable("v"));
+        assertEquals(program.getVariableCount(), snapshot.getVariableCount());
+        assertNotSame(f, snapshot.getFunction("f"));
+        assertArrayEquals(f.getVariables(), snapshot.getFunction("f").getVariables());
+        assertEquals(f.getBody(), snapshot.getFunction("f").getBody());
+        Conditional copy = (Conditional) snapshot.getBody().get(0);
+        assertNotSame(conditional, copy);
+        assertSame(conditional.getBodyTrue().get(0), copy.getBodyTrue().get(0));
+        assertTrue(copy.getBodyTrue().isFrozen());
+
+        // Changing the program does not change the snapshot
+        program.addVariable(Variable.create(Type.INT, "w", null));
+        program.getBody().add(new Output("v=", v));
+        conditional.getBodyTrue().clear();
+        assertNull(snapshot.getVariable("w"));
+        assertEquals(-1, snapshot.getSymbols().lookup("w"));
+        assertEquals(1, snapshot.getBody().size());
+        assertEquals(1, copy.getBodyTrue().size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotAddVariable() throws Exception {
+        new Program("test").snapshot().addVariable(Variable.create(Type.INT, "v", "10"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotSymbols() throws Exception {
+        new Program("test").snapshot().getSymbols().intern("v");
+    }
+
+    @Test
+    public void testWithBody() throws Exception {
+        Program program = new Program("test");
+        Variable c = Variable.create(Type.BOOL, "c", "true");
+        Variable v = Variable.create(Type.INT, "v", "10");
+        program.addVariable(c);
+        program.addVariable(v);
+        program.addFunction(new Function("f", Type.INT));
+
+        Loop loop = new Loop(c);
+        loop.getBody().add(new Break());
+        program.getBody().add(loop);
+        program.getBody().add(new Output("v=", v));
+
+        // A pass rewrites the second operation, the loop is shared by both versions
+        Program snapshot = program.snapshot();
+        OperationSequence body = new OperationSequence(snapshot.getBody());
+        body.set(1, new Output("value=", v));
+        Program version = snapshot.withBody(body);
+
+        assertTrue(version.isFrozen());
+        assertSame(snapshot.getBody().get(0), version.getBody().get(0));
+        assertSame(snapshot.getFunction("f"), version.getFunction("f"));
+        assertSame(snapshot.getSymbols(), version.getSymbols());
+        assertEquals("v=", ((Output) snapshot.getBody().get(1)).getDescription());
+        assertEquals("value=", ((Output) version.getBody().get(1)).getDescription());
+        assertNotSame(body, version.getBody());
+        assertSame(version.getBody(), version.withBody(version.getBody()).getBody());
+    }
+
+    @Test
+    public void testWithFunctionBody() throws Exception {
+        Program program = new Program("test");
+        Function f = new Function("f", Type.INT, Type.INT);
+        Function g = new Function("g", Type.INT);
+        program.addFunction(f);
+        program.addFunction(g);
+        f.getBody().add(new Return(f.getVariables()[0]));
+
+        Program snapshot = program.snapshot();
+        OperationSequence body = new OperationSequence();
+        body.add(f.getVariables()[1].createValueAssignment(0));
+        body.add(new Return(f.getVariables()[1]));
+        Program version = snapshot.withFunctionBody("f", body);
+
+        assertEquals(1, snapshot.getFunction("f").getBody().size());
+        assertEquals(2, version.getFunction("f").getBody().size());
+        assertSame(snapshot.getFunction("g"), version.getFunction("g"));
+        assertSame(snapshot.getBody(), version.getBody());
+        assertEquals(1, f.getBody().size());
+    }
+
+    @Test
+    public void testSnapshotCalls() throws Exception {
+        Program program = new Program("test");
+        Variable c = Variable.create(Type.BOOL, "c", "true");
+        Variable v = Variable.create(Type.INT, "v", "10");
+        Function f = new Function("f", Type.INT, Type.INT);
+        Function g = new Function("g", Type.INT, Type.INT);
+        Function h = new Function("h", Type.INT);
+        program.addVariable(c);
+        program.addVariable(v);
+        program.addFunction(f);
+        program.addFunction(g);
+        program.addFunction(h);
+        f.getBody().add(new Return(f.getVariables()[0]));
+        g.getBody().add(new Call(f, g.getVariables()[0], g.getVariables()[1]));
+        g.getBody().add(new Return(g.getVariables()[1]));
+        h.getBody().add(new Return(h.getVariables()[0]));
+
+        Loop loop = new Loop(c);
+        loop.getBody().add(new Call(g, v, v));
+        program.getBody().add(loop);
+        program.getBody().add(new Call(h, v));
+
+        // Calls in a snapshot call the versions of the snapshot, of which the bodies are frozen
+        Program snapshot = program.snapshot();
+        Call call = (Call) ((Loop) snapshot.getBody().get(0)).getBody().get(0);
+        assertSame(snapshot.getFunction("g"), call.getFunction());
+        assertTrue(call.getFunction().getBody().isFrozen());
+        assertSame(snapshot.getFunction("f"), ((Call) call.getFunction().getBody().get(0)).getFunction());
+        assertSame(snapshot.getFunction("h"), ((Call) snapshot.getBody().get(1)).getFunction());
+
+        f.getBody().clear();
+        assertEquals(1, ((Call) call.getFunction().getBody().get(0)).getFunction().getBody().size());
+
+        // A new version of f gives a new version of g, which calls f, and of the loop, which calls g
+        OperationSequence body = new OperationSequence();
+        body.add(new Return(v));
+        Program version = snapshot.withFunctionBody("f", body);
+        Call versionCall = (Call) ((Loop) version.getBody().get(0)).getBody().get(0);
+        assertNotSame(snapshot.getFunction("g"), version.getFunction("g"));
+        assertSame(version.getFunction("g"), versionCall.getFunction());
+        assertSame(version.getFunction("f"), ((Call) version.getFunction("g").getBody().get(0)).getFunction());
+        assertSame(v, ((Return) version.getFunction("f").getBody().get(0)).getSource());
+
+        // Everything that does not call f is shared
+        assertSame(snapshot.getFunction("h"), version.getFunction("h"));
+        assertSame(snapshot.getBody().get(1), version.getBody().get(1));
+        assertSame(snapshot.getFunction("g").getBody().get(1), version.getFunction("g").getBody().get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithUnknownFunctionBody() throws Exception {
+        new Program("test").withFunctionBody("f", new OperationSequence());
+    }
+}
@@ -0,0 +1,35 @@
+package otld.otld.intermediate;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SymbolTableTest {
+
+    @Test
+    public void testIntern() throws Exception {
+        SymbolTable symbols = new SymbolTable();
+        assertEquals(0, symbols.intern("a"));
+        assertEquals(1, symbols.intern("b"));
+        assertEquals(0, symbols.intern(new String("a")));
+        assertEquals(2, symbols.size());
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        SymbolTable symbols = new SymbolTable();
+        symbols.intern("a");
+        assertEquals(0, symbols.lookup("a"));
+        assertEquals(-1, symbols.lookup("b"));
+        assertEquals(1, symbols.size());
+    }
+
+    @Test
+    public void testGetName() throws Exception {
+        SymbolTable symbols = new SymbolTable();
+        String a = "a";
+        int symbol = symbols.intern(a);
+        assertSame(a, symbols.getName(symbol));
+        assertSame(a, symbols.getName(symbols.intern(new String("a"))));
+    }
+}
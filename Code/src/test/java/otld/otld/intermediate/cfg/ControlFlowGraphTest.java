@@ -0,0 +1,235 @@
+package otld.otld.intermediate.cfg;
+
+import org.junit.Test;
+import otld.otld.driver.ProgramGenerator;
+import otld.otld.intermediate.*;
+import otld.otld.parsing.OTLDListener;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ControlFlowGraphTest {
+    private final Variable x = Variable.create(Type.INT, "x", "1");
+    private final Variable c = Variable.create(Type.BOOL, "c", "true");
+
+    /**
+     * Computes the dominators of every block with the plain data-flow equations, to compare the tree against.
+     */
+    private static Map<BasicBlock, Set<BasicBlock>> dominators(final ControlFlowGraph graph, final boolean post) {
+        final BasicBlock root = post ? graph.getExit() : graph.getEntry();
+        final DominatorTree tree = post ? graph.getPostDominators() : graph.getDominators();
+        final Map<BasicBlock, Set<BasicBlock>> dominators = new HashMap<>();
+
+        for (BasicBlock block : graph.getBlocks()) {
+            if (tree.contains(block)) {
+                dominators.put(block, new HashSet<>(block == root ? Collections.singleton(root) : graph.getBlocks()));
+            }
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (BasicBlock block : dominators.keySet()) {
+                if (block == root) {
+                    continue;
+                }
+
+                Set<BasicBlock> result = null;
+                for (BasicBlock predecessor : post ? block.getSuccessors() : block.getPredecessors()) {
+                    if (dominators.containsKey(predecessor)) {
+                        if (result == null) {
+                            result = new HashSet<>(dominators.get(predecessor));
+                        } else {
+                            result.retainAll(dominators.get(predecessor));
+                        }
+                    }
+                }
+                result.add(block);
+
+                if (!result.equals(dominators.get(block))) {
+                    dominators.put(block, result);
+                    changed = true;
+                }
+            }
+        }
+
+        return dominators;
+    }
+
+    private static void assertTree(final ControlFlowGraph graph, final boolean post) {
+        final DominatorTree tree = post ? graph.getPostDominators() : graph.getDominators();
+        final Map<BasicBlock, Set<BasicBlock>> expected = dominators(graph, post);
+
+        for (BasicBlock block : graph.getBlocks()) {
+            for (BasicBlock other : graph.getBlocks()) {
+                final boolean dominates = expected.containsKey(block) && expected.get(block).contains(other);
+                assertEquals(String.format("%s %s", other, block), dominates, tree.dominates(other, block));
+            }
+        }
+    }
+
+    @Test
+    public void testSequence() throws Exception {
+        OperationSequence body = new OperationSequence();
+        body.add(x.createValueAssignment(2));
+        body.add(new Output("x=", x));
+
+        ControlFlowGraph graph = ControlFlowGraph.build(body);
+        assertEquals(2, graph.getBlocks().size());
+        assertEquals(body, graph.getEntry().getOperations());
+        assertEquals(Collections.singletonList(graph.getExit()), graph.getEntry().getSuccessors());
+        assertEquals(graph.getEntry(), graph.getBlock(body.get(1)));
+        assertEquals(graph.getEntry(), graph.getDominators().getImmediateDominator(graph.getExit()));
+        assertEquals(graph.getExit(), graph.getPostDominators().getImmediateDominator(graph.getEntry()));
+        assertTrue(graph.getLoops().getLoops().isEmpty());
+    }
+
+    @Test
+    public void testConditional() throws Exception {
+        OperationSequence body = new OperationSequence();
+        Conditional conditional = new Conditional(c);
+        conditional.getBodyTrue().add(x.createValueAssignment(2));
+        body.add(conditional);
+        body.add(new Output("x=", x));
+
+        ControlFlowGraph graph = ControlFlowGraph.build(body);
+        BasicBlock entry = graph.getEntry();
+        assertEquals(conditional, entry.getTerminator());
+        assertEquals(c, entry.getCondition());
+        assertEquals(2, entry.getSuccessors().size());
+
+        BasicBlock branchTrue = entry.getSuccessors().get(0);
+        BasicBlock branchFalse = entry.getSuccessors().get(1);
+        BasicBlock join = graph.getBlock(body.get(1));
+        assertEquals(graph.getBlock(conditional.getBodyTrue().get(0)), branchTrue);
+        assertTrue(branchFalse.getOperations().isEmpty());
+        assertEquals(Arrays.asList(branchTrue, branchFalse), join.getPredecessors());
+
+        DominatorTree dominators = graph.getDominators();
+        assertEquals(entry, dominators.getImmediateDominator(join));
+        assertTrue(dominators.strictlyDominates(entry, branchTrue));
+        assertFalse(dominators.dominates(branchTrue, join));
+        assertEquals(3, dominators.getChildren(entry).size());
+
+        DominatorTree postDominators = graph.getPostDominators();
+        assertEquals(join, postDominators.getImmediateDominator(entry));
+        assertTrue(postDominators.dominates(join, branchFalse));
+        assertTrue(postDominators.isPostDominatorTree());
+    }
+
+    @Test
+    public void testLoops() throws Exception {
+        // Outer loop with a nested loop and a conditional break
+        OperationSequence body = new OperationSequence();
+        Loop outer = new Loop(c);
+        Loop inner = new Loop(c);
+        Conditional conditional = new Conditional(c);
+        conditional.getBodyTrue().add(new Break());
+        inner.getBody().add(x.createValueAssignment(2));
+        inner.getBody().add(conditional);
+        outer.getConditionBody().add(new Output("x=", x));
+        outer.getBody().add(inner);
+        outer.getBody().add(new Output("x=", x));
+        body.add(outer);
+
+        ControlFlowGraph graph = ControlFlowGraph.build(body);
+        LoopNest nest = graph.getLoops();
+        assertEquals(2, nest.getLoops().size());
+        assertEquals(1, nest.getOutermostLoops().size());
+
+        NaturalLoop outerLoop = nest.getLoops().get(0);
+        NaturalLoop innerLoop = nest.getLoops().get(1);
+        assertEquals(outer, outerLoop.getLoop());
+        assertEquals(inner, innerLoop.getLoop());
+        assertEquals(graph.getHeader(outer), outerLoop.getHeader());
+        assertEquals(graph.getBlock(outer.getConditionBody().get(0)), outerLoop.getHeader());
+        assertEquals(outerLoop, innerLoop.getParent());
+        assertEquals(Collections.singletonList(innerLoop), outerLoop.getChildren());
+        assertEquals(2, innerLoop.getDepth());
+        assertTrue(outerLoop.contains(innerLoop));
+        assertFalse(innerLoop.contains(outerLoop));
+
+        // The break leaves only the inner loop, and cannot reach its back edge so it is not part of it
+        BasicBlock breaking = graph.getBlock(conditional.getBodyTrue().get(0));
+        BasicBlock after = graph.getBlock(outer.getBody().get(1));
+        assertEquals(Collections.singletonList(after), breaking.getSuccessors());
+        assertEquals(outerLoop, nest.getLoop(breaking));
+        assertEquals(innerLoop, nest.getLoop(graph.getBlock(inner.getBody().get(0))));
+        assertEquals(outerLoop, nest.getLoop(after));
+        assertEquals(1, nest.getDepth(after));
+        assertEquals(0, nest.getDepth(graph.getExit()));
+        assertEquals(Collections.singletonList(after), outerLoop.getLatches());
+        assertTrue(outerLoop.getBlocks().containsAll(innerLoop.getBlocks()));
+        assertTrue(outerLoop.getOwnBlocks().contains(breaking));
+        assertFalse(innerLoop.getBlocks().contains(breaking));
+
+        assertTree(graph, false);
+        assertTree(graph, true);
+    }
+
+    @Test
+    public void testReturn() throws Exception {
+        Function function = new Function("f", Type.INT, Type.INT);
+        Variable platform = function.getVariables()[0];
+        Conditional conditional = new Conditional(c);
+        conditional.getBodyTrue().add(new Return(platform));
+        conditional.getBodyFalse().add(new Return(platform));
+        function.getBody().add(conditional);
+        function.getBody().add(new Output("x=", platform));
+
+        ControlFlowGraph graph = ControlFlowGraph.build(function);
+        BasicBlock returning = graph.getBlock(conditional.getBodyTrue().get(0));
+        assertEquals(conditional.getBodyTrue().get(0), returning.getTerminator());
+        assertEquals(Collections.singletonList(graph.getExit()), returning.getSuccessors());
+
+        // The output cannot be reached, so it is not in the dominator tree
+        BasicBlock dead = graph.getBlock(function.getBody().get(1));
+        assertTrue(dead.getPredecessors().isEmpty());
+        assertFalse(graph.getDominators().contains(dead));
+        assertNull(graph.getDominators().getImmediateDominator(dead));
+        assertFalse(graph.getReversePostorder().contains(dead));
+        assertTrue(graph.getPostDominators().contains(dead));
+        assertEquals(graph.getEntry(), graph.getDominators().getImmediateDominator(graph.getExit()));
+    }
+
+    @Test
+    public void testGenerated() throws Exception {
+        for (long seed = 0; seed < 10; seed++) {
+            ProgramGenerator generator = new ProgramGenerator("Generated", seed);
+            generator.setWaypoints(3);
+            generator.setFactories(2);
+            generator.setDepth(4);
+            generator.setStatements(100);
+
+            OTLDListener parser = OTLDListener.parseFile(new ByteArrayInputStream(
+                    generator.generate().getBytes(StandardCharsets.UTF_8)));
+            Program program = parser.getProgram();
+
+            List<ControlFlowGraph> graphs = new ArrayList<>();
+            graphs.add(ControlFlowGraph.build(program));
+            for (Function function : program.getFunctions()) {
+                graphs.add(ControlFlowGraph.build(function));
+            }
+
+            for (ControlFlowGraph graph : graphs) {
+                assertTree(graph, false);
+                assertTree(graph, true);
+
+                // Every back edge goes to the header of a loop that contains its source
+                for (BasicBlock block : graph.getReversePostorder()) {
+                    for (BasicBlock successor : block.getSuccessors()) {
+                        if (graph.getDominators().dominates(successor, block)) {
+                            NaturalLoop loop = graph.getLoops().getLoop(successor);
+                            assertEquals(successor, loop.getHeader());
+                            assertTrue(loop.getLatches().contains(block));
+                            assertTrue(loop.contains(graph.getLoops().getLoop(block)));
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package otld.otld.intermediate.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import otld.otld.driver.ProgramGenerator;
+import otld.otld.intermediate.*;
+import otld.otld.jvm.BytecodeCompiler;
+import otld.otld.jvm.ProgramClassLoader;
+import otld.otld.parsing.OTLDListener;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IRFormatTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Program parse(final String source) throws Exception {
+        OTLDListener parser = OTLDListener.parseFile(new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0, parser.getErrors().size());
+        return parser.getProgram();
+    }
+
+    private static String example(final String name) throws Exception {
+        File file = new File(OTLDListener.class.getResource(name).getPath());
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compiles and runs a program and returns its output, followed by the exception it ended with if any.
+     */
+    private static String run(final Program program) throws Exception {
+        BytecodeCompiler compiler = new BytecodeCompiler(program);
+        compiler.compile();
+
+        PrintStream originalOut = System.out;
+        InputStream originalIn = System.in;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try {
+            System.setOut(new PrintStream(out, true));
+            System.setIn(new ByteArrayInputStream("5\n".getBytes(StandardCharsets.UTF_8)));
+            new ProgramClassLoader().run(compiler.asByteArray());
+        } catch (InvocationTargetException e) {
+            out.write(e.getCause().getClass().getName().getBytes(StandardCharsets.UTF_8));
+        } finally {
+            System.setOut(originalOut);
+            System.setIn(originalIn);
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Asserts that a program reads back as a program that writes the same bytes and runs the same.
+     */
+    private static void assertRoundTrip(final Program program) throws Exception {
+        byte[] bytes = IRWriter.write(program);
+        Program read = IRReader.read(bytes);
+
+        assertEquals(program.getId(), read.getId());
+        assertEquals(program.getVariableCount(), read.getVariableCount());
+        for (Variable variable : program.getVariables()) {
+            Variable other = read.getVariable(variable.getId());
+            assertEquals(variable.getIndex(), other.getIndex());
+            assertEquals(variable.getType(), other.getType());
+            assertEquals(variable.getInitialValue(), other.getInitialValue());
+        }
+        for (Function function : program.getFunctions()) {
+            assertArrayEquals(function.getArgTypes(), read.getFunction(function.getId()).getArgTypes());
+            assertEquals(function.getType(), read.getFunction(function.getId()).getType());
+        }
+
+        assertArrayEquals(bytes, IRWriter.write(read));
+        assertEquals(run(program), run(read));
+    }
+
+    @Test
+    public void testExamples() throws Exception {
+        assertRoundTrip(parse(example("Enschede.tldr")));
+        assertRoundTrip(parse(example("runtimeErrors.tldr")));
+    }
+
+    @Test
+    public void testGenerated() throws Exception {
+        for (long seed = 0; seed < 10; seed++) {
+            ProgramGenerator generator = new ProgramGenerator("Generated", seed);
+            generator.setSignals(2);
+            generator.setWaypoints(3);
+            generator.setFactories((int) seed % 4);
+            generator.setDepth(3);
+            generator.setStatements(100);
+            assertRoundTrip(parse(generator.generate()));
+        }
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        Program program = parse(example("Enschede.tldr"));
+        assertRoundTrip(program.snapshot());
+        assertArrayEquals(IRWriter.write(program), IRWriter.write(program.snapshot()));
+
+        // A version with a new function body, which the calls in the body of the program are changed to call
+        Function function = program.getFunction("notLessThanOrEquals");
+        List<Operation> operations = new ArrayList<>();
+        for (Operation operation : function.getBody()) {
+            operations.add(operation);
+        }
+        Program version = program.withFunctionBody(function.getId(), new OperationSequence(operations));
+        assertRoundTrip(version);
+        assertArrayEquals(IRWriter.write(program), IRWriter.write(version));
+
+        Program read = IRReader.read(IRWriter.write(version));
+        boolean calls = false;
+        for (Operation operation : read.getBody()) {
+            if (operation instanceof Call) {
+                calls = true;
+                assertSame(read.getFunction(((Call) operation).getFunction().getId()), ((Call) operation).getFunction());
+            }
+        }
+        assertTrue(calls);
+    }
+
+    @Test
+    public void testConstants() throws Exception {
+        Program program = new Program("Constants");
+        program.addVariable(Variable.create(Type.INT, "negative", "-123456789"));
+        program.addVariable(Variable.create(Type.INT, "max", Integer.toString(Integer.MAX_VALUE)));
+        program.addVariable(Variable.create(Type.INT, "min", Integer.toString(Integer.MIN_VALUE)));
+        program.addVariable(Variable.create(Type.CHAR, "c", "€"));
+        program.addVariable(Variable.create(Type.BOOL, "b", "true"));
+        program.addVariable(Variable.create(Type.INT, "none", null));
+        program.addVariable(new Variable(Type.INTARR, "array"));
+
+        Variable c = program.getVariable("c");
+        program.getBody().add(c.createValueAssignment('x'));
+        program.getBody().add(program.getVariable("none").createValueAssignment(-1));
+        program.getBody().add(new Output("éè \"quoted\"", c));
+
+        Program read = IRReader.read(IRWriter.write(program));
+        assertEquals(-123456789, read.getVariable("negative").getInitialValue());
+        assertEquals(Integer.MAX_VALUE, read.getVariable("max").getInitialValue());
+        assertEquals(Integer.MIN_VALUE, read.getVariable("min").getInitialValue());
+        assertEquals('€', read.getVariable("c").getInitialValue());
+        assertEquals(true, read.getVariable("b").getInitialValue());
+        assertNull(read.getVariable("none").getInitialValue());
+        assertEquals(Type.INTARR, read.getVariable("array").getType());
+
+        assertEquals('x', ((ValueAssignment) read.getBody().get(0)).getValue());
+        assertEquals(-1, ((ValueAssignment) read.getBody().get(1)).getValue());
+        assertEquals("éè \"quoted\"", ((Output) read.getBody().get(2)).getDescription());
+        assertEquals(read.getVariable("c"), ((Output) read.getBody().get(2)).getSource());
+    }
+
+    @Test
+    public void testDetachedVariables() throws Exception {
+        Program program = new Program("Detached");
+        Variable x = Variable.create(Type.INT, "x", "1");
+        program.addVariable(x);
+
+        // Variables that were not added to the program, such as those created by optimizations
+        Variable detached = new Variable(Type.INT, "x$1");
+        Variable other = new Variable(Type.INT, "x$2");
+        program.getBody().add(new VariableAssignment(detached, x));
+        program.getBody().add(new Application(Operator.ADDITION, detached, detached, other));
+        program.getBody().add(new Output("x=", other));
+
+        Program read = IRReader.read(IRWriter.write(program));
+        VariableAssignment assignment = (VariableAssignment) read.getBody().get(0);
+        Application application = (Application) read.getBody().get(1);
+        assertEquals("x$1", assignment.getTarget().getId());
+        assertEquals(-1, assignment.getTarget().getIndex());
+        assertSame(assignment.getTarget(), application.getArgs()[0]);
+        assertSame(assignment.getTarget(), application.getArgs()[1]);
+        assertSame(application.getTarget(), ((Output) read.getBody().get(2)).getSource());
+        assertNull(read.getVariable("x$1"));
+    }
+
+    @Test
+    public void testFile() throws Exception {
+        Program program = parse(example("Enschede.tldr"));
+        Path path = folder.newFile("Enschede.ir").toPath();
+
+        IRWriter.write(program, path);
+        assertArrayEquals(IRWriter.write(program), Files.readAllBytes(path));
+        assertArrayEquals(IRWriter.write(program), IRWriter.write(IRReader.read(path)));
+
+        // A buffer can hold the program after other data
+        byte[] bytes = IRWriter.write(program);
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 3);
+        buffer.put(new byte[3]).put(bytes).position(3);
+        assertEquals(program.getId(), IRReader.read(buffer).getId());
+    }
+
+    @Test
+    public void testInvalid() throws Exception {
+        byte[] bytes = IRWriter.write(parse(example("Enschede.tldr")));
+
+        byte[] magic = bytes.clone();
+        magic[0] = 'X';
+        assertInvalid(magic, "Not an");
+
+        byte[] version = bytes.clone();
+        version[7] = 99;
+        assertInvalid(version, "Unsupported version 99");
+
+        assertInvalid(Arrays.copyOf(bytes, bytes.length - 1), "Truncated");
+        assertInvalid(Arrays.copyOf(bytes, 10), "Not an");
+
+        // Counts in the header that would allocate more than the file holds
+        assertInvalid(header(bytes, 8, -1), "Corrupt");
+        assertInvalid(header(bytes, 8, Integer.MAX_VALUE), "Corrupt");
+        assertInvalid(header(bytes, 12, -1), "Corrupt");
+        assertInvalid(header(bytes, 16, Integer.MIN_VALUE), "Corrupt");
+        assertInvalid(header(bytes, 12, Integer.MAX_VALUE), "Truncated");
+
+        // A string of which the length is larger than the file
+        byte[] string = bytes.clone();
+        string[20] = (byte) 0xFF;
+        string[21] = (byte) 0xFF;
+        string[22] = (byte) 0xFF;
+        string[23] = (byte) 0x7F;
+        assertInvalid(string, "Corrupt");
+    }
+
+    /**
+     * @return A copy of the bytes with an integer in the header replaced.
+     */
+    private static byte[] header(final byte[] bytes, final int offset, final int value) {
+        byte[] copy = bytes.clone();
+        ByteBuffer.wrap(copy).putInt(offset, value);
+        return copy;
+    }
+
+    private static void assertInvalid(final byte[] bytes, final String message) {
+        try {
+            IRReader.read(bytes);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+}
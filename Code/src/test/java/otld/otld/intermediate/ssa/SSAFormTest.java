@@ -0,0 +1,319 @@
+package otld.otld.intermediate.ssa;
+
+import org.junit.Test;
+import otld.otld.driver.ProgramGenerator;
+import otld.otld.intermediate.*;
+import otld.otld.jvm.BytecodeCompiler;
+import otld.otld.jvm.ProgramClassLoader;
+import otld.otld.parsing.OTLDListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SSAFormTest {
+    /**
+     * Parses a program.
+     */
+    private static Program parse(final String source) throws Exception {
+        OTLDListener parser = OTLDListener.parseFile(new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0, parser.getErrors().size());
+        return parser.getProgram();
+    }
+
+    /**
+     * Compiles and runs a program and returns its output, followed by the exception it ended with if any.
+     */
+    private static String run(final Program program, final Map<Variable, Integer> locals) throws Exception {
+        BytecodeCompiler compiler = new BytecodeCompiler(program);
+        compiler.setLocals(locals);
+        compiler.compile();
+
+        PrintStream originalOut = System.out;
+        InputStream originalIn = System.in;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try {
+            System.setOut(new PrintStream(out, true));
+            System.setIn(new ByteArrayInputStream("5\n".getBytes(StandardCharsets.UTF_8)));
+            new ProgramClassLoader().run(compiler.asByteArray());
+        } catch (InvocationTargetException e) {
+            out.write(e.getCause().getClass().getName().getBytes(StandardCharsets.UTF_8));
+        } finally {
+            System.setOut(originalOut);
+            System.setIn(originalIn);
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Asserts that a program has the same output with and without going through SSA form.
+     */
+    private static void assertSameOutput(final String source) throws Exception {
+        String expected = run(parse(source), Collections.<Variable, Integer>emptyMap());
+
+        Program program = parse(source);
+        SSAForm form = SSAForm.construct(program);
+        assertSingleAssignment(form);
+
+        assertEquals(expected, run(program, form.destruct()));
+    }
+
+    /**
+     * Asserts that every version is assigned once, by the operation that is recorded as its definition, and that the
+     * renamed variables are not assigned at all.
+     */
+    private static void assertSingleAssignment(final SSAForm form) {
+        Map<Variable, Operation> definitions = new HashMap<>();
+        for (Function function : form.getProgram().getFunctions()) {
+            definitions(function.getBody(), definitions);
+        }
+        definitions(form.getProgram().getBody(), definitions);
+
+        for (Map.Entry<Variable, Operation> definition : definitions.entrySet()) {
+            if (form.isVersion(definition.getKey())) {
+                assertSame(definition.getValue(), form.getDefinition(definition.getKey()));
+            }
+        }
+    }
+
+    private static void definitions(final OperationSequence sequence, final Map<Variable, Operation> definitions) {
+        for (Operation operation : sequence) {
+            Variable target = null;
+
+            if (operation instanceof Assignment) {
+                target = ((Assignment) operation).getTarget();
+            } else if (operation instanceof Application) {
+                target = ((Application) operation).getTarget();
+            } else if (operation instanceof Call) {
+                target = ((Call) operation).getTarget();
+            } else if (operation instanceof Input) {
+                target = ((Input) operation).getTarget();
+            } else if (operation instanceof Phi) {
+                target = ((Phi) operation).getTarget();
+            } else if (operation instanceof Conditional) {
+                definitions(((Conditional) operation).getBodyTrue(), definitions);
+                definitions(((Conditional) operation).getBodyFalse(), definitions);
+            } else if (operation instanceof Loop) {
+                definitions(((Loop) operation).getConditionBody(), definitions);
+                definitions(((Loop) operation).getBody(), definitions);
+            }
+
+            if (target != null && (target.getId().contains("$") || definitions.containsKey(target))) {
+                assertNull(target.toString(), definitions.put(target, operation));
+            }
+        }
+    }
+
+    @Test
+    public void testExamples() throws Exception {
+        for (String name : new String[] {"Enschede.tldr", "runtimeErrors.tldr"}) {
+            File file = new File(OTLDListener.class.getResource(name).getPath());
+            assertSameOutput(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testGenerated() throws Exception {
+        for (long seed = 0; seed < 20; seed++) {
+            ProgramGenerator generator = new ProgramGenerator("Generated", seed);
+            generator.setWagons(1 + (int) seed);
+            generator.setSignals((int) seed % 3);
+            generator.setWaypoints((int) seed % 4);
+            generator.setFactories((int) seed % 5);
+            generator.setDepth((int) seed % 5);
+            generator.setStatements(200);
+            assertSameOutput(generator.generate());
+        }
+    }
+
+    @Test
+    public void testConditional() throws Exception {
+        Program program = new Program("Conditional");
+        Variable x = Variable.create(Type.INT, "x", null);
+        Variable c = Variable.create(Type.BOOL, "c", "true");
+        program.addVariable(x);
+        program.addVariable(c);
+
+        Conditional conditional = new Conditional(c);
+        conditional.getBodyTrue().add(x.createValueAssignment(1));
+        conditional.getBodyFalse().add(x.createValueAssignment(2));
+        program.getBody().add(conditional);
+        program.getBody().add(new Output("x=", x));
+
+        SSAForm form = SSAForm.construct(program);
+        OperationSequence body = program.getBody();
+        assertEquals(3, body.size());
+
+        // The branches define versions, which are joined after the conditional
+        Conditional renamed = (Conditional) body.get(0);
+        Phi phi = (Phi) body.get(1);
+        assertEquals(((Assignment) renamed.getBodyTrue().get(0)).getTarget(), phi.getSource(0));
+        assertEquals(((Assignment) renamed.getBodyFalse().get(0)).getTarget(), phi.getSource(1));
+        assertEquals(phi.getTarget(), ((Output) body.get(2)).getSource());
+        assertEquals(x, form.getOriginal(phi.getTarget()));
+        assertEquals(phi, form.getDefinition(phi.getTarget()));
+        assertEquals(Collections.singletonList(body.get(2)), form.getUses(phi.getTarget()));
+        assertEquals(c, renamed.getCondition());
+
+        Map<Variable, Integer> locals = form.destruct();
+        assertEquals(2, body.size());
+        assertEquals(2, ((Conditional) body.get(0)).getBodyTrue().size());
+        assertEquals("x=1", run(program, locals).trim());
+    }
+
+    @Test
+    public void testLoop() throws Exception {
+        Program program = new Program("Loop");
+        Variable x = Variable.create(Type.INT, "x", "0");
+        Variable one = Variable.create(Type.INT, "one", "1");
+        Variable ten = Variable.create(Type.INT, "ten", "10");
+        Variable c = Variable.create(Type.BOOL, "c", null);
+        program.addVariable(x);
+        program.addVariable(one);
+        program.addVariable(ten);
+        program.addVariable(c);
+
+        Loop loop = new Loop(c);
+        loop.getConditionBody().add(new Application(Operator.COMPLT, x, ten, c));
+        loop.getBody().add(new Application(Operator.ADDITION, x, one, x));
+        program.getBody().add(loop);
+        program.getBody().add(new Output("x=", x));
+
+        SSAForm form = SSAForm.construct(program);
+        Loop renamed = (Loop) program.getBody().get(0);
+
+        // Both variables that the loop assigns get a phi operation at the start of the loop
+        Phi phiX = (Phi) renamed.getConditionBody().get(0);
+        Phi phiC = (Phi) renamed.getConditionBody().get(1);
+        assertEquals(x, phiX.getSource(0));
+        assertEquals(((Application) renamed.getBody().get(0)).getTarget(), phiX.getSource(1));
+        assertEquals(phiX.getTarget(), ((Application) renamed.getBody().get(0)).getArgs()[0]);
+        assertEquals(c, form.getOriginal(phiC.getTarget()));
+        assertEquals(((Application) renamed.getConditionBody().get(2)).getTarget(), renamed.getCondition());
+
+        // The loop only ends at its condition, so no phi operation is needed after it
+        assertEquals(2, program.getBody().size());
+        assertEquals(phiX.getTarget(), ((Output) program.getBody().get(1)).getSource());
+
+        assertEquals("x=10", run(program, form.destruct()).trim());
+    }
+
+    @Test
+    public void testBreak() throws Exception {
+        Program program = new Program("Break");
+        Variable x = Variable.create(Type.INT, "x", "0");
+        Variable one = Variable.create(Type.INT, "one", "1");
+        Variable five = Variable.create(Type.INT, "five", "5");
+        Variable c = Variable.create(Type.BOOL, "c", "true");
+        Variable d = Variable.create(Type.BOOL, "d", null);
+        program.addVariable(x);
+        program.addVariable(one);
+        program.addVariable(five);
+        program.addVariable(c);
+        program.addVariable(d);
+
+        // Counts to five and breaks out of the loop, with a different version at the condition and at the break
+        Loop loop = new Loop(c);
+        loop.getBody().add(new Application(Operator.ADDITION, x, one, x));
+        loop.getBody().add(new Application(Operator.EQUALS, x, five, d));
+        Conditional conditional = new Conditional(d);
+        conditional.getBodyTrue().add(new Application(Operator.ADDITION, x, x, x));
+        conditional.getBodyTrue().add(new Break());
+        conditional.getBodyTrue().add(new Output("unreachable", x));
+        loop.getBody().add(conditional);
+        program.getBody().add(loop);
+        program.getBody().add(new Output("x=", x));
+
+        SSAForm form = SSAForm.construct(program);
+        Loop renamed = (Loop) program.getBody().get(0);
+        Conditional breaking = (Conditional) renamed.getBody().get(2);
+
+        // The operation after the break is dropped, and the loop is left at its condition or at the break
+        assertEquals(2, breaking.getBodyTrue().size());
+        assertEquals(4, program.getBody().size());
+        Phi exit = (Phi) program.getBody().get(1);
+        assertEquals(x, form.getOriginal(exit.getTarget()));
+        assertEquals(2, exit.getSources().length);
+        assertEquals(((Application) breaking.getBodyTrue().get(0)).getTarget(), exit.getSource(1));
+        assertEquals(exit.getTarget(), ((Output) program.getBody().get(3)).getSource());
+
+        assertEquals("x=10", run(program, form.destruct()).trim());
+    }
+
+    @Test
+    public void testSwap() throws Exception {
+        Program program = new Program("Swap");
+        Variable a = Variable.create(Type.INT, "a", "1");
+        Variable b = Variable.create(Type.INT, "b", "2");
+        Variable t = Variable.create(Type.INT, "t", null);
+        Variable i = Variable.create(Type.INT, "i", "0");
+        Variable one = Variable.create(Type.INT, "one", "1");
+        Variable three = Variable.create(Type.INT, "three", "3");
+        Variable c = Variable.create(Type.BOOL, "c", null);
+        for (Variable variable : new Variable[] {a, b, t, i, one, three, c}) {
+            program.addVariable(variable);
+        }
+
+        // The versions of a and b at the end of the body are each other's phi operation, which is a cycle
+        Loop loop = new Loop(c);
+        loop.getConditionBody().add(new Application(Operator.COMPLT, i, three, c));
+        loop.getBody().add(t.createVariableAssignment(a));
+        loop.getBody().add(a.createVariableAssignment(b));
+        loop.getBody().add(b.createVariableAssignment(t));
+        loop.getBody().add(new Application(Operator.ADDITION, i, one, i));
+        program.getBody().add(loop);
+        program.getBody().add(new Output("a=", a));
+        program.getBody().add(new Output("b=", b));
+
+        String expected = run(program, Collections.<Variable, Integer>emptyMap());
+        assertEquals("a=2\nb=1", expected.trim().replace(System.lineSeparator(), "\n"));
+
+        SSAForm form = SSAForm.construct(program);
+        assertEquals(expected, run(program, form.destruct()));
+    }
+
+    @Test
+    public void testFunctions() throws Exception {
+        Program program = new Program("Functions");
+        Variable shared = Variable.create(Type.INT, "shared", "3");
+        Variable local = Variable.create(Type.INT, "local", "4");
+        program.addVariable(shared);
+        program.addVariable(local);
+
+        // Parameters are renamed in functions, variables that a function uses are not renamed in the company
+        Function function = new Function("f", Type.INT, Type.INT);
+        program.addFunction(function);
+        Variable platform = function.getVariables()[0];
+        function.getBody().add(new Application(Operator.ADDITION, platform, shared, platform));
+        function.getBody().add(new Return(platform));
+
+        program.getBody().add(new Call(function, local, local));
+        program.getBody().add(new Call(function, local, shared));
+        program.getBody().add(new Output("shared=", shared));
+
+        SSAForm form = SSAForm.construct(program);
+        assertTrue(form.isVersion(((Application) function.getBody().get(0)).getTarget()));
+        assertEquals(platform, ((Application) function.getBody().get(0)).getArgs()[0]);
+        assertTrue(form.isVersion(((Call) program.getBody().get(0)).getTarget()));
+        assertEquals(shared, ((Call) program.getBody().get(1)).getTarget());
+
+        assertEquals("shared=10", run(program, form.destruct()).trim());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDestructTwice() throws Exception {
+        SSAForm form = SSAForm.construct(new Program("Empty"));
+        form.destruct();
+        form.destruct();
+    }
+}
@@ -2,9 +2,18 @@ package otld.otld.jvm;
 
 import org.junit.Before;
 import org.junit.Test;
+import otld.otld.driver.ProgramGenerator;
 import otld.otld.intermediate.*;
+import otld.otld.parsing.OTLDListener;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 
@@ -90,4 +99,66 @@ public class BytecodeCompilerTest {
         fos.write(compiler.asByteArray());
         fos.close();
     }
+
+    @Test
+    public void testReproducible() throws Exception {
+        ProgramGenerator generator = new ProgramGenerator("Reproducible", 5);
+        generator.setSignals(3);
+        generator.setWaypoints(4);
+        generator.setFactories(6);
+        generator.setStatements(200);
+        String source = generator.generate();
+
+        // Every parse creates new variables and functions, so nothing may depend on their identity
+        byte[] expected = null;
+        for (int i = 0; i < 5; i++) {
+            Program program = OTLDListener.parseFile(new ByteArrayInputStream(
+                    source.getBytes(StandardCharsets.UTF_8))).getProgram();
+            BytecodeCompiler compiler = new BytecodeCompiler(program);
+            compiler.compile();
+
+            if (expected == null) {
+                expected = compiler.asByteArray();
+            } else {
+                assertArrayEquals(expected, compiler.asByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void testSnapshotConcurrently() throws Exception {
+        ProgramGenerator generator = new ProgramGenerator("Snapshot", 3);
+        generator.setFactories(4);
+        generator.setDepth(3);
+        generator.setStatements(500);
+        Program program = OTLDListener.parseFile(new ByteArrayInputStream(
+                generator.generate().getBytes(StandardCharsets.UTF_8))).getProgram();
+
+        final Program snapshot = program.snapshot();
+        BytecodeCompiler expected = new BytecodeCompiler(snapshot);
+        expected.compile();
+
+        // Compile the snapshot on several threads while the program is changed
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> {
+                    BytecodeCompiler compiler = new BytecodeCompiler(snapshot);
+                    compiler.compile();
+                    return compiler.asByteArray();
+                }));
+            }
+
+            while (!program.getBody().isEmpty()) {
+                program.getBody().remove(program.getBody().size() - 1);
+            }
+
+            for (Future<byte[]> result : results) {
+                assertArrayEquals(expected.asByteArray(), result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,54 @@
+package otld.otld.jvm;
+
+import org.junit.Test;
+import otld.otld.intermediate.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.*;
+
+public class ProgramClassLoaderTest {
+    /**
+     * Compiles a program that prints the sum of two numbers.
+     */
+    private byte[] compile(final String id) throws Exception {
+        Program program = new Program(id);
+        Variable x = Variable.create(Type.INT, "x", "40");
+        Variable y = Variable.create(Type.INT, "y", "2");
+        program.addVariable(x);
+        program.addVariable(y);
+        program.getBody().add(new Application(Operator.ADDITION, x, y, x));
+        program.getBody().add(new Output("x=", x));
+
+        BytecodeCompiler compiler = new BytecodeCompiler(program);
+        compiler.compile();
+        return compiler.asByteArray();
+    }
+
+    @Test
+    public void testDefine() throws Exception {
+        Class<?> cls = new ProgramClassLoader().define(this.compile("Sum"));
+
+        assertEquals("Sum", cls.getName());
+        assertNotNull(cls.getMethod("main", String[].class));
+
+        // Different loaders have different namespaces
+        assertNotSame(cls, new ProgramClassLoader().define(this.compile("Sum")));
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        PrintStream original = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try {
+            System.setOut(new PrintStream(out, true));
+            new ProgramClassLoader().run(this.compile("Sum"));
+        } finally {
+            System.setOut(original);
+        }
+
+        assertEquals("x=42", out.toString().trim());
+    }
+}
@@ -0,0 +1,176 @@
+package otld.otld.parsing;
+
+import org.junit.Test;
+import otld.otld.driver.ProgramGenerator;
+import otld.otld.intermediate.Function;
+import otld.otld.intermediate.OperationSequence;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that parsing a part of a program after an edit gives the same program and errors as parsing all of it.
+ */
+public class IncrementalParserTest {
+    /** Text that is inserted by the random edits. */
+    private static final String[] INSERTIONS = {
+            " ", "\n", "\n\n", "/* comment */", "x", "1", ";", "Stop", "Begin", "platform1", "\"text\"",
+            "Load 5 into wagon d;\n", "Load 5 into wagon x;\n", "Write \"x\" a to journal;\n", "Stop;\n",
+            "Transport a,d to factory notLessThanOrEquals and fully load b;\n",
+            "Transport platform1, platform1 to factory add and fully load platform1;\n"
+    };
+
+    /**
+     * @return The text of the example programs and of a generated program.
+     */
+    private static List<String> programs() throws Exception {
+        File folder = new File(IncrementalParserTest.class.getResource("Enschede.tldr").getPath()).getParentFile();
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".tldr"));
+        assertNotNull(files);
+
+        List<String> programs = new ArrayList<>();
+        for (File file : files) {
+            programs.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        }
+
+        ProgramGenerator generator = new ProgramGenerator("Generated", 3);
+        generator.setFactories(5);
+        generator.setStatements(100);
+        generator.setDepth(3);
+        programs.add(generator.generate());
+        return programs;
+    }
+
+    /**
+     * Asserts that the result of the parser is the same as that of parsing the whole program.
+     */
+    private static void assertSameAsParse(final IncrementalParser parser, final String description) throws Exception {
+        final OTLDListener expected = OTLDListener.parseFile(new ByteArrayInputStream(
+                parser.getSource().getBytes(StandardCharsets.UTF_8)));
+        final OTLDListener actual = parser.getResult();
+
+        assertEquals(description, errors(expected), errors(actual));
+        if (expected.getProgram() != null && expected.getErrors().isEmpty()) {
+            assertEquals(description, OTLDListenerTest.describe(expected.getProgram()),
+                    OTLDListenerTest.describe(actual.getProgram()));
+        }
+    }
+
+    private static List<String> errors(final OTLDListener listener) {
+        List<String> errors = new ArrayList<>();
+        for (Error error : listener.getErrors()) {
+            errors.add(error.getError());
+        }
+        return errors;
+    }
+
+    @Test
+    public void testRandomEdits() throws Exception {
+        Random random = new Random(5);
+        int partialParses = 0;
+
+        for (String program : programs()) {
+            IncrementalParser parser = new IncrementalParser(program);
+            assertSameAsParse(parser, program);
+
+            for (int i = 0; i < 200; i++) {
+                int offset = random.nextInt(program.length() + 1);
+                if (random.nextBoolean()) {
+                    // Edit at the start of a line, where statements can be inserted
+                    offset = program.lastIndexOf('\n', Math.max(offset - 1, 0)) + 1;
+                }
+                int length = random.nextInt(3) == 0 ? random.nextInt(Math.min(20, program.length() - offset) + 1) : 0;
+                String text = random.nextInt(4) == 0 ? "" : INSERTIONS[random.nextInt(INSERTIONS.length)];
+
+                parser.edit(offset, length, text);
+                String description = String.format("%d %d \"%s\" in %s", offset, length, text, parser.getSource());
+                assertSameAsParse(parser, description);
+
+                parser.update(program);
+                assertEquals(program, parser.getSource());
+                assertSameAsParse(parser, "undo of " + description);
+            }
+
+            partialParses += parser.getPartialParses();
+        }
+
+        assertTrue(partialParses > 0);
+    }
+
+    @Test
+    public void testPartialParses() throws Exception {
+        String program = new String(Files.readAllBytes(new File(IncrementalParserTest.class.getResource(
+                "Enschede.tldr").getPath()).toPath()), StandardCharsets.UTF_8);
+        IncrementalParser parser = new IncrementalParser(program);
+        Function function = parser.getResult().getProgram().getFunction("notLessThanOrEquals");
+        OperationSequence company = parser.getResult().getProgram().getBody();
+        int operations = company.size();
+
+        // The company
+        parser.edit(program.indexOf("End company"), 0, "Load 2 into wagon d;\n");
+        assertEquals(1, parser.getFullParses());
+        assertEquals(1, parser.getPartialParses());
+        assertSame(company, parser.getResult().getProgram().getBody());
+        assertEquals(operations + 1, company.size());
+        assertSame(function, parser.getResult().getProgram().getFunction("notLessThanOrEquals"));
+
+        // The body of a factory
+        int body = function.getBody().size();
+        parser.edit(parser.getSource().indexOf("Final product"), 0, "Turn wagon platform3 around;\n");
+        assertEquals(2, parser.getPartialParses());
+        assertSame(function, parser.getResult().getProgram().getFunction("notLessThanOrEquals"));
+        assertEquals(body + 1, function.getBody().size());
+
+        // A comment and the tokens of a declaration
+        parser.edit(parser.getSource().indexOf("Begin depot"), 0, "/* Wagons */\n");
+        parser.edit(parser.getSource().indexOf("Wagon a"), "Wagon".length(), "Wagon ");
+        assertEquals(4, parser.getPartialParses());
+        assertEquals(1, parser.getFullParses());
+        assertSameAsParse(parser, parser.getSource());
+
+        // A declaration
+        parser.edit(parser.getSource().indexOf("a accepts int"), 1, "e");
+        assertEquals(2, parser.getFullParses());
+        assertFalse(parser.getResult().getErrors().isEmpty());
+        assertSameAsParse(parser, parser.getSource());
+    }
+
+    @Test
+    public void testLaterFactory() throws Exception {
+        String program = "City Later;\n"
+                + "Begin depot;\n    Wagon a accepts int;\nEnd depot;\n"
+                + "Begin industry;\n"
+                + "    Factory first accepts int produces int;\n"
+                + "    Begin production;\n        Write \"x\" platform1 to journal;\n        Final product platform1;\n"
+                + "    End production;\n"
+                + "    Factory second accepts int produces int;\n"
+                + "    Begin production;\n        Write \"x\" platform1 to journal;\n        Final product platform1;\n"
+                + "    End production;\n"
+                + "End industry;\n"
+                + "Begin company;\nEnd company;\n";
+        IncrementalParser parser = new IncrementalParser(program);
+        assertTrue(parser.getResult().getErrors().isEmpty());
+
+        // A factory can only use the factories before it
+        parser.edit(program.indexOf("Final product"), 0,
+                "Transport platform1 to factory second and fully load platform1;\n");
+        assertEquals(2, parser.getFullParses());
+        assertEquals(1, parser.getResult().getErrors().size());
+        assertSameAsParse(parser, parser.getSource());
+
+        parser.update(program);
+        int partialParses = parser.getPartialParses();
+        parser.edit(program.lastIndexOf("Final product"), 0,
+                "Transport platform1 to factory first and fully load platform1;\n");
+        assertEquals(partialParses + 1, parser.getPartialParses());
+        assertTrue(parser.getResult().getErrors().isEmpty());
+        assertSameAsParse(parser, parser.getSource());
+    }
+}
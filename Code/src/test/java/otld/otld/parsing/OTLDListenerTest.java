@@ -1,11 +1,25 @@
 package otld.otld.parsing;
 
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.junit.Test;
+import otld.otld.CompileTimings;
 import otld.otld.Main;
+import otld.otld.driver.ProgramGenerator;
+import otld.otld.grammar.otldLexer;
+import otld.otld.grammar.otldParser;
 import otld.otld.intermediate.*;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
 
 import static org.junit.Assert.*;
 
@@ -197,4 +211,164 @@ public class OTLDListenerTest {
         assertEquals("Error at line:6:10: The ID name is a reserved name and cannot be used!",railroad.getErrors().get(0).getError());
         assertEquals("Error at line:10:27: This factory has not been defined!",railroad.getErrors().get(1).getError());
     }
+
+    /**
+     * Returns the example programs.
+     */
+    private File[] examples() {
+        File folder = new File(OTLDListenerTest.class.getResource("Enschede.tldr").getPath()).getParentFile();
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".tldr"));
+        assertNotNull(files);
+        return files;
+    }
+
+    /**
+     * Tokenizes an example program.
+     */
+    private CommonTokenStream tokenize(final File file) throws Exception {
+        try (InputStream stream = new FileInputStream(file)) {
+            otldLexer lexer = new otldLexer(new ANTLRInputStream(stream));
+            lexer.removeErrorListeners();
+            CommonTokenStream tokens = new CommonTokenStream(lexer);
+            tokens.fill();
+            return tokens;
+        }
+    }
+
+    @Test
+    /**
+     * Building the program while parsing gives the same program and errors as walking the parse tree of a single parse
+     * with full LL prediction.
+     */
+    public void testSinglePass() throws Exception {
+        for (File file : this.examples()) {
+            OTLDErrorListener syntaxErrors = new OTLDErrorListener();
+            otldParser parser = new otldParser(this.tokenize(file));
+            parser.removeErrorListeners();
+            parser.addErrorListener(syntaxErrors);
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            ParseTree tree = parser.program();
+
+            OTLDListener expected = new OTLDListener();
+            if (syntaxErrors.getErrors().isEmpty()) {
+                new ParseTreeWalker().walk(expected, tree);
+            } else {
+                expected.errors.addAll(syntaxErrors.getErrors());
+            }
+
+            OTLDListener actual = OTLDListener.parse(new otldParser(this.tokenize(file)), new OTLDErrorListener());
+            this.assertSame(file, expected, actual);
+        }
+    }
+
+    /**
+     * Asserts that two listeners have the same errors, or the same program if there are no errors.
+     */
+    private void assertSame(final File file, final OTLDListener expected, final OTLDListener actual) {
+        assertEquals(file.getName(), expected.getErrors().size(), actual.getErrors().size());
+        for (int i = 0; i < expected.getErrors().size(); i++) {
+            assertEquals(file.getName(), expected.getErrors().get(i).getError(), actual.getErrors().get(i).getError());
+        }
+
+        if (expected.getErrors().isEmpty()) {
+            assertEquals(file.getName(), describe(expected.getProgram()), describe(actual.getProgram()));
+        }
+    }
+
+    /**
+     * Asserts that streaming a file gives the same errors, or the same program, as parsing it.
+     */
+    private void assertSameAsParse(final File file) throws Exception {
+        OTLDListener expected;
+        try (InputStream stream = new FileInputStream(file)) {
+            expected = OTLDListener.parseFile(stream);
+        }
+
+        this.assertSame(file, expected, OTLDListener.parseStream(file.toPath(), new CompileTimings()));
+    }
+
+    /**
+     * Describes the variables, functions and operations of a program, in an order that does not depend on hashing.
+     */
+    static String describe(final Program program) {
+        StringBuilder builder = new StringBuilder();
+        List<String> variables = new ArrayList<>();
+        for (Variable variable : program.getVariables()) {
+            variables.add(variable + " " + variable.getType() + " " + variable.getInitialValue());
+        }
+        Collections.sort(variables);
+        builder.append(variables).append('\n');
+
+        Map<String, Function> functions = new TreeMap<>();
+        for (Function function : program.getFunctions()) {
+            functions.put(function.getId(), function);
+        }
+        for (Function function : functions.values()) {
+            builder.append(function).append(' ').append(Arrays.toString(function.getArgTypes())).append('\n');
+            describe(function.getBody(), "  ", builder);
+        }
+
+        describe(program.getBody(), "", builder);
+        return builder.toString();
+    }
+
+    private static void describe(final OperationSequence sequence, final String indent, final StringBuilder builder) {
+        for (Operation operation : sequence) {
+            builder.append(indent).append(operation).append('\n');
+
+            if (operation instanceof Loop) {
+                describe(((Loop) operation).getConditionBody(), indent + "? ", builder);
+                describe(((Loop) operation).getBody(), indent + "  ", builder);
+            } else if (operation instanceof Conditional) {
+                describe(((Conditional) operation).getBodyTrue(), indent + "+ ", builder);
+                describe(((Conditional) operation).getBodyFalse(), indent + "- ", builder);
+            }
+        }
+    }
+
+    @Test
+    public void testCharset() throws Exception {
+        File file = File.createTempFile("Charset", ".tldr");
+        try {
+            File example = new File(OTLDListenerTest.class.getResource("Enschede.tldr").getPath());
+            String enschede = new String(Files.readAllBytes(example.toPath()), StandardCharsets.UTF_8);
+            Files.write(file.toPath(), enschede.replace("\"a=\"", "\"å €=\"").getBytes(StandardCharsets.UTF_8));
+
+            // Both ways of parsing decode the file as UTF-8, whatever the default character set is
+            OTLDListener parsed;
+            try (InputStream stream = new FileInputStream(file)) {
+                parsed = OTLDListener.parseFile(stream);
+            }
+            OTLDListener streamed = OTLDListener.parseStream(file.toPath(), new CompileTimings());
+            assertTrue(describe(parsed.getProgram()).contains("\"å €=\""));
+            assertEquals(describe(parsed.getProgram()), describe(streamed.getProgram()));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    /**
+     * Streaming a file gives the same result as parsing it, for programs with and without errors.
+     */
+    public void testParseStream() throws Exception {
+        for (File file : this.examples()) {
+            this.assertSameAsParse(file);
+        }
+
+        File generated = File.createTempFile("Generated", ".tldr");
+        try {
+            ProgramGenerator generator = new ProgramGenerator("Generated", 7);
+            generator.setFactories(20);
+            generator.setStatements(1000);
+            generator.setDepth(3);
+            try (Writer writer = Files.newBufferedWriter(generated.toPath(), StandardCharsets.UTF_8)) {
+                generator.write(writer);
+            }
+
+            this.assertSameAsParse(generated);
+        } finally {
+            assertTrue(generated.delete());
+        }
+    }
 }
@@ -0,0 +1,157 @@
+package otld.otld.parsing;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.junit.Test;
+import otld.otld.driver.ProgramGenerator;
+import otld.otld.grammar.otldLexer;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the hand-written lexer produces the same tokens and errors as the generated lexer.
+ */
+public class OTLDScannerTest {
+    /** Pieces of programs from which random input is made. */
+    private static final String[] FRAGMENTS = {
+            "City", "Begin", "End", "Wagon", "Final", "Final product", "Final prod", " product", "Ask", "Ask control",
+            "contents of", "contents", "status of", "status o", " Stop", " Sto", "Stop", "Approach signal", "signal",
+            "red", "green", "int", "boolean", "char", "inter", "chars", "x", "platform1", "Wagon1", "0", "007", "-", "-0",
+            "-12", "42", "12ab", "\"", "\"\"", "\"text\"", "\"a\"\"b\"", "'", "'a'", "'ab'", "'_'", "/", "/*", "*/",
+            "/* comment */", "*", ";", ",", ":", " ", "  ", "\t", "\n", "\r\n", "_", "@", "é", "#"
+    };
+
+    /**
+     * Describes the tokens and errors of a token source.
+     */
+    private static List<String> describe(final TokenSource source, final List<String> errors) {
+        final List<String> tokens = new ArrayList<>();
+        Token token;
+
+        do {
+            token = source.nextToken();
+            tokens.add(String.format("%d %s %d:%d %d-%d", token.getType(), token.getText(), token.getLine(),
+                    token.getCharPositionInLine(), token.getStartIndex(), token.getStopIndex()));
+        } while (token.getType() != Token.EOF);
+
+        tokens.addAll(errors);
+        return tokens;
+    }
+
+    /**
+     * Error listener that collects the errors as text.
+     */
+    private static class Errors extends BaseErrorListener {
+        private final List<String> errors = new ArrayList<>();
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+            this.errors.add(String.format("error %d:%d %s", line, charPositionInLine, msg));
+        }
+    }
+
+    /**
+     * Asserts that both lexers produce the same tokens and errors for the input, with the hand-written lexer reading
+     * from a character stream and from an array.
+     */
+    private static void assertSameTokens(final String input) {
+        final Errors expectedErrors = new Errors();
+        final otldLexer lexer = new otldLexer(new ANTLRInputStream(input));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(expectedErrors);
+        final List<String> expected = describe(lexer, expectedErrors.errors);
+
+        final Errors actualErrors = new Errors();
+        final OTLDScanner scanner = new OTLDScanner(new ANTLRInputStream(input));
+        scanner.addErrorListener(actualErrors);
+        assertEquals(input, expected, describe(scanner, actualErrors.errors));
+
+        final Errors arrayErrors = new Errors();
+        final OTLDScanner arrayScanner = new OTLDScanner(null);
+        arrayScanner.setInputStream(input.toCharArray(), input.length());
+        arrayScanner.addErrorListener(arrayErrors);
+        assertEquals(input, expected, describe(arrayScanner, arrayErrors.errors));
+    }
+
+    @Test
+    public void testExamples() throws Exception {
+        File folder = new File(OTLDScannerTest.class.getResource("Enschede.tldr").getPath()).getParentFile();
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".tldr"));
+        assertNotNull(files);
+
+        for (File file : files) {
+            assertSameTokens(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testGenerated() throws Exception {
+        for (long seed = 0; seed < 5; seed++) {
+            ProgramGenerator generator = new ProgramGenerator("Generated", seed);
+            generator.setFactories(3);
+            generator.setDepth(3);
+            assertSameTokens(generator.generate());
+        }
+    }
+
+    @Test
+    public void testEdgeCases() throws Exception {
+        for (String fragment : FRAGMENTS) {
+            assertSameTokens(fragment);
+            assertSameTokens(fragment + ";");
+            assertSameTokens(fragment + "x");
+        }
+
+        assertSameTokens("");
+        assertSameTokens("Final productx");
+        assertSameTokens("Final  product");
+        assertSameTokens("Ask controller");
+        assertSameTokens("x Stop;\n\tStop");
+        assertSameTokens("\"unterminated\nstring");
+        assertSameTokens("\"a\"\"");
+        assertSameTokens("/* unterminated\n comment *");
+        assertSameTokens("/*/ */");
+        assertSameTokens("-\n-x");
+        assertSameTokens("'a\n'\n'");
+    }
+
+    @Test
+    public void testRandom() throws Exception {
+        Random random = new Random(17);
+
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder input = new StringBuilder();
+            int fragments = random.nextInt(12);
+
+            for (int j = 0; j < fragments; j++) {
+                input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            assertSameTokens(input.toString());
+        }
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        OTLDScanner scanner = new OTLDScanner(new ANTLRInputStream("City\nA;"));
+        while (scanner.nextToken().getType() != Token.EOF) {
+        }
+        assertEquals(2, scanner.getLine());
+
+        scanner.setInputStream(new ANTLRInputStream("City B;"));
+        Token token = scanner.nextToken();
+        assertEquals(otldLexer.T__0, token.getType());
+        assertEquals(1, token.getLine());
+        assertEquals(0, token.getCharPositionInLine());
+    }
+}
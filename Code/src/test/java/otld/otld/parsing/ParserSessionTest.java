@@ -0,0 +1,90 @@
+package otld.otld.parsing;
+
+import org.junit.Test;
+import otld.otld.CompileTimings;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class ParserSessionTest {
+    /** Example programs with and without errors. */
+    private static final String[] PROGRAMS = {"Enschede", "Maastricht", "Almere", "spellingAndContext", "Nijmegen"};
+
+    /**
+     * Parses an example program and describes the errors.
+     */
+    private String parse(final ParserSession session, final String name) throws Exception {
+        try (InputStream stream = new FileInputStream(ParserSessionTest.class.getResource(name + ".tldr").getPath())) {
+            OTLDListener listener = session.parse(stream, new CompileTimings());
+            StringBuilder builder = new StringBuilder(listener.getProgram() == null ? "" : listener.getProgram().getId());
+            for (Error error : listener.getErrors()) {
+                builder.append('\n').append(error.getError());
+            }
+            return builder.toString();
+        }
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        ParserSession session = new ParserSession();
+        List<String> expected = new ArrayList<>();
+
+        for (String program : PROGRAMS) {
+            expected.add(this.parse(new ParserSession(), program));
+        }
+
+        // Errors and state of one parse do not leak into the next
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < PROGRAMS.length; i++) {
+                assertEquals(PROGRAMS[i], expected.get(i), this.parse(session, PROGRAMS[i]));
+            }
+        }
+
+        assertEquals(3 * PROGRAMS.length, session.getParses());
+        assertSame(ParserSession.get(), ParserSession.get());
+    }
+
+    @Test
+    public void testThreads() throws Exception {
+        String expected = this.parse(new ParserSession(), "spellingAndContext");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                results.add(executor.submit(() -> this.parse(ParserSession.get(), "spellingAndContext")));
+            }
+            for (Future<String> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testClearDFA() throws Exception {
+        String expected = this.parse(ParserSession.get(), "Enschede");
+        assertTrue(ParserSession.getDFAStates() > 0);
+
+        ParserSession.clearDFA();
+        assertEquals(0, ParserSession.getDFAStates());
+
+        assertEquals(expected, this.parse(ParserSession.get(), "Enschede"));
+        assertTrue(ParserSession.getDFAStates() > 0);
+
+        // Another thread, such as the one of a low memory notification, clears the predictions of every session
+        Thread thread = new Thread(ParserSession::clearDFA);
+        thread.start();
+        thread.join();
+        assertEquals(0, ParserSession.getDFAStates());
+        assertEquals(expected, this.parse(ParserSession.get(), "Enschede"));
+    }
+}